@@ -0,0 +1,7 @@
+package com.flightapp.api.gateway.cache;
+
+import java.time.LocalDate;
+
+// sent by flight-service for every flight whose inventory changed
+public record CachePurge(Long flightId, String fromPlace, String toPlace, LocalDate scheduleDate) {
+}
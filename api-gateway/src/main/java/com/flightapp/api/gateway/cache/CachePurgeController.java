@@ -0,0 +1,65 @@
+package com.flightapp.api.gateway.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// called by flight-service when inventory changes, served by the gateway itself
+// ahead of the routes, only with gateway.cache.purge-enabled=true
+@RestController
+@ConditionalOnProperty(name = "gateway.cache.purge-enabled", havingValue = "true")
+@RequestMapping("/internal/cache")
+public class CachePurgeController {
+
+	public static final String TOKEN_HEADER = "X-Purge-Token";
+
+	private final FlightResponseCache flightResponseCache;
+	private final byte[] purgeToken;
+
+	// no default on purpose, the endpoints are served on the public listener and
+	// without a token anyone could empty the cache, so an enabled purge does not start
+	public CachePurgeController(FlightResponseCache flightResponseCache,
+			@Value("${gateway.cache.purge-token:#{null}}") String purgeToken) {
+		if (purgeToken == null || purgeToken.isBlank()) {
+			throw new IllegalStateException("gateway.cache.purge-token is not set. "
+					+ "Set it to the flight.gateway-cache.purge-token of flight-service, "
+					+ "or set gateway.cache.purge-enabled=false.");
+		}
+		this.flightResponseCache = flightResponseCache;
+		this.purgeToken = purgeToken.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@PostMapping("/purge")
+	public ResponseEntity<Void> purge(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+			@RequestBody List<CachePurge> purges) {
+		if (!authorized(token)) {
+			return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+		}
+		purges.forEach(flightResponseCache::purge);
+		return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+	}
+
+	@DeleteMapping
+	public ResponseEntity<Void> purgeAll(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+		if (!authorized(token)) {
+			return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+		}
+		flightResponseCache.purgeAll();
+		return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+	}
+
+	private boolean authorized(String token) {
+		return token != null && MessageDigest.isEqual(purgeToken, token.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,6 @@
+package com.flightapp.api.gateway.cache;
+
+// a 200 response of flight-service as the gateway replays it, route is the search
+// route and date the response belongs to, null for a flight by id
+public record CachedResponse(String contentType, byte[] body, long storedAtMillis, String route) {
+}
@@ -0,0 +1,173 @@
+package com.flightapp.api.gateway.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+/**
+ * Flight-by-id and flight search responses kept by the gateway. An entry is
+ * fresh for ttl-seconds, after that it is still served for stale-seconds while
+ * one request refreshes it in the background, and then it is gone. The cache
+ * is bounded by the total size of the bodies it holds.
+ *
+ * With purging enabled on both sides, flight-service purges the entries of a
+ * flight when its inventory changes: the flight by id, and every search of its route and date, which is the only
+ * search whose result the change can affect. A response fetched from
+ * flight-service is only kept when no purge of its flight or route arrived
+ * since the request was sent, see {@link #purgeMark()}.
+ */
+@Component
+public class FlightResponseCache {
+
+	public enum Freshness { FRESH, STALE }
+
+	private static final Duration PURGE_MARK_TTL = Duration.ofMinutes(5);
+
+	private final Cache<String, CachedResponse> cache;
+	private final long ttlMillis;
+	// cache keys of the searches per route and date, for purging
+	private final Map<String, Set<String>> searchesByRoute = new ConcurrentHashMap<>();
+	private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+	// numbers the purges, the mark of the last purge of a flight key or route is
+	// kept for longer than any request to flight-service takes
+	private final AtomicLong purges = new AtomicLong();
+	private final Cache<String, Long> purgedAt;
+	private volatile long allPurgedAt;
+	private final Clock clock;
+
+	@Autowired
+	public FlightResponseCache(@Value("${gateway.cache.max-bytes:67108864}") long maxBytes,
+			@Value("${gateway.cache.ttl-seconds:5}") long ttlSeconds,
+			@Value("${gateway.cache.stale-seconds:30}") long staleSeconds) {
+		this(maxBytes, ttlSeconds, staleSeconds, Clock.systemUTC());
+	}
+
+	FlightResponseCache(long maxBytes, long ttlSeconds, long staleSeconds, Clock clock) {
+		this.clock = clock;
+		this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maxBytes)
+				.weigher((Weigher<String, CachedResponse>) (key, response) -> key.length() + response.body().length)
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds + staleSeconds))
+				.ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+				.executor(Runnable::run)
+				.removalListener((String key, CachedResponse response, RemovalCause cause) -> {
+					// a replaced search keeps its place in the index
+					if (cause != RemovalCause.REPLACED && key != null && response != null && response.route() != null) {
+						searchesByRoute.computeIfPresent(response.route(), (route, keys) -> {
+							keys.remove(key);
+							return keys.isEmpty() ? null : keys;
+						});
+					}
+				})
+				.build();
+		this.purgedAt = Caffeine.newBuilder()
+				.expireAfterWrite(PURGE_MARK_TTL)
+				.ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+				.executor(Runnable::run)
+				.build();
+	}
+
+	public CachedResponse get(String key) {
+		return cache.getIfPresent(key);
+	}
+
+	public Freshness freshness(CachedResponse response) {
+		return clock.millis() - response.storedAtMillis() < ttlMillis ? Freshness.FRESH : Freshness.STALE;
+	}
+
+	// taken before a request goes to flight-service and handed to put with its response
+	public long purgeMark() {
+		return purges.get();
+	}
+
+	// stores the response unless its flight or route was purged after the mark was
+	// taken, it may predate the change. The purge records its mark before it
+	// invalidates, so checking again after the put catches one that ran in between
+	public void put(String key, String contentType, byte[] body, String route, long mark) {
+		if (purgedSince(key, route, mark)) {
+			return;
+		}
+		if (route != null) {
+			searchesByRoute.computeIfAbsent(route, r -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+		cache.put(key, new CachedResponse(contentType, body, clock.millis(), route));
+		if (purgedSince(key, route, mark)) {
+			cache.invalidate(key);
+		}
+	}
+
+	private boolean purgedSince(String key, String route, long mark) {
+		return allPurgedAt > mark || purgedAfter(key, mark) || (route != null && purgedAfter(route, mark));
+	}
+
+	private boolean purgedAfter(String scope, long mark) {
+		Long purged = purgedAt.getIfPresent(scope);
+		return purged != null && purged > mark;
+	}
+
+	// true for the one caller that should refresh the entry, until it calls revalidated
+	public boolean startRevalidation(String key) {
+		return revalidating.add(key);
+	}
+
+	public void revalidated(String key) {
+		revalidating.remove(key);
+	}
+
+	public void evict(String key) {
+		cache.invalidate(key);
+	}
+
+	public void purge(CachePurge purge) {
+		long mark = purges.incrementAndGet();
+		if (purge.flightId() != null) {
+			String key = flightKey(purge.flightId());
+			purgedAt.put(key, mark);
+			cache.invalidate(key);
+		}
+		if (purge.fromPlace() != null && purge.toPlace() != null && purge.scheduleDate() != null) {
+			String route = route(purge.fromPlace(), purge.toPlace(), purge.scheduleDate());
+			purgedAt.put(route, mark);
+			Set<String> searches = searchesByRoute.remove(route);
+			if (searches != null) {
+				cache.invalidateAll(searches);
+			}
+		}
+	}
+
+	public void purgeAll() {
+		allPurgedAt = purges.incrementAndGet();
+		cache.invalidateAll();
+		searchesByRoute.clear();
+	}
+
+	public long size() {
+		cache.cleanUp();
+		return cache.estimatedSize();
+	}
+
+	public static String flightKey(Long flightId) {
+		return "GET flight " + flightId;
+	}
+
+	// places are matched case-insensitively by flight-service, so the route is too
+	public static String route(String fromPlace, String toPlace, LocalDate date) {
+		return fromPlace.trim().toUpperCase(Locale.ROOT) + "|" + toPlace.trim().toUpperCase(Locale.ROOT) + "|" + date;
+	}
+}
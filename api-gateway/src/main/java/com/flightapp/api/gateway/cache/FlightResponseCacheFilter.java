@@ -0,0 +1,238 @@
+package com.flightapp.api.gateway.cache;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers GET {flight-path}/{id} and POST {flight-path}/search from
+ * {@link FlightResponseCache} when it can, and stores the 200 JSON responses of
+ * flight-service when it cannot. Searches are keyed on a hash of the request
+ * body with its fields sorted, so the same search written differently is one
+ * entry. A stale entry is served as it is while a single request in the
+ * background fetches a new one from flight-service.
+ *
+ * Responses carry X-Cache: HIT, STALE or MISS. Requests with a query string
+ * or that do not accept JSON always go to flight-service.
+ */
+@Component
+public class FlightResponseCacheFilter implements GlobalFilter, Ordered {
+
+	public static final String CACHE_HEADER = "X-Cache";
+
+	private static final Logger log = LoggerFactory.getLogger(FlightResponseCacheFilter.class);
+	private static final Duration REVALIDATE_TIMEOUT = Duration.ofSeconds(10);
+
+	private final FlightResponseCache cache;
+	private final WebClient origin;
+	private final String searchPath;
+	private final Pattern flightByIdPath;
+	private final int maxEntryBytes;
+	private final ObjectMapper canonicalMapper = new ObjectMapper()
+			.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+	public FlightResponseCacheFilter(FlightResponseCache cache, WebClient.Builder webClientBuilder,
+			LoadBalancedExchangeFilterFunction loadBalancer,
+			@Value("${gateway.cache.origin:http://FLIGHT-SERVICE}") String origin,
+			@Value("${gateway.cache.flight-path:/api/v1.0/flight}") String flightPath,
+			@Value("${gateway.cache.max-entry-bytes:262144}") int maxEntryBytes) {
+		this.cache = cache;
+		this.origin = webClientBuilder.baseUrl(origin).filter(loadBalancer).build();
+		this.searchPath = flightPath + "/search";
+		this.flightByIdPath = Pattern.compile(Pattern.quote(flightPath) + "/(\\d+)");
+		this.maxEntryBytes = maxEntryBytes;
+	}
+
+	@Override
+	public int getOrder() {
+		// ahead of the filter that writes the response, so the response can be captured
+		return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		if (request.getURI().getRawQuery() != null || !acceptsJson(request)) {
+			return chain.filter(exchange);
+		}
+		String path = request.getPath().value();
+		Matcher flightById = flightByIdPath.matcher(path);
+		if (request.getMethod() == HttpMethod.GET && flightById.matches()) {
+			return cached(exchange, chain, FlightResponseCache.flightKey(Long.valueOf(flightById.group(1))), null, null);
+		}
+		if (request.getMethod() == HttpMethod.POST && path.equals(searchPath)) {
+			return DataBufferUtils.join(request.getBody())
+					.map(FlightResponseCacheFilter::bytes)
+					.defaultIfEmpty(new byte[0])
+					.flatMap(body -> {
+						ServerWebExchange replayable = exchange.mutate().request(replaying(exchange, body)).build();
+						SearchKey search = searchKey(body);
+						return search == null ? chain.filter(replayable)
+								: cached(replayable, chain, search.key(), search.route(), body);
+					});
+		}
+		return chain.filter(exchange);
+	}
+
+	private Mono<Void> cached(ServerWebExchange exchange, GatewayFilterChain chain, String key, String route,
+			byte[] body) {
+		CachedResponse cached = cache.get(key);
+		if (cached == null) {
+			return chain.filter(exchange.mutate()
+					.response(capturing(exchange.getResponse(), key, route, cache.purgeMark())).build());
+		}
+		FlightResponseCache.Freshness freshness = cache.freshness(cached);
+		if (freshness == FlightResponseCache.Freshness.STALE && cache.startRevalidation(key)) {
+			revalidate(exchange.getRequest(), key, route, body);
+		}
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(HttpStatus.OK);
+		response.getHeaders().set(HttpHeaders.CONTENT_TYPE, cached.contentType());
+		response.getHeaders().set(CACHE_HEADER, freshness == FlightResponseCache.Freshness.FRESH ? "HIT" : "STALE");
+		return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+	}
+
+	// stores the body on its way to the client when it is a 200 JSON response small enough to keep
+	// and its flight was not purged while it was fetched
+	private ServerHttpResponse capturing(ServerHttpResponse response, String key, String route, long mark) {
+		return new ServerHttpResponseDecorator(response) {
+			@Override
+			public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+				if (!cacheable(getStatusCode(), getHeaders())) {
+					return super.writeWith(body);
+				}
+				return DataBufferUtils.join(Flux.from(body)).flatMap(joined -> {
+					byte[] bytes = bytes(joined);
+					if (bytes.length <= maxEntryBytes) {
+						cache.put(key, getHeaders().getContentType().toString(), bytes, route, mark);
+					}
+					getHeaders().set(CACHE_HEADER, "MISS");
+					return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+				});
+			}
+		};
+	}
+
+	private void revalidate(ServerHttpRequest request, String key, String route, byte[] body) {
+		long mark = cache.purgeMark();
+		WebClient.RequestBodySpec refresh = origin.method(request.getMethod())
+				.uri(request.getPath().value())
+				.accept(MediaType.APPLICATION_JSON);
+		if (body != null) {
+			refresh.contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+		}
+		refresh.exchangeToMono(response -> {
+					if (!cacheable(response.statusCode(), response.headers().asHttpHeaders())) {
+						// no longer there, the next request goes to flight-service itself
+						cache.evict(key);
+						return response.releaseBody();
+					}
+					return response.bodyToMono(byte[].class)
+							.doOnNext(bytes -> cache.put(key,
+									response.headers().asHttpHeaders().getContentType().toString(), bytes, route, mark))
+							.then();
+				})
+				.timeout(REVALIDATE_TIMEOUT)
+				.doFinally(signal -> cache.revalidated(key))
+				.subscribe(null, e -> log.debug("Revalidating {} failed: {}", key, e.getMessage()));
+	}
+
+	private static boolean cacheable(HttpStatusCode status, HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		String cacheControl = headers.getCacheControl();
+		return status != null && status.value() == HttpStatus.OK.value()
+				&& contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+				&& (cacheControl == null || !(cacheControl.contains(CacheControl.noStore().getHeaderValue())
+						|| cacheControl.contains("private")));
+	}
+
+	private static boolean acceptsJson(ServerHttpRequest request) {
+		return request.getHeaders().getAccept().isEmpty() || request.getHeaders().getAccept().stream()
+				.anyMatch(accepted -> accepted.isCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+
+	private static ServerHttpRequest replaying(ServerWebExchange exchange, byte[] body) {
+		return new ServerHttpRequestDecorator(exchange.getRequest()) {
+			@Override
+			public Flux<DataBuffer> getBody() {
+				return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+			}
+		};
+	}
+
+	private static byte[] bytes(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		return bytes;
+	}
+
+	// null when the body is not a search flight-service would answer, which is then not cached
+	private SearchKey searchKey(byte[] body) {
+		Map<?, ?> search;
+		try {
+			search = canonicalMapper.readValue(body, Map.class);
+		} catch (IOException e) {
+			return null;
+		}
+		if (!(search.get("fromPlace") instanceof String fromPlace && search.get("toPlace") instanceof String toPlace
+				&& search.get("journeyDate") instanceof String journeyDate)) {
+			return null;
+		}
+		try {
+			String route = FlightResponseCache.route(fromPlace, toPlace, LocalDate.parse(journeyDate));
+			return new SearchKey("POST search " + sha256(canonicalMapper.writeValueAsBytes(search)), route);
+		} catch (DateTimeParseException | IOException e) {
+			return null;
+		}
+	}
+
+	private static String sha256(byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record SearchKey(String key, String route) {
+	}
+}
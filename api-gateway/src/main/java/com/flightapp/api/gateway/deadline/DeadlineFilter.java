@@ -0,0 +1,56 @@
+package com.flightapp.api.gateway.deadline;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Gives every request a deadline that booking-service and flight-service work
+ * to: the X-Request-Timeout-Millis the client sent, at most max-millis, or
+ * default-millis when it sent none. The services pass what is left of it on to
+ * each other and drop work the caller has stopped waiting for.
+ */
+@Component
+public class DeadlineFilter implements GlobalFilter, Ordered {
+
+	public static final String HEADER = "X-Request-Timeout-Millis";
+
+	private final long defaultMillis;
+	private final long maxMillis;
+
+	public DeadlineFilter(@Value("${gateway.deadline.default-millis:10000}") long defaultMillis,
+			@Value("${gateway.deadline.max-millis:30000}") long maxMillis) {
+		this.defaultMillis = defaultMillis;
+		this.maxMillis = maxMillis;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		long millis = Math.min(maxMillis, requested(exchange.getRequest().getHeaders().getFirst(HEADER)));
+		return chain.filter(exchange.mutate()
+				.request(request -> request.headers(headers -> headers.set(HEADER, String.valueOf(millis))))
+				.build());
+	}
+
+	private long requested(String header) {
+		if (header == null) {
+			return defaultMillis;
+		}
+		try {
+			long millis = Long.parseLong(header.trim());
+			return millis > 0 ? millis : defaultMillis;
+		} catch (NumberFormatException e) {
+			return defaultMillis;
+		}
+	}
+}
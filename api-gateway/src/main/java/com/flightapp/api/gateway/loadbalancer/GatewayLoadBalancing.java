@@ -0,0 +1,13 @@
+package com.flightapp.api.gateway.loadbalancer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+// lb:// routes pick instances by latency and load instead of round robin,
+// gateway.load-balancing.strategy=round-robin goes back
+@Configuration
+@ConditionalOnProperty(name = "gateway.load-balancing.strategy", havingValue = "latency-aware", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class GatewayLoadBalancing {
+}
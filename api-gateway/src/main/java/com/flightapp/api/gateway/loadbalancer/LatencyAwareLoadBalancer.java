@@ -0,0 +1,190 @@
+package com.flightapp.api.gateway.loadbalancer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Power of two choices over the instances of one service: two instances are
+ * drawn at random and the request goes to the cheaper one, cost being the
+ * average response time of the instance times its requests in flight plus one.
+ * The average is a peak EWMA, a slower response is taken over at once and a
+ * faster one only weighs in by the time since the last, so an instance that
+ * stalls is avoided straight away and trusted again over about decay-millis.
+ * An instance nobody has used for decay-millis decays towards zero and is
+ * tried again, and one without any response yet is tried while it is idle.
+ *
+ * Also the {@link LoadBalancerLifecycle} that sees the requests start and
+ * complete, the gateway calls it around every request it routes to lb:// and
+ * around the flight calls of the response cache.
+ *
+ * A copy of the one in booking-service, which picks flight-service instances
+ * for its Feign client, kept apart since the two are built on their own.
+ * CopiedSourcesTest in booking-service fails once the code of the two differs.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+		LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+	// a failed request counts as at least this slow
+	private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSuppliers;
+	private final String serviceId;
+	private final double decayNanos;
+	private final LongSupplier nanoTime;
+	// instances gone from discovery drop out once unused for a while
+	private final Cache<String, InstanceLoad> loads = Caffeine.newBuilder()
+			.expireAfterAccess(Duration.ofMinutes(10))
+			.build();
+
+	public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSuppliers,
+			String serviceId, long decayMillis) {
+		this(serviceInstanceListSuppliers, serviceId, decayMillis, System::nanoTime);
+	}
+
+	LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSuppliers,
+			String serviceId, long decayMillis, LongSupplier nanoTime) {
+		this.serviceInstanceListSuppliers = serviceInstanceListSuppliers;
+		this.serviceId = serviceId;
+		this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayMillis);
+		this.nanoTime = nanoTime;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public Mono<Response<ServiceInstance>> choose(Request request) {
+		ServiceInstanceListSupplier supplier = serviceInstanceListSuppliers
+				.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		return supplier.get(request).next().map(instances -> {
+			Response<ServiceInstance> response = choose(instances);
+			if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+				callback.selectedServiceInstance(response.getServer());
+			}
+			return response;
+		});
+	}
+
+	Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+		if (instances.isEmpty()) {
+			log.warn("No servers available for service: {}", serviceId);
+			return new EmptyResponse();
+		}
+		if (instances.size() == 1) {
+			return new DefaultResponse(instances.get(0));
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(instances.size());
+		int second = random.nextInt(instances.size() - 1);
+		if (second >= first) {
+			second++;
+		}
+		long now = nanoTime.getAsLong();
+		ServiceInstance a = instances.get(first);
+		ServiceInstance b = instances.get(second);
+		return new DefaultResponse(load(a).cost(now) <= load(b).cost(now) ? a : b);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+		if (!lbResponse.hasServer()) {
+			return;
+		}
+		if (request.getContext() instanceof TimedRequestContext context) {
+			context.setRequestStartTime(nanoTime.getAsLong());
+		}
+		load(lbResponse.getServer()).inFlight.incrementAndGet();
+	}
+
+	@Override
+	public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+		if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null
+				|| !lbResponse.hasServer()) {
+			return;
+		}
+		InstanceLoad load = load(lbResponse.getServer());
+		load.inFlight.updateAndGet(inFlight -> Math.max(0, inFlight - 1));
+		if (completionContext.getLoadBalancerRequest().getContext() instanceof TimedRequestContext context
+				&& context.getRequestStartTime() != 0) {
+			long now = nanoTime.getAsLong();
+			long latency = now - context.getRequestStartTime();
+			if (completionContext.status() == CompletionContext.Status.FAILED) {
+				latency = Math.max(latency, FAILURE_PENALTY_NANOS);
+			}
+			load.record(latency, now);
+		}
+	}
+
+	double costOf(ServiceInstance instance) {
+		return load(instance).cost(nanoTime.getAsLong());
+	}
+
+	private InstanceLoad load(ServiceInstance instance) {
+		return loads.get(instance.getHost() + ":" + instance.getPort(), key -> new InstanceLoad());
+	}
+
+	private final class InstanceLoad {
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicReference<Latency> latency = new AtomicReference<>(new Latency(0, 0));
+
+		void record(long latencyNanos, long now) {
+			Latency current;
+			Latency next;
+			do {
+				current = latency.get();
+				double nanos = latencyNanos;
+				if (current.nanos != 0 && latencyNanos < current.nanos) {
+					// a sample weighs more the longer it has been since the last one
+					double weight = 1 - Math.exp(-Math.max(0, now - current.at) / decayNanos);
+					nanos = current.nanos + weight * (latencyNanos - current.nanos);
+				}
+				next = new Latency(nanos, Math.max(now, current.at));
+			} while (!latency.compareAndSet(current, next));
+		}
+
+		double cost(long now) {
+			Latency current = latency.get();
+			int requests = inFlight.get();
+			if (current.nanos == 0) {
+				// nothing known yet, worth a try while idle and not beyond
+				return requests == 0 ? 0 : Double.MAX_VALUE;
+			}
+			double nanos = current.nanos * Math.exp(-Math.max(0, now - current.at - decayNanos) / decayNanos);
+			return nanos * (requests + 1);
+		}
+	}
+
+	private record Latency(double nanos, long at) {
+	}
+}
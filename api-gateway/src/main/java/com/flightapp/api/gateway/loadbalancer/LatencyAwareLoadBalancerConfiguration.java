@@ -0,0 +1,26 @@
+package com.flightapp.api.gateway.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer of every service the gateway routes to, registered through
+ * {@link GatewayLoadBalancing} and for that reason not a @Configuration of its
+ * own. The instances still come from Eureka through the default, cached
+ * {@link ServiceInstanceListSupplier}.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+	@Bean
+	public LatencyAwareLoadBalancer latencyAwareLoadBalancer(Environment environment,
+			LoadBalancerClientFactory loadBalancerClientFactory,
+			@Value("${gateway.load-balancing.decay-millis:10000}") long decayMillis) {
+		String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+		return new LatencyAwareLoadBalancer(
+				loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId,
+				decayMillis);
+	}
+}
@@ -0,0 +1,150 @@
+package com.flightapp.api.gateway.ratelimit;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Sheds requests by priority once the downstream services slow down. The
+ * latency of every request routed downstream, up to the moment its response
+ * is committed, goes into an average that weighs samples by time, so it follows a spike within
+ * about window-millis and falls back on its own once traffic stops. Above the
+ * latency target a growing share of {@link RequestPriority#LOW} requests is
+ * answered with 429 straight away, all of them at twice the target, and
+ * {@link RequestPriority#NORMAL} requests follow between two and three times
+ * the target. {@link RequestPriority#CRITICAL} requests are never shed.
+ *
+ * Runs after the response cache, so requests answered from the cache are
+ * neither shed nor counted. Streamed responses, the unmeasured paths, are shed
+ * by their priority but left out of the average, since they take as long as
+ * their body does.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.load-shed.enabled", havingValue = "true", matchIfMissing = true)
+public class LoadShedFilter implements GlobalFilter, Ordered {
+
+	private final List<PathPattern> criticalPaths;
+	private final List<PathPattern> lowPriorityPaths;
+	private final List<PathPattern> unmeasuredPaths;
+	private final double targetNanos;
+	private final double windowNanos;
+	private final long retryAfterSeconds;
+	private final LongSupplier nanoTime;
+	private final AtomicReference<Latency> latency;
+
+	@Autowired
+	public LoadShedFilter(@Value("${gateway.load-shed.critical-paths:/api/v1.0/booking/ticket/**}") List<String> criticalPaths,
+			@Value("${gateway.load-shed.low-priority-paths:/api/v1.0/flight/search/**}") List<String> lowPriorityPaths,
+			@Value("${gateway.load-shed.unmeasured-paths:/api/v1.0/flight/search/stream/**}") List<String> unmeasuredPaths,
+			@Value("${gateway.load-shed.latency-target-millis:500}") long targetMillis,
+			@Value("${gateway.load-shed.window-millis:1000}") long windowMillis,
+			@Value("${gateway.load-shed.retry-after-seconds:2}") long retryAfterSeconds) {
+		this(criticalPaths, lowPriorityPaths, unmeasuredPaths, targetMillis, windowMillis, retryAfterSeconds,
+				System::nanoTime);
+	}
+
+	LoadShedFilter(List<String> criticalPaths, List<String> lowPriorityPaths, List<String> unmeasuredPaths,
+			long targetMillis, long windowMillis, long retryAfterSeconds, LongSupplier nanoTime) {
+		this.criticalPaths = parse(criticalPaths);
+		this.lowPriorityPaths = parse(lowPriorityPaths);
+		this.unmeasuredPaths = parse(unmeasuredPaths);
+		this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.nanoTime = nanoTime;
+		this.latency = new AtomicReference<>(new Latency(0, nanoTime.getAsLong()));
+	}
+
+	private static List<PathPattern> parse(List<String> paths) {
+		return paths.stream().filter(path -> !path.isBlank()).map(PathPatternParser.defaultInstance::parse).toList();
+	}
+
+	@Override
+	public int getOrder() {
+		// after FlightResponseCacheFilter, before the request is routed
+		return 0;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		long start = nanoTime.getAsLong();
+		PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+		if (shouldShed(priorityOf(path), start)) {
+			return RateLimitFilter.tooManyRequests(exchange, retryAfterSeconds);
+		}
+		if (unmeasuredPaths.stream().noneMatch(pattern -> pattern.matches(path))) {
+			// the body is left out, a client reading slowly says nothing about the services
+			exchange.getResponse().beforeCommit(() -> {
+				long now = nanoTime.getAsLong();
+				record(now - start, now);
+				return Mono.empty();
+			});
+		}
+		return chain.filter(exchange);
+	}
+
+	RequestPriority priorityOf(PathContainer path) {
+		for (PathPattern pattern : criticalPaths) {
+			if (pattern.matches(path)) {
+				return RequestPriority.CRITICAL;
+			}
+		}
+		for (PathPattern pattern : lowPriorityPaths) {
+			if (pattern.matches(path)) {
+				return RequestPriority.LOW;
+			}
+		}
+		return RequestPriority.NORMAL;
+	}
+
+	private boolean shouldShed(RequestPriority priority, long now) {
+		double overload = latencyNanos(now) / targetNanos - 1;
+		double shedShare = switch (priority) {
+			case CRITICAL -> 0;
+			case NORMAL -> overload - 1;
+			case LOW -> overload;
+		};
+		return shedShare > 0 && (shedShare >= 1 || ThreadLocalRandom.current().nextDouble() < shedShare);
+	}
+
+	void record(long latencyNanos, long now) {
+		Latency current;
+		Latency next;
+		do {
+			current = latency.get();
+			// a sample weighs more the longer it has been since the last one
+			double weight = 1 - Math.exp(-Math.max(0, now - current.at) / windowNanos);
+			next = new Latency(current.nanos + weight * (latencyNanos - current.nanos), Math.max(now, current.at));
+		} while (!latency.compareAndSet(current, next));
+	}
+
+	// after a window with nothing recorded the average decays towards zero, so
+	// shedding cannot keep out the very requests that would show the recovery
+	double latencyNanos(long now) {
+		Latency current = latency.get();
+		return current.nanos * Math.exp(-Math.max(0, now - current.at - windowNanos) / windowNanos);
+	}
+
+	public long latencyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis((long) latencyNanos(nanoTime.getAsLong()));
+	}
+
+	private record Latency(double nanos, long at) {
+	}
+}
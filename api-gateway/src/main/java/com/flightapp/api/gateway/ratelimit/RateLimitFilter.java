@@ -0,0 +1,121 @@
+package com.flightapp.api.gateway.ratelimit;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Limits every request before anything else in the gateway runs: per client
+ * address, per user when the request carries an authenticated principal, and
+ * per route, which caps what a single downstream service is sent however many
+ * clients there are. The user bucket is keyed on the principal only, never on
+ * a header the client could set, so nobody can drain someone else's bucket by
+ * sending their name. The gateway has no authentication of its own yet, so no
+ * request carries a principal and gateway.rate-limit.user.* does nothing until
+ * an authentication filter is put in front of this one. The address limit
+ * always applies. A refused request is
+ * answered with 429 and a Retry-After of the seconds until the bucket that
+ * refused it has a token again.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+	private final RateLimiter rateLimiter;
+	private final double clientRate;
+	private final int clientBurst;
+	private final double userRate;
+	private final int userBurst;
+	private final double routeRate;
+	private final int routeBurst;
+	private final boolean trustForwardedFor;
+
+	public RateLimitFilter(RateLimiter rateLimiter,
+			@Value("${gateway.rate-limit.client.rate-per-second:20}") double clientRate,
+			@Value("${gateway.rate-limit.client.burst:40}") int clientBurst,
+			@Value("${gateway.rate-limit.user.rate-per-second:10}") double userRate,
+			@Value("${gateway.rate-limit.user.burst:20}") int userBurst,
+			@Value("${gateway.rate-limit.route.rate-per-second:2000}") double routeRate,
+			@Value("${gateway.rate-limit.route.burst:4000}") int routeBurst,
+			@Value("${gateway.rate-limit.trust-forwarded-for:false}") boolean trustForwardedFor) {
+		this.rateLimiter = rateLimiter;
+		this.clientRate = clientRate;
+		this.clientBurst = clientBurst;
+		this.userRate = userRate;
+		this.userBurst = userBurst;
+		this.routeRate = routeRate;
+		this.routeBurst = routeBurst;
+		this.trustForwardedFor = trustForwardedFor;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 100;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		// a client over its limit does not use up the tokens of the route
+		ServerHttpRequest request = exchange.getRequest();
+		long clientWait = rateLimiter.tryAcquire(clientKey(request), clientRate, clientBurst);
+		if (clientWait != RateLimiter.ALLOWED) {
+			return refused(exchange, clientWait);
+		}
+		return exchange.getPrincipal()
+				.map(Principal::getName)
+				.filter(user -> !user.isBlank())
+				.map(user -> rateLimiter.tryAcquire("user:" + user.toLowerCase(Locale.ROOT), userRate, userBurst))
+				.defaultIfEmpty(RateLimiter.ALLOWED)
+				.flatMap(wait -> {
+					if (wait == RateLimiter.ALLOWED) {
+						Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+						if (route != null) {
+							wait = rateLimiter.tryAcquire("route:" + route.getId(), routeRate, routeBurst);
+						}
+					}
+					return wait == RateLimiter.ALLOWED ? chain.filter(exchange) : refused(exchange, wait);
+				});
+	}
+
+	// told to come back once the bucket that refused it has a token again
+	private static Mono<Void> refused(ServerWebExchange exchange, long waitNanos) {
+		return tooManyRequests(exchange, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1);
+	}
+
+	String clientKey(ServerHttpRequest request) {
+		if (trustForwardedFor) {
+			String forwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
+			if (forwardedFor != null && !forwardedFor.isBlank()) {
+				// the first address is the client, the rest are proxies
+				int comma = forwardedFor.indexOf(',');
+				return "ip:" + (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+			}
+		}
+		InetSocketAddress remote = request.getRemoteAddress();
+		return "ip:" + (remote == null ? "unknown" : remote.getHostString());
+	}
+
+	static Mono<Void> tooManyRequests(ServerWebExchange exchange, long retryAfterSeconds) {
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+		response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		return response.setComplete();
+	}
+}
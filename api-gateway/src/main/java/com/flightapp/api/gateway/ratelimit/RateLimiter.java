@@ -0,0 +1,53 @@
+package com.flightapp.api.gateway.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * In-process rate limiter, one {@link TokenBucket} per key. Buckets live in a
+ * bounded Caffeine map and are dropped after idle-seconds without a request, a
+ * returning client starts again with a full bucket. Every gateway instance
+ * limits on its own, so the effective limit of a client is the configured one
+ * times the number of instances it is spread over.
+ */
+@Component
+public class RateLimiter {
+
+	public static final long ALLOWED = 0;
+
+	private final Cache<String, TokenBucket> buckets;
+	private final LongSupplier nanoTime;
+
+	@Autowired
+	public RateLimiter(@Value("${gateway.rate-limit.max-keys:100000}") long maxKeys,
+			@Value("${gateway.rate-limit.idle-seconds:600}") long idleSeconds) {
+		this(maxKeys, idleSeconds, System::nanoTime);
+	}
+
+	RateLimiter(long maxKeys, long idleSeconds, LongSupplier nanoTime) {
+		this.nanoTime = nanoTime;
+		this.buckets = Caffeine.newBuilder()
+				.maximumSize(maxKeys)
+				.expireAfterAccess(Duration.ofSeconds(idleSeconds))
+				// eviction work on the calling thread, no hop to the common pool per request
+				.executor(Runnable::run)
+				.build();
+	}
+
+	// ALLOWED, or the nanos until the key has a token again
+	public long tryAcquire(String key, double ratePerSecond, int burst) {
+		long now = nanoTime.getAsLong();
+		return buckets.get(key, k -> new TokenBucket(ratePerSecond, burst, now)).tryAcquire(now);
+	}
+
+	public long keys() {
+		return buckets.estimatedSize();
+	}
+}
@@ -0,0 +1,10 @@
+package com.flightapp.api.gateway.ratelimit;
+
+// which requests go first when flight and booking services slow down
+public enum RequestPriority {
+	// never shed, bookings are what the spike is for
+	CRITICAL,
+	NORMAL,
+	// shed first, searches are retried by the client and mostly served from cache anyway
+	LOW
+}
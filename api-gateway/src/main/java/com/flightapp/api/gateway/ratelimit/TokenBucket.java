@@ -0,0 +1,41 @@
+package com.flightapp.api.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of burst tokens refilled at ratePerSecond, held in one long so a
+ * compare-and-set is all it takes to update it: the time at which the bucket is
+ * full again, the theoretical arrival time of the generic cell rate algorithm.
+ * Taking a token moves that time one refill interval on, and a token is refused
+ * when it would move it more than burst intervals past now.
+ */
+final class TokenBucket {
+
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final AtomicLong fullAt;
+
+	TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+		if (ratePerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("Rate and burst must be positive");
+		}
+		this.intervalNanos = Math.max(1, Math.round(1_000_000_000d / ratePerSecond));
+		this.burstNanos = intervalNanos * burst;
+		this.fullAt = new AtomicLong(nowNanos);
+	}
+
+	// 0 when a token was taken, otherwise the nanos until the next one
+	long tryAcquire(long nowNanos) {
+		while (true) {
+			long full = fullAt.get();
+			long next = Math.max(full, nowNanos) + intervalNanos;
+			long wait = next - nowNanos - burstNanos;
+			if (wait > 0) {
+				return wait;
+			}
+			if (fullAt.compareAndSet(full, next)) {
+				return 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package com.flightapp.api.gateway.registry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.cache.LoadBalancerCacheManager;
+import org.springframework.cloud.loadbalancer.core.CachingServiceInstanceListSupplier;
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
+import org.springframework.stereotype.Component;
+
+import com.netflix.discovery.EurekaClientConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Follows the change feed of service-registry: the snapshot once, then one
+ * long-polled request after another for the registrations and cancellations
+ * since the version already seen. A new instance behind an lb:// route is known
+ * a round trip after it registers instead of after the registry's response
+ * cache and the Eureka client's fetch interval, and the load balancer's cached
+ * list of the service is dropped with it. {@link RegistryFeedDiscoveryClient}
+ * answers from here while the feed is in sync and leaves it to Eureka otherwise.
+ *
+ * The feed is followed on a thread of its own that waits for each response, so
+ * no event loop is held by the long polls.
+ *
+ * The feed is served next to Eureka on every registry node, its addresses are
+ * those of eureka.client.service-url.defaultZone with /eureka replaced by
+ * /registry unless gateway.registry-feed.url names them. A node that fails is
+ * left for the next one, any node serves the whole feed.
+ *
+ * booking-service has the same code in its RegistryFeed, only the requests are
+ * made differently, see {@link RegistryFeedClient}. CopiedSourcesTest there
+ * fails once the two differ.
+ */
+@Component
+@ConditionalOnProperty(name = { "gateway.registry-feed.enabled", "eureka.client.enabled" }, havingValue = "true",
+		matchIfMissing = true)
+public class RegistryFeed {
+
+	private static final Logger log = LoggerFactory.getLogger(RegistryFeed.class);
+
+	private static final long MIN_BACKOFF_MILLIS = 1000;
+	private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+	private final RegistryFeedClient client;
+	private final List<String> urls;
+	private final long waitMillis;
+	private final ObjectProvider<LoadBalancerCacheManager> cacheManagers;
+
+	// only touched by the thread following the feed, by service then instance id
+	private final Map<String, Map<String, Instance>> registry = new HashMap<>();
+	private String epoch;
+	private long version;
+	// index into urls of the registry node followed
+	private int node;
+
+	private volatile Map<String, List<ServiceInstance>> upInstances = Map.of();
+	private volatile boolean synced;
+
+	private final ExecutorService follower = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "registry-feed");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@Autowired
+	public RegistryFeed(RegistryFeedClient client,
+			@Value("${gateway.registry-feed.url:}") String url, EurekaClientConfig eurekaClientConfig,
+			@Value("${gateway.registry-feed.wait-millis:30000}") long waitMillis,
+			ObjectProvider<LoadBalancerCacheManager> cacheManagers) {
+		this(client,
+				feedUrls(url, eurekaClientConfig.getEurekaServerServiceUrls(EurekaClientConfigBean.DEFAULT_ZONE)),
+				waitMillis, cacheManagers);
+	}
+
+	RegistryFeed(RegistryFeedClient client, List<String> urls, long waitMillis,
+			ObjectProvider<LoadBalancerCacheManager> cacheManagers) {
+		this.client = client;
+		this.urls = urls;
+		this.waitMillis = waitMillis;
+		this.cacheManagers = cacheManagers;
+	}
+
+	// the configured feed addresses, else one per Eureka server of the default zone
+	static List<String> feedUrls(String configured, List<String> eurekaUrls) {
+		List<String> feedUrls = new ArrayList<>();
+		if (configured != null && !configured.isBlank()) {
+			for (String url : configured.split(",")) {
+				if (!url.isBlank()) {
+					feedUrls.add(stripSlashes(url.trim()));
+				}
+			}
+		} else {
+			for (String eurekaUrl : eurekaUrls) {
+				String url = stripSlashes(eurekaUrl.trim());
+				feedUrls.add((url.endsWith("/eureka") ? url.substring(0, url.length() - "/eureka".length()) : url)
+						+ "/registry");
+			}
+		}
+		if (feedUrls.isEmpty()) {
+			throw new IllegalStateException("No registry feed address, set gateway.registry-feed.url "
+					+ "or eureka.client.service-url.defaultZone.");
+		}
+		return List.copyOf(feedUrls);
+	}
+
+	private static String stripSlashes(String url) {
+		int end = url.length();
+		while (end > 0 && url.charAt(end - 1) == '/') {
+			end--;
+		}
+		return url.substring(0, end);
+	}
+
+	@PostConstruct
+	public void start() {
+		follower.execute(this::follow);
+	}
+
+	@PreDestroy
+	public void stop() {
+		follower.shutdownNow();
+	}
+
+	private void follow() {
+		long backoffMillis = MIN_BACKOFF_MILLIS;
+		int failures = 0;
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				poll();
+				backoffMillis = MIN_BACKOFF_MILLIS;
+				failures = 0;
+			} catch (RuntimeException e) {
+				// whatever went wrong, the thread carries on and Eureka answers meanwhile
+				if (synced || backoffMillis == MIN_BACKOFF_MILLIS) {
+					log.warn("Registry feed not available, instances come from Eureka: {}", e.getMessage());
+				}
+				synced = false;
+				// poll has moved on to the next node, which is tried at once unless
+				// every node has failed since the last success
+				if (++failures % urls.size() != 0) {
+					continue;
+				}
+				try {
+					TimeUnit.MILLISECONDS.sleep(backoffMillis);
+				} catch (InterruptedException interrupted) {
+					return;
+				}
+				backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+			}
+		}
+	}
+
+	// one round against the current node, a failure moves on to the next one
+	void poll() {
+		try {
+			poll(urls.get(node));
+		} catch (RuntimeException e) {
+			node = (node + 1) % urls.size();
+			// versions only count on the node that handed them out
+			epoch = null;
+			throw e;
+		}
+	}
+
+	// the snapshot when there is no version to follow from, else the changes after it
+	private void poll(String url) {
+		if (epoch == null) {
+			Snapshot snapshot = client.snapshot(url);
+			Set<String> changed = new HashSet<>(registry.keySet());
+			registry.clear();
+			for (Instance instance : snapshot.instances()) {
+				changed.add(put(instance));
+			}
+			epoch = snapshot.epoch();
+			version = snapshot.version();
+			publish(changed);
+			synced = true;
+			return;
+		}
+		Changes changes = client.changes(url, epoch, version, waitMillis);
+		if (changes.resync()) {
+			epoch = null;
+			return;
+		}
+		Set<String> changed = new HashSet<>();
+		for (Change change : changes.changes()) {
+			if (change.type() == Type.CANCELLED) {
+				Map<String, Instance> instances = registry.get(serviceKey(change.instance().serviceId()));
+				if (instances != null) {
+					instances.remove(change.instance().instanceId());
+				}
+				changed.add(serviceKey(change.instance().serviceId()));
+			} else {
+				changed.add(put(change.instance()));
+			}
+		}
+		version = changes.version();
+		publish(changed);
+	}
+
+	private String put(Instance instance) {
+		String service = serviceKey(instance.serviceId());
+		registry.computeIfAbsent(service, key -> new HashMap<>()).put(instance.instanceId(), instance);
+		return service;
+	}
+
+	private void publish(Set<String> changedServices) {
+		if (changedServices.isEmpty()) {
+			return;
+		}
+		Map<String, List<ServiceInstance>> published = new HashMap<>(upInstances);
+		for (String service : changedServices) {
+			List<ServiceInstance> up = new ArrayList<>();
+			for (Instance instance : registry.getOrDefault(service, Map.of()).values()) {
+				if ("UP".equals(instance.status())) {
+					up.add(new DefaultServiceInstance(instance.instanceId(), instance.serviceId(), instance.host(),
+							instance.port(), instance.secure(), instance.metadata()));
+				}
+			}
+			if (up.isEmpty()) {
+				published.remove(service);
+			} else {
+				published.put(service, List.copyOf(up));
+			}
+		}
+		upInstances = Map.copyOf(published);
+		evictLoadBalancerCache(changedServices);
+	}
+
+	// the load balancer keeps the instance list of a service for its cache ttl otherwise
+	private void evictLoadBalancerCache(Set<String> services) {
+		LoadBalancerCacheManager cacheManager = cacheManagers.getIfAvailable();
+		Cache cache = cacheManager == null ? null
+				: cacheManager.getCache(CachingServiceInstanceListSupplier.SERVICE_INSTANCE_CACHE_NAME);
+		if (cache == null) {
+			return;
+		}
+		for (String service : services) {
+			cache.evict(service);
+			cache.evict(service.toLowerCase(Locale.ROOT));
+		}
+	}
+
+	private static String serviceKey(String serviceId) {
+		return serviceId.toUpperCase(Locale.ROOT);
+	}
+
+	// the instances that are UP, empty while the feed is not in sync
+	public List<ServiceInstance> instances(String serviceId) {
+		return synced ? upInstances.getOrDefault(serviceKey(serviceId), List.of()) : List.of();
+	}
+
+	public List<String> services() {
+		return synced ? upInstances.keySet().stream().map(service -> service.toLowerCase(Locale.ROOT)).toList()
+				: List.of();
+	}
+
+	public boolean isSynced() {
+		return synced;
+	}
+
+	enum Type {
+		REGISTERED, CANCELLED
+	}
+
+	record Instance(String serviceId, String instanceId, String host, int port, boolean secure, String status,
+			Map<String, String> metadata) {
+	}
+
+	record Change(long version, Type type, Instance instance) {
+	}
+
+	record Changes(String epoch, long version, boolean resync, List<Change> changes) {
+	}
+
+	record Snapshot(String epoch, long version, List<Instance> instances) {
+	}
+}
@@ -0,0 +1,46 @@
+package com.flightapp.api.gateway.registry;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.flightapp.api.gateway.registry.RegistryFeed.Changes;
+import com.flightapp.api.gateway.registry.RegistryFeed.Snapshot;
+
+/**
+ * The requests {@link RegistryFeed} makes to a registry node, on a WebClient
+ * and blocking the feed's own thread, never an event loop. This is the only
+ * part of the feed that booking-service does differently, on a RestClient
+ * there, the RegistryFeed classes of the two are the same code.
+ */
+@Component
+@ConditionalOnProperty(name = { "gateway.registry-feed.enabled", "eureka.client.enabled" }, havingValue = "true",
+		matchIfMissing = true)
+public class RegistryFeedClient {
+
+	private final WebClient webClient;
+	// a held request must be allowed to outlast the wait
+	private final Duration timeout;
+
+	public RegistryFeedClient(WebClient.Builder webClientBuilder,
+			@Value("${gateway.registry-feed.wait-millis:30000}") long waitMillis) {
+		this.webClient = webClientBuilder.build();
+		this.timeout = Duration.ofMillis(waitMillis + 5000);
+	}
+
+	Snapshot snapshot(String url) {
+		return webClient.get().uri(url + "/snapshot").retrieve().bodyToMono(Snapshot.class).block(timeout);
+	}
+
+	// held by the node for up to waitMillis while nothing changes
+	Changes changes(String url, String epoch, long since, long waitMillis) {
+		return webClient.get()
+				.uri(url + "/changes?epoch={epoch}&since={since}&waitMillis={waitMillis}", epoch, since, waitMillis)
+				.retrieve()
+				.bodyToMono(Changes.class)
+				.block(timeout);
+	}
+}
@@ -0,0 +1,42 @@
+package com.flightapp.api.gateway.registry;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+
+// asked ahead of Eureka, the composite discovery client moves on to Eureka when
+// this one has no instances, which is the case whenever the feed is not in sync
+@Component
+@ConditionalOnProperty(name = { "gateway.registry-feed.enabled", "eureka.client.enabled" }, havingValue = "true",
+		matchIfMissing = true)
+public class RegistryFeedDiscoveryClient implements ReactiveDiscoveryClient {
+
+	private final RegistryFeed registryFeed;
+
+	public RegistryFeedDiscoveryClient(RegistryFeed registryFeed) {
+		this.registryFeed = registryFeed;
+	}
+
+	@Override
+	public String description() {
+		return "Change feed of service-registry";
+	}
+
+	@Override
+	public Flux<ServiceInstance> getInstances(String serviceId) {
+		return Flux.defer(() -> Flux.fromIterable(registryFeed.instances(serviceId)));
+	}
+
+	@Override
+	public Flux<String> getServices() {
+		return Flux.defer(() -> Flux.fromIterable(registryFeed.services()));
+	}
+
+	@Override
+	public int getOrder() {
+		return -1;
+	}
+}
@@ -1,13 +1,44 @@
 package com.flightapp.api.gateway;
 
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ApplicationContext;
+
+import com.flightapp.api.gateway.cache.CachePurgeController;
+import com.flightapp.api.gateway.loadbalancer.LatencyAwareLoadBalancer;
 
+// boots with the shipped application.properties and nothing else
 @SpringBootTest
 class ApiGatewayApplicationTests {
 
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	private LoadBalancerClientFactory loadBalancerClientFactory;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void purgeEndpoint_isOffUntilEnabled() {
+		assertTrue(context.getBeansOfType(CachePurgeController.class).isEmpty());
+	}
+
+	@Test
+	void routedInstances_arePickedByLatency() {
+		Object loadBalancer = loadBalancerClientFactory.getInstance("BOOKING-SERVICE");
+
+		assertInstanceOf(LatencyAwareLoadBalancer.class, loadBalancer);
+		assertTrue(loadBalancerClientFactory.getInstances("BOOKING-SERVICE", LoadBalancerLifecycle.class)
+				.containsValue(loadBalancer));
+	}
+
 }
@@ -0,0 +1,108 @@
+package com.flightapp.api.gateway.benchmark;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.flightapp.api.gateway.ratelimit.RateLimitFilter;
+import com.flightapp.api.gateway.ratelimit.RateLimiter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * What the rate limiter adds to a request: one bucket on a hot key, one bucket
+ * picked from 100k clients, and the whole filter with its address, user and
+ * route buckets. Limits are set high enough that every request is let through,
+ * which is the path a request normally takes. Run from the api-gateway
+ * directory with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.flightapp.api.gateway.benchmark.RateLimiterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+	private static final int CLIENTS = 100_000;
+	private static final double RATE = 1e9;
+	private static final GatewayFilterChain ROUTED = exchange -> Mono.empty();
+
+	private RateLimiter rateLimiter;
+	private RateLimitFilter filter;
+	private String[] clients;
+	private ServerWebExchange exchange;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		rateLimiter = new RateLimiter(2 * CLIENTS, 600);
+		filter = new RateLimitFilter(rateLimiter, RATE, 1000, RATE, 1000, RATE, 1000, false);
+		clients = new String[CLIENTS];
+		for (int i = 0; i < CLIENTS; i++) {
+			clients[i] = "ip:10." + (i >> 16) + "." + ((i >> 8) & 255) + "." + (i & 255);
+			rateLimiter.tryAcquire(clients[i], RATE, 1000);
+		}
+		Principal user = () -> "jane@example.com";
+		exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1.0/booking/ticket/1")
+				.remoteAddress(new InetSocketAddress("10.1.2.3", 40000)))
+				.mutate().principal(Mono.just(user)).build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+				Route.async().id("booking-service").uri("lb://BOOKING-SERVICE").predicate(e -> true).build());
+	}
+
+	@Benchmark
+	public long hotKey() {
+		return rateLimiter.tryAcquire("ip:10.1.2.3", RATE, 1000);
+	}
+
+	@Benchmark
+	public long manyClients(Cursor cursor) {
+		String client = clients[cursor.next];
+		cursor.next = cursor.next + 1 == CLIENTS ? 0 : cursor.next + 1;
+		return rateLimiter.tryAcquire(client, RATE, 1000);
+	}
+
+	@Benchmark
+	public Void filter() {
+		// subscribed, the user bucket is only taken once the principal is there
+		return filter.filter(exchange, ROUTED).block();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int threads : new int[] { 1, 4 }) {
+			Options options = new OptionsBuilder()
+					.include(RateLimiterBenchmark.class.getSimpleName())
+					.threads(threads)
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
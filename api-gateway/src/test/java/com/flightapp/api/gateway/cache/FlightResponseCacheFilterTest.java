@@ -0,0 +1,182 @@
+package com.flightapp.api.gateway.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+class FlightResponseCacheFilterTest {
+
+    private static final String SEARCH = "{\"fromPlace\":\"BLR\",\"toPlace\":\"DEL\",\"journeyDate\":\"2025-12-25\"}";
+
+    private final MovableClock clock = new MovableClock();
+    private final FlightResponseCache cache = new FlightResponseCache(1 << 20, 5, 30, clock);
+    private final AtomicInteger originCalls = new AtomicInteger();
+    private final FlightResponseCacheFilter filter = new FlightResponseCacheFilter(cache,
+            WebClient.builder().exchangeFunction(request -> {
+                originCalls.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"id\":1,\"availableSeats\":7}")
+                        .build());
+            }),
+            (request, next) -> next.exchange(request),
+            "http://FLIGHT-SERVICE", "/api/v1.0/flight", 1024);
+    private final AtomicInteger routed = new AtomicInteger();
+
+    // flight-service behind the route, answering with the given status and body
+    private GatewayFilterChain flightService(HttpStatus status, String body) {
+        return exchange -> {
+            routed.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(status);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    private MockServerWebExchange send(MockServerHttpRequest request, GatewayFilterChain chain) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static String body(MockServerWebExchange exchange) {
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    @Test
+    void flightById_secondRequestIsAnsweredByTheGateway() {
+        GatewayFilterChain chain = flightService(HttpStatus.OK, "{\"id\":1,\"availableSeats\":9}");
+
+        MockServerWebExchange miss = send(MockServerHttpRequest.get("/api/v1.0/flight/1").build(), chain);
+        MockServerWebExchange hit = send(MockServerHttpRequest.get("/api/v1.0/flight/1").build(), chain);
+
+        assertEquals(1, routed.get());
+        assertEquals("MISS", miss.getResponse().getHeaders().getFirst(FlightResponseCacheFilter.CACHE_HEADER));
+        assertEquals("HIT", hit.getResponse().getHeaders().getFirst(FlightResponseCacheFilter.CACHE_HEADER));
+        assertEquals("{\"id\":1,\"availableSeats\":9}", body(hit));
+        assertEquals(MediaType.APPLICATION_JSON, hit.getResponse().getHeaders().getContentType());
+    }
+
+    @Test
+    void search_sameSearchWrittenDifferentlyIsOneEntry_untilItsRouteIsPurged() {
+        GatewayFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+                .flatMap(body -> {
+                    // the body read for the cache key still reaches flight-service
+                    assertEquals(SEARCH, body.toString(StandardCharsets.UTF_8));
+                    DataBufferUtils.release(body);
+                    return flightService(HttpStatus.OK, "[{\"id\":1}]").filter(exchange);
+                });
+
+        send(MockServerHttpRequest.post("/api/v1.0/flight/search").body(SEARCH), chain);
+        MockServerWebExchange hit = send(MockServerHttpRequest.post("/api/v1.0/flight/search")
+                .body("{ \"journeyDate\": \"2025-12-25\", \"toPlace\": \"DEL\", \"fromPlace\": \"BLR\" }"), chain);
+        assertEquals("HIT", hit.getResponse().getHeaders().getFirst(FlightResponseCacheFilter.CACHE_HEADER));
+        assertEquals(1, routed.get());
+
+        cache.purge(new CachePurge(1L, "blr", "del", LocalDate.of(2025, 12, 25)));
+
+        MockServerWebExchange afterPurge = send(MockServerHttpRequest.post("/api/v1.0/flight/search").body(SEARCH), chain);
+        assertEquals("MISS", afterPurge.getResponse().getHeaders().getFirst(FlightResponseCacheFilter.CACHE_HEADER));
+        assertEquals(2, routed.get());
+    }
+
+    @Test
+    void missResponse_purgedWhileItWasFetched_isNotStored() {
+        GatewayFilterChain flightChangesMeanwhile = exchange -> {
+            cache.purge(new CachePurge(1L, "BLR", "DEL", LocalDate.of(2025, 12, 25)));
+            return flightService(HttpStatus.OK, "[{\"id\":1}]").filter(exchange);
+        };
+
+        send(MockServerHttpRequest.get("/api/v1.0/flight/1").build(), flightChangesMeanwhile);
+        send(MockServerHttpRequest.post("/api/v1.0/flight/search").body(SEARCH), flightChangesMeanwhile);
+        assertEquals(0, cache.size());
+
+        // another flight of the same date, its purge leaves flight 1 alone
+        send(MockServerHttpRequest.get("/api/v1.0/flight/1").build(), exchange -> {
+            cache.purge(new CachePurge(2L, "BOM", "GOI", LocalDate.of(2025, 12, 25)));
+            return flightService(HttpStatus.OK, "{\"id\":1}").filter(exchange);
+        });
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void staleEntry_isServedWhileOneRequestRefreshesIt() {
+        GatewayFilterChain chain = flightService(HttpStatus.OK, "{\"id\":1,\"availableSeats\":9}");
+        send(MockServerHttpRequest.get("/api/v1.0/flight/1").build(), chain);
+        clock.advanceSeconds(6);
+
+        MockServerWebExchange stale = send(MockServerHttpRequest.get("/api/v1.0/flight/1").build(), chain);
+
+        assertEquals("STALE", stale.getResponse().getHeaders().getFirst(FlightResponseCacheFilter.CACHE_HEADER));
+        assertEquals("{\"id\":1,\"availableSeats\":9}", body(stale));
+        assertEquals(1, originCalls.get());
+        MockServerWebExchange refreshed = send(MockServerHttpRequest.get("/api/v1.0/flight/1").build(), chain);
+        assertEquals("HIT", refreshed.getResponse().getHeaders().getFirst(FlightResponseCacheFilter.CACHE_HEADER));
+        assertEquals("{\"id\":1,\"availableSeats\":7}", body(refreshed));
+        assertEquals(1, routed.get());
+
+        clock.advanceSeconds(40);
+        assertNull(cache.get(FlightResponseCache.flightKey(1L)));
+    }
+
+    @Test
+    void errorsAndOtherFormats_areNotCached() {
+        send(MockServerHttpRequest.get("/api/v1.0/flight/2").build(),
+                flightService(HttpStatus.NOT_FOUND, "\"Flight not found with ID: 2\""));
+        send(MockServerHttpRequest.get("/api/v1.0/flight/1").accept(new MediaType("application", "x-jackson-smile"))
+                .build(), flightService(HttpStatus.OK, "{\"id\":1}"));
+
+        assertEquals(0, cache.size());
+    }
+
+    private static final class MovableClock extends Clock {
+        private final AtomicLong millis = new AtomicLong(Instant.parse("2025-12-01T00:00:00Z").toEpochMilli());
+
+        void advanceSeconds(long seconds) {
+            millis.addAndGet(seconds * 1000);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.flightapp.api.gateway.deadline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+class DeadlineFilterTest {
+
+    private final DeadlineFilter filter = new DeadlineFilter(10_000, 30_000);
+
+    private String forwarded(MockServerHttpRequest.BaseBuilder<?> request) {
+        AtomicReference<String> header = new AtomicReference<>();
+        filter.filter(MockServerWebExchange.from(request), exchange -> {
+            header.set(exchange.getRequest().getHeaders().getFirst(DeadlineFilter.HEADER));
+            return Mono.empty();
+        }).block();
+        return header.get();
+    }
+
+    @Test
+    void everyRequestIsForwardedWithADeadline() {
+        assertEquals("10000", forwarded(MockServerHttpRequest.get("/api/v1.0/flight/1")));
+        assertEquals("2500", forwarded(MockServerHttpRequest.get("/api/v1.0/flight/1")
+                .header(DeadlineFilter.HEADER, "2500")));
+    }
+
+    @Test
+    void clientDeadlinesAreCappedAndNonsenseIsReplaced() {
+        assertEquals("30000", forwarded(MockServerHttpRequest.get("/api/v1.0/flight/1")
+                .header(DeadlineFilter.HEADER, "600000")));
+        assertEquals("10000", forwarded(MockServerHttpRequest.get("/api/v1.0/flight/1")
+                .header(DeadlineFilter.HEADER, "-5")));
+        assertEquals("10000", forwarded(MockServerHttpRequest.get("/api/v1.0/flight/1")
+                .header(DeadlineFilter.HEADER, "soon")));
+    }
+}
@@ -0,0 +1,82 @@
+package com.flightapp.api.gateway.loadbalancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final ServiceInstance FAST = instance("booking-1", 8082);
+    private static final ServiceInstance SLOW = instance("booking-2", 8083);
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+
+    private static ServiceInstance instance(String id, int port) {
+        return new DefaultServiceInstance(id, "BOOKING-SERVICE", "localhost", port, false);
+    }
+
+    private LatencyAwareLoadBalancer balancer(ServiceInstance... instances) {
+        return new LatencyAwareLoadBalancer(ServiceInstanceListSuppliers.toProvider("BOOKING-SERVICE", instances),
+                "BOOKING-SERVICE", 10_000, nanos::get);
+    }
+
+    private Response<ServiceInstance> choose(LatencyAwareLoadBalancer balancer) {
+        return balancer.choose(new DefaultRequest<>(new RequestDataContext())).block();
+    }
+
+    private Request<Object> start(LatencyAwareLoadBalancer balancer, ServiceInstance instance) {
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+        balancer.onStartRequest(request, new DefaultResponse(instance));
+        return request;
+    }
+
+    private void call(LatencyAwareLoadBalancer balancer, ServiceInstance instance, long millis) {
+        Request<Object> request = start(balancer, instance);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        balancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request,
+                new DefaultResponse(instance)));
+    }
+
+    @Test
+    void fasterInstance_isChosen_untilItIsBusy() {
+        LatencyAwareLoadBalancer balancer = balancer(FAST, SLOW);
+        call(balancer, FAST, 10);
+        call(balancer, SLOW, 50);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(FAST, choose(balancer).getServer());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            start(balancer, FAST);
+        }
+        assertEquals(SLOW, choose(balancer).getServer());
+    }
+
+    @Test
+    void unknownInstance_isTriedWhileIdleOnly() {
+        LatencyAwareLoadBalancer balancer = balancer(FAST, SLOW);
+        call(balancer, SLOW, 50);
+        assertEquals(FAST, choose(balancer).getServer());
+
+        start(balancer, FAST);
+        assertEquals(SLOW, choose(balancer).getServer());
+    }
+
+    @Test
+    void noInstances_isAnEmptyResponse() {
+        assertFalse(choose(balancer()).hasServer());
+    }
+}
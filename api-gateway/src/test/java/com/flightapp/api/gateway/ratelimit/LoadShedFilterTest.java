@@ -0,0 +1,135 @@
+package com.flightapp.api.gateway.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+class LoadShedFilterTest {
+
+    private static final String TICKET = "/api/v1.0/booking/ticket/1";
+    private static final String FLIGHT = "/api/v1.0/flight/1";
+    private static final String SEARCH = "/api/v1.0/flight/search";
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    // 100 ms target, 1 s window
+    private final LoadShedFilter filter = new LoadShedFilter(List.of("/api/v1.0/booking/ticket/**"),
+            List.of("/api/v1.0/flight/search/**"), List.of("/api/v1.0/flight/search/stream/**"), 100, 1000, 2,
+            nanos::get);
+    private final AtomicInteger routed = new AtomicInteger();
+
+    // downstream sending its response headers after headerMillis and the rest of the body after bodyMillis
+    private GatewayFilterChain downstream(long headerMillis, long bodyMillis) {
+        return exchange -> Mono.fromRunnable(() -> {
+            routed.incrementAndGet();
+            nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(headerMillis));
+        }).then(Mono.defer(() -> exchange.getResponse().setComplete()))
+                .then(Mono.fromRunnable(() -> nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(bodyMillis))));
+    }
+
+    private HttpStatus send(String path, long downstreamMillis) {
+        return send(path, downstreamMillis, 0);
+    }
+
+    private HttpStatus send(String path, long headerMillis, long bodyMillis) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        filter.filter(exchange, downstream(headerMillis, bodyMillis)).block();
+        if (exchange.getResponse().getStatusCode() != null) {
+            assertEquals("2", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        }
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+
+    private void slowDownTo(long millis) {
+        // a sample after a long quiet spell is all the average holds
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        filter.record(TimeUnit.MILLISECONDS.toNanos(millis), nanos.get());
+    }
+
+    @Test
+    void priorityOf_matchesTheConfiguredPaths() {
+        assertEquals(RequestPriority.CRITICAL, filter.priorityOf(PathContainer.parsePath(TICKET)));
+        assertEquals(RequestPriority.LOW, filter.priorityOf(PathContainer.parsePath(SEARCH)));
+        assertEquals(RequestPriority.LOW, filter.priorityOf(PathContainer.parsePath(SEARCH + "/stream")));
+        assertEquals(RequestPriority.NORMAL, filter.priorityOf(PathContainer.parsePath(FLIGHT)));
+    }
+
+    @Test
+    void fastDownstream_nothingIsShed() {
+        assertNull(send(SEARCH, 20));
+        assertNull(send(FLIGHT, 20));
+        assertNull(send(TICKET, 20));
+        assertEquals(3, routed.get());
+    }
+
+    @Test
+    void searchesGoFirst_thenNormalRequests_ticketsNever() {
+        // twice the target, every search is shed
+        slowDownTo(200);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, send(SEARCH, 0));
+        assertNull(send(FLIGHT, 0));
+        assertNull(send(TICKET, 0));
+
+        // three times the target, every other request but tickets as well
+        slowDownTo(300);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, send(SEARCH, 0));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, send(FLIGHT, 0));
+        assertNull(send(TICKET, 0));
+        assertEquals(3, routed.get());
+    }
+
+    @Test
+    void sheddingStops_whenTheServicesRecover() {
+        slowDownTo(400);
+        // bookings keep flowing and show the services are fast again, each 20 ms
+        // sample takes 2% off the distance to 20 ms, 200 bring 400 ms below 30
+        for (int i = 0; i < 200; i++) {
+            send(TICKET, 20);
+        }
+        assertNull(send(SEARCH, 20));
+    }
+
+    @Test
+    void latency_isMeasuredUpToTheResponseHeaders() {
+        // quick headers, a body the client takes 5 s to read
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        send(FLIGHT, 20, 5000);
+
+        assertNull(send(SEARCH, 0));
+        assertTrue(filter.latencyMillis() <= 20);
+    }
+
+    @Test
+    void streamedSearch_isLeftOutOfTheAverage() {
+        // after a quiet spell, one long stream would otherwise be all the average holds
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        send(SEARCH + "/stream", 5000);
+
+        assertNull(send(SEARCH, 0));
+        assertEquals(0, filter.latencyMillis());
+    }
+
+    @Test
+    void sheddingStops_onItsOwnWhenNothingIsRecorded() {
+        slowDownTo(400);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, send(SEARCH, 0));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertNull(send(SEARCH, 0));
+    }
+}
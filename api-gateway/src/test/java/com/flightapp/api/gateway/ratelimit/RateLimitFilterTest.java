@@ -0,0 +1,121 @@
+package com.flightapp.api.gateway.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+class RateLimitFilterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final RateLimiter rateLimiter = new RateLimiter(1000, 600, nanos::get);
+    // 2 per second and a burst of 3 per address, 1 per second and 2 per user, 4 and 5 per route
+    private final RateLimitFilter filter = new RateLimitFilter(rateLimiter, 2, 3, 1, 2, 4, 5, true);
+    private final AtomicInteger routed = new AtomicInteger();
+    private final GatewayFilterChain chain = exchange -> {
+        routed.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private MockServerWebExchange send(String address, String user, String routeId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/v1.0/flight/1")
+                .remoteAddress(new InetSocketAddress(address, 40000));
+        // anyone can send the header, only the principal counts
+        request.header("X-User-Email", "victim@example.com");
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        if (routeId != null) {
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                    Route.async().id(routeId).uri("lb://FLIGHT-SERVICE").predicate(e -> true).build());
+        }
+        Principal principal = () -> user;
+        filter.filter(user == null ? exchange : exchange.mutate().principal(Mono.just(principal)).build(), chain)
+                .block();
+        return exchange;
+    }
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void client_getsItsBurstThenTheRate_andIsToldWhenToComeBack() {
+        for (int i = 0; i < 3; i++) {
+            assertNull(send("10.0.0.1", null, null).getResponse().getStatusCode());
+        }
+        MockServerWebExchange refused = send("10.0.0.1", null, null);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, refused.getResponse().getStatusCode());
+        assertEquals("1", refused.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        // other clients are not affected
+        assertNull(send("10.0.0.2", null, null).getResponse().getStatusCode());
+
+        advanceMillis(500);
+        assertNull(send("10.0.0.1", null, null).getResponse().getStatusCode());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, send("10.0.0.1", null, null).getResponse().getStatusCode());
+        assertEquals(5, routed.get());
+    }
+
+    @Test
+    void user_isLimitedAcrossAddresses_butCannotLiftTheAddressLimit() {
+        send("10.0.0.1", "Jane@Example.com", null);
+        send("10.0.0.2", "jane@example.com", null);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                send("10.0.0.3", "jane@example.com", null).getResponse().getStatusCode());
+
+        // a new user on every request still runs into the address limit
+        send("10.0.0.4", "a@example.com", null);
+        send("10.0.0.4", "b@example.com", null);
+        send("10.0.0.4", "c@example.com", null);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                send("10.0.0.4", "d@example.com", null).getResponse().getStatusCode());
+        assertEquals(5, routed.get());
+    }
+
+    @Test
+    void userHeader_withoutPrincipal_usesNoUserBucket() {
+        for (int i = 0; i < 5; i++) {
+            assertNull(send("10.0.2." + i, null, null).getResponse().getStatusCode());
+        }
+        // the named user still has the whole burst
+        assertNull(send("10.0.2.9", "victim@example.com", null).getResponse().getStatusCode());
+        assertNull(send("10.0.2.9", "victim@example.com", null).getResponse().getStatusCode());
+        assertEquals(7, routed.get());
+    }
+
+    @Test
+    void route_capsAllClientsTogether() {
+        for (int i = 0; i < 5; i++) {
+            send("10.0.1." + i, null, "flight-service");
+        }
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                send("10.0.1.9", null, "flight-service").getResponse().getStatusCode());
+        assertNull(send("10.0.1.9", null, "booking-service").getResponse().getStatusCode());
+        assertEquals(6, routed.get());
+    }
+
+    @Test
+    void clientKey_usesTheFirstForwardedAddressOnlyWhenTrusted() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 40000))
+                .header("X-Forwarded-For", "203.0.113.7, 10.0.0.5")
+                .build();
+
+        assertEquals("ip:203.0.113.7", filter.clientKey(request));
+        assertEquals("ip:10.0.0.1",
+                new RateLimitFilter(rateLimiter, 2, 3, 1, 2, 4, 5, false).clientKey(request));
+    }
+}
@@ -0,0 +1,101 @@
+package com.flightapp.api.gateway.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.client.discovery.composite.reactive.ReactiveCompositeDiscoveryClient;
+import org.springframework.cloud.loadbalancer.cache.LoadBalancerCacheManager;
+import org.springframework.cloud.loadbalancer.core.CachingServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class RegistryFeedTest {
+
+    // answers by host, path and query, each response once
+    private final Map<String, String> responses = new LinkedHashMap<>();
+    private final Cache loadBalancerCache = mock(Cache.class);
+
+    @SuppressWarnings("unchecked")
+    private RegistryFeed feed() {
+        LoadBalancerCacheManager cacheManager = mock(LoadBalancerCacheManager.class);
+        when(cacheManager.getCache(CachingServiceInstanceListSupplier.SERVICE_INSTANCE_CACHE_NAME))
+                .thenReturn(loadBalancerCache);
+        ObjectProvider<LoadBalancerCacheManager> cacheManagers = mock(ObjectProvider.class);
+        when(cacheManagers.getIfAvailable()).thenReturn(cacheManager);
+        // a node without an answer for the request fails it
+        WebClient.Builder registry = WebClient.builder().exchangeFunction(request -> {
+            String body = responses.remove(request.url().getHost() + request.url().getPath()
+                    + (request.url().getRawQuery() == null ? "" : "?" + request.url().getRawQuery()));
+            return Mono.just(body == null ? ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()
+                    : ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+        });
+        return new RegistryFeed(new RegistryFeedClient(registry, 30_000),
+                List.of("http://registry/registry", "http://peer/registry"), 30_000, cacheManagers);
+    }
+
+    private static List<String> instanceIds(Flux<ServiceInstance> instances) {
+        return instances.map(ServiceInstance::getInstanceId).collectList().block();
+    }
+
+    @Test
+    void routedInstances_followTheFeed_andEurekaAnswersUntilItIsInSync() {
+        RegistryFeed feed = feed();
+        ReactiveDiscoveryClient eureka = mock(ReactiveDiscoveryClient.class);
+        when(eureka.getInstances("BOOKING-SERVICE")).thenReturn(Flux.just(
+                new DefaultServiceInstance("eureka-1", "BOOKING-SERVICE", "10.0.0.9", 8082, false)));
+        ReactiveDiscoveryClient discoveryClient = new ReactiveCompositeDiscoveryClient(
+                new ArrayList<>(List.of(eureka, new RegistryFeedDiscoveryClient(feed))));
+        assertEquals(List.of("eureka-1"), instanceIds(discoveryClient.getInstances("BOOKING-SERVICE")));
+
+        responses.put("registry/registry/snapshot", """
+                {"epoch":"e1","version":1,"instances":[
+                  {"serviceId":"BOOKING-SERVICE","instanceId":"booking-1","host":"10.0.0.1","port":8082,
+                   "secure":false,"status":"UP","metadata":{}}]}""");
+        responses.put("registry/registry/changes?epoch=e1&since=1&waitMillis=30000", """
+                {"epoch":"e1","version":2,"resync":false,"changes":[
+                  {"version":2,"type":"REGISTERED","instance":{"serviceId":"BOOKING-SERVICE",
+                   "instanceId":"booking-2","host":"10.0.0.2","port":8082,"secure":false,"status":"UP",
+                   "metadata":{}}}]}""");
+        feed.poll();
+        feed.poll();
+
+        assertEquals(List.of("booking-1", "booking-2"),
+                instanceIds(discoveryClient.getInstances("BOOKING-SERVICE")).stream().sorted().toList());
+        // once for the snapshot, once for the change
+        verify(loadBalancerCache, times(2)).evict("booking-service");
+        assertEquals(Map.of(), responses);
+    }
+
+    @Test
+    void feedUrls_comeFromTheEurekaServersUnlessConfigured() {
+        assertEquals(List.of("http://r1:8761/registry", "http://r2:8761/registry"), RegistryFeed.feedUrls("",
+                List.of("http://r1:8761/eureka/", " http://r2:8761/eureka")));
+        assertEquals(List.of("http://feed-a/registry", "http://feed-b/registry"),
+                RegistryFeed.feedUrls("http://feed-a/registry/, http://feed-b/registry", List.of("http://r1/eureka")));
+        assertThrows(IllegalStateException.class, () -> RegistryFeed.feedUrls(" ", List.of()));
+    }
+}
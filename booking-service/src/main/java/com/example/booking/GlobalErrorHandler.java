@@ -3,6 +3,7 @@ package com.example.booking;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -12,7 +13,11 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.example.booking.exception.BookingNotFoundException;
 import com.example.booking.exception.CancellationNotPossibleException;
+import com.example.booking.exception.DeadlineExceededException;
+import com.example.booking.exception.FlightServiceOverloadedException;
 import com.example.booking.exception.FlightUnavailableException;
+import com.example.booking.exception.IdempotencyKeyInProgressException;
+import com.example.booking.exception.IdempotencyKeyReusedException;
 
 @ControllerAdvice
 public class GlobalErrorHandler {
@@ -37,6 +42,12 @@ public class GlobalErrorHandler {
         return new ResponseEntity<>(errorMap, HttpStatus.BAD_REQUEST); 
     }
     
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleServiceValidationExceptions(IllegalArgumentException ex) {
+        // 400 Bad Request
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+    
     @ExceptionHandler(FlightUnavailableException.class)
     public ResponseEntity<String> handleFlightUnavailableException(FlightUnavailableException ex) {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
@@ -51,4 +62,31 @@ public class GlobalErrorHandler {
     public ResponseEntity<String> handleCancellationNotPossibleException(CancellationNotPossibleException ex) {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
+    
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<String> handleDeadlineExceededException(DeadlineExceededException ex) {
+        // 504 Gateway Timeout, the caller's X-Request-Timeout-Millis ran out
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+    }
+    
+    @ExceptionHandler(FlightServiceOverloadedException.class)
+    public ResponseEntity<String> handleFlightServiceOverloadedException(FlightServiceOverloadedException ex) {
+        // 503 Service Unavailable, turned away before flight-service was called
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+    
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<String> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+    
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<String> handleIdempotencyKeyInProgressException(IdempotencyKeyInProgressException ex) {
+        // 409 Conflict, the first request with the key is still running elsewhere
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.booking;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// kept off the application class, so test slices that pick up the outbox relay
+// or the idempotency store do not start their scheduled jobs behind the test's back
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
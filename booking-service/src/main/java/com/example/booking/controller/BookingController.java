@@ -10,11 +10,16 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.booking.dto.BookingHistoryPage;
 import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.BookingResponse;
 import com.example.booking.entity.Booking;
+import com.example.booking.idempotency.IdempotencyStore;
 import com.example.booking.service.BookingService;
 
 import jakarta.validation.Valid;
@@ -26,19 +31,28 @@ public class BookingController {
 	@Autowired
 	BookingService bookingService;
 	
+	@Autowired
+	IdempotencyStore idempotencyStore;
+	
+	// with an Idempotency-Key a retried request gets the first response back
+	// instead of booking again, a 202 is brought up to date with the booking
 	@PostMapping("/ticket/{flightId}")
     public ResponseEntity<String> bookTicket(
             @PathVariable Long flightId, 
-            @Valid @RequestBody BookingRequest request) {
-               
-        return bookingService.bookTicket(flightId, request);
- 
+            @Valid @RequestBody BookingRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        
+        if (idempotencyKey == null) {
+            return bookingService.bookTicket(flightId, request);
+        }
+        return idempotencyStore.execute(idempotencyKey, IdempotencyStore.fingerprint(flightId, request),
+                () -> bookingService.bookTicket(flightId, request), bookingService::currentOutcome);
 	}
 	
 	@GetMapping("/ticket/{pnr}")
-    public ResponseEntity<Booking> getTicketByPnr(@PathVariable String pnr) {
+    public ResponseEntity<BookingResponse> getTicketByPnr(@PathVariable String pnr) {
         
-        Booking booking = bookingService.getTicketByPnr(pnr);
+        BookingResponse booking = bookingService.getTicketByPnr(pnr);
         
         return new ResponseEntity<>(booking, HttpStatus.OK);
     }
@@ -52,6 +66,20 @@ public class BookingController {
     	return new ResponseEntity<>(history, HttpStatus.OK);
     }
 	
+	// keyset paginated history, newest first, without passengers unless expand=passengers
+	@GetMapping("/booking/history/{emailId}/page")
+    public ResponseEntity<BookingHistoryPage> getBookingHistoryPage(
+    		@PathVariable String emailId,
+    		@RequestParam(required = false) String after,
+    		@RequestParam(defaultValue = "20") int size,
+    		@RequestParam(required = false) String expand) {
+    	
+    	BookingHistoryPage page = bookingService.getBookingHistoryPage(
+    			emailId, after, size, "passengers".equals(expand));
+    	
+    	return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+	
 	@DeleteMapping("/booking/cancel/{pnr}")
     public ResponseEntity<String> cancelTicket(@PathVariable String pnr) {
         
@@ -0,0 +1,81 @@
+package com.example.booking.deadline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.example.booking.exception.DeadlineExceededException;
+
+/**
+ * The point in time after which the caller of the current request no longer
+ * waits for the answer. It arrives as the milliseconds left in the
+ * X-Request-Timeout-Millis header, set by api-gateway, and goes out the same way
+ * on every call to flight-service, shortened by the time spent here. Kept per
+ * thread for the request being handled, {@link #current()} is null when the
+ * request came without one, for example calls made by the outbox relay.
+ *
+ * flight-service reads the header with a copy of this class, CopiedSourcesTest
+ * fails once the code of the two differs.
+ */
+public final class Deadline {
+
+	public static final String HEADER = "X-Request-Timeout-Millis";
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+	private final long expiresAtNanos;
+
+	private Deadline(long expiresAtNanos) {
+		this.expiresAtNanos = expiresAtNanos;
+	}
+
+	public static Deadline afterMillis(long millis) {
+		return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	static void set(Deadline deadline) {
+		CURRENT.set(deadline);
+	}
+
+	static void clear() {
+		CURRENT.remove();
+	}
+
+	// runs the call with the deadline as the current one, on threads other than the request's
+	public static <T> T callWith(Deadline deadline, Supplier<T> call) {
+		Deadline previous = CURRENT.get();
+		CURRENT.set(deadline);
+		try {
+			return call.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	// gives up on the current request when its caller has stopped waiting
+	public static void check(String work) {
+		Deadline deadline = CURRENT.get();
+		if (deadline != null && deadline.isExpired()) {
+			throw new DeadlineExceededException("Deadline exceeded before " + work + ".");
+		}
+	}
+
+	public long remainingNanos() {
+		return expiresAtNanos - System.nanoTime();
+	}
+
+	public long remainingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+	}
+
+	public boolean isExpired() {
+		return remainingNanos() <= 0;
+	}
+}
@@ -0,0 +1,45 @@
+package com.example.booking.deadline;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// makes the X-Request-Timeout-Millis of a request its current Deadline
+@Component
+public class DeadlineFilter extends OncePerRequestFilter {
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String header = request.getHeader(Deadline.HEADER);
+		if (header == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		long millis;
+		try {
+			millis = Long.parseLong(header.trim());
+		} catch (NumberFormatException e) {
+			response.sendError(HttpStatus.BAD_REQUEST.value(), Deadline.HEADER + " must be a number of milliseconds");
+			return;
+		}
+		if (millis <= 0) {
+			// the caller has already given up, do not start
+			response.sendError(HttpStatus.GATEWAY_TIMEOUT.value(), "Deadline exceeded");
+			return;
+		}
+		Deadline.set(Deadline.afterMillis(millis));
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			Deadline.clear();
+		}
+	}
+}
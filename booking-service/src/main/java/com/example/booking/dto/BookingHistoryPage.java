@@ -0,0 +1,16 @@
+package com.example.booking.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingHistoryPage {
+	private List<BookingSummaryDTO> bookings;
+	// pass back as "after" to get the next page, null on the last page
+	private String nextCursor;
+}
@@ -0,0 +1,36 @@
+package com.example.booking.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.booking.entity.BookingStatus;
+
+import lombok.Value;
+
+// read-only view of a booking returned by the PNR lookup, built from a
+// booking whose passengers were fetched in the same query
+@Value
+public class BookingResponse {
+	String pnr;
+	String userName;
+	String userEmail;
+	String mobileNumber;
+	LocalDateTime bookingDate;
+	Integer numberOfSeats;
+	String mealOpted;
+	Double totalCost;
+	Long flightId;
+	LocalDate journeyDate;
+	BookingStatus status;
+	List<PassengerResponse> passengers;
+
+	@Value
+	public static class PassengerResponse {
+		Long id;
+		String name;
+		String gender;
+		Integer age;
+		String seatNumber;
+	}
+}
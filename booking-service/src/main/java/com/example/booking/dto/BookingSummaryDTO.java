@@ -0,0 +1,34 @@
+package com.example.booking.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingSummaryDTO {
+	private String pnr;
+	private Long flightId;
+	private LocalDate journeyDate;
+	private LocalDateTime bookingDate;
+	private Integer numberOfSeats;
+	private String mealOpted;
+	private Double totalCost;
+	
+	// only filled when the caller asks for expand=passengers
+	private List<PassengerDTO> passengers;
+	
+	// used by the JPQL constructor expression in BookingRepository
+	public BookingSummaryDTO(String pnr, Long flightId, LocalDate journeyDate, LocalDateTime bookingDate,
+			Integer numberOfSeats, String mealOpted, Double totalCost) {
+		this(pnr, flightId, journeyDate, bookingDate, numberOfSeats, mealOpted, totalCost, null);
+	}
+}
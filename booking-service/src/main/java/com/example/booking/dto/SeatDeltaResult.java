@@ -0,0 +1,27 @@
+package com.example.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+// error is left out of applied results
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatDeltaResult {
+	private Long flightId;
+	private int delta;
+	private boolean applied;
+	private Integer availableSeats;
+	private String error;
+	// flight-service was applying the same changes for another request and did
+	// nothing, the delta is to be sent again later
+	private boolean retryable;
+
+	public SeatDeltaResult(Long flightId, int delta, boolean applied, Integer availableSeats, String error) {
+		this(flightId, delta, applied, availableSeats, error, false);
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.booking.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatReservationRequest {
+	@NotNull
+	@Min(value = 1, message = "Number of seats must be at least one.")
+    private Integer numberOfSeats;
+}
@@ -8,20 +8,26 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Persistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 @Entity
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "bookings")
-public class Booking {
+@Table(name = "bookings", indexes = @Index(
+		name = "idx_bookings_email_date", columnList = "userEmail, bookingDate"))
+public class Booking implements Persistable<String> {
 
     @Id
     private String pnr; 
@@ -50,8 +56,38 @@ public class Booking {
     @NotNull
     private LocalDate journeyDate; 
     
+    // bookings made before the outbox have no status and count as confirmed
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private BookingStatus status;
+    
     @OneToMany(mappedBy = "booking", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
     private List<Passenger> passengers;
     
+    // the pnr is assigned before saving, so Spring Data cannot tell a new booking
+    // from its id, without this save() would merge and SELECT the booking first
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+    
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return pnr;
+    }
+    
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+    
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
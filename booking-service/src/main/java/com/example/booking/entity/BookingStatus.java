@@ -0,0 +1,9 @@
+package com.example.booking.entity;
+
+// PENDING until the outbox relay has reserved the seats in flight-service,
+// REJECTED when flight-service turned the reservation down
+public enum BookingStatus {
+	PENDING,
+	CONFIRMED,
+	REJECTED
+}
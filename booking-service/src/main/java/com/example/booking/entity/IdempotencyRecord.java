@@ -0,0 +1,34 @@
+package com.example.booking.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a booking request under its Idempotency-Key, written before the booking is
+// made and completed with its response, so a retry is still recognised after a
+// restart or by another instance, and even while the first request is running
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "idempotency_keys", indexes = @Index(
+		name = "idx_idempotency_keys_expires", columnList = "expiresAt"))
+public class IdempotencyRecord {
+
+	@Id
+	@Column(length = 255)
+	private String idempotencyKey;
+	// SHA-256 of the canonical request body, hex
+	@Column(nullable = false, length = 64)
+	private String requestHash;
+	// null while the request is still in progress
+	private Integer statusCode;
+	@Column(length = 1024)
+	private String body;
+	// a request in progress holds the key until then, a completed one is kept until then
+	@Column(nullable = false)
+	private Instant expiresAt;
+}
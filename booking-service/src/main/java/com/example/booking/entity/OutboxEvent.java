@@ -0,0 +1,82 @@
+package com.example.booking.entity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a seat change for flight-service, written in the same transaction as the
+// booking it belongs to and deleted once the relay has applied it
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "booking_outbox", indexes = {
+		@Index(name = "idx_booking_outbox_claim", columnList = "claimedUntil"),
+		@Index(name = "idx_booking_outbox_pnr", columnList = "pnr") })
+public class OutboxEvent {
+
+	public enum Type {
+		RESERVE_SEATS,
+		RELEASE_SEATS
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_outbox_seq")
+	@SequenceGenerator(name = "booking_outbox_seq", sequenceName = "booking_outbox_seq", allocationSize = 50)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private Type type;
+	@Column(nullable = false)
+	private String pnr;
+	@Column(nullable = false)
+	private Long flightId;
+	@Column(nullable = false)
+	private Integer numberOfSeats;
+	@Column(nullable = false)
+	private Instant createdAt;
+	// seat numbers of the passengers, comma separated, claimed or freed with the
+	// seat count on flights that have a seat map
+	@Column(length = 1024)
+	private String seats;
+
+	// lease of the relay instance working on the event, an expired lease
+	// lets another instance pick it up again
+	private String claimToken;
+	private Instant claimedUntil;
+
+	public static OutboxEvent reserve(Booking booking) {
+		return of(Type.RESERVE_SEATS, booking);
+	}
+
+	public static OutboxEvent release(Booking booking) {
+		return of(Type.RELEASE_SEATS, booking);
+	}
+
+	private static OutboxEvent of(Type type, Booking booking) {
+		return new OutboxEvent(null, type, booking.getPnr(), booking.getFlightId(),
+				booking.getNumberOfSeats(), Instant.now(), seatsOf(booking), null, null);
+	}
+
+	private static String seatsOf(Booking booking) {
+		if (booking.getPassengers() == null) {
+			return null;
+		}
+		return booking.getPassengers().stream()
+				.map(Passenger::getSeatNumber)
+				.filter(Objects::nonNull)
+				.map(String::trim)
+				.collect(Collectors.joining(","));
+	}
+
+	public List<String> getSeatList() {
+		return seats == null || seats.isEmpty() ? List.of() : List.of(seats.split(","));
+	}
+}
@@ -16,8 +16,11 @@ import lombok.NoArgsConstructor;
 @Table(name = "passengers")
 public class Passenger {
 
+    // pooled sequence instead of IDENTITY so the passengers of a booking are
+    // inserted in one JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "passengers_seq")
+    @SequenceGenerator(name = "passengers_seq", sequenceName = "passengers_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
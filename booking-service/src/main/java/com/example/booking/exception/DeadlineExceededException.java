@@ -0,0 +1,8 @@
+package com.example.booking.exception;
+
+// the caller of the request stopped waiting, the work for it is abandoned
+public class DeadlineExceededException extends RuntimeException {
+	public DeadlineExceededException(String message) {
+	    super(message);
+	}
+}
@@ -0,0 +1,8 @@
+package com.example.booking.exception;
+
+// thrown without calling flight-service when the concurrency limit on it is reached
+public class FlightServiceOverloadedException extends RuntimeException {
+	public FlightServiceOverloadedException(String message) {
+	    super(message);
+	}
+}
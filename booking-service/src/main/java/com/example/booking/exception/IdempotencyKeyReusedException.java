@@ -0,0 +1,7 @@
+package com.example.booking.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+	public IdempotencyKeyReusedException(String message) {
+	    super(message);
+	}
+}
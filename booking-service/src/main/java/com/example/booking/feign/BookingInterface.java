@@ -1,22 +1,34 @@
 package com.example.booking.feign;
 
+import java.util.List;
+
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMethod;
 
 import com.example.booking.dto.FlightDTO;
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.example.booking.dto.SeatReservationRequest;
 
-@FeignClient("FLIGHT-SERVICE")
+@FeignClient(name = "FLIGHT-SERVICE", configuration = FlightClientConfiguration.class)
 public interface BookingInterface {
 	
 	@GetMapping("/api/v1.0/flight/{flightId}") 
     public FlightDTO getFlightById(@PathVariable("flightId") Long flightId); 
     
-    @RequestMapping(
-            method = RequestMethod.PUT, 
-            value = "/api/v1.0/flight/updateInventory" 
-        )
-    public String updateFlightInventory(FlightDTO flightDto);
+    // returns 409 Conflict when the flight does not have enough seats left
+    @PutMapping("/api/v1.0/flight/{flightId}/reserve")
+    public FlightDTO reserveSeats(@PathVariable("flightId") Long flightId, 
+    		@RequestBody SeatReservationRequest request);
+    
+    @PutMapping("/api/v1.0/flight/{flightId}/release")
+    public FlightDTO releaseSeats(@PathVariable("flightId") Long flightId, 
+    		@RequestBody SeatReservationRequest request);
+    
+    // applies the deltas in order in one transaction, one result per delta
+    @PutMapping("/api/v1.0/flight/inventory/deltas")
+    public List<SeatDeltaResult> applySeatDeltas(@RequestBody List<SeatDelta> deltas);
 }
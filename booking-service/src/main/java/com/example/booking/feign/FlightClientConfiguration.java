@@ -0,0 +1,92 @@
+package com.example.booking.feign;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.example.booking.deadline.Deadline;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import feign.RequestInterceptor;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+import feign.optionals.OptionalDecoder;
+
+/**
+ * Wire format of the calls to FLIGHT-SERVICE, only used by {@link BookingInterface}
+ * and for that reason not a @Configuration of its own. Every call also carries
+ * the {@link Deadline} of the request it is made for.
+ *
+ * With booking.flight-client.wire-format=smile request bodies go out as Smile,
+ * binary JSON with the same data model, and Smile is asked for in Accept with
+ * JSON as the fallback, so a flight-service without Smile support still answers.
+ * Responses are read by their Content-Type either way. The default, json, leaves
+ * the Spring Cloud OpenFeign codecs as they are.
+ */
+public class FlightClientConfiguration {
+
+	public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+	private HttpMessageConverters smileFirst;
+
+	@Bean
+	@ConditionalOnProperty(name = "booking.flight-client.wire-format", havingValue = "smile")
+	public Encoder smileEncoder(ObjectProvider<HttpMessageConverters> messageConverters,
+			Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		return new SpringEncoder(() -> smileFirst(messageConverters, objectMapperBuilder));
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "booking.flight-client.wire-format", havingValue = "smile")
+	public Decoder smileDecoder(ObjectProvider<HttpMessageConverters> messageConverters,
+			Jackson2ObjectMapperBuilder objectMapperBuilder,
+			ObjectProvider<HttpMessageConverterCustomizer> customizers) {
+		return new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(
+				() -> smileFirst(messageConverters, objectMapperBuilder), customizers)));
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "booking.flight-client.wire-format", havingValue = "smile")
+	public RequestInterceptor acceptSmile() {
+		return template -> template.header(HttpHeaders.ACCEPT,
+				SMILE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9");
+	}
+
+	// the time left of the request being handled, flight-service abandons the call after it
+	@Bean
+	public RequestInterceptor propagateDeadline() {
+		return template -> {
+			Deadline deadline = Deadline.current();
+			if (deadline != null) {
+				Deadline.check("calling flight-service");
+				template.header(Deadline.HEADER, String.valueOf(Math.max(1, deadline.remainingMillis())));
+			}
+		};
+	}
+
+	// Smile ahead of the application's converters, the encoder writes with the first that fits
+	private synchronized HttpMessageConverters smileFirst(ObjectProvider<HttpMessageConverters> messageConverters,
+			Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		if (smileFirst == null) {
+			List<HttpMessageConverter<?>> converters = new ArrayList<>();
+			converters.add(new MappingJackson2SmileHttpMessageConverter(
+					objectMapperBuilder.factory(new SmileFactory()).build()));
+			converters.addAll(messageConverters.getObject().getConverters());
+			smileFirst = new HttpMessageConverters(false, converters);
+		}
+		return smileFirst;
+	}
+}
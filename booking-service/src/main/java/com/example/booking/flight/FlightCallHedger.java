@@ -0,0 +1,240 @@
+package com.example.booking.flight;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.booking.deadline.Deadline;
+import com.example.booking.exception.DeadlineExceededException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Hedged calls for the idempotent reads of FLIGHT-SERVICE. A call that has not
+ * answered after the hedge delay is sent a second time and the first answer of
+ * the two is returned, the other one is left to finish on its own. The second
+ * call goes through the same load balancer, which takes the cheaper of two random
+ * instances by latency and requests in flight. The first call is still in flight
+ * and makes its instance look busier, so the hedge usually lands elsewhere, but
+ * nothing rules out the same instance, and with one instance it always does.
+ * One instance stuck in a GC pause then mostly costs the delay instead of the
+ * pause.
+ *
+ * The delay is the 95th percentile of the recent latencies, so in steady state
+ * about one call in twenty is hedged. Hedges also spend from a budget that every
+ * call adds budget-percent of a hedge to, which caps the extra load on a
+ * flight-service that has slowed down across the board. The caller waits no
+ * longer than the {@link Deadline} of its request.
+ */
+@Component
+public class FlightCallHedger {
+
+	private static final int WINDOW = 1024;
+	private static final int MIN_SAMPLES = 100;
+	private static final long MILLI_TOKENS = 1000;
+	private static final long MAX_BUDGET = 10 * MILLI_TOKENS;
+
+	private final boolean enabled;
+	private final long initialDelayNanos;
+	private final long minDelayNanos;
+	private final long maxDelayNanos;
+	private final long budgetPerCall;
+
+	private final AtomicLongArray latencies = new AtomicLongArray(WINDOW);
+	private final AtomicLong samples = new AtomicLong();
+	private volatile long p95Nanos;
+	private final AtomicLong budget = new AtomicLong(MAX_BUDGET);
+
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder hedged = new LongAdder();
+	private final LongAdder hedgeWins = new LongAdder();
+
+	private final AtomicInteger threads = new AtomicInteger();
+	private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "flight-call-" + threads.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@Autowired
+	public FlightCallHedger(@Value("${booking.flight-client.hedging.enabled:true}") boolean enabled,
+			@Value("${booking.flight-client.hedging.initial-delay-millis:50}") long initialDelayMillis,
+			@Value("${booking.flight-client.hedging.min-delay-millis:5}") long minDelayMillis,
+			@Value("${booking.flight-client.hedging.max-delay-millis:1000}") long maxDelayMillis,
+			@Value("${booking.flight-client.hedging.budget-percent:10}") int budgetPercent) {
+		this.enabled = enabled;
+		this.initialDelayNanos = TimeUnit.MILLISECONDS.toNanos(initialDelayMillis);
+		this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+		this.budgetPerCall = MILLI_TOKENS * budgetPercent / 100;
+	}
+
+	// calls, hedges and hedges that answered first under booking.flight-client.hedge*
+	@Autowired(required = false)
+	public void bindMetrics(MeterRegistry meterRegistry) {
+		FunctionCounter.builder("booking.flight-client.hedgeable", calls, LongAdder::sum)
+				.description("Calls to flight-service that could be hedged")
+				.register(meterRegistry);
+		FunctionCounter.builder("booking.flight-client.hedges", hedged, LongAdder::sum)
+				.description("Second calls sent because the first was slow")
+				.register(meterRegistry);
+		FunctionCounter.builder("booking.flight-client.hedge.wins", hedgeWins, LongAdder::sum)
+				.description("Second calls that answered before the first")
+				.register(meterRegistry);
+		Gauge.builder("booking.flight-client.hedge.delay", this, hedger -> hedger.hedgeDelayNanos() / 1e6)
+				.description("Time after which a call to flight-service is hedged, in milliseconds")
+				.register(meterRegistry);
+	}
+
+	// the call must be safe to make twice
+	public <T> T call(Supplier<T> call) {
+		if (!enabled) {
+			return call.get();
+		}
+		Deadline deadline = Deadline.current();
+		calls.increment();
+		budget.accumulateAndGet(budgetPerCall, (current, added) -> Math.min(MAX_BUDGET, current + added));
+
+		CompletableFuture<T> first = start(call, deadline);
+		long delay = hedgeDelayNanos();
+		if (deadline != null && deadline.remainingNanos() <= delay) {
+			return await(first, deadline);
+		}
+		try {
+			return unwrap(first, delay);
+		} catch (TimeoutException slow) {
+			if (!spendBudget()) {
+				return await(first, deadline);
+			}
+		}
+		hedged.increment();
+		// counted before the hedge completes, so the win is known once the caller has its answer
+		CompletableFuture<T> second = start(() -> {
+			T value = call.get();
+			if (!first.isDone()) {
+				hedgeWins.increment();
+			}
+			return value;
+		}, deadline);
+		return await(firstSuccess(first, second), deadline);
+	}
+
+	// the hedged call on a worker, without the deadline of the current request, for
+	// a lookup shared by callers that each wait only as long as their own deadline
+	public <T> CompletableFuture<T> submit(Supplier<T> call) {
+		return CompletableFuture.supplyAsync(() -> call(call), workers);
+	}
+
+	private <T> CompletableFuture<T> start(Supplier<T> call, Deadline deadline) {
+		long start = System.nanoTime();
+		CompletableFuture<T> attempt = CompletableFuture.supplyAsync(() -> Deadline.callWith(deadline, call), workers);
+		attempt.thenRun(() -> record(System.nanoTime() - start));
+		return attempt;
+	}
+
+	// fails only once both have failed, with the error of the last one
+	private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> first, CompletableFuture<T> second) {
+		CompletableFuture<T> winner = new CompletableFuture<>();
+		AtomicInteger failed = new AtomicInteger();
+		for (CompletableFuture<T> attempt : Arrays.asList(first, second)) {
+			attempt.whenComplete((value, error) -> {
+				if (error == null) {
+					winner.complete(value);
+				} else if (failed.incrementAndGet() == 2) {
+					winner.completeExceptionally(error);
+				}
+			});
+		}
+		return winner;
+	}
+
+	private boolean spendBudget() {
+		while (true) {
+			long current = budget.get();
+			if (current < MILLI_TOKENS) {
+				return false;
+			}
+			if (budget.compareAndSet(current, current - MILLI_TOKENS)) {
+				return true;
+			}
+		}
+	}
+
+	private static <T> T await(CompletableFuture<T> result, Deadline deadline) {
+		try {
+			return unwrap(result, deadline == null ? Long.MAX_VALUE : Math.max(0, deadline.remainingNanos()));
+		} catch (TimeoutException e) {
+			throw new DeadlineExceededException("Deadline exceeded waiting for flight-service.");
+		}
+	}
+
+	private static <T> T unwrap(CompletableFuture<T> result, long timeoutNanos) throws TimeoutException {
+		try {
+			return result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for flight-service", e);
+		}
+	}
+
+	private void record(long latencyNanos) {
+		long sample = samples.getAndIncrement();
+		latencies.set((int) (sample % WINDOW), latencyNanos);
+		// the percentile is worked out again every 64 samples, a sort of at most 1024 longs
+		if (sample + 1 >= MIN_SAMPLES && (sample + 1) % 64 == 0) {
+			int size = (int) Math.min(sample + 1, WINDOW);
+			long[] window = new long[size];
+			for (int i = 0; i < size; i++) {
+				window[i] = latencies.get(i);
+			}
+			Arrays.sort(window);
+			p95Nanos = window[(int) (0.95 * (size - 1))];
+		}
+	}
+
+	public long hedgeDelayNanos() {
+		long p95 = p95Nanos;
+		return p95 == 0 ? initialDelayNanos : Math.max(minDelayNanos, Math.min(maxDelayNanos, p95));
+	}
+
+	public long calls() {
+		return calls.sum();
+	}
+
+	public long hedged() {
+		return hedged.sum();
+	}
+
+	public long hedgeWins() {
+		return hedgeWins.sum();
+	}
+
+	@PreDestroy
+	public void stop() {
+		workers.shutdownNow();
+	}
+}
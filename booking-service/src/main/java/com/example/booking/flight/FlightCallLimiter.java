@@ -0,0 +1,186 @@
+package com.example.booking.flight;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Adaptive limit on the calls booking-service has running against
+ * FLIGHT-SERVICE at the same time, after the gradient algorithm of Netflix's
+ * concurrency-limits. Two averages of the round trip time are kept, a long one
+ * that stands for the service at ease and a short one for right now. While the
+ * short one stays within tolerance times the long one the limit grows by a few
+ * calls per sample, beyond that it shrinks in proportion, and a call that times
+ * out or fails with a 5xx takes it down by a tenth. The limit only grows while
+ * at least half of it is in use, so a quiet period does not leave it at max.
+ *
+ * Calls over the limit are not queued, {@link #tryAcquire} turns them away at
+ * once, which is what keeps threads from piling up on a slow flight-service.
+ */
+@Component
+public class FlightCallLimiter {
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double tolerance;
+	private final int queueSize;
+	private final double smoothing;
+	private final double longWindow;
+	private final LongSupplier nanoTime;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile int limit;
+	// guarded by this
+	private double estimatedLimit;
+	private double longRttNanos;
+	private double shortRttNanos;
+
+	private final LongAdder succeeded = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder ignored = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder limitChanges = new LongAdder();
+
+	@Autowired
+	public FlightCallLimiter(@Value("${booking.flight-client.limiter.initial-limit:20}") int initialLimit,
+			@Value("${booking.flight-client.limiter.min-limit:2}") int minLimit,
+			@Value("${booking.flight-client.limiter.max-limit:200}") int maxLimit,
+			@Value("${booking.flight-client.limiter.rtt-tolerance:2.0}") double tolerance) {
+		this(initialLimit, minLimit, maxLimit, tolerance, System::nanoTime);
+	}
+
+	FlightCallLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, LongSupplier nanoTime) {
+		if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit || tolerance < 1) {
+			throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit and rtt-tolerance >= 1");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.queueSize = 4;
+		this.smoothing = 0.2;
+		this.longWindow = 600;
+		this.nanoTime = nanoTime;
+		this.limit = initialLimit;
+		this.estimatedLimit = initialLimit;
+	}
+
+	// limit, calls in flight and calls by outcome under booking.flight-client, a
+	// rising rejected count with a falling limit is flight-service slowing down
+	@Autowired(required = false)
+	public void bindMetrics(MeterRegistry meterRegistry) {
+		Gauge.builder("booking.flight-client.limit", this, FlightCallLimiter::getLimit)
+				.description("Calls to flight-service allowed at the same time")
+				.register(meterRegistry);
+		Gauge.builder("booking.flight-client.in-flight", inFlight, AtomicInteger::get)
+				.description("Calls to flight-service running")
+				.register(meterRegistry);
+		Gauge.builder("booking.flight-client.rtt", this, limiter -> limiter.longRttMillis())
+				.description("Long-term round trip time of calls to flight-service, in milliseconds")
+				.register(meterRegistry);
+		FunctionCounter.builder("booking.flight-client.limit.changes", limitChanges, LongAdder::sum)
+				.description("Times the limit on flight-service calls moved")
+				.register(meterRegistry);
+		registerCalls(meterRegistry, "succeeded", succeeded);
+		registerCalls(meterRegistry, "dropped", dropped);
+		registerCalls(meterRegistry, "ignored", ignored);
+		registerCalls(meterRegistry, "rejected", rejected);
+	}
+
+	private static void registerCalls(MeterRegistry meterRegistry, String outcome, LongAdder count) {
+		FunctionCounter.builder("booking.flight-client.calls", count, LongAdder::sum)
+				.tag("outcome", outcome)
+				.description("Calls to flight-service by outcome")
+				.register(meterRegistry);
+	}
+
+	// null when the limit is reached, otherwise exactly one of the on methods must follow
+	public Permit tryAcquire() {
+		while (true) {
+			int running = inFlight.get();
+			if (running >= limit) {
+				rejected.increment();
+				return null;
+			}
+			if (inFlight.compareAndSet(running, running + 1)) {
+				return new Permit(nanoTime.getAsLong(), running + 1);
+			}
+		}
+	}
+
+	// flight-service answered, 4xx included, the round trip time counts
+	public void onSuccess(Permit permit) {
+		inFlight.decrementAndGet();
+		succeeded.increment();
+		update(nanoTime.getAsLong() - permit.startNanos, permit.inFlight, false);
+	}
+
+	// timeout, connection refused or 5xx, flight-service is overloaded or down
+	public void onDropped(Permit permit) {
+		inFlight.decrementAndGet();
+		dropped.increment();
+		update(0, permit.inFlight, true);
+	}
+
+	// failed on this side, says nothing about flight-service
+	public void onIgnore(Permit permit) {
+		inFlight.decrementAndGet();
+		ignored.increment();
+	}
+
+	private synchronized void update(long rttNanos, int inFlightAtStart, boolean drop) {
+		double next;
+		if (drop) {
+			next = estimatedLimit * 0.9;
+		} else {
+			if (longRttNanos == 0) {
+				longRttNanos = rttNanos;
+				shortRttNanos = rttNanos;
+			}
+			longRttNanos += (rttNanos - longRttNanos) / longWindow;
+			shortRttNanos += (rttNanos - shortRttNanos) * 0.2;
+			// after a long overload the long average lags far behind, let it catch up
+			if (longRttNanos > 2 * shortRttNanos) {
+				longRttNanos *= 0.95;
+			}
+			if (inFlightAtStart < estimatedLimit / 2) {
+				return;
+			}
+			double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / Math.max(1, shortRttNanos)));
+			next = estimatedLimit * gradient + queueSize;
+		}
+		estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - smoothing) + next * smoothing));
+		int rounded = (int) estimatedLimit;
+		if (rounded != limit) {
+			limit = rounded;
+			limitChanges.increment();
+		}
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public synchronized double longRttMillis() {
+		return longRttNanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	public long rejected() {
+		return rejected.sum();
+	}
+
+	public record Permit(long startNanos, int inFlight) {
+	}
+}
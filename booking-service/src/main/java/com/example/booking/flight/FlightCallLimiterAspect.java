@@ -0,0 +1,53 @@
+package com.example.booking.flight;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.booking.exception.FlightServiceOverloadedException;
+
+import feign.FeignException;
+
+/**
+ * Puts every {@link com.example.booking.feign.BookingInterface} call through
+ * {@link FlightCallLimiter}. A call over the limit fails
+ * with {@link FlightServiceOverloadedException} before anything is sent.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "booking.flight-client.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class FlightCallLimiterAspect {
+
+	private final FlightCallLimiter limiter;
+
+	public FlightCallLimiterAspect(FlightCallLimiter limiter) {
+		this.limiter = limiter;
+	}
+
+	@Around("execution(* com.example.booking.feign.BookingInterface.*(..))")
+	public Object limit(ProceedingJoinPoint call) throws Throwable {
+		FlightCallLimiter.Permit permit = limiter.tryAcquire();
+		if (permit == null) {
+			throw new FlightServiceOverloadedException("Flight Service is overloaded, "
+					+ limiter.getLimit() + " calls already running.");
+		}
+		try {
+			Object result = call.proceed();
+			limiter.onSuccess(permit);
+			return result;
+		} catch (FeignException e) {
+			// status -1 is a timeout or a refused connection
+			if (e.status() < 0 || e.status() >= 500) {
+				limiter.onDropped(permit);
+			} else {
+				limiter.onSuccess(permit);
+			}
+			throw e;
+		} catch (Throwable t) {
+			limiter.onIgnore(permit);
+			throw t;
+		}
+	}
+}
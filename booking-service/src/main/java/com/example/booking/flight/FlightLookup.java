@@ -0,0 +1,156 @@
+package com.example.booking.flight;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.booking.deadline.Deadline;
+import com.example.booking.dto.FlightDTO;
+import com.example.booking.exception.DeadlineExceededException;
+import com.example.booking.feign.BookingInterface;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Flight lookups against FLIGHT-SERVICE with concurrent lookups of the same
+ * flight collapsed into one outstanding request. Whoever asks while that
+ * request is running waits for it and gets the same FlightDTO, so a flash sale
+ * on one flight costs one round trip at a time instead of one per booking.
+ * The shared request runs without the {@link Deadline} of whoever started it,
+ * and every caller, the first one included, waits for it no longer than its own
+ * deadline allows, so a caller in a hurry never fails the others.
+ *
+ * {@link #getFlight} always goes to flight-service, through the request that is
+ * already running if there is one, and is meant for callers that look at the
+ * seats left. {@link #getFlightDetails} may answer from a short-lived near cache
+ * and is meant for the fields that do not change with bookings, such as the
+ * schedule and the price. Every remote answer refreshes the near cache.
+ *
+ * The returned FlightDTO is shared between callers and must not be modified.
+ */
+@Component
+public class FlightLookup {
+
+	public static final String CACHE_NAME = "flightDetails";
+
+	private final BookingInterface bookingInterface;
+	private final FlightCallHedger hedger;
+	private final Cache<Long, FlightDTO> details;
+	private final ConcurrentMap<Long, CompletableFuture<FlightDTO>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder remoteCalls = new LongAdder();
+	private final LongAdder coalescedCalls = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+
+	public FlightLookup(BookingInterface bookingInterface, FlightCallHedger hedger,
+			@Value("${booking.flight-cache.max-size:10000}") long maxSize,
+			@Value("${booking.flight-cache.ttl-seconds:5}") long ttlSeconds) {
+		this.bookingInterface = bookingInterface;
+		this.hedger = hedger;
+		this.details = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.recordStats()
+				.build();
+	}
+
+	// lookups by outcome under booking.flight.lookups, the share of remote calls
+	// among them is what coalescing and the near cache saved
+	@Autowired(required = false)
+	public void bindMetrics(MeterRegistry meterRegistry) {
+		CaffeineCacheMetrics.monitor(meterRegistry, details, CACHE_NAME);
+		registerLookups(meterRegistry, "remote", remoteCalls);
+		registerLookups(meterRegistry, "coalesced", coalescedCalls);
+		registerLookups(meterRegistry, "near-cache", cacheHits);
+	}
+
+	private static void registerLookups(MeterRegistry meterRegistry, String source, LongAdder count) {
+		FunctionCounter.builder("booking.flight.lookups", count, LongAdder::sum)
+				.tag("source", source)
+				.description("Flight lookups by how they were answered")
+				.register(meterRegistry);
+	}
+
+	public FlightDTO getFlight(Long flightId) {
+		CompletableFuture<FlightDTO> lookup = new CompletableFuture<>();
+		CompletableFuture<FlightDTO> running = inFlight.putIfAbsent(flightId, lookup);
+		if (running != null) {
+			coalescedCalls.increment();
+			return await(running);
+		}
+
+		remoteCalls.increment();
+		// a read, so a slow instance is hedged with a second one
+		hedger.submit(() -> bookingInterface.getFlightById(flightId)).whenComplete((flight, error) -> {
+			if (error == null) {
+				details.put(flightId, flight);
+			}
+			// gone before anyone hears the answer, so the next lookup after a failure tries again
+			inFlight.remove(flightId, lookup);
+			if (error == null) {
+				lookup.complete(flight);
+			} else {
+				// everyone waiting on this lookup gets the same error
+				lookup.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+						? error.getCause() : error);
+			}
+		});
+		return await(lookup);
+	}
+
+	public FlightDTO getFlightDetails(Long flightId) {
+		FlightDTO flight = details.getIfPresent(flightId);
+		if (flight != null) {
+			cacheHits.increment();
+			return flight;
+		}
+		return getFlight(flightId);
+	}
+
+	// callers without a deadline, such as the outbox relay, wait for the Feign timeouts
+	private static FlightDTO await(CompletableFuture<FlightDTO> lookup) {
+		Deadline deadline = Deadline.current();
+		try {
+			return deadline == null ? lookup.get()
+					: lookup.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			throw new DeadlineExceededException("Deadline exceeded waiting for the flight lookup.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for the flight lookup", e);
+		}
+	}
+
+	public long remoteCalls() {
+		return remoteCalls.sum();
+	}
+
+	public long coalescedCalls() {
+		return coalescedCalls.sum();
+	}
+
+	public long cacheHits() {
+		return cacheHits.sum();
+	}
+}
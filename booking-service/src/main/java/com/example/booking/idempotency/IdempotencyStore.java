@@ -0,0 +1,310 @@
+package com.example.booking.idempotency;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.booking.deadline.Deadline;
+import com.example.booking.entity.IdempotencyRecord;
+import com.example.booking.exception.DeadlineExceededException;
+import com.example.booking.exception.IdempotencyKeyInProgressException;
+import com.example.booking.exception.IdempotencyKeyReusedException;
+import com.example.booking.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Remembers the response of a booking request under the Idempotency-Key the
+ * client sent with it, so a retried request gets the original PNR back instead
+ * of a second booking.
+ *
+ * Keys are kept in a bounded cache for ttl-seconds and a hit is answered without
+ * touching the database or flight-service. A duplicate that arrives while the
+ * first request is still running waits for its outcome, for no longer than its
+ * own deadline or the settle timeout of the booking, and gets a 409 when the
+ * first request takes longer than that. With
+ * {@code booking.idempotency.persistent=true} the key is also claimed in the
+ * idempotency_keys table before the booking is made: an in-progress row is
+ * inserted, and the key's primary key lets only one instance have it. The row
+ * is completed with the response afterwards. A duplicate on another instance
+ * gets the stored response, or a 409 while the first request is still running.
+ * An in-progress row left by a crashed instance is taken over once
+ * in-progress-seconds have passed.
+ *
+ * Only successful responses are kept, a request that failed may be retried
+ * under the same key. A 202 is not final: when it is replayed, the caller's
+ * refresh brings it up to date with the booking, and what the booking came to
+ * is kept instead, or the key is given up when it was turned down. Reusing a key for a different request is rejected, the
+ * requests are told apart by a SHA-256 digest of their canonical JSON.
+ */
+@Component
+public class IdempotencyStore {
+
+	private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+	public static final String HEADER = "Idempotency-Key";
+	public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+	public static final String CACHE_NAME = "bookingIdempotency";
+	public static final int MAX_KEY_LENGTH = 255;
+
+	// properties and map keys in a fixed order, so equal requests give equal bytes
+	private static final ObjectMapper CANONICAL_JSON = JsonMapper.builder()
+			.findAndAddModules()
+			.enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+			.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+			.build();
+
+	private final Cache<String, Entry> cache;
+	private final Duration ttl;
+	private final Duration inProgressTimeout;
+	private final boolean persistent;
+	private final Duration waitTimeout;
+	private final IdempotencyRecordRepository recordRepository;
+
+	public IdempotencyStore(IdempotencyRecordRepository recordRepository,
+			@Value("${booking.idempotency.max-size:100000}") long maxSize,
+			@Value("${booking.idempotency.ttl-seconds:86400}") long ttlSeconds,
+			@Value("${booking.idempotency.in-progress-seconds:60}") long inProgressSeconds,
+			@Value("${booking.idempotency.persistent:false}") boolean persistent,
+			@Value("${booking.outbox.settle-timeout-millis:10000}") long waitMillis) {
+		this.recordRepository = recordRepository;
+		this.ttl = Duration.ofSeconds(ttlSeconds);
+		this.inProgressTimeout = Duration.ofSeconds(inProgressSeconds);
+		this.persistent = persistent;
+		this.waitTimeout = Duration.ofMillis(waitMillis);
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+	}
+
+	@Autowired(required = false)
+	public void bindMetrics(MeterRegistry meterRegistry) {
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+	}
+
+	// SHA-256 of the canonical JSON of the request parts, hex
+	public static String fingerprint(Object... requestParts) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+					.digest(CANONICAL_JSON.writeValueAsBytes(requestParts)));
+		} catch (JsonProcessingException | NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Cannot fingerprint the request", e);
+		}
+	}
+
+	// for requests whose first answer is final
+	public ResponseEntity<String> execute(String key, String fingerprint, Supplier<ResponseEntity<String>> request) {
+		return execute(key, fingerprint, request, UnaryOperator.identity());
+	}
+
+	// runs the request once per key, the fingerprint tells a retry from a
+	// different request that happens to reuse the key. A replayed 202 is passed
+	// through refresh, which answers what became of the request since
+	public ResponseEntity<String> execute(String key, String fingerprint, Supplier<ResponseEntity<String>> request,
+			UnaryOperator<ResponseEntity<String>> refresh) {
+		if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+			throw new IllegalArgumentException(
+					HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+		}
+		Entry entry = new Entry(fingerprint);
+		Entry existing = cache.asMap().putIfAbsent(key, entry);
+		if (existing != null) {
+			return replay(key, existing, fingerprint, refresh);
+		}
+
+		boolean claimed = false;
+		try {
+			if (persistent) {
+				Optional<ResponseEntity<String>> stored = claim(key, fingerprint);
+				if (stored.isPresent()) {
+					entry.response.complete(stored.get());
+					return replayed(refreshed(key, entry, stored.get(), refresh));
+				}
+				claimed = true;
+			}
+
+			ResponseEntity<String> response = request.get();
+			boolean succeeded = response.getStatusCode().is2xxSuccessful();
+			if (!succeeded) {
+				cache.asMap().remove(key, entry);
+			}
+			if (claimed) {
+				claimed = false;
+				finish(key, response, succeeded);
+			}
+			entry.response.complete(response);
+			return response;
+		} catch (RuntimeException e) {
+			cache.asMap().remove(key, entry);
+			entry.response.completeExceptionally(e);
+			if (claimed) {
+				recordRepository.deleteInProgress(key);
+			}
+			throw e;
+		}
+	}
+
+	// inserts the in-progress row, the key belongs to this request once that
+	// worked and empty is returned. Otherwise the row of the other request is
+	// read: a completed one is replayed, one still in progress is refused, and
+	// an expired one, or one that is gone again, is replaced
+	private Optional<ResponseEntity<String>> claim(String key, String fingerprint) {
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				recordRepository.insertInProgress(key, fingerprint, Instant.now().plus(inProgressTimeout));
+				return Optional.empty();
+			} catch (DataIntegrityViolationException e) {
+				Optional<IdempotencyRecord> record = recordRepository.findById(key)
+						.filter(stored -> stored.getExpiresAt().isAfter(Instant.now()));
+				if (record.isEmpty()) {
+					if (recordRepository.deleteIfExpired(key, Instant.now()) > 0) {
+						log.warn("Taking over idempotency key {}, its first request never completed", key);
+					}
+					continue;
+				}
+				checkFingerprint(key, record.get().getRequestHash(), fingerprint);
+				if (record.get().getStatusCode() != null) {
+					return Optional.of(new ResponseEntity<>(record.get().getBody(),
+							HttpStatusCode.valueOf(record.get().getStatusCode())));
+				}
+				break;
+			}
+		}
+		throw inProgress(key);
+	}
+
+	// keeps the response of a successful request, a failed one gives the key up
+	private void finish(String key, ResponseEntity<String> response, boolean succeeded) {
+		if (succeeded) {
+			recordRepository.complete(key, response.getStatusCode().value(), response.getBody(),
+					Instant.now().plus(ttl));
+		} else {
+			recordRepository.deleteInProgress(key);
+		}
+	}
+
+	private ResponseEntity<String> replay(String key, Entry entry, String fingerprint,
+			UnaryOperator<ResponseEntity<String>> refresh) {
+		checkFingerprint(key, entry.fingerprint, fingerprint);
+		Deadline deadline = Deadline.current();
+		boolean deadlineFirst = deadline != null && deadline.remainingNanos() < waitTimeout.toNanos();
+		long waitNanos = deadlineFirst ? Math.max(deadline.remainingNanos(), 0) : waitTimeout.toNanos();
+		ResponseEntity<String> response;
+		try {
+			response = entry.response.get(waitNanos, TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			// the first request failed, its caller and every waiting duplicate see the same error
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (TimeoutException e) {
+			if (deadlineFirst) {
+				throw new DeadlineExceededException("Deadline exceeded waiting for the first request with "
+						+ HEADER + " " + key + ".");
+			}
+			throw inProgress(key);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw inProgress(key);
+		}
+		return replayed(refreshed(key, entry, response, refresh));
+	}
+
+	// a 202 is asked again, and once it has turned into a final answer that is
+	// kept for the key, or the key is given up when the answer is a failure
+	private ResponseEntity<String> refreshed(String key, Entry entry, ResponseEntity<String> response,
+			UnaryOperator<ResponseEntity<String>> refresh) {
+		if (response.getStatusCode() != HttpStatus.ACCEPTED) {
+			return response;
+		}
+		ResponseEntity<String> current = refresh.apply(response);
+		if (current.getStatusCode() == HttpStatus.ACCEPTED) {
+			return current;
+		}
+		if (current.getStatusCode().is2xxSuccessful()) {
+			Entry settled = new Entry(entry.fingerprint);
+			settled.response.complete(current);
+			cache.asMap().replace(key, entry, settled);
+			if (persistent) {
+				recordRepository.complete(key, current.getStatusCode().value(), current.getBody(),
+						Instant.now().plus(ttl));
+			}
+		} else {
+			cache.asMap().remove(key, entry);
+			if (persistent) {
+				recordRepository.deleteById(key);
+			}
+		}
+		return current;
+	}
+
+	private static IdempotencyKeyInProgressException inProgress(String key) {
+		return new IdempotencyKeyInProgressException(
+				"A request with " + HEADER + " " + key + " is still in progress, retry later.");
+	}
+
+	private static void checkFingerprint(String key, String expected, String fingerprint) {
+		if (!expected.equals(fingerprint)) {
+			throw new IdempotencyKeyReusedException(
+					HEADER + " " + key + " was already used for a different booking request.");
+		}
+	}
+
+	private static ResponseEntity<String> replayed(ResponseEntity<String> response) {
+		return ResponseEntity.status(response.getStatusCode())
+				.header(REPLAYED_HEADER, "true")
+				.body(response.getBody());
+	}
+
+	@Scheduled(fixedDelayString = "${booking.idempotency.cleanup-interval-millis:3600000}")
+	public void deleteExpiredRecords() {
+		if (persistent) {
+			recordRepository.deleteExpired(Instant.now());
+		}
+	}
+
+	public long size() {
+		return cache.estimatedSize();
+	}
+
+	private static final class Entry {
+		private final String fingerprint;
+		private final CompletableFuture<ResponseEntity<String>> response = new CompletableFuture<>();
+
+		private Entry(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package com.example.booking.loadbalancer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+// the Feign client picks FLIGHT-SERVICE instances by latency and load instead of
+// round robin, booking.flight-client.load-balancing.strategy=round-robin goes back
+@Configuration
+@ConditionalOnProperty(name = "booking.flight-client.load-balancing.strategy", havingValue = "latency-aware",
+		matchIfMissing = true)
+@LoadBalancerClient(name = "FLIGHT-SERVICE", configuration = LatencyAwareLoadBalancerConfiguration.class)
+public class FlightServiceLoadBalancing {
+}
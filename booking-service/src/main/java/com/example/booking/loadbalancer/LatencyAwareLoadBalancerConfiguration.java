@@ -0,0 +1,26 @@
+package com.example.booking.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer of the FLIGHT-SERVICE client context, registered through
+ * {@link FlightServiceLoadBalancing} and for that reason not a @Configuration
+ * of its own. The instances still come from Eureka through the default,
+ * cached {@link ServiceInstanceListSupplier}.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+	@Bean
+	public LatencyAwareLoadBalancer latencyAwareLoadBalancer(Environment environment,
+			LoadBalancerClientFactory loadBalancerClientFactory,
+			@Value("${booking.flight-client.load-balancing.decay-millis:10000}") long decayMillis) {
+		String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+		return new LatencyAwareLoadBalancer(
+				loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId,
+				decayMillis);
+	}
+}
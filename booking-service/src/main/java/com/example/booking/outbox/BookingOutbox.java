@@ -0,0 +1,46 @@
+package com.example.booking.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.booking.entity.Booking;
+import com.example.booking.entity.OutboxEvent;
+import com.example.booking.repository.BookingRepository;
+import com.example.booking.repository.OutboxEventRepository;
+
+// writes a booking change together with the seat change flight-service has to
+// make for it, both land in the database or neither does
+@Component
+public class BookingOutbox {
+
+	@Autowired
+	BookingRepository bookingRepository;
+
+	@Autowired
+	OutboxEventRepository outboxEventRepository;
+
+	// OutboxRelay hears about the event once the transaction has committed
+	@Autowired
+	ApplicationEventPublisher eventPublisher;
+
+	@Transactional
+	public void saveAndReserve(Booking booking) {
+		bookingRepository.save(booking);
+		eventPublisher.publishEvent(outboxEventRepository.save(OutboxEvent.reserve(booking)));
+	}
+
+	// the booking comes with its passengers, their seats are freed with the release
+	@Transactional
+	public void deleteAndRelease(Booking booking) {
+		bookingRepository.delete(booking);
+		eventPublisher.publishEvent(outboxEventRepository.save(OutboxEvent.release(booking)));
+	}
+
+	// a rejected booking never got its seats, nothing to give back
+	@Transactional
+	public void delete(Booking booking) {
+		bookingRepository.delete(booking);
+	}
+}
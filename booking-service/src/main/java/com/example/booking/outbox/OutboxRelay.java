@@ -0,0 +1,344 @@
+package com.example.booking.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.example.booking.entity.BookingStatus;
+import com.example.booking.entity.OutboxEvent;
+import com.example.booking.feign.BookingInterface;
+import com.example.booking.repository.BookingRepository;
+import com.example.booking.repository.OutboxEventRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Applies the outbox events written by {@link BookingOutbox} to flight-service.
+ *
+ * Events are micro-batched: a run starts linger-millis after the first event
+ * committed since the last one, or straight away once batch-size events have
+ * been written, and a slower poll picks up whatever is left behind by a crash
+ * or a failed run. Every run leases a batch of events, so several
+ * booking-service instances can relay side by side, sums them per flight and
+ * direction and sends the lot as one PUT /inventory/deltas, which flight-service
+ * applies in one transaction. When the summed reservation of a flight does not
+ * fit, its bookings go out again as separate deltas in a second request, so each
+ * booking is confirmed or rejected on its own. Every delta carries the change
+ * ids of its events, flight-service records them with the seat update, so a
+ * batch sent again after a crash or a lost lease is not applied twice; a
+ * delta of which only some changes are known comes back unapplied and is
+ * split like one that does not fit. The passengers' seat numbers go along, on
+ * a flight with a seat map they are claimed with the seats, and a booking
+ * naming a taken or unknown seat is rejected. The outcome of a run is written
+ * in one short transaction: confirmed and rejected bookings get their status,
+ * the applied events are deleted.
+ *
+ * A request that fails, flight-service down or a timeout, leaves its events
+ * where they are, and they are retried once the lease has run out, as are the
+ * events of a delta flight-service answers as retryable because another request
+ * is applying the same changes. No database connection is held while
+ * flight-service is called. A release flight-service turns down is parked for
+ * park-seconds and tried again, never dropped. The release of a booking
+ * cancelled while still PENDING waits until its reservation is settled, and is
+ * deleted with it when the reservation is rejected, since those seats were
+ * never taken.
+ *
+ * bookTicket waits in {@link #awaitSettlement} for the run that settles its
+ * booking, so the caller still learns the outcome of its own booking. The run
+ * may be the relay of another instance, which is seen by reading the status of
+ * the booking every settle-poll-millis while waiting.
+ */
+@Component
+public class OutboxRelay {
+
+	private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+	private final OutboxEventRepository outboxEventRepository;
+	private final BookingRepository bookingRepository;
+	private final BookingInterface bookingInterface;
+	private final TransactionTemplate transactionTemplate;
+	private final int batchSize;
+	private final Duration lease;
+	private final long lingerMillis;
+
+	private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "outbox-relay");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final AtomicInteger written = new AtomicInteger();
+	// bookings whose bookTicket call is waiting for them to be settled
+	private final Map<String, CompletableFuture<Settlement>> waiting = new ConcurrentHashMap<>();
+	private final Duration park;
+	private final long settlePollNanos;
+
+	public OutboxRelay(OutboxEventRepository outboxEventRepository, BookingRepository bookingRepository,
+			BookingInterface bookingInterface, PlatformTransactionManager transactionManager,
+			@Value("${booking.outbox.batch-size:100}") int batchSize,
+			@Value("${booking.outbox.lease-seconds:30}") long leaseSeconds,
+			@Value("${booking.outbox.linger-millis:5}") long lingerMillis,
+			@Value("${booking.outbox.park-seconds:300}") long parkSeconds,
+			@Value("${booking.outbox.settle-poll-millis:200}") long settlePollMillis) {
+		this.outboxEventRepository = outboxEventRepository;
+		this.bookingRepository = bookingRepository;
+		this.bookingInterface = bookingInterface;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = batchSize;
+		this.lease = Duration.ofSeconds(leaseSeconds);
+		this.lingerMillis = lingerMillis;
+		this.park = Duration.ofSeconds(parkSeconds);
+		this.settlePollNanos = TimeUnit.MILLISECONDS.toNanos(settlePollMillis);
+	}
+
+	/**
+	 * Blocks until a relay run has confirmed or rejected the booking, for at most
+	 * the timeout. A run of this instance wakes the caller up right away, and the
+	 * status is read from the table every settle-poll-millis, so a booking settled
+	 * before the call, or by the relay of another instance, is seen as well. Only
+	 * a local run knows why a booking was rejected. PENDING means it is still open
+	 * when the time is up.
+	 */
+	public Settlement awaitSettlement(String pnr, Duration timeout) {
+		CompletableFuture<Settlement> settled = waiting.computeIfAbsent(pnr, key -> new CompletableFuture<>());
+		long end = System.nanoTime() + Math.max(timeout.toNanos(), 0);
+		try {
+			while (true) {
+				Settlement current = settlementOf(pnr);
+				long remaining = end - System.nanoTime();
+				if (current.status() != BookingStatus.PENDING || remaining <= 0) {
+					return current;
+				}
+				try {
+					return settled.get(Math.min(remaining, settlePollNanos), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					// not settled here, maybe by another instance
+				}
+			}
+		} catch (ExecutionException e) {
+			return settlementOf(pnr);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return settlementOf(pnr);
+		} finally {
+			waiting.remove(pnr, settled);
+		}
+	}
+
+	private Settlement settlementOf(String pnr) {
+		// a booking that is gone was cancelled meanwhile, there is nothing to report on it yet
+		return new Settlement(bookingRepository.findStatusByPnr(pnr).orElse(BookingStatus.PENDING), null);
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void eventWritten(OutboxEvent event) {
+		if (written.incrementAndGet() % batchSize == 0) {
+			flusher.execute(this::flush);
+		} else if (flushScheduled.compareAndSet(false, true)) {
+			flusher.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void flush() {
+		flushScheduled.set(false);
+		try {
+			relayPending();
+		} catch (RuntimeException e) {
+			log.warn("Outbox relay run failed, the poll will pick the events up: {}", e.getMessage());
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		flusher.shutdownNow();
+	}
+
+	@Scheduled(fixedDelayString = "${booking.outbox.relay-interval-millis:1000}")
+	public void relayPending() {
+		// keep going while full batches come back, a backlog is drained in one run
+		int relayed;
+		do {
+			relayed = relayBatch();
+		} while (relayed == batchSize);
+	}
+
+	// returns the number of events leased, whatever happened to them
+	public int relayBatch() {
+		Instant now = Instant.now();
+		List<Long> ids = outboxEventRepository.findClaimableIds(now, PageRequest.of(0, batchSize));
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		String token = UUID.randomUUID().toString();
+		outboxEventRepository.claim(ids, token, now.plus(lease), now);
+		List<OutboxEvent> events = outboxEventRepository.findByClaimTokenOrderById(token);
+
+		Map<Long, List<OutboxEvent>> releases = new LinkedHashMap<>();
+		Map<Long, List<OutboxEvent>> reservations = new LinkedHashMap<>();
+		for (OutboxEvent event : events) {
+			Map<Long, List<OutboxEvent>> byFlight = isRelease(event) ? releases : reservations;
+			byFlight.computeIfAbsent(event.getFlightId(), flightId -> new ArrayList<>()).add(event);
+		}
+		// released seats first, they may be what the reservations are waiting for
+		List<List<OutboxEvent>> groups = new ArrayList<>(releases.values());
+		groups.addAll(reservations.values());
+
+		Outcome outcome = new Outcome();
+		List<List<OutboxEvent>> oneByOne = new ArrayList<>();
+		List<SeatDeltaResult> results = send(groups);
+		if (results == null) {
+			return ids.size();
+		}
+		for (int i = 0; i < groups.size(); i++) {
+			List<OutboxEvent> group = groups.get(i);
+			SeatDeltaResult result = results.get(i);
+			if (result.isApplied() || result.isRetryable() || group.size() == 1) {
+				settle(outcome, group, result);
+			} else {
+				// not enough seats for all of them, or the total would be exceeded,
+				// find out which bookings are the problem
+				group.forEach(event -> oneByOne.add(List.of(event)));
+			}
+		}
+		if (!oneByOne.isEmpty()) {
+			List<SeatDeltaResult> singleResults = send(oneByOne);
+			for (int i = 0; singleResults != null && i < oneByOne.size(); i++) {
+				settle(outcome, oneByOne.get(i), singleResults.get(i));
+			}
+		}
+		complete(outcome);
+		return ids.size();
+	}
+
+	private void settle(Outcome outcome, List<OutboxEvent> group, SeatDeltaResult result) {
+		if (result.isRetryable()) {
+			// another request is applying these changes, the events stay leased
+			// and are sent again once the lease has run out
+			log.info("Seat changes of {} for flight {} are in flight elsewhere, retried later: {}", pnrs(group),
+					result.getFlightId(), result.getError());
+		} else if (result.isApplied()) {
+			outcome.add(group, isRelease(group.get(0)) ? null : BookingStatus.CONFIRMED, null);
+		} else if (isRelease(group.get(0))) {
+			// the seats are owed to flight-service, the event stays and is tried again later
+			log.error("Seat release of {} for flight {} failed, parked for {}s: {}", pnrs(group),
+					result.getFlightId(), park.toSeconds(), result.getError());
+			group.forEach(event -> outcome.parked.add(event.getId()));
+		} else {
+			log.info("Booking {} rejected by flight-service: {}", group.get(0).getPnr(), result.getError());
+			outcome.add(group, BookingStatus.REJECTED, result.getError());
+		}
+	}
+
+	// one delta per group, null when flight-service could not be reached
+	private List<SeatDeltaResult> send(List<List<OutboxEvent>> groups) {
+		List<SeatDelta> deltas = new ArrayList<>(groups.size());
+		for (List<OutboxEvent> group : groups) {
+			int seats = group.stream().mapToInt(OutboxEvent::getNumberOfSeats).sum();
+			deltas.add(new SeatDelta(group.get(0).getFlightId(), isRelease(group.get(0)) ? seats : -seats,
+					group.stream().map(OutboxRelay::changeId).toList(),
+					group.stream().flatMap(event -> event.getSeatList().stream()).toList()));
+		}
+		try {
+			List<SeatDeltaResult> results = bookingInterface.applySeatDeltas(deltas);
+			if (results == null || results.size() != deltas.size()) {
+				throw new IllegalStateException("Expected " + deltas.size() + " seat delta results");
+			}
+			return results;
+		} catch (RuntimeException e) {
+			log.warn("Sending {} seat deltas failed, will retry: {}", deltas.size(), e.getMessage());
+			return null;
+		}
+	}
+
+	private void complete(Outcome outcome) {
+		if (outcome.eventIds.isEmpty() && outcome.parked.isEmpty()) {
+			return;
+		}
+		transactionTemplate.executeWithoutResult(transaction -> {
+			if (!outcome.confirmed.isEmpty()) {
+				bookingRepository.updateStatus(outcome.confirmed, BookingStatus.CONFIRMED);
+			}
+			if (!outcome.rejected.isEmpty()) {
+				bookingRepository.updateStatus(outcome.rejected.keySet(), BookingStatus.REJECTED);
+				// cancelled while pending, nothing was taken that could be given back
+				outboxEventRepository.deleteByPnrInAndType(outcome.rejected.keySet(), OutboxEvent.Type.RELEASE_SEATS);
+			}
+			if (!outcome.eventIds.isEmpty()) {
+				outboxEventRepository.deleteAllByIdInBatch(outcome.eventIds);
+			}
+			if (!outcome.parked.isEmpty()) {
+				outboxEventRepository.park(outcome.parked, Instant.now().plus(park));
+			}
+		});
+		outcome.confirmed.forEach(pnr -> settled(pnr, new Settlement(BookingStatus.CONFIRMED, null)));
+		outcome.rejected.forEach((pnr, reason) -> settled(pnr, new Settlement(BookingStatus.REJECTED, reason)));
+	}
+
+	private void settled(String pnr, Settlement settlement) {
+		CompletableFuture<Settlement> settled = waiting.get(pnr);
+		if (settled != null) {
+			settled.complete(settlement);
+		}
+	}
+
+	// a booking has at most one reservation and one release, so its PNR and the
+	// type name the change for good, unlike the event id of this database
+	static String changeId(OutboxEvent event) {
+		return event.getPnr() + ":" + event.getType();
+	}
+
+	private static boolean isRelease(OutboxEvent event) {
+		return event.getType() == OutboxEvent.Type.RELEASE_SEATS;
+	}
+
+	private static List<String> pnrs(List<OutboxEvent> events) {
+		return events.stream().map(OutboxEvent::getPnr).toList();
+	}
+
+	// what became of a booking, reason is flight-service's answer for a rejected one
+	public record Settlement(BookingStatus status, String reason) {
+	}
+
+	// what one run settled, written back in a single transaction
+	private static final class Outcome {
+		private final List<String> confirmed = new ArrayList<>();
+		private final Map<String, String> rejected = new LinkedHashMap<>();
+		private final List<Long> eventIds = new ArrayList<>();
+		private final List<Long> parked = new ArrayList<>();
+
+		private void add(List<OutboxEvent> events, BookingStatus status, String reason) {
+			if (status == BookingStatus.CONFIRMED) {
+				confirmed.addAll(pnrs(events));
+			} else if (status == BookingStatus.REJECTED) {
+				events.forEach(event -> rejected.put(event.getPnr(), reason));
+			}
+			events.forEach(event -> eventIds.add(event.getId()));
+		}
+	}
+}
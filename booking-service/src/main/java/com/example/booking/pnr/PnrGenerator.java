@@ -0,0 +1,79 @@
+package com.example.booking.pnr;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates PNRs from a 63 bit id made of the milliseconds since {@link #EPOCH_MILLIS}
+ * (41 bits, good until 2093), the node id of this instance (10 bits) and a per
+ * millisecond sequence (12 bits), written as 13 Crockford base-32 characters after
+ * the usual prefix.
+ *
+ * Ids are unique without a database lookup as long as every running instance has its
+ * own node id, set in booking.pnr.node-id. A single local instance may leave it unset
+ * and runs as node 0 with a warning at startup. Time and sequence are kept in one
+ * {@link AtomicLong}, so a call is a single CAS. When more than 4096 ids are asked for within a millisecond, or the
+ * clock steps back, the generator simply runs ahead of the wall clock instead of
+ * waiting or repeating an id.
+ */
+@Component
+public class PnrGenerator {
+
+	private static final Logger log = LoggerFactory.getLogger(PnrGenerator.class);
+
+	public static final String PREFIX = "CHUBBFLIGHT";
+	// 2024-01-01T00:00:00Z
+	public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+	static final int NODE_BITS = 10;
+	static final int SEQUENCE_BITS = 12;
+	static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+	static final int ID_LENGTH = 13;
+
+	// Crockford's alphabet, no I, L, O or U so a PNR can be read out over the phone
+	private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+	private final long nodeId;
+	// (milliseconds since the epoch << SEQUENCE_BITS) | sequence of the last id
+	private final AtomicLong lastTick = new AtomicLong();
+
+	// two instances that run with the same node id hand out the same PNRs, node 0
+	// is only safe while a single instance runs, so leaving it unset is logged
+	public PnrGenerator(@Value("${booking.pnr.node-id:#{null}}") Integer nodeId) {
+		if (nodeId == null) {
+			log.warn("booking.pnr.node-id is not set, running as node 0. Give every booking-service "
+					+ "instance its own node id between 0 and {} before starting a second one.", MAX_NODE_ID);
+			nodeId = 0;
+		}
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("booking.pnr.node-id must be between 0 and " + MAX_NODE_ID + ".");
+		}
+		this.nodeId = nodeId;
+	}
+
+	public String nextPnr() {
+		return format(nextId());
+	}
+
+	long nextId() {
+		long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+		long tick = lastTick.accumulateAndGet(now, (last, wallClock) -> Math.max(last + 1, wallClock));
+		long millis = tick >>> SEQUENCE_BITS;
+		long sequence = tick & ((1L << SEQUENCE_BITS) - 1);
+		return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+	}
+
+	static String format(long id) {
+		char[] pnr = new char[PREFIX.length() + ID_LENGTH];
+		PREFIX.getChars(0, PREFIX.length(), pnr, 0);
+		for (int i = pnr.length - 1; i >= PREFIX.length(); i--) {
+			pnr[i] = ALPHABET[(int) (id & 31)];
+			id >>>= 5;
+		}
+		return new String(pnr);
+	}
+}
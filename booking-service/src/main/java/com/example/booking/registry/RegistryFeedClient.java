@@ -0,0 +1,54 @@
+package com.example.booking.registry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import com.example.booking.registry.RegistryFeed.Changes;
+import com.example.booking.registry.RegistryFeed.Snapshot;
+
+/**
+ * The requests {@link RegistryFeed} makes to a registry node, on a RestClient.
+ * This is the only part of the feed that api-gateway does differently, on a
+ * WebClient there, the RegistryFeed classes of the two are the same code.
+ */
+@Component
+@ConditionalOnProperty(name = { "booking.registry-feed.enabled", "eureka.client.enabled" }, havingValue = "true",
+		matchIfMissing = true)
+public class RegistryFeedClient {
+
+	private final RestClient restClient;
+
+	@Autowired
+	public RegistryFeedClient(RestClient.Builder restClientBuilder,
+			@Value("${booking.registry-feed.wait-millis:30000}") long waitMillis) {
+		this(restClientBuilder.requestFactory(requestFactory(waitMillis)).build());
+	}
+
+	RegistryFeedClient(RestClient restClient) {
+		this.restClient = restClient;
+	}
+
+	// a held request must be allowed to outlast the wait
+	private static SimpleClientHttpRequestFactory requestFactory(long waitMillis) {
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(2000);
+		requestFactory.setReadTimeout((int) (waitMillis + 5000));
+		return requestFactory;
+	}
+
+	Snapshot snapshot(String url) {
+		return restClient.get().uri(url + "/snapshot").retrieve().body(Snapshot.class);
+	}
+
+	// held by the node for up to waitMillis while nothing changes
+	Changes changes(String url, String epoch, long since, long waitMillis) {
+		return restClient.get()
+				.uri(url + "/changes?epoch={epoch}&since={since}&waitMillis={waitMillis}", epoch, since, waitMillis)
+				.retrieve()
+				.body(Changes.class);
+	}
+}
@@ -0,0 +1,42 @@
+package com.example.booking.registry;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Component;
+
+// asked ahead of Eureka, the composite discovery client moves on to Eureka when
+// this one has no instances, which is the case whenever the feed is not in sync
+@Component
+@ConditionalOnProperty(name = { "booking.registry-feed.enabled", "eureka.client.enabled" }, havingValue = "true",
+		matchIfMissing = true)
+public class RegistryFeedDiscoveryClient implements DiscoveryClient {
+
+	private final RegistryFeed registryFeed;
+
+	public RegistryFeedDiscoveryClient(RegistryFeed registryFeed) {
+		this.registryFeed = registryFeed;
+	}
+
+	@Override
+	public String description() {
+		return "Change feed of service-registry";
+	}
+
+	@Override
+	public List<ServiceInstance> getInstances(String serviceId) {
+		return registryFeed.instances(serviceId);
+	}
+
+	@Override
+	public List<String> getServices() {
+		return registryFeed.services();
+	}
+
+	@Override
+	public int getOrder() {
+		return -1;
+	}
+}
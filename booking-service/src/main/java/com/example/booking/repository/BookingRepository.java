@@ -1,16 +1,58 @@
 package com.example.booking.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.booking.dto.BookingSummaryDTO;
 import com.example.booking.entity.Booking;
+import com.example.booking.entity.BookingStatus;
 import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, String> {
 	Optional<Booking> findByPnr(String pnr);
 	
+	// booking and passengers in one round trip for the read-only PNR lookup
+	@Query("SELECT b FROM Booking b LEFT JOIN FETCH b.passengers WHERE b.pnr = :pnr")
+	Optional<Booking> findWithPassengersByPnr(@Param("pnr") String pnr);
+	
+	// passengers are serialized with the bookings, so they are fetched up front
+	@EntityGraph(attributePaths = "passengers")
 	List<Booking> findByUserEmailOrderByBookingDateDesc(String userEmail);
+	
+	// keyset pagination over (bookingDate, pnr), newest first, served by the
+	// (userEmail, bookingDate) index without scanning the skipped rows
+	@Query("SELECT new com.example.booking.dto.BookingSummaryDTO(b.pnr, b.flightId, b.journeyDate, "
+			+ "b.bookingDate, b.numberOfSeats, b.mealOpted, b.totalCost) FROM Booking b "
+			+ "WHERE b.userEmail = :userEmail ORDER BY b.bookingDate DESC, b.pnr DESC")
+	List<BookingSummaryDTO> findHistoryFirstPage(@Param("userEmail") String userEmail, Pageable pageable);
+	
+	@Query("SELECT new com.example.booking.dto.BookingSummaryDTO(b.pnr, b.flightId, b.journeyDate, "
+			+ "b.bookingDate, b.numberOfSeats, b.mealOpted, b.totalCost) FROM Booking b "
+			+ "WHERE b.userEmail = :userEmail AND (b.bookingDate < :bookingDate "
+			+ "OR (b.bookingDate = :bookingDate AND b.pnr < :pnr)) "
+			+ "ORDER BY b.bookingDate DESC, b.pnr DESC")
+	List<BookingSummaryDTO> findHistoryPageAfter(@Param("userEmail") String userEmail, 
+			@Param("bookingDate") LocalDateTime bookingDate, @Param("pnr") String pnr, Pageable pageable);
+	
+	// loads the bookings of one page together with their passengers in one query
+	@Query("SELECT DISTINCT b FROM Booking b LEFT JOIN FETCH b.passengers WHERE b.pnr IN :pnrs")
+	List<Booking> findWithPassengersByPnrIn(@Param("pnrs") Collection<String> pnrs);
+	
+	@Query("SELECT b.status FROM Booking b WHERE b.pnr = :pnr")
+	Optional<BookingStatus> findStatusByPnr(@Param("pnr") String pnr);
+	
+	// used by the outbox relay inside the transaction that deletes the applied events
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Booking b SET b.status = :status WHERE b.pnr IN :pnrs")
+	int updateStatus(@Param("pnrs") Collection<String> pnrs, @Param("status") BookingStatus status);
 }
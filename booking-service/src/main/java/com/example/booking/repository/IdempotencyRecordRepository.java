@@ -0,0 +1,47 @@
+package com.example.booking.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.booking.entity.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+	int deleteExpired(@Param("now") Instant now);
+
+	// a plain insert, fails on the key when another request has it already
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, expires_at) "
+			+ "VALUES (:key, :requestHash, :expiresAt)", nativeQuery = true)
+	int insertInProgress(@Param("key") String key, @Param("requestHash") String requestHash,
+			@Param("expiresAt") Instant expiresAt);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.body = :body, r.expiresAt = :expiresAt "
+			+ "WHERE r.idempotencyKey = :key")
+	int complete(@Param("key") String key, @Param("statusCode") int statusCode, @Param("body") String body,
+			@Param("expiresAt") Instant expiresAt);
+
+	// gives the key up after a failed request, a retry may use it again
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.statusCode IS NULL")
+	int deleteInProgress(@Param("key") String key);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt < :now")
+	int deleteIfExpired(@Param("key") String key, @Param("now") Instant now);
+}
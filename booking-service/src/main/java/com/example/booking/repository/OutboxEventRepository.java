@@ -0,0 +1,52 @@
+package com.example.booking.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.booking.entity.OutboxEvent;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+	// a release is held back while the reservation of the same booking is still
+	// in the outbox, a cancelled PENDING booking gives its seats back only once
+	// it is known whether it ever got them
+	@Query("SELECT e.id FROM OutboxEvent e WHERE (e.claimedUntil IS NULL OR e.claimedUntil < :now) "
+			+ "AND NOT (e.type = :release AND EXISTS (SELECT r.id FROM OutboxEvent r "
+			+ "WHERE r.pnr = e.pnr AND r.type = :reserve)) ORDER BY e.id")
+	List<Long> findClaimableIds(@Param("now") Instant now, @Param("release") OutboxEvent.Type release,
+			@Param("reserve") OutboxEvent.Type reserve, Pageable pageable);
+
+	default List<Long> findClaimableIds(Instant now, Pageable pageable) {
+		return findClaimableIds(now, OutboxEvent.Type.RELEASE_SEATS, OutboxEvent.Type.RESERVE_SEATS, pageable);
+	}
+
+	// the lease condition is checked again, so of two relays racing for the
+	// same rows only one gets each of them
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE OutboxEvent e SET e.claimToken = :token, e.claimedUntil = :until "
+			+ "WHERE e.id IN :ids AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)")
+	int claim(@Param("ids") Collection<Long> ids, @Param("token") String token,
+			@Param("until") Instant until, @Param("now") Instant now);
+
+	List<OutboxEvent> findByClaimTokenOrderById(String claimToken);
+
+	// gives up the lease until the given time, for events flight-service turned down
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE OutboxEvent e SET e.claimToken = NULL, e.claimedUntil = :until WHERE e.id IN :ids")
+	int park(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+	@Modifying(clearAutomatically = true)
+	@Query("DELETE FROM OutboxEvent e WHERE e.pnr IN :pnrs AND e.type = :type")
+	int deleteByPnrInAndType(@Param("pnrs") Collection<String> pnrs, @Param("type") OutboxEvent.Type type);
+}
@@ -1,86 +1,165 @@
 package com.example.booking.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 
+import com.example.booking.deadline.Deadline;
+import com.example.booking.dto.BookingHistoryPage;
 import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.BookingResponse;
+import com.example.booking.dto.BookingSummaryDTO;
 import com.example.booking.dto.FlightDTO;
 import com.example.booking.dto.PassengerDTO;
 import com.example.booking.entity.Booking;
+import com.example.booking.entity.BookingStatus;
 import com.example.booking.entity.Passenger;
 import com.example.booking.exception.BookingNotFoundException;
 import com.example.booking.exception.CancellationNotPossibleException;
 import com.example.booking.exception.FlightUnavailableException;
-import com.example.booking.feign.BookingInterface;
+import com.example.booking.flight.FlightLookup;
+import com.example.booking.outbox.BookingOutbox;
+import com.example.booking.outbox.OutboxRelay;
+import com.example.booking.pnr.PnrGenerator;
 import com.example.booking.repository.BookingRepository;
 import java.util.Optional;
 
 import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 
 import org.springframework.stereotype.Service;
 
-import jakarta.transaction.Transactional;
 
 @Service
 public class BookingService {
 
+	public static final int MAX_HISTORY_PAGE_SIZE = 100;
+	private static final String CURSOR_SEPARATOR = "|";
+
 	@Autowired
 	BookingRepository bookingRepository;
 
 	@Autowired
-	BookingInterface bookingInterface;
+	PnrGenerator pnrGenerator;
+
+	@Autowired
+	BookingOutbox bookingOutbox;
+
+	@Autowired
+	FlightLookup flightLookup;
+
+	@Autowired
+	OutboxRelay outboxRelay;
 
-	public BookingService(BookingRepository bookingRepository,
-			BookingInterface bookingInterface) {
+	// how long bookTicket waits for the relay to settle the booking
+	@Value("${booking.outbox.settle-timeout-millis:10000}")
+	long settleTimeoutMillis = 10_000;
+
+	public BookingService(BookingRepository bookingRepository, PnrGenerator pnrGenerator,
+			BookingOutbox bookingOutbox, FlightLookup flightLookup, OutboxRelay outboxRelay) {
 		this.bookingRepository = bookingRepository;
-		this.bookingInterface = bookingInterface;
+		this.pnrGenerator = pnrGenerator;
+		this.bookingOutbox = bookingOutbox;
+		this.flightLookup = flightLookup;
+		this.outboxRelay = outboxRelay;
 	}
 
 	// used for the ticket booking process.
-	// Booking object contains passenger details
-	@Transactional
+	// Booking object contains passenger details.
+	// The booking is stored as PENDING together with an outbox event in one local
+	// transaction, and the call waits for OutboxRelay to reserve the seats in
+	// flight-service: 201 once confirmed, 409 when flight-service turned it down.
+	// Only when flight-service cannot be reached within the settle timeout does the
+	// caller get 202 with the PNR of the still PENDING booking, which the relay
+	// settles later
 	@CircuitBreaker(name = "flightServiceBreaker", fallbackMethod = "flightServiceFallback")
 	public ResponseEntity<String> bookTicket(Long flightId, BookingRequest bookingRequest) {
-		FlightDTO flightDto;
+		int seatsToBook = bookingRequest.getPassengers().size();
+		if (seatsToBook <= 0) {
+			throw new FlightUnavailableException("Number of seats must be at least one.");
+		}
 
+		// price, schedule and seats left, no database connection is taken yet,
+		// concurrent bookings of the same flight share one lookup
+		FlightDTO flightDto;
 		try {
-			flightDto = bookingInterface.getFlightById(flightId);
+			flightDto = flightLookup.getFlight(flightId);
+		} catch (FeignException.NotFound e) {
+			throw new FlightUnavailableException("Flight with Id " + flightId + " not found.");
 		} catch (FeignException e) {
 			return new ResponseEntity<>("Ticket Booking is currently unavailable due to Flight Service failure.",
 					HttpStatus.SERVICE_UNAVAILABLE);
 
 		}
-
-		int seatsToBook = bookingRequest.getPassengers().size();
-		if (seatsToBook <= 0) {
-			throw new FlightUnavailableException("Number of seats must be at least one.");
+		// a sold out flight is turned down right away, the reservation made by
+		// the relay has the final word on the seats that are left
+		if (flightDto.getAvailableSeats() < seatsToBook) {
+			throw new FlightUnavailableException("Insufficient seats available. Requested: " + seatsToBook
+					+ ", Available: " + flightDto.getAvailableSeats());
 		}
 
-		Integer currentAvailableSeats = flightDto.getAvailableSeats();
-		if (currentAvailableSeats < seatsToBook) {
-			throw new FlightUnavailableException(
-					"Insufficient seats available. Requested: " + seatsToBook +
-							", Available: " + currentAvailableSeats);
-		}
+		// the caller has given up waiting, do not leave a booking it never hears of
+		Deadline.check("saving the booking");
+		Booking booking = requestToEntity(bookingRequest, flightDto, flightId);
+		booking.setStatus(BookingStatus.PENDING);
+		bookingOutbox.saveAndReserve(booking);
 
-		flightDto.setAvailableSeats(currentAvailableSeats - seatsToBook);
-		bookingInterface.updateFlightInventory(flightDto);
+		OutboxRelay.Settlement settlement = outboxRelay.awaitSettlement(booking.getPnr(), settleTimeout());
+		if (settlement.status() == BookingStatus.CONFIRMED) {
+			return new ResponseEntity<>(booking.getPnr(), HttpStatus.CREATED);
+		}
+		if (settlement.status() == BookingStatus.REJECTED) {
+			// the caller is told right here, no booking is left behind for it
+			bookingOutbox.delete(booking);
+			return new ResponseEntity<>(settlement.reason() != null ? settlement.reason()
+					: "Booking was rejected by Flight Service.", HttpStatus.CONFLICT);
+		}
+		return new ResponseEntity<>(booking.getPnr(), HttpStatus.ACCEPTED);
+	}
 
-		Booking booking = requestToEntity(bookingRequest, flightDto, flightId);
-		bookingRepository.save(booking);
+	// what a booking answered with 202 has come to, for a retry under the same
+	// Idempotency-Key: 201 once the relay confirmed it, 409 once flight-service
+	// turned it down, and 202 again while it is PENDING or after it was cancelled
+	public ResponseEntity<String> currentOutcome(ResponseEntity<String> accepted) {
+		Optional<BookingStatus> status = bookingRepository.findStatusByPnr(accepted.getBody());
+		if (status.isPresent() && status.get() == BookingStatus.CONFIRMED) {
+			return new ResponseEntity<>(accepted.getBody(), HttpStatus.CREATED);
+		}
+		if (status.isPresent() && status.get() == BookingStatus.REJECTED) {
+			return new ResponseEntity<>("Booking was rejected by Flight Service.", HttpStatus.CONFLICT);
+		}
+		return accepted;
+	}
 
-		return new ResponseEntity<>(booking.getPnr(), HttpStatus.CREATED);
+	// never longer than the caller is still waiting for the answer
+	private Duration settleTimeout() {
+		Duration timeout = Duration.ofMillis(settleTimeoutMillis);
+		Deadline deadline = Deadline.current();
+		if (deadline != null && deadline.remainingNanos() < timeout.toNanos()) {
+			return Duration.ofNanos(deadline.remainingNanos());
+		}
+		return timeout;
 	}
 
-	public ResponseEntity<String> flightServiceFallback(Long flightId, Throwable t) {
+	// resilience4j matches the fallback on the arguments of bookTicket plus the
+	// exception type, only an open circuit ends up here, anything else is rethrown
+	public ResponseEntity<String> flightServiceFallback(Long flightId, BookingRequest bookingRequest,
+			CallNotPermittedException t) {
 		System.out.println("Flight Service is down");
 		System.out.println("Error: " + t.getMessage());
 
@@ -102,7 +181,7 @@ public class BookingService {
 			FlightDTO flightDto, Long flightId) {
 
 		Booking booking = new Booking();
-		booking.setPnr(generateUniquePNR());
+		booking.setPnr(pnrGenerator.nextPnr());
 		booking.setUserEmail(bookingRequest.getUserEmail());
 		booking.setUserName(bookingRequest.getUserName());
 		booking.setNumberOfSeats(bookingRequest.getPassengers().size());
@@ -126,12 +205,19 @@ public class BookingService {
 		return booking;
 	}
 
-	private String generateUniquePNR() {
-		return "CHUBBFLIGHT" + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+	public BookingResponse getTicketByPnr(String pnr) {
+		Optional<Booking> bookingOptional = bookingRepository.findWithPassengersByPnr(pnr);
+		if (!bookingOptional.isPresent()) {
+			throw new BookingNotFoundException(
+					"Ticket with PNR " + pnr + " not found.");
+		}
+
+		return entityToResponse(bookingOptional.get());
 	}
 
-	public Booking getTicketByPnr(String pnr) {
-		Optional<Booking> bookingOptional = bookingRepository.findByPnr(pnr);
+	// with the passengers, whose seats go into the release of a cancelled booking
+	private Booking findBookingByPnr(String pnr) {
+		Optional<Booking> bookingOptional = bookingRepository.findWithPassengersByPnr(pnr);
 		if (!bookingOptional.isPresent()) {
 			throw new BookingNotFoundException(
 					"Ticket with PNR " + pnr + " not found.");
@@ -140,6 +226,18 @@ public class BookingService {
 		return bookingOptional.get();
 	}
 
+	private BookingResponse entityToResponse(Booking booking) {
+		List<BookingResponse.PassengerResponse> passengers = booking.getPassengers().stream()
+				.map(passenger -> new BookingResponse.PassengerResponse(passenger.getId(), passenger.getName(),
+						passenger.getGender(), passenger.getAge(), passenger.getSeatNumber()))
+				.collect(Collectors.toUnmodifiableList());
+
+		return new BookingResponse(booking.getPnr(), booking.getUserName(), booking.getUserEmail(),
+				booking.getMobileNumber(), booking.getBookingDate(), booking.getNumberOfSeats(),
+				booking.getMealOpted(), booking.getTotalCost(), booking.getFlightId(),
+				booking.getJourneyDate(), booking.getStatus(), passengers);
+	}
+
 	public List<Booking> getBookingHistoryByEmail(String emailId) {
 		List<Booking> history = bookingRepository.findByUserEmailOrderByBookingDateDesc(emailId);
 		if (history.isEmpty()) {
@@ -150,16 +248,90 @@ public class BookingService {
 		return history;
 	}
 
-	@Transactional
+	// one page of the booking history without passengers unless asked for,
+	// "after" is the nextCursor of the previous page or null for the first page
+	public BookingHistoryPage getBookingHistoryPage(String emailId, String after, 
+			int size, boolean expandPassengers) {
+		if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+			throw new IllegalArgumentException(
+					"Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE + ".");
+		}
+		// one extra row tells whether there is a next page
+		Pageable limit = PageRequest.of(0, size + 1);
+		List<BookingSummaryDTO> bookings;
+		if (after == null || after.isBlank()) {
+			bookings = bookingRepository.findHistoryFirstPage(emailId, limit);
+			if (bookings.isEmpty()) {
+				throw new BookingNotFoundException(
+						"No booking history found for email: " + emailId);
+			}
+		} else {
+			String[] cursor = decodeCursor(after);
+			bookings = bookingRepository.findHistoryPageAfter(emailId,
+					LocalDateTime.parse(cursor[0]), cursor[1], limit);
+		}
+
+		String nextCursor = null;
+		if (bookings.size() > size) {
+			bookings = bookings.subList(0, size);
+			BookingSummaryDTO last = bookings.get(size - 1);
+			nextCursor = encodeCursor(last.getBookingDate(), last.getPnr());
+		}
+		if (expandPassengers && !bookings.isEmpty()) {
+			addPassengers(bookings);
+		}
+
+		return new BookingHistoryPage(bookings, nextCursor);
+	}
+
+	private void addPassengers(List<BookingSummaryDTO> bookings) {
+		Map<String, BookingSummaryDTO> byPnr = bookings.stream()
+				.collect(Collectors.toMap(BookingSummaryDTO::getPnr, Function.identity()));
+		for (Booking booking : bookingRepository.findWithPassengersByPnrIn(byPnr.keySet())) {
+			byPnr.get(booking.getPnr()).setPassengers(booking.getPassengers().stream()
+					.map(passenger -> new PassengerDTO(passenger.getName(), passenger.getGender(),
+							passenger.getAge(), passenger.getSeatNumber()))
+					.collect(Collectors.toList()));
+		}
+	}
+
+	private String encodeCursor(LocalDateTime bookingDate, String pnr) {
+		String cursor = bookingDate + CURSOR_SEPARATOR + pnr;
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String[] decodeCursor(String cursor) {
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separator = decoded.indexOf(CURSOR_SEPARATOR);
+			if (separator < 0 || separator == decoded.length() - 1) {
+				throw new IllegalArgumentException("Invalid cursor: " + cursor);
+			}
+			LocalDateTime.parse(decoded.substring(0, separator));
+			return new String[] { decoded.substring(0, separator), decoded.substring(separator + 1) };
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+		}
+	}
+
+	// the seats go back to flight-service through the outbox, like bookTicket
+	// nothing here holds a transaction across the FLIGHT-SERVICE call. A PENDING
+	// booking is cancelled the same way, OutboxRelay holds its release back until
+	// the reservation is settled and drops it if the seats were never taken
 	public void cancelTicket(String pnr) {
 
-		Booking booking = getTicketByPnr(pnr);
+		Booking booking = findBookingByPnr(pnr);
+		if (booking.getStatus() == BookingStatus.REJECTED) {
+			bookingOutbox.delete(booking);
+			return;
+		}
 
 		Long flightId = booking.getFlightId();
-		int cancelledSeats = booking.getNumberOfSeats();
+		// only the departure time is needed, which the near cache may answer
 		FlightDTO flightDto;
 		try {
-			flightDto = bookingInterface.getFlightById(flightId);
+			flightDto = flightLookup.getFlightDetails(flightId);
 		} catch (FeignException.NotFound e) {
 			throw new RuntimeException("Cannot retrieve flight details for ID: " + flightId, e);
 		} catch (FeignException e) {
@@ -180,9 +352,6 @@ public class BookingService {
 							+ "24 hours prior to departure time");
 		}
 
-		flightDto.setAvailableSeats(flightDto.getAvailableSeats() + cancelledSeats);
-		bookingInterface.updateFlightInventory(flightDto);
-
-		bookingRepository.delete(booking);
+		bookingOutbox.deleteAndRelease(booking);
 	}
 }
@@ -1,13 +1,34 @@
 package com.example.booking;
 
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+
+import com.example.booking.loadbalancer.LatencyAwareLoadBalancer;
 
+// boots with the shipped application.properties and nothing else
 @SpringBootTest
 class BookingServiceApplicationTests {
 
+	@Autowired
+	private LoadBalancerClientFactory loadBalancerClientFactory;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void flightServiceInstances_arePickedByLatency() {
+		Object loadBalancer = loadBalancerClientFactory.getInstance("FLIGHT-SERVICE");
+
+		assertInstanceOf(LatencyAwareLoadBalancer.class, loadBalancer);
+		assertTrue(loadBalancerClientFactory.getInstances("FLIGHT-SERVICE", LoadBalancerLifecycle.class)
+				.containsValue(loadBalancer));
+	}
+
 }
@@ -0,0 +1,55 @@
+package com.example.booking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+// the services are built on their own and share no library, the classes listed here
+// are kept as copies in the other services and these tests fail once a copy drifts,
+// comments, indentation and the service's own package and property names aside
+class CopiedSourcesTest {
+
+    // the tests run in booking-service, the other services are next to it
+    private static final Path PROJECT = Path.of("..");
+
+    @Test
+    void latencyAwareLoadBalancer_matchesTheGatewayCopy() throws IOException {
+        assertSameCode("booking-service/src/main/java/com/example/booking/loadbalancer/LatencyAwareLoadBalancer.java",
+                "api-gateway/src/main/java/com/flightapp/api/gateway/loadbalancer/LatencyAwareLoadBalancer.java");
+    }
+
+    @Test
+    void deadline_matchesTheFlightServiceCopy() throws IOException {
+        assertSameCode("booking-service/src/main/java/com/example/booking/deadline/Deadline.java",
+                "flight-service/src/main/java/com/example/flight/deadline/Deadline.java");
+    }
+
+    @Test
+    void registryFeed_matchesTheGatewayCopy() throws IOException {
+        assertSameCode("booking-service/src/main/java/com/example/booking/registry/RegistryFeed.java",
+                "api-gateway/src/main/java/com/flightapp/api/gateway/registry/RegistryFeed.java");
+    }
+
+    private static void assertSameCode(String original, String copy) throws IOException {
+        Path copyPath = PROJECT.resolve(copy);
+        // booking-service checked out on its own has nothing to compare with
+        assumeTrue(Files.exists(copyPath), copy + " is not checked out");
+        assertEquals(code(PROJECT.resolve(original)), code(copyPath), copy + " no longer matches " + original);
+    }
+
+    private static String code(Path source) throws IOException {
+        String code = Files.readString(source)
+                .replaceAll("(?s)/\\*.*?\\*/", "")
+                .replaceAll("(?m)^\\s*//.*$", "")
+                .replace("com.flightapp.api.gateway", "com.example.booking")
+                .replace("com.example.flight", "com.example.booking")
+                .replace("gateway.registry-feed", "booking.registry-feed");
+        return code.lines().map(String::strip).filter(line -> !line.isEmpty()).collect(Collectors.joining("\n"));
+    }
+}
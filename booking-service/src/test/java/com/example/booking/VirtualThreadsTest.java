@@ -0,0 +1,46 @@
+package com.example.booking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.client.RestClient;
+
+import com.example.booking.service.BookingService;
+
+// spring.threads.virtual.enabled only takes effect on Java 21, this runs with
+// mvn -Pjava21 test on a JDK 21, which also runs every other test with it on
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadsTest {
+
+	@LocalServerPort
+	private int port;
+
+	@MockBean
+	private BookingService bookingService;
+
+	@Test
+	void requests_runOnVirtualThreads() {
+		AtomicReference<Object> virtual = new AtomicReference<>();
+		when(bookingService.getTicketByPnr("PNR1")).thenAnswer(invocation -> {
+			// Thread.isVirtual is not there to compile against on Java 17
+			virtual.set(Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+			return null;
+		});
+
+		RestClient.create().get().uri("http://localhost:" + port + "/api/v1.0/booking/ticket/PNR1")
+				.retrieve().toBodilessEntity();
+
+		assertEquals(Boolean.TRUE, virtual.get());
+	}
+
+}
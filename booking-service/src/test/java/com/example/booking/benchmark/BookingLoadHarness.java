@@ -0,0 +1,183 @@
+package com.example.booking.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.booking.BookingServiceApplication;
+import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.PassengerDTO;
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.example.booking.flight.FlightLookup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Fires bookings at a real booking-service whose FLIGHT-SERVICE is a stub answering
+ * after a fixed delay, and reports how many calls were in flight at the stub at
+ * the same time. With platform threads that peak stops at server.tomcat.threads.max,
+ * on Java 21 with -Dvirtual=true it follows the client concurrency instead.
+ *
+ * Run from the booking-service directory with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.example.booking.benchmark.BookingLoadHarness}
+ * and optionally -Dvirtual=true -Dconcurrency=1000 -Drequests=5000 -DlatencyMillis=200 -DtomcatThreads=200
+ */
+public class BookingLoadHarness {
+
+	public static void main(String[] args) throws Exception {
+		boolean virtual = Boolean.getBoolean("virtual");
+		int concurrency = Integer.getInteger("concurrency", 1000);
+		int requests = Integer.getInteger("requests", 5000);
+		int latencyMillis = Integer.getInteger("latencyMillis", 200);
+		int tomcatThreads = Integer.getInteger("tomcatThreads", 200);
+
+		// devtools only reads this one from system properties
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		FlightServiceStub flightService = new FlightServiceStub(latencyMillis);
+		ConfigurableApplicationContext context = SpringApplication.run(BookingServiceApplication.class,
+				"--server.port=0",
+				"--server.tomcat.threads.max=" + tomcatThreads,
+				"--server.tomcat.max-connections=" + (concurrency + 100),
+				"--spring.threads.virtual.enabled=" + virtual,
+				"--spring.cloud.config.enabled=false",
+				"--eureka.client.enabled=false",
+				"--spring.cloud.discovery.client.simple.instances.FLIGHT-SERVICE[0].uri=http://localhost:"
+						+ flightService.port(),
+				"--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.datasource.hikari.maximum-pool-size=20",
+				"--spring.jpa.hibernate.ddl-auto=create-drop",
+				"--logging.level.root=WARN");
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+		String body = new ObjectMapper().findAndRegisterModules().writeValueAsString(new BookingRequest(1L,
+				"Load Test", "load@example.com", LocalDate.now().plusDays(5), "1234567890", "Veg",
+				List.of(new PassengerDTO("XXX", "Male", 30, "1A"))));
+		HttpClient client = HttpClient.newBuilder()
+				.executor(Executors.newFixedThreadPool(4))
+				.connectTimeout(Duration.ofSeconds(10))
+				.build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1.0/booking/ticket/1"))
+				.header("Content-Type", "application/json")
+				.timeout(Duration.ofSeconds(120))
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+
+		Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+		Semaphore inFlight = new Semaphore(concurrency);
+		CompletableFuture<?>[] calls = new CompletableFuture<?>[requests];
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			inFlight.acquire();
+			calls[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> {
+						inFlight.release();
+						String outcome = error != null ? error.getClass().getSimpleName()
+								: String.valueOf(response.statusCode());
+						outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+					});
+		}
+		CompletableFuture.allOf(calls).exceptionally(error -> null).join();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("threads=%s tomcatThreads=%d concurrency=%d requests=%d latency=%dms%n",
+				virtual ? "virtual" : "platform", tomcatThreads, concurrency, requests, latencyMillis);
+		System.out.printf("elapsed=%.1fs throughput=%.0f bookings/s peakInFlightAtFlightService=%d outcomes=%s%n",
+				seconds, requests / seconds, flightService.peak(), outcomes);
+		FlightLookup flightLookup = context.getBean(FlightLookup.class);
+		System.out.printf("flightLookups remote=%d coalesced=%d nearCache=%d%n",
+				flightLookup.remoteCalls(), flightLookup.coalescedCalls(), flightLookup.cacheHits());
+
+		context.close();
+		flightService.stop();
+		System.exit(0);
+	}
+
+	// answers flight lookups and seat delta batches after a fixed delay and
+	// counts how many overlap
+	private static final class FlightServiceStub {
+		private final HttpServer server;
+		private final int latencyMillis;
+		private final AtomicInteger current = new AtomicInteger();
+		private final AtomicInteger peak = new AtomicInteger();
+
+		private FlightServiceStub(int latencyMillis) throws IOException {
+			this.latencyMillis = latencyMillis;
+			this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+			server.createContext("/api/v1.0/flight/", this::handle);
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.start();
+		}
+
+		private void handle(HttpExchange exchange) throws IOException {
+			peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(latencyMillis);
+				if (exchange.getRequestURI().getPath().endsWith("/inventory/deltas")) {
+					applyDeltas(exchange);
+					return;
+				}
+				byte[] flight = ("{\"id\":1,\"airlineName\":\"LoadAir\",\"fromPlace\":\"AAA\",\"toPlace\":\"BBB\","
+						+ "\"scheduleDate\":\"" + LocalDate.now().plusDays(5) + "\",\"departureTime\":\"09:00:00\","
+						+ "\"arrivalTime\":\"11:00:00\",\"price\":5000.0,\"totalSeats\":1000000,"
+						+ "\"availableSeats\":1000000}").getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, flight.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(flight);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				current.decrementAndGet();
+				exchange.close();
+			}
+		}
+
+		// every delta fits, the stub flight never runs out of seats
+		private void applyDeltas(HttpExchange exchange) throws IOException {
+			ObjectMapper mapper = new ObjectMapper();
+			List<SeatDelta> deltas = List.of(mapper.readValue(exchange.getRequestBody(), SeatDelta[].class));
+			byte[] results = mapper.writeValueAsBytes(deltas.stream()
+					.map(delta -> new SeatDeltaResult(delta.getFlightId(), delta.getDelta(), true, 1000000, null))
+					.toList());
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, results.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(results);
+			}
+		}
+
+		private int port() {
+			return server.getAddress().getPort();
+		}
+
+		private int peak() {
+			return peak.get();
+		}
+
+		private void stop() {
+			server.stop(0);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.booking.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.booking.BookingServiceApplication;
+import com.example.booking.flight.FlightCallHedger;
+import com.example.booking.flight.FlightLookup;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Flight lookups against three local FLIGHT-SERVICE stubs, one of which stops for
+ * pauseMillis every second like a JVM in a stop-the-world GC, once without and once
+ * with hedging, and the latency percentiles of both runs.
+ *
+ * Run from the booking-service directory with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.example.booking.benchmark.HedgingTailLatencyHarness}
+ * and optionally -Dlookups=4000 -Dthreads=8 -DpauseMillis=150 -DlatencyMillis=2
+ * -Dstrategy=latency-aware|round-robin
+ */
+public class HedgingTailLatencyHarness {
+
+	public static void main(String[] args) throws Exception {
+		int lookups = Integer.getInteger("lookups", 4000);
+		int threads = Integer.getInteger("threads", 8);
+		int pauseMillis = Integer.getInteger("pauseMillis", 150);
+		int latencyMillis = Integer.getInteger("latencyMillis", 2);
+		String strategy = System.getProperty("strategy", "latency-aware");
+
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		// without it the stubs' small responses wait for delayed acks, 40 ms each
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		List<FlightServiceStub> instances = List.of(new FlightServiceStub(latencyMillis, 0),
+				new FlightServiceStub(latencyMillis, 0), new FlightServiceStub(latencyMillis, pauseMillis));
+		for (boolean hedging : new boolean[] { false, true }) {
+			run(instances, strategy, hedging, lookups, threads);
+		}
+		instances.forEach(FlightServiceStub::stop);
+		System.exit(0);
+	}
+
+	private static void run(List<FlightServiceStub> instances, String strategy, boolean hedging, int lookups,
+			int threads)
+			throws Exception {
+		List<String> arguments = new ArrayList<>(List.of(
+				"--spring.main.web-application-type=none",
+				"--spring.cloud.config.enabled=false",
+				"--eureka.client.enabled=false",
+				"--spring.datasource.url=jdbc:h2:mem:hedging;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.jpa.hibernate.ddl-auto=create-drop",
+				"--logging.level.root=WARN",
+				"--booking.flight-client.limiter.max-limit=1000",
+				"--booking.flight-client.load-balancing.strategy=" + strategy,
+				"--booking.flight-client.hedging.enabled=" + hedging));
+		for (int i = 0; i < instances.size(); i++) {
+			arguments.add("--spring.cloud.discovery.client.simple.instances.FLIGHT-SERVICE[" + i + "].uri=http://localhost:"
+					+ instances.get(i).port());
+		}
+		ConfigurableApplicationContext context = SpringApplication.run(BookingServiceApplication.class,
+				arguments.toArray(String[]::new));
+		FlightLookup flightLookup = context.getBean(FlightLookup.class);
+
+		// warm up connections, the JIT and the hedge delay
+		for (long id = 1; id <= 500; id++) {
+			flightLookup.getFlight(-id);
+		}
+		long[] latencies = new long[lookups];
+		ExecutorService callers = Executors.newFixedThreadPool(threads);
+		List<Future<?>> calls = new ArrayList<>();
+		for (int i = 0; i < lookups; i++) {
+			int call = i;
+			calls.add(callers.submit(() -> {
+				long start = System.nanoTime();
+				// every lookup its own flight, nothing is coalesced
+				flightLookup.getFlight((long) call + 1);
+				latencies[call] = System.nanoTime() - start;
+			}));
+		}
+		for (Future<?> call : calls) {
+			call.get();
+		}
+		callers.shutdown();
+
+		Arrays.sort(latencies);
+		FlightCallHedger hedger = context.getBean(FlightCallHedger.class);
+		System.out.printf("%s hedging=%-5s p50=%.1fms p95=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms hedged=%d won=%d%n",
+				strategy, hedging, millis(latencies, 0.50), millis(latencies, 0.95), millis(latencies, 0.99),
+				millis(latencies, 0.999), latencies[lookups - 1] / 1e6, hedger.hedged(), hedger.hedgeWins());
+		context.close();
+	}
+
+	private static double millis(long[] sorted, double percentile) {
+		return sorted[(int) (percentile * (sorted.length - 1))] / 1e6;
+	}
+
+	// answers flight lookups after latencyMillis, a pausing one also stops answering
+	// for pauseMillis at the start of every second
+	private static final class FlightServiceStub {
+		private final HttpServer server;
+		private final int latencyMillis;
+		private final AtomicLong pausedUntil = new AtomicLong();
+		private final ScheduledExecutorService pauses = Executors.newSingleThreadScheduledExecutor();
+
+		private FlightServiceStub(int latencyMillis, int pauseMillis) throws IOException {
+			this.latencyMillis = latencyMillis;
+			this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+			server.createContext("/api/v1.0/flight/", this::handle);
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.start();
+			if (pauseMillis > 0) {
+				pauses.scheduleAtFixedRate(() -> pausedUntil.set(System.nanoTime()
+						+ TimeUnit.MILLISECONDS.toNanos(pauseMillis)), 0, 1, TimeUnit.SECONDS);
+			}
+		}
+
+		private void handle(HttpExchange exchange) throws IOException {
+			try {
+				long pause = pausedUntil.get() - System.nanoTime();
+				if (pause > 0) {
+					TimeUnit.NANOSECONDS.sleep(pause);
+				}
+				Thread.sleep(latencyMillis);
+				String path = exchange.getRequestURI().getPath();
+				String id = path.substring(path.lastIndexOf('/') + 1);
+				byte[] flight = ("{\"id\":" + id + ",\"airlineName\":\"LoadAir\",\"fromPlace\":\"AAA\","
+						+ "\"toPlace\":\"BBB\",\"scheduleDate\":\"2030-01-01\",\"departureTime\":\"10:00:00\","
+						+ "\"arrivalTime\":\"12:00:00\",\"price\":100.0,\"totalSeats\":100,\"availableSeats\":50}")
+						.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, flight.length);
+				try (OutputStream body = exchange.getResponseBody()) {
+					body.write(flight);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private int port() {
+			return server.getAddress().getPort();
+		}
+
+		private void stop() {
+			pauses.shutdownNow();
+			server.stop(0);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.booking.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.booking.pnr.PnrGenerator;
+
+/**
+ * Time and allocation per PNR, the old UUID based PNR against {@link PnrGenerator},
+ * at 1 and 8 threads. Allocation is reported by the gc profiler as gc.alloc.rate.norm.
+ *
+ * Run from the booking-service directory with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.example.booking.benchmark.PnrGeneratorBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PnrGeneratorBenchmark {
+
+	private final PnrGenerator pnrGenerator = new PnrGenerator(1);
+
+	@Benchmark
+	public String uuid() {
+		return "CHUBBFLIGHT" + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+	}
+
+	@Benchmark
+	public String generator() {
+		return pnrGenerator.nextPnr();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int threads : new int[] { 1, 8 }) {
+			Options options = new OptionsBuilder()
+					.include(PnrGeneratorBenchmark.class.getSimpleName())
+					.threads(threads)
+					.addProfiler("gc")
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.booking.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.booking.dto.FlightDTO;
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * CPU and allocation of the FLIGHT-SERVICE payloads in JSON and Smile: the
+ * flight a booking looks up, and an outbox run of 100 seat deltas with its
+ * results. Bytes on the wire are printed before the run, allocation is
+ * reported by the gc profiler as gc.alloc.rate.norm.
+ *
+ * Run from the booking-service directory with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.example.booking.benchmark.WireFormatBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+	private static final int DELTAS = 100;
+
+	@Param({ "json", "smile" })
+	public String format;
+
+	private ObjectMapper mapper;
+	private JavaType resultsType;
+	private final FlightDTO flight = flight();
+	private final List<SeatDelta> deltas = deltas();
+	private final List<SeatDeltaResult> results = results();
+	private byte[] flightBytes;
+	private byte[] resultBytes;
+
+	@Setup
+	public void setUp() throws IOException {
+		mapper = mapper(format);
+		resultsType = mapper.getTypeFactory().constructCollectionType(List.class, SeatDeltaResult.class);
+		flightBytes = mapper.writeValueAsBytes(flight);
+		resultBytes = mapper.writeValueAsBytes(results);
+	}
+
+	private static ObjectMapper mapper(String format) {
+		return ("smile".equals(format) ? new SmileMapper() : new ObjectMapper()).findAndRegisterModules();
+	}
+
+	private static FlightDTO flight() {
+		FlightDTO flight = new FlightDTO();
+		flight.setId(4711L);
+		flight.setAirlineName("Indigo");
+		flight.setFromPlace("Bangalore");
+		flight.setToPlace("New Delhi");
+		flight.setScheduleDate(LocalDate.of(2025, 12, 25));
+		flight.setDepartureTime(LocalTime.of(10, 30));
+		flight.setArrivalTime(LocalTime.of(13, 15));
+		flight.setPrice(5400.0);
+		flight.setTotalSeats(180);
+		flight.setAvailableSeats(42);
+		return flight;
+	}
+
+	private static List<SeatDelta> deltas() {
+		List<SeatDelta> deltas = new ArrayList<>(DELTAS);
+		for (long id = 1; id <= DELTAS; id++) {
+			deltas.add(new SeatDelta(1000 + id, -(int) (id % 4 + 1)));
+		}
+		return deltas;
+	}
+
+	private static List<SeatDeltaResult> results() {
+		return deltas().stream()
+				.map(delta -> new SeatDeltaResult(delta.getFlightId(), delta.getDelta(), true, 120, null))
+				.toList();
+	}
+
+	@Benchmark
+	public byte[] writeFlight() throws IOException {
+		return mapper.writeValueAsBytes(flight);
+	}
+
+	@Benchmark
+	public FlightDTO readFlight() throws IOException {
+		return mapper.readValue(flightBytes, FlightDTO.class);
+	}
+
+	@Benchmark
+	public byte[] writeDeltas() throws IOException {
+		return mapper.writeValueAsBytes(deltas);
+	}
+
+	@Benchmark
+	public List<SeatDeltaResult> readDeltaResults() throws IOException {
+		return mapper.readValue(resultBytes, resultsType);
+	}
+
+	public static void main(String[] args) throws IOException, RunnerException {
+		for (String format : new String[] { "json", "smile" }) {
+			ObjectMapper mapper = mapper(format);
+			System.out.printf("%-5s flight %4d bytes, %d deltas %5d bytes, %d results %5d bytes%n", format,
+					mapper.writeValueAsBytes(flight()).length, DELTAS, mapper.writeValueAsBytes(deltas()).length,
+					DELTAS, mapper.writeValueAsBytes(results()).length);
+		}
+		Options options = new OptionsBuilder()
+				.include(WireFormatBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -4,8 +4,11 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -13,6 +16,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 import org.springframework.http.HttpStatus;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,14 +26,23 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.example.booking.deadline.Deadline;
+import com.example.booking.dto.BookingHistoryPage;
 import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.BookingResponse;
+import com.example.booking.dto.BookingSummaryDTO;
 import com.example.booking.dto.PassengerDTO;
 import com.example.booking.entity.Booking;
+import com.example.booking.entity.BookingStatus;
 import com.example.booking.exception.BookingNotFoundException;
 import com.example.booking.exception.CancellationNotPossibleException;
+import com.example.booking.exception.DeadlineExceededException;
+import com.example.booking.idempotency.IdempotencyStore;
+import com.example.booking.repository.IdempotencyRecordRepository;
 import com.example.booking.service.BookingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.MediaType;
@@ -38,12 +51,15 @@ import java.util.List;
 
 @ExtendWith(MockitoExtension.class)
 @WebMvcTest(BookingController.class)
+@Import(IdempotencyStore.class)
 class BookingControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
     @MockBean
     private BookingService bookingService;
+    @MockBean
+    private IdempotencyRecordRepository idempotencyRecordRepository;
     @Autowired
     private ObjectMapper objectMapper;
     private BookingRequest bookingRequest;
@@ -87,25 +103,112 @@ class BookingControllerTest {
     }
 
     @Test
-    void bookTicket_success_returnsCreated() throws Exception {
+    void bookTicket_deadlineAlreadyPassed_returns504WithoutBooking() throws Exception {
+        mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 1L)
+                .header(Deadline.HEADER, "0")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingRequest)))
+                .andExpect(status().isGatewayTimeout());
+
+        verify(bookingService, times(0)).bookTicket(anyLong(), any(BookingRequest.class));
+    }
+
+    @Test
+    void bookTicket_deadlineRunsOutWhileBooking_returns504() throws Exception {
+        when(bookingService.bookTicket(anyLong(), any(BookingRequest.class))).thenAnswer(invocation -> {
+            // the handler sees the time the caller gave it
+            if (Deadline.current() == null || Deadline.current().remainingMillis() > 5000) {
+                throw new IllegalStateException("Deadline not set from the header");
+            }
+            throw new DeadlineExceededException("Deadline exceeded before saving the booking.");
+        });
+
+        mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 1L)
+                .header(Deadline.HEADER, "5000")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingRequest)))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(content().string("Deadline exceeded before saving the booking."));
+        if (Deadline.current() != null) {
+            throw new AssertionError("Deadline left on the request thread");
+        }
+    }
+
+    @Test
+    void bookTicket_success_returnsAccepted() throws Exception {
         when(bookingService.bookTicket(anyLong(), any(BookingRequest.class)))
-                .thenReturn(new ResponseEntity<>("PNR123", HttpStatus.CREATED));
+                .thenReturn(new ResponseEntity<>("PNR123", HttpStatus.ACCEPTED));
         
         mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 1L)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(bookingRequest)))
-                .andExpect(status().isCreated())
+                .andExpect(status().isAccepted())
                 .andExpect(content().string("PNR123"));
     }
     
+    @Test
+    void bookTicket_retriedWithSameIdempotencyKey_replaysFirstResponse() throws Exception {
+        when(bookingService.bookTicket(anyLong(), any(BookingRequest.class)))
+                .thenReturn(new ResponseEntity<>("PNR123", HttpStatus.ACCEPTED));
+
+        mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 1L)
+                .header(IdempotencyStore.HEADER, "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingRequest)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER));
+        // still PENDING when retried
+        when(bookingService.currentOutcome(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 1L)
+                .header(IdempotencyStore.HEADER, "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingRequest)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(content().string("PNR123"));
+        // confirmed by the relay meanwhile
+        when(bookingService.currentOutcome(any())).thenReturn(new ResponseEntity<>("PNR123", HttpStatus.CREATED));
+        mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 1L)
+                .header(IdempotencyStore.HEADER, "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(content().string("PNR123"));
+
+        verify(bookingService, times(1)).bookTicket(anyLong(), any(BookingRequest.class));
+    }
+
+    @Test
+    void bookTicket_idempotencyKeyReusedForOtherRequest_returns422() throws Exception {
+        when(bookingService.bookTicket(anyLong(), any(BookingRequest.class)))
+                .thenReturn(new ResponseEntity<>("PNR123", HttpStatus.ACCEPTED));
+
+        mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 1L)
+                .header(IdempotencyStore.HEADER, "key-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingRequest)))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post("/api/v1.0/booking/ticket/{flightId}", 2L)
+                .header(IdempotencyStore.HEADER, "key-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingRequest)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     void getTicketByPnr_found_returnsBooking() throws Exception {
-        when(bookingService.getTicketByPnr("PNR123")).thenReturn(booking);
+        when(bookingService.getTicketByPnr("PNR123")).thenReturn(new BookingResponse("PNR123", "AAA",
+                "test@example.com", "1234567890", LocalDateTime.now(), 2, "Veg", 10000.0, 1L,
+                LocalDate.now().plusDays(5), BookingStatus.CONFIRMED,
+                List.of(new BookingResponse.PassengerResponse(1L, "John", "Male", 30, "1A"))));
 
         mockMvc.perform(get("/api/v1.0/booking/ticket/{pnr}", "PNR123"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.pnr").value("PNR123"))
-                .andExpect(jsonPath("$.userName").value("AAA"));
+                .andExpect(jsonPath("$.userName").value("AAA"))
+                .andExpect(jsonPath("$.status").value("CONFIRMED"))
+                .andExpect(jsonPath("$.passengers[0].seatNumber").value("1A"));
     }
 
     @Test
@@ -136,4 +239,32 @@ class BookingControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Cannot cancel"));
     }
+
+    @Test
+    void getBookingHistoryPage_returnsBookingsAndCursor() throws Exception {
+        BookingSummaryDTO summary = new BookingSummaryDTO("PNR123", 1L, LocalDate.now().plusDays(5),
+                LocalDateTime.now(), 2, "Veg", 10000.0);
+        when(bookingService.getBookingHistoryPage("test@example.com", "abc", 10, true))
+                .thenReturn(new BookingHistoryPage(List.of(summary), "next"));
+
+        mockMvc.perform(get("/api/v1.0/booking/booking/history/{emailId}/page", "test@example.com")
+                .param("after", "abc")
+                .param("size", "10")
+                .param("expand", "passengers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookings[0].pnr").value("PNR123"))
+                .andExpect(jsonPath("$.bookings[0].passengers").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void getBookingHistoryPage_invalidCursor_returns400() throws Exception {
+        when(bookingService.getBookingHistoryPage("test@example.com", "bad", 20, false))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: bad"));
+
+        mockMvc.perform(get("/api/v1.0/booking/booking/history/{emailId}/page", "test@example.com")
+                .param("after", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor: bad"));
+    }
 }
@@ -0,0 +1,85 @@
+package com.example.booking.feign;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+
+class FlightClientConfigurationTest {
+
+    private static final String SMILE = FlightClientConfiguration.SMILE.toString();
+
+    private final FlightClientConfiguration configuration = new FlightClientConfiguration();
+    private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    private final ObjectProvider<HttpMessageConverters> messageConverters =
+            beanFactory.getBeanProvider(HttpMessageConverters.class);
+    private final SmileMapper smileMapper = new SmileMapper();
+
+    FlightClientConfigurationTest() {
+        beanFactory.registerSingleton("messageConverters", new HttpMessageConverters());
+    }
+
+    private Response response(String contentType, byte[] body) {
+        Request request = Request.create(Request.HttpMethod.PUT, "/api/v1.0/flight/inventory/deltas",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        Map<String, Collection<String>> headers = Map.of(HttpHeaders.CONTENT_TYPE, List.of(contentType));
+        return Response.builder().status(200).request(request).headers(headers).body(body).build();
+    }
+
+    @Test
+    void smileEncoder_writesTheBodyAsSmile() throws Exception {
+        Encoder encoder = configuration.smileEncoder(messageConverters, Jackson2ObjectMapperBuilder.json());
+        List<SeatDelta> deltas = List.of(new SeatDelta(1L, -2), new SeatDelta(2L, 3));
+        RequestTemplate template = new RequestTemplate();
+
+        encoder.encode(deltas, new ParameterizedTypeReference<List<SeatDelta>>() { }.getType(), template);
+
+        assertEquals(List.of(SMILE), List.copyOf(template.headers().get(HttpHeaders.CONTENT_TYPE)));
+        assertEquals(deltas, List.of(smileMapper.readValue(template.body(), SeatDelta[].class)));
+    }
+
+    @Test
+    void smileDecoder_readsSmileAndFallsBackToJson() throws Exception {
+        Decoder decoder = configuration.smileDecoder(messageConverters, Jackson2ObjectMapperBuilder.json(),
+                beanFactory.getBeanProvider(HttpMessageConverterCustomizer.class));
+        List<SeatDeltaResult> results = List.of(new SeatDeltaResult(1L, -2, true, 48, null));
+        Type type = new ParameterizedTypeReference<List<SeatDeltaResult>>() { }.getType();
+
+        assertEquals(results, decoder.decode(response(SMILE, smileMapper.writeValueAsBytes(results)), type));
+        assertEquals(results, decoder.decode(response("application/json",
+                "[{\"flightId\":1,\"delta\":-2,\"applied\":true,\"availableSeats\":48}]"
+                        .getBytes(StandardCharsets.UTF_8)), type));
+    }
+
+    @Test
+    void acceptSmile_asksForSmileWithJsonAsFallback() {
+        RequestTemplate template = new RequestTemplate();
+
+        configuration.acceptSmile().apply(template);
+
+        assertEquals(List.of(SMILE + ", application/json;q=0.9"),
+                List.copyOf(template.headers().get(HttpHeaders.ACCEPT)));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.booking.flight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.booking.deadline.Deadline;
+import com.example.booking.exception.DeadlineExceededException;
+
+class FlightCallHedgerTest {
+
+    // hedges after 20 ms until enough latencies are known
+    private final FlightCallHedger hedger = new FlightCallHedger(true, 20, 5, 1000, 10);
+    private final CountDownLatch stuck = new CountDownLatch(1);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        stuck.countDown();
+        hedger.stop();
+    }
+
+    // the first attempt hangs like an instance in a GC pause, the hedge answers at once
+    private final Supplier<String> firstAttemptStuck = () -> {
+        attempts.incrementAndGet();
+        if (hedger.hedged() == 0) {
+            await(stuck);
+            return "stuck";
+        }
+        return "hedge";
+    };
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void slowCall_isAnsweredByTheHedge() {
+        long start = System.nanoTime();
+
+        assertEquals("hedge", hedger.call(firstAttemptStuck));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, attempts.get());
+        assertEquals(1, hedger.hedged());
+        assertEquals(1, hedger.hedgeWins());
+    }
+
+    @Test
+    void fastCall_isNotHedged() {
+        assertEquals("fast", hedger.call(() -> "fast"));
+
+        assertEquals(1, hedger.calls());
+        assertEquals(0, hedger.hedged());
+    }
+
+    @Test
+    void errorBeforeTheDelay_isThrownWithoutHedging() {
+        assertThrows(IllegalStateException.class, () -> hedger.call(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("404");
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void hedges_stopWhenTheBudgetIsSpent() {
+        FlightCallHedger noBudget = new FlightCallHedger(true, 5, 5, 1000, 0);
+        try {
+            for (int i = 0; i < 12; i++) {
+                noBudget.call(() -> {
+                    sleep(30);
+                    return "slow";
+                });
+            }
+            // the ten hedges it starts with, none earned back at 0 percent
+            assertEquals(10, noBudget.hedged());
+        } finally {
+            noBudget.stop();
+        }
+    }
+
+    @Test
+    void caller_waitsNoLongerThanItsDeadline_andTheCallSeesIt() {
+        AtomicInteger sawDeadline = new AtomicInteger();
+        long start = System.nanoTime();
+
+        assertThrows(DeadlineExceededException.class, () -> Deadline.callWith(Deadline.afterMillis(200),
+                () -> hedger.call(() -> {
+                    assertNotNull(Deadline.current());
+                    sawDeadline.incrementAndGet();
+                    await(stuck);
+                    return "late";
+                })));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, sawDeadline.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.booking.flight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.example.booking.exception.FlightServiceOverloadedException;
+import com.example.booking.feign.BookingInterface;
+
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FlightCallLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final FlightCallLimiter limiter = new FlightCallLimiter(20, 2, 100, 2.0, nanos::get);
+
+    // as many calls as the limit allows, all answering after rttMillis
+    private void round(long rttMillis) {
+        List<FlightCallLimiter.Permit> permits = new ArrayList<>();
+        FlightCallLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        permits.forEach(limiter::onSuccess);
+    }
+
+    @Test
+    void limit_growsWhileLatencyHolds_andShrinksWhenItClimbs() {
+        for (int i = 0; i < 20; i++) {
+            round(10);
+        }
+        assertEquals(100, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            round(100);
+        }
+        // a slow round halves the limit at most, and a few calls are always left on top of it
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void limit_doesNotGrowWhileMostOfItIsUnused() {
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess(limiter.tryAcquire());
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void drops_cutTheLimit() {
+        limiter.onDropped(limiter.tryAcquire());
+        limiter.onDropped(limiter.tryAcquire());
+
+        assertEquals(19, limiter.getLimit());
+    }
+
+    @Test
+    void callsOverTheLimit_areTurnedAwayAndCounted() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        limiter.bindMetrics(meterRegistry);
+        List<FlightCallLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+
+        assertNull(limiter.tryAcquire());
+        assertEquals(1, limiter.rejected());
+        assertEquals(20, meterRegistry.get("booking.flight-client.in-flight").gauge().value());
+        assertEquals(20, meterRegistry.get("booking.flight-client.limit").gauge().value());
+        assertEquals(1, meterRegistry.get("booking.flight-client.calls").tag("outcome", "rejected")
+                .functionCounter().count());
+
+        limiter.onIgnore(permits.remove(0));
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    private BookingInterface limited(BookingInterface bookingInterface) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(bookingInterface);
+        factory.addAspect(new FlightCallLimiterAspect(limiter));
+        return factory.getProxy();
+    }
+
+    private static FeignException status(int status) {
+        Request request = Request.create(Request.HttpMethod.GET, "/api/v1.0/flight/1", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return FeignException.errorStatus("getFlightById",
+                feign.Response.builder().status(status).reason("").request(request).headers(Map.of()).build());
+    }
+
+    @Test
+    void aspect_failsFastWithoutCallingFlightServiceWhenFull() {
+        BookingInterface bookingInterface = mock(BookingInterface.class);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+        }
+
+        assertThrows(FlightServiceOverloadedException.class, () -> limited(bookingInterface).getFlightById(1L));
+        verify(bookingInterface, never()).getFlightById(1L);
+    }
+
+    @Test
+    void aspect_onlyServerErrorsCountAsDrops() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        limiter.bindMetrics(meterRegistry);
+        BookingInterface bookingInterface = mock(BookingInterface.class);
+        when(bookingInterface.getFlightById(1L)).thenThrow(status(404));
+        when(bookingInterface.getFlightById(2L)).thenThrow(status(503));
+        BookingInterface limited = limited(bookingInterface);
+
+        assertThrows(FeignException.NotFound.class, () -> limited.getFlightById(1L));
+        assertThrows(FeignException.ServiceUnavailable.class, () -> limited.getFlightById(2L));
+        assertNull(limited.getFlightById(3L));
+
+        assertEquals(2, meterRegistry.get("booking.flight-client.calls").tag("outcome", "succeeded")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("booking.flight-client.calls").tag("outcome", "dropped")
+                .functionCounter().count());
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(limiter.getLimit() < 20);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.booking.flight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.booking.deadline.Deadline;
+import com.example.booking.dto.FlightDTO;
+import com.example.booking.exception.DeadlineExceededException;
+import com.example.booking.feign.BookingInterface;
+
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class FlightLookupTest {
+
+    private static final int CALLERS = 16;
+
+    @Mock
+    private BookingInterface bookingInterface;
+
+    private final FlightCallHedger direct = new FlightCallHedger(false, 50, 5, 1000, 10);
+
+    private final FlightDTO flight = new FlightDTO(1L, "Air India", "AAA", "BBB", LocalDate.now().plusDays(5),
+            LocalTime.of(9, 0), LocalTime.of(11, 0), 5000.0, 100, 50);
+
+    private List<Future<FlightDTO>> lookUpConcurrently(FlightLookup flightLookup, CountDownLatch remoteCallStarted,
+            CountDownLatch release) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<FlightDTO>> lookups = new ArrayList<>();
+        lookups.add(executor.submit(() -> flightLookup.getFlight(1L)));
+        assertTrue(remoteCallStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            lookups.add(executor.submit(() -> flightLookup.getFlight(1L)));
+        }
+        // every other caller is parked on the running lookup before it answers
+        while (flightLookup.coalescedCalls() < CALLERS - 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        executor.shutdown();
+        return lookups;
+    }
+
+    @Test
+    void getFlight_concurrentLookups_shareOneRemoteCall() throws Exception {
+        FlightLookup flightLookup = new FlightLookup(bookingInterface, direct, 100, 60);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        flightLookup.bindMetrics(meterRegistry);
+        CountDownLatch remoteCallStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookingInterface.getFlightById(1L)).thenAnswer(invocation -> {
+            remoteCallStarted.countDown();
+            release.await();
+            return flight;
+        });
+
+        for (Future<FlightDTO> lookup : lookUpConcurrently(flightLookup, remoteCallStarted, release)) {
+            assertSame(flight, lookup.get(5, TimeUnit.SECONDS));
+        }
+
+        verify(bookingInterface, times(1)).getFlightById(1L);
+        assertEquals(1, flightLookup.remoteCalls());
+        assertEquals(CALLERS - 1, meterRegistry.get("booking.flight.lookups")
+                .tag("source", "coalesced").functionCounter().count());
+    }
+
+    @Test
+    void getFlight_failedLookup_failsEveryWaiterAndIsRetriedNextTime() throws Exception {
+        FlightLookup flightLookup = new FlightLookup(bookingInterface, direct, 100, 60);
+        CountDownLatch remoteCallStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Request request = Request.create(Request.HttpMethod.GET, "/api/v1.0/flight/1",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        when(bookingInterface.getFlightById(1L)).thenAnswer(invocation -> {
+            remoteCallStarted.countDown();
+            release.await();
+            throw new FeignException.ServiceUnavailable("Unavailable", request, null, Map.of());
+        }).thenReturn(flight);
+
+        for (Future<FlightDTO> lookup : lookUpConcurrently(flightLookup, remoteCallStarted, release)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> lookup.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof FeignException.ServiceUnavailable);
+        }
+
+        assertSame(flight, flightLookup.getFlight(1L));
+        verify(bookingInterface, times(2)).getFlightById(1L);
+    }
+
+    @Test
+    void getFlight_callerPastItsDeadline_leavesTheSharedLookupToTheOthers() throws Exception {
+        FlightLookup flightLookup = new FlightLookup(bookingInterface, direct, 100, 60);
+        CountDownLatch remoteCallStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Deadline> forwarded = new ArrayList<>();
+        when(bookingInterface.getFlightById(1L)).thenAnswer(invocation -> {
+            forwarded.add(Deadline.current());
+            remoteCallStarted.countDown();
+            release.await();
+            return flight;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<FlightDTO> hurried = executor.submit(
+                () -> Deadline.callWith(Deadline.afterMillis(50), () -> flightLookup.getFlight(1L)));
+        assertTrue(remoteCallStarted.await(5, TimeUnit.SECONDS));
+        Future<FlightDTO> patient = executor.submit(
+                () -> Deadline.callWith(Deadline.afterMillis(10_000), () -> flightLookup.getFlight(1L)));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> hurried.get(5, TimeUnit.SECONDS));
+        release.countDown();
+        executor.shutdown();
+
+        assertTrue(e.getCause() instanceof DeadlineExceededException);
+        assertSame(flight, patient.get(5, TimeUnit.SECONDS));
+        verify(bookingInterface, times(1)).getFlightById(1L);
+        // flight-service is not told to give up on the lookup with the first caller
+        assertEquals(1, forwarded.size());
+        assertNull(forwarded.get(0));
+    }
+
+    @Test
+    void getFlightDetails_answersFromNearCacheAfterALookup() {
+        FlightLookup flightLookup = new FlightLookup(bookingInterface, direct, 100, 60);
+        when(bookingInterface.getFlightById(1L)).thenReturn(flight);
+
+        flightLookup.getFlightDetails(1L);
+        flightLookup.getFlightDetails(1L);
+        // seats are always asked for again
+        flightLookup.getFlight(1L);
+
+        verify(bookingInterface, times(2)).getFlightById(1L);
+        assertEquals(1, flightLookup.cacheHits());
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.booking.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.booking.deadline.Deadline;
+import com.example.booking.entity.IdempotencyRecord;
+import com.example.booking.exception.DeadlineExceededException;
+import com.example.booking.exception.FlightUnavailableException;
+import com.example.booking.exception.IdempotencyKeyInProgressException;
+import com.example.booking.exception.IdempotencyKeyReusedException;
+import com.example.booking.repository.IdempotencyRecordRepository;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    private IdempotencyStore store(boolean persistent) {
+        return new IdempotencyStore(recordRepository, 1000, 3600, 60, persistent, 10_000);
+    }
+
+    @Test
+    void execute_concurrentDuplicates_runTheRequestOnce() throws Exception {
+        IdempotencyStore store = store(false);
+        AtomicInteger bookings = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            responses.add(executor.submit(() -> {
+                start.await();
+                return store.execute("key", "42", () -> {
+                    bookings.incrementAndGet();
+                    sleep(50);
+                    return new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED);
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<ResponseEntity<String>> response : responses) {
+            assertEquals("PNR1", response.get(5, TimeUnit.SECONDS).getBody());
+        }
+        executor.shutdown();
+
+        assertEquals(1, bookings.get());
+        verifyNoInteractions(recordRepository);
+    }
+
+    @Test
+    void execute_duplicateOfASlowRequest_givesUpAfterTheWaitTimeout() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(recordRepository, 1000, 3600, 60, false, 50);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<ResponseEntity<String>> first = executor.submit(() -> store.execute("key", "42", () -> {
+            running.countDown();
+            await(release);
+            return new ResponseEntity<>("PNR1", HttpStatus.CREATED);
+        }));
+        running.await();
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> store.execute("key", "42", () -> {
+            throw new AssertionError("must not book while the first request runs");
+        }));
+        release.countDown();
+        assertEquals("PNR1", first.get(5, TimeUnit.SECONDS).getBody());
+        executor.shutdown();
+    }
+
+    @Test
+    void execute_duplicateWithAShorterDeadline_givesUpAtTheDeadline() throws Exception {
+        IdempotencyStore store = store(false);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> store.execute("key", "42", () -> {
+            running.countDown();
+            await(release);
+            return new ResponseEntity<>("PNR1", HttpStatus.CREATED);
+        }));
+        running.await();
+
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> Deadline.callWith(Deadline.afterMillis(50),
+                () -> store.execute("key", "42", () -> new ResponseEntity<>("PNR2", HttpStatus.CREATED))));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void execute_replayedAccepted_isBroughtUpToDateAndTheFinalAnswerKept() {
+        IdempotencyStore store = store(true);
+        store.execute("key", "42", () -> new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED));
+
+        ResponseEntity<String> pending = store.execute("key", "42", () -> {
+            throw new AssertionError("must not book again");
+        }, accepted -> accepted);
+        ResponseEntity<String> confirmed = store.execute("key", "42", () -> {
+            throw new AssertionError("must not book again");
+        }, accepted -> new ResponseEntity<>(accepted.getBody(), HttpStatus.CREATED));
+        ResponseEntity<String> kept = store.execute("key", "42", () -> {
+            throw new AssertionError("must not book again");
+        }, accepted -> {
+            throw new AssertionError("a final answer is not asked again");
+        });
+
+        assertEquals(HttpStatus.ACCEPTED, pending.getStatusCode());
+        assertEquals(HttpStatus.CREATED, confirmed.getStatusCode());
+        assertEquals(HttpStatus.CREATED, kept.getStatusCode());
+        assertEquals("PNR1", kept.getBody());
+        verify(recordRepository).complete(eq("key"), eq(201), eq("PNR1"), any());
+    }
+
+    @Test
+    void execute_replayedAcceptedThatWasRejected_givesTheKeyUp() {
+        IdempotencyStore store = store(true);
+        store.execute("key", "42", () -> new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED));
+
+        ResponseEntity<String> rejected = store.execute("key", "42", () -> {
+            throw new AssertionError("must not book again");
+        }, accepted -> new ResponseEntity<>("Booking was rejected by Flight Service.", HttpStatus.CONFLICT));
+        ResponseEntity<String> retried = store.execute("key", "42",
+                () -> new ResponseEntity<>("PNR2", HttpStatus.CREATED));
+
+        assertEquals(HttpStatus.CONFLICT, rejected.getStatusCode());
+        assertEquals("PNR2", retried.getBody());
+        verify(recordRepository).deleteById("key");
+    }
+
+    @Test
+    void execute_keyReusedForAnotherRequest_throwsException() {
+        IdempotencyStore store = store(false);
+        store.execute("key", "42", () -> new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED));
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> store.execute("key", "43", () -> new ResponseEntity<>("PNR2", HttpStatus.ACCEPTED)));
+    }
+
+    @Test
+    void execute_failedRequests_canBeRetriedUnderTheSameKey() {
+        IdempotencyStore store = store(false);
+        assertThrows(FlightUnavailableException.class, () -> store.execute("key", "42", () -> {
+            throw new FlightUnavailableException("Insufficient seats available.");
+        }));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, store.execute("key", "42",
+                () -> new ResponseEntity<>("down", HttpStatus.SERVICE_UNAVAILABLE)).getStatusCode());
+
+        ResponseEntity<String> response = store.execute("key", "42",
+                () -> new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED));
+
+        assertEquals("PNR1", response.getBody());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void execute_persistent_replaysStoredResponseAfterRestart() {
+        when(recordRepository.insertInProgress(eq("key"), eq("42"), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(recordRepository.findById("key")).thenReturn(Optional.of(new IdempotencyRecord("key", "42",
+                HttpStatus.ACCEPTED.value(), "PNR1", Instant.now().plusSeconds(60))));
+
+        ResponseEntity<String> response = store(true).execute("key", "42", () -> {
+            throw new AssertionError("must not book again");
+        });
+
+        assertEquals("PNR1", response.getBody());
+        assertTrue(response.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER));
+        verify(recordRepository, never()).complete(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_persistent_claimsTheKeyBeforeBookingAndStoresTheResponse() {
+        IdempotencyStore store = store(true);
+
+        store.execute("key", "42", () -> {
+            verify(recordRepository).insertInProgress(eq("key"), eq("42"), any());
+            return new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED);
+        });
+        // answered from memory, the table is only used on a miss
+        store.execute("key", "42", () -> new ResponseEntity<>("PNR2", HttpStatus.ACCEPTED));
+
+        verify(recordRepository).insertInProgress(any(), any(), any());
+        verify(recordRepository).complete(eq("key"), eq(202), eq("PNR1"), any());
+    }
+
+    @Test
+    void execute_persistent_keyInProgressOnAnotherInstance_throwsWithoutBooking() {
+        when(recordRepository.insertInProgress(eq("key"), eq("42"), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(recordRepository.findById("key")).thenReturn(Optional.of(
+                new IdempotencyRecord("key", "42", null, null, Instant.now().plusSeconds(60))));
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> store(true).execute("key", "42", () -> {
+            throw new AssertionError("must not book while the first request runs");
+        }));
+        verify(recordRepository, never()).deleteInProgress(any());
+    }
+
+    @Test
+    void execute_persistent_abandonedKey_isTakenOver() {
+        when(recordRepository.insertInProgress(eq("key"), eq("42"), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenReturn(1);
+        when(recordRepository.findById("key")).thenReturn(Optional.of(
+                new IdempotencyRecord("key", "42", null, null, Instant.now().minusSeconds(1))));
+        when(recordRepository.deleteIfExpired(eq("key"), any())).thenReturn(1);
+
+        ResponseEntity<String> response = store(true).execute("key", "42",
+                () -> new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED));
+
+        assertEquals("PNR1", response.getBody());
+        verify(recordRepository).complete(eq("key"), eq(202), eq("PNR1"), any());
+    }
+
+    @Test
+    void execute_persistent_failedRequest_givesTheKeyUp() {
+        IdempotencyStore store = store(true);
+
+        assertThrows(FlightUnavailableException.class, () -> store.execute("key", "42", () -> {
+            throw new FlightUnavailableException("Insufficient seats available.");
+        }));
+        store.execute("key", "42", () -> new ResponseEntity<>("down", HttpStatus.SERVICE_UNAVAILABLE));
+
+        verify(recordRepository, times(2)).deleteInProgress("key");
+        verify(recordRepository, never()).complete(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void fingerprint_equalRequests_sameDigest() {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("userName", "Test User");
+        request.put("seats", List.of("1A", "1B"));
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("seats", List.of("1A", "1B"));
+        reordered.put("userName", "Test User");
+
+        assertEquals(64, IdempotencyStore.fingerprint(1L, request).length());
+        assertEquals(IdempotencyStore.fingerprint(1L, request), IdempotencyStore.fingerprint(1L, reordered));
+        assertNotEquals(IdempotencyStore.fingerprint(1L, request), IdempotencyStore.fingerprint(2L, request));
+        reordered.put("seats", List.of("1B", "1A"));
+        assertNotEquals(IdempotencyStore.fingerprint(1L, request), IdempotencyStore.fingerprint(1L, reordered));
+    }
+
+    @Test
+    void execute_blankOrOverlongKey_throwsException() {
+        IdempotencyStore store = store(false);
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute(" ", "42", () -> new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED)));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("k".repeat(256), "42", () -> new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
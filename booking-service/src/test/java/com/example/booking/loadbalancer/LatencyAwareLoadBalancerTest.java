@@ -0,0 +1,200 @@
+package com.example.booking.loadbalancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final ServiceInstance FAST = instance("fast-1", 8081);
+    private static final ServiceInstance OTHER_FAST = instance("fast-2", 8082);
+    private static final ServiceInstance SLOW = instance("slow", 8083);
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+
+    private static ServiceInstance instance(String id, int port) {
+        return new DefaultServiceInstance(id, "FLIGHT-SERVICE", "localhost", port, false);
+    }
+
+    private LatencyAwareLoadBalancer balancer(ServiceInstance... instances) {
+        return new LatencyAwareLoadBalancer(ServiceInstanceListSuppliers.toProvider("FLIGHT-SERVICE", instances),
+                "FLIGHT-SERVICE", 10_000, nanos::get);
+    }
+
+    private static Response<ServiceInstance> choose(ReactorServiceInstanceLoadBalancer balancer) {
+        return balancer.choose(new DefaultRequest<>(new RequestDataContext())).block();
+    }
+
+    private Request<Object> start(LatencyAwareLoadBalancer balancer, ServiceInstance instance) {
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+        balancer.onStartRequest(request, new DefaultResponse(instance));
+        return request;
+    }
+
+    private void complete(LatencyAwareLoadBalancer balancer, Request<Object> request, ServiceInstance instance,
+            CompletionContext.Status status) {
+        balancer.onComplete(new CompletionContext<>(status, request, new DefaultResponse(instance)));
+    }
+
+    private void call(LatencyAwareLoadBalancer balancer, ServiceInstance instance, long millis) {
+        Request<Object> request = start(balancer, instance);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        complete(balancer, request, instance, CompletionContext.Status.SUCCESS);
+    }
+
+    @Test
+    void fasterInstance_isChosen() {
+        LatencyAwareLoadBalancer balancer = balancer(FAST, SLOW);
+        call(balancer, FAST, 10);
+        call(balancer, SLOW, 100);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(FAST, choose(balancer).getServer());
+        }
+    }
+
+    @Test
+    void requestsInFlight_makeAFastInstanceExpensive() {
+        LatencyAwareLoadBalancer balancer = balancer(FAST, SLOW);
+        call(balancer, FAST, 10);
+        call(balancer, SLOW, 50);
+        for (int i = 0; i < 10; i++) {
+            start(balancer, FAST);
+        }
+
+        assertEquals(SLOW, choose(balancer).getServer());
+    }
+
+    @Test
+    void slowResponse_countsAtOnce_andFasterOnesOnlyOverTime() {
+        LatencyAwareLoadBalancer balancer = balancer(FAST);
+        call(balancer, FAST, 10);
+        call(balancer, FAST, 200);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), balancer.costOf(FAST), 1);
+
+        call(balancer, FAST, 10);
+        assertTrue(balancer.costOf(FAST) > TimeUnit.MILLISECONDS.toNanos(190));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        call(balancer, FAST, 10);
+        assertTrue(balancer.costOf(FAST) < TimeUnit.MILLISECONDS.toNanos(80));
+    }
+
+    @Test
+    void idleInstance_isTriedAgainAfterItDecays() {
+        LatencyAwareLoadBalancer balancer = balancer(FAST, SLOW);
+        call(balancer, SLOW, 100);
+        double cost = balancer.costOf(SLOW);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(40));
+
+        assertTrue(balancer.costOf(SLOW) < cost / 10);
+    }
+
+    @Test
+    void failedRequest_countsAsAtLeastOneSecond() {
+        LatencyAwareLoadBalancer balancer = balancer(FAST, SLOW);
+        Request<Object> request = start(balancer, FAST);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+        complete(balancer, request, FAST, CompletionContext.Status.FAILED);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(1), balancer.costOf(FAST), 1);
+    }
+
+    @Test
+    void noInstances_isAnEmptyResponse() {
+        assertFalse(choose(balancer()).hasServer());
+    }
+
+    @Test
+    void heterogeneousInstances_haveALowerTailThanRoundRobin() {
+        long[] roundRobin = simulate(new RoundRobinLoadBalancer(
+                ServiceInstanceListSuppliers.toProvider("FLIGHT-SERVICE", FAST, OTHER_FAST, SLOW), "FLIGHT-SERVICE"),
+                null);
+        LatencyAwareLoadBalancer latencyAware = balancer(FAST, OTHER_FAST, SLOW);
+        long[] powerOfTwo = simulate(latencyAware, latencyAware);
+
+        // the seeded run gives about 6.8 s against 71 ms at p99 and 14 ms against 8 ms at p50,
+        // round robin lets the queue of the degraded instance grow without bound
+        assertTrue(percentile(roundRobin, 0.99) > 1000);
+        assertTrue(percentile(powerOfTwo, 0.99) < 150);
+        assertTrue(percentile(powerOfTwo, 0.99) < percentile(roundRobin, 0.99) / 10);
+        assertTrue(percentile(powerOfTwo, 0.50) <= percentile(roundRobin, 0.50));
+    }
+
+    private record Completion(long at, Request<Object> request, ServiceInstance instance) {
+    }
+
+    // requests arriving every 3 ms on average against two instances answering in 10 ms
+    // and a degraded one in 40 ms on average, each working on 4 requests at a time and
+    // queueing the rest, in virtual time, round robin gives the degraded one more than
+    // it can take
+    private long[] simulate(ReactorServiceInstanceLoadBalancer balancer, LatencyAwareLoadBalancer lifecycle) {
+        Random random = new Random(42);
+        List<ServiceInstance> instances = List.of(FAST, OTHER_FAST, SLOW);
+        double[] serviceMillis = { 10, 10, 40 };
+        long[][] workersFreeAt = new long[instances.size()][4];
+        PriorityQueue<Completion> completions = new PriorityQueue<>((a, b) -> Long.compare(a.at, b.at));
+        long[] latencies = new long[20_000];
+
+        long arrival = nanos.get();
+        for (int i = 0; i < latencies.length; i++) {
+            arrival += exponentialNanos(random, 3);
+            while (!completions.isEmpty() && completions.peek().at <= arrival) {
+                Completion completion = completions.poll();
+                nanos.set(completion.at);
+                if (lifecycle != null) {
+                    complete(lifecycle, completion.request, completion.instance, CompletionContext.Status.SUCCESS);
+                }
+            }
+            nanos.set(arrival);
+
+            ServiceInstance instance = choose(balancer).getServer();
+            Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+            if (lifecycle != null) {
+                lifecycle.onStartRequest(request, new DefaultResponse(instance));
+            }
+            int index = instances.indexOf(instance);
+            long[] workers = workersFreeAt[index];
+            int worker = 0;
+            for (int w = 1; w < workers.length; w++) {
+                if (workers[w] < workers[worker]) {
+                    worker = w;
+                }
+            }
+            long done = Math.max(arrival, workers[worker]) + exponentialNanos(random, serviceMillis[index]);
+            workers[worker] = done;
+            completions.add(new Completion(done, request, instance));
+            latencies[i] = done - arrival;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long exponentialNanos(Random random, double meanMillis) {
+        return (long) (-Math.log(1 - random.nextDouble()) * meanMillis * 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) (percentile * (sorted.length - 1))] / 1e6;
+    }
+}
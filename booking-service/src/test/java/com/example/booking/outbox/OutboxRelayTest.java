@@ -0,0 +1,316 @@
+package com.example.booking.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.example.booking.entity.Booking;
+import com.example.booking.entity.BookingStatus;
+import com.example.booking.entity.Passenger;
+import com.example.booking.feign.BookingInterface;
+import com.example.booking.repository.BookingRepository;
+import com.example.booking.repository.OutboxEventRepository;
+
+import feign.FeignException;
+import feign.Request;
+
+// the relay commits on its own, so the test itself runs without a transaction,
+// and runs only when the test asks for it
+@DataJpaTest(properties = "booking.outbox.linger-millis=600000")
+@Import({ OutboxRelay.class, BookingOutbox.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private BookingOutbox bookingOutbox;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @MockBean
+    private BookingInterface bookingInterface;
+
+    @AfterEach
+    void cleanUp() {
+        outboxEventRepository.deleteAll();
+        bookingRepository.deleteAll();
+    }
+
+    private Booking booking(String pnr, Long flightId, int seats) {
+        Booking booking = new Booking();
+        booking.setPnr(pnr);
+        booking.setUserName("Test User");
+        booking.setUserEmail("test@example.com");
+        booking.setMobileNumber("1234567890");
+        booking.setBookingDate(LocalDateTime.now());
+        booking.setNumberOfSeats(seats);
+        booking.setMealOpted("Veg");
+        booking.setTotalCost(seats * 5000.0);
+        booking.setFlightId(flightId);
+        booking.setJourneyDate(LocalDate.now().plusDays(5));
+        booking.setStatus(BookingStatus.PENDING);
+        return booking;
+    }
+
+    private BookingStatus statusOf(String pnr) {
+        return bookingRepository.findById(pnr).orElseThrow().getStatus();
+    }
+
+    private static SeatDelta reserve(Long flightId, int seats, String... pnrs) {
+        return new SeatDelta(flightId, -seats, Arrays.stream(pnrs).map(pnr -> pnr + ":RESERVE_SEATS").toList());
+    }
+
+    private static SeatDelta release(Long flightId, int seats, String... pnrs) {
+        return new SeatDelta(flightId, seats, Arrays.stream(pnrs).map(pnr -> pnr + ":RELEASE_SEATS").toList());
+    }
+
+    // flight-service applies a delta when it fits in the given number of free seats
+    private void flightHasSeats(int seats) {
+        when(bookingInterface.applySeatDeltas(any())).thenAnswer(invocation -> {
+            List<SeatDelta> deltas = invocation.getArgument(0);
+            List<SeatDeltaResult> results = new ArrayList<>();
+            int left = seats;
+            for (SeatDelta delta : deltas) {
+                boolean applied = left + delta.getDelta() >= 0;
+                left += applied ? delta.getDelta() : 0;
+                results.add(new SeatDeltaResult(delta.getFlightId(), delta.getDelta(), applied, left,
+                        applied ? null : "Insufficient seats available. Requested: " + -delta.getDelta()));
+            }
+            return results;
+        });
+    }
+
+    @Test
+    void relayBatch_reservationsOfOneFlight_goOutAsOneDelta() {
+        flightHasSeats(10);
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+        bookingOutbox.saveAndReserve(booking("PNR2", 1L, 3));
+        bookingOutbox.saveAndReserve(booking("PNR3", 2L, 1));
+
+        assertEquals(3, outboxRelay.relayBatch());
+
+        verify(bookingInterface).applySeatDeltas(List.of(reserve(1L, 5, "PNR1", "PNR2"), reserve(2L, 1, "PNR3")));
+        assertEquals(BookingStatus.CONFIRMED, statusOf("PNR1"));
+        assertEquals(BookingStatus.CONFIRMED, statusOf("PNR2"));
+        assertEquals(BookingStatus.CONFIRMED, statusOf("PNR3"));
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void relayBatch_notEnoughSeatsForAll_rejectsOnlyTheBookingThatDoesNotFit() {
+        flightHasSeats(4);
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+        bookingOutbox.saveAndReserve(booking("PNR2", 1L, 3));
+
+        outboxRelay.relayBatch();
+
+        verify(bookingInterface).applySeatDeltas(List.of(reserve(1L, 5, "PNR1", "PNR2")));
+        verify(bookingInterface).applySeatDeltas(List.of(reserve(1L, 2, "PNR1"), reserve(1L, 3, "PNR2")));
+        assertEquals(BookingStatus.CONFIRMED, statusOf("PNR1"));
+        assertEquals(BookingStatus.REJECTED, statusOf("PNR2"));
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void relayBatch_flightServiceDown_keepsEventsUntilTheLeaseRunsOut() {
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+        Request request = Request.create(Request.HttpMethod.PUT, "/api/v1.0/flight/inventory/deltas",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        when(bookingInterface.applySeatDeltas(any()))
+                .thenThrow(new FeignException.ServiceUnavailable("Unavailable", request, null, Map.of()));
+
+        assertEquals(1, outboxRelay.relayBatch());
+        // still leased by the failed run
+        assertEquals(0, outboxRelay.relayBatch());
+
+        assertEquals(BookingStatus.PENDING, statusOf("PNR1"));
+        assertEquals(1, outboxEventRepository.count());
+        verify(bookingInterface, times(1)).applySeatDeltas(any());
+    }
+
+    @Test
+    void relayBatch_cancellationsGoOutBeforeReservations() {
+        flightHasSeats(0);
+        bookingRepository.saveAll(List.of(booking("PNR1", 2L, 2), booking("PNR2", 2L, 3)));
+        bookingOutbox.deleteAndRelease(bookingRepository.findWithPassengersByPnr("PNR1").orElseThrow());
+        bookingOutbox.deleteAndRelease(bookingRepository.findWithPassengersByPnr("PNR2").orElseThrow());
+        bookingOutbox.saveAndReserve(booking("PNR3", 2L, 4));
+
+        outboxRelay.relayBatch();
+
+        verify(bookingInterface).applySeatDeltas(List.of(release(2L, 5, "PNR1", "PNR2"), reserve(2L, 4, "PNR3")));
+        assertEquals(BookingStatus.CONFIRMED, statusOf("PNR3"));
+        assertEquals(0, outboxEventRepository.count());
+        assertEquals(1, bookingRepository.count());
+    }
+
+    @Test
+    void relayBatch_releaseTurnedDown_isParkedInsteadOfDropped() {
+        when(bookingInterface.applySeatDeltas(any())).thenReturn(
+                List.of(new SeatDeltaResult(3L, 2, false, 0, "Flight not found with ID: 3")));
+        bookingRepository.save(booking("PNR1", 3L, 2));
+        bookingOutbox.deleteAndRelease(bookingRepository.findWithPassengersByPnr("PNR1").orElseThrow());
+
+        assertEquals(1, outboxRelay.relayBatch());
+        // parked, not picked up again straight away
+        assertEquals(0, outboxRelay.relayBatch());
+
+        assertEquals(1, outboxEventRepository.count());
+        assertNull(outboxEventRepository.findAll().get(0).getClaimToken());
+    }
+
+    @Test
+    void relayBatch_pendingBookingCancelledAndRejected_dropsItsRelease() {
+        flightHasSeats(1);
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+        bookingOutbox.deleteAndRelease(bookingRepository.findWithPassengersByPnr("PNR1").orElseThrow());
+
+        outboxRelay.relayBatch();
+
+        // the release waited for the reservation and went with it
+        verify(bookingInterface).applySeatDeltas(List.of(reserve(1L, 2, "PNR1")));
+        assertEquals(0, outboxEventRepository.count());
+        assertEquals(0, outboxRelay.relayBatch());
+    }
+
+    @Test
+    void relayBatch_pendingBookingCancelledAndConfirmed_releasesItsSeatsNext() {
+        flightHasSeats(10);
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+        bookingOutbox.deleteAndRelease(bookingRepository.findWithPassengersByPnr("PNR1").orElseThrow());
+
+        outboxRelay.relayBatch();
+        outboxRelay.relayBatch();
+
+        verify(bookingInterface).applySeatDeltas(List.of(reserve(1L, 2, "PNR1")));
+        verify(bookingInterface).applySeatDeltas(List.of(release(1L, 2, "PNR1")));
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void relayBatch_deltaInFlightElsewhere_leavesTheEventsForLater() {
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+        bookingOutbox.saveAndReserve(booking("PNR2", 1L, 3));
+        when(bookingInterface.applySeatDeltas(any())).thenReturn(List.of(new SeatDeltaResult(1L, -5, false, 10,
+                "The changes of this delta are being applied by another request, send it again later.", true)));
+
+        outboxRelay.relayBatch();
+
+        // neither split up nor rejected, the lease brings them back
+        verify(bookingInterface, times(1)).applySeatDeltas(any());
+        assertEquals(BookingStatus.PENDING, statusOf("PNR1"));
+        assertEquals(BookingStatus.PENDING, statusOf("PNR2"));
+        assertEquals(2, outboxEventRepository.count());
+    }
+
+    @Test
+    void awaitSettlement_returnsTheOutcomeOfTheRunThatSettlesTheBooking() throws Exception {
+        flightHasSeats(1);
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+
+        CompletableFuture<OutboxRelay.Settlement> settlement = CompletableFuture
+                .supplyAsync(() -> outboxRelay.awaitSettlement("PNR1", Duration.ofSeconds(10)));
+        while (!settlement.isDone() && outboxEventRepository.count() > 0) {
+            outboxRelay.relayBatch();
+            Thread.sleep(10);
+        }
+
+        assertEquals(BookingStatus.REJECTED, settlement.get(5, TimeUnit.SECONDS).status());
+        assertEquals("Insufficient seats available. Requested: 2", settlement.get().reason());
+    }
+
+    @Test
+    void awaitSettlement_settledByAnotherInstance_isSeenBeforeTheTimeout() throws Exception {
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+
+        CompletableFuture<OutboxRelay.Settlement> settlement = CompletableFuture
+                .supplyAsync(() -> outboxRelay.awaitSettlement("PNR1", Duration.ofSeconds(10)));
+        Thread.sleep(100);
+        // the relay of another instance writes the status, nothing here is told
+        Booking booking = bookingRepository.findById("PNR1").orElseThrow();
+        booking.setStatus(BookingStatus.CONFIRMED);
+        bookingRepository.save(booking);
+
+        assertEquals(BookingStatus.CONFIRMED, settlement.get(2, TimeUnit.SECONDS).status());
+    }
+
+    @Test
+    void awaitSettlement_nothingSettlesInTime_returnsPending() {
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+
+        assertEquals(BookingStatus.PENDING,
+                outboxRelay.awaitSettlement("PNR1", Duration.ofMillis(50)).status());
+    }
+
+    @Test
+    void relayBatch_batchSentAgainAfterACrash_settlesFromTheReplayedAnswers() {
+        bookingOutbox.saveAndReserve(booking("PNR1", 1L, 2));
+        bookingOutbox.saveAndReserve(booking("PNR2", 1L, 3));
+        // flight-service applied PNR1 before, the combined delta is refused and each
+        // booking goes again on its own, PNR1 answered from the recorded change
+        when(bookingInterface.applySeatDeltas(List.of(reserve(1L, 5, "PNR1", "PNR2")))).thenReturn(List.of(
+                new SeatDeltaResult(1L, -5, false, 8, "Some of the changes of this delta were applied before")));
+        when(bookingInterface.applySeatDeltas(List.of(reserve(1L, 2, "PNR1"), reserve(1L, 3, "PNR2"))))
+                .thenReturn(List.of(new SeatDeltaResult(1L, -2, true, 5, null),
+                        new SeatDeltaResult(1L, -3, true, 5, null)));
+
+        outboxRelay.relayBatch();
+
+        assertEquals(BookingStatus.CONFIRMED, statusOf("PNR1"));
+        assertEquals(BookingStatus.CONFIRMED, statusOf("PNR2"));
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void relayBatch_passengerSeats_goAlongWithTheReservationAndTheRelease() {
+        flightHasSeats(10);
+        Booking booking = booking("PNR1", 1L, 2);
+        booking.setPassengers(List.of(passenger(booking, "1A"), passenger(booking, " 1B")));
+        bookingOutbox.saveAndReserve(booking);
+        outboxRelay.relayBatch();
+        bookingOutbox.deleteAndRelease(booking);
+        outboxRelay.relayBatch();
+
+        verify(bookingInterface).applySeatDeltas(
+                List.of(new SeatDelta(1L, -2, List.of("PNR1:RESERVE_SEATS"), List.of("1A", "1B"))));
+        verify(bookingInterface).applySeatDeltas(
+                List.of(new SeatDelta(1L, 2, List.of("PNR1:RELEASE_SEATS"), List.of("1A", "1B"))));
+    }
+
+    private static Passenger passenger(Booking booking, String seatNumber) {
+        Passenger passenger = new Passenger();
+        passenger.setName("Test User");
+        passenger.setGender("Female");
+        passenger.setAge(30);
+        passenger.setSeatNumber(seatNumber);
+        passenger.setBooking(booking);
+        return passenger;
+    }
+}
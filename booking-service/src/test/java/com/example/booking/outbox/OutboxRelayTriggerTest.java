@@ -0,0 +1,87 @@
+package com.example.booking.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.example.booking.entity.Booking;
+import com.example.booking.entity.BookingStatus;
+import com.example.booking.feign.BookingInterface;
+import com.example.booking.repository.BookingRepository;
+import com.example.booking.repository.OutboxEventRepository;
+
+// the poll is not running in a DataJpaTest, only the after-commit trigger can relay
+@DataJpaTest(properties = "booking.outbox.linger-millis=500")
+@Import({ OutboxRelay.class, BookingOutbox.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTriggerTest {
+
+    @Autowired
+    private BookingOutbox bookingOutbox;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @MockBean
+    private BookingInterface bookingInterface;
+
+    @AfterEach
+    void cleanUp() {
+        outboxEventRepository.deleteAll();
+        bookingRepository.deleteAll();
+    }
+
+    private Booking booking(String pnr) {
+        Booking booking = new Booking();
+        booking.setPnr(pnr);
+        booking.setUserName("Test User");
+        booking.setUserEmail("test@example.com");
+        booking.setMobileNumber("1234567890");
+        booking.setBookingDate(LocalDateTime.now());
+        booking.setNumberOfSeats(1);
+        booking.setMealOpted("Veg");
+        booking.setTotalCost(5000.0);
+        booking.setFlightId(1L);
+        booking.setJourneyDate(LocalDate.now().plusDays(5));
+        booking.setStatus(BookingStatus.PENDING);
+        return booking;
+    }
+
+    @Test
+    void saveAndReserve_relaysAfterTheLingerAsOneBatch() throws InterruptedException {
+        when(bookingInterface.applySeatDeltas(any()))
+                .thenReturn(List.of(new SeatDeltaResult(1L, -2, true, 8, null)));
+
+        bookingOutbox.saveAndReserve(booking("PNR1"));
+        bookingOutbox.saveAndReserve(booking("PNR2"));
+
+        verify(bookingInterface, timeout(5000)).applySeatDeltas(
+                List.of(new SeatDelta(1L, -2, List.of("PNR1:RESERVE_SEATS", "PNR2:RESERVE_SEATS"))));
+        waitForEmptyOutbox();
+        assertEquals(BookingStatus.CONFIRMED, bookingRepository.findById("PNR2").orElseThrow().getStatus());
+    }
+
+    private void waitForEmptyOutbox() throws InterruptedException {
+        for (int i = 0; i < 100 && outboxEventRepository.count() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, outboxEventRepository.count());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.booking.pnr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class PnrGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 1_250_000;
+
+    @Test
+    void nextId_isUniqueAcrossThreadsOverTenMillionIds() throws Exception {
+        PnrGenerator generator = new PnrGenerator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            long[] all = new long[THREADS * IDS_PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                long[] ids = futures.get(t).get();
+                // ids handed to one thread only ever go up
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1]);
+                }
+                System.arraycopy(ids, 0, all, t * IDS_PER_THREAD, ids.length);
+            }
+
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertNotEquals(all[i - 1], all[i], "Duplicate id");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void nextPnr_isPrefixPlusThirteenCrockfordCharacters() {
+        PnrGenerator generator = new PnrGenerator(0);
+        Set<String> pnrs = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String pnr = generator.nextPnr();
+            assertTrue(pnr.matches(PnrGenerator.PREFIX + "[0-9A-HJKMNP-TV-Z]{13}"), pnr);
+            pnrs.add(pnr);
+        }
+        assertEquals(10_000, pnrs.size());
+    }
+
+    @Test
+    void format_writesAllSixtyFourBitsInOrder() {
+        assertEquals(PnrGenerator.PREFIX + "0000000000000", PnrGenerator.format(0));
+        assertEquals(PnrGenerator.PREFIX + "000000000000Z", PnrGenerator.format(31));
+        assertEquals(PnrGenerator.PREFIX + "0000000000010", PnrGenerator.format(32));
+        assertEquals(PnrGenerator.PREFIX + "7ZZZZZZZZZZZZ", PnrGenerator.format(Long.MAX_VALUE));
+    }
+
+    @Test
+    void differentNodesNeverShareAnId() {
+        PnrGenerator first = new PnrGenerator(1);
+        PnrGenerator second = new PnrGenerator(2);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(first.nextId());
+            ids.add(second.nextId());
+        }
+        assertEquals(200_000, ids.size());
+    }
+
+    @Test
+    void constructor_rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new PnrGenerator(PnrGenerator.MAX_NODE_ID + 1));
+        assertThrows(IllegalArgumentException.class, () -> new PnrGenerator(-1));
+    }
+
+    @Test
+    void constructor_withoutNodeId_runsAsNodeZero() {
+        long id = new PnrGenerator(null).nextId();
+
+        assertEquals(0, (id >>> PnrGenerator.SEQUENCE_BITS) & PnrGenerator.MAX_NODE_ID);
+    }
+}
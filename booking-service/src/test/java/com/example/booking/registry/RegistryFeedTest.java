@@ -0,0 +1,155 @@
+package com.example.booking.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.composite.CompositeDiscoveryClient;
+import org.springframework.cloud.loadbalancer.cache.LoadBalancerCacheManager;
+import org.springframework.cloud.loadbalancer.core.CachingServiceInstanceListSupplier;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+class RegistryFeedTest {
+
+    private static final String SNAPSHOT = """
+            {"epoch":"e1","version":2,"instances":[
+              {"serviceId":"FLIGHT-SERVICE","instanceId":"flight-1","host":"10.0.0.1","port":8081,"secure":false,
+               "status":"UP","metadata":{}},
+              {"serviceId":"FLIGHT-SERVICE","instanceId":"flight-2","host":"10.0.0.2","port":8081,"secure":false,
+               "status":"STARTING","metadata":{}}]}""";
+
+    private MockRestServiceServer registry;
+    private RegistryFeed feed;
+    private final Cache loadBalancerCache = mock(Cache.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        LoadBalancerCacheManager cacheManager = mock(LoadBalancerCacheManager.class);
+        when(cacheManager.getCache(CachingServiceInstanceListSupplier.SERVICE_INSTANCE_CACHE_NAME))
+                .thenReturn(loadBalancerCache);
+        ObjectProvider<LoadBalancerCacheManager> cacheManagers = mock(ObjectProvider.class);
+        when(cacheManagers.getIfAvailable()).thenReturn(cacheManager);
+        RestClient.Builder builder = RestClient.builder();
+        registry = MockRestServiceServer.bindTo(builder).build();
+        feed = new RegistryFeed(new RegistryFeedClient(builder.build()),
+                List.of("http://registry/registry", "http://peer/registry"), 30_000, cacheManagers);
+    }
+
+    private void respond(String path, String body) {
+        respond("http://registry/registry", path, body);
+    }
+
+    private void respond(String node, String path, String body) {
+        registry.expect(requestTo(node + path))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
+    }
+
+    private List<String> instanceIds(String serviceId) {
+        return feed.instances(serviceId).stream().map(ServiceInstance::getInstanceId).toList();
+    }
+
+    @Test
+    void snapshotAndChanges_leaveTheInstancesThatAreUp() {
+        respond("/snapshot", SNAPSHOT);
+        respond("/changes?epoch=e1&since=2&waitMillis=30000", """
+                {"epoch":"e1","version":4,"resync":false,"changes":[
+                  {"version":3,"type":"REGISTERED","instance":{"serviceId":"FLIGHT-SERVICE","instanceId":"flight-3",
+                   "host":"10.0.0.3","port":8081,"secure":false,"status":"UP","metadata":{"zone":"zone-b"}}},
+                  {"version":4,"type":"CANCELLED","instance":{"serviceId":"FLIGHT-SERVICE","instanceId":"flight-1",
+                   "port":0,"secure":false,"metadata":{}}}]}""");
+
+        feed.poll();
+        assertEquals(List.of("flight-1"), instanceIds("flight-service"));
+
+        feed.poll();
+        assertEquals(List.of("flight-3"), instanceIds("FLIGHT-SERVICE"));
+        assertEquals("zone-b", feed.instances("FLIGHT-SERVICE").get(0).getMetadata().get("zone"));
+        assertEquals(List.of("flight-service"), feed.services());
+        verify(loadBalancerCache, times(2)).evict("FLIGHT-SERVICE");
+        registry.verify();
+    }
+
+    @Test
+    void resync_readsTheSnapshotAgain() {
+        respond("/snapshot", SNAPSHOT);
+        respond("/changes?epoch=e1&since=2&waitMillis=30000",
+                "{\"epoch\":\"e2\",\"version\":7,\"resync\":true,\"changes\":[]}");
+        respond("/snapshot", SNAPSHOT.replace("\"e1\"", "\"e2\"").replace("\"STARTING\"", "\"UP\""));
+
+        feed.poll();
+        feed.poll();
+        feed.poll();
+
+        assertEquals(List.of("flight-1", "flight-2"), instanceIds("FLIGHT-SERVICE").stream().sorted().toList());
+        registry.verify();
+    }
+
+    @Test
+    void failedNode_theNextOneIsFollowedFromItsSnapshot() {
+        respond("/snapshot", SNAPSHOT);
+        registry.expect(requestTo("http://registry/registry/changes?epoch=e1&since=2&waitMillis=30000"))
+                .andRespond(withServerError());
+        respond("http://peer/registry", "/snapshot", SNAPSHOT.replace("\"e1\"", "\"p1\""));
+        respond("http://peer/registry", "/changes?epoch=p1&since=2&waitMillis=30000",
+                "{\"epoch\":\"p1\",\"version\":2,\"resync\":false,\"changes\":[]}");
+
+        feed.poll();
+        assertThrows(RestClientException.class, feed::poll);
+        feed.poll();
+        feed.poll();
+
+        assertEquals(List.of("flight-1"), instanceIds("FLIGHT-SERVICE"));
+        registry.verify();
+    }
+
+    @Test
+    void feedUrls_comeFromTheEurekaServersUnlessConfigured() {
+        assertEquals(List.of("http://r1:8761/registry", "http://r2:8761/registry"), RegistryFeed.feedUrls("",
+                List.of("http://r1:8761/eureka/", " http://r2:8761/eureka")));
+        assertEquals(List.of("http://r1:8761/registry"),
+                RegistryFeed.feedUrls(null, List.of("http://r1:8761/")));
+        assertEquals(List.of("http://feed-a/registry", "http://feed-b/registry"),
+                RegistryFeed.feedUrls("http://feed-a/registry/, http://feed-b/registry", List.of("http://r1/eureka")));
+        assertThrows(IllegalStateException.class, () -> RegistryFeed.feedUrls(" ", List.of()));
+    }
+
+    @Test
+    void eurekaAnswers_untilTheFeedIsInSync() {
+        DiscoveryClient eureka = mock(DiscoveryClient.class);
+        when(eureka.getInstances("FLIGHT-SERVICE")).thenReturn(List.of(
+                new DefaultServiceInstance("eureka-1", "FLIGHT-SERVICE", "10.0.0.9", 8081, false)));
+        // sorted by order, the feed first
+        DiscoveryClient discoveryClient = new CompositeDiscoveryClient(
+                new ArrayList<>(List.of(eureka, new RegistryFeedDiscoveryClient(feed))));
+
+        assertFalse(feed.isSynced());
+        assertEquals("eureka-1", discoveryClient.getInstances("FLIGHT-SERVICE").get(0).getInstanceId());
+
+        respond("/snapshot", SNAPSHOT);
+        feed.poll();
+        assertTrue(feed.isSynced());
+        assertEquals("flight-1", discoveryClient.getInstances("FLIGHT-SERVICE").get(0).getInstanceId());
+    }
+}
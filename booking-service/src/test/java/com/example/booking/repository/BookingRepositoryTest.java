@@ -0,0 +1,101 @@
+package com.example.booking.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.booking.dto.BookingSummaryDTO;
+import com.example.booking.entity.Booking;
+import com.example.booking.entity.Passenger;
+
+@DataJpaTest
+class BookingRepositoryTest {
+
+    private static final LocalDateTime BOOKED_AT = LocalDateTime.of(2025, 6, 1, 10, 0);
+
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Booking saveBooking(String pnr, String email, LocalDateTime bookingDate, String... passengerNames) {
+        Booking booking = new Booking();
+        booking.setPnr(pnr);
+        booking.setUserName("Test User");
+        booking.setUserEmail(email);
+        booking.setMobileNumber("1234567890");
+        booking.setBookingDate(bookingDate);
+        booking.setNumberOfSeats(Math.max(1, passengerNames.length));
+        booking.setMealOpted("Veg");
+        booking.setTotalCost(5000.0);
+        booking.setFlightId(1L);
+        booking.setJourneyDate(LocalDate.of(2025, 7, 1));
+        List<Passenger> passengers = new ArrayList<>();
+        for (int i = 0; i < passengerNames.length; i++) {
+            passengers.add(new Passenger(null, passengerNames[i], "Male", 30, "1" + (char) ('A' + i), booking));
+        }
+        booking.setPassengers(passengers);
+        return entityManager.persist(booking);
+    }
+
+    @Test
+    void historyPages_walkAllBookingsNewestFirstIncludingTies() {
+        // PNR2 and PNR3 share a booking date, the pnr breaks the tie
+        saveBooking("PNR1", "a@b.com", BOOKED_AT.minusDays(2));
+        saveBooking("PNR2", "a@b.com", BOOKED_AT);
+        saveBooking("PNR3", "a@b.com", BOOKED_AT);
+        saveBooking("PNR4", "a@b.com", BOOKED_AT.plusDays(1));
+        saveBooking("PNR5", "other@b.com", BOOKED_AT);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<BookingSummaryDTO> first = bookingRepository.findHistoryFirstPage("a@b.com", PageRequest.of(0, 2));
+        assertEquals(List.of("PNR4", "PNR3"), first.stream().map(BookingSummaryDTO::getPnr).toList());
+
+        BookingSummaryDTO last = first.get(1);
+        List<BookingSummaryDTO> second = bookingRepository.findHistoryPageAfter("a@b.com",
+                last.getBookingDate(), last.getPnr(), PageRequest.of(0, 2));
+        assertEquals(List.of("PNR2", "PNR1"), second.stream().map(BookingSummaryDTO::getPnr).toList());
+        assertEquals(null, second.get(0).getPassengers());
+    }
+
+    @Test
+    void findWithPassengersByPnrIn_fetchesPassengersWithoutDuplicates() {
+        saveBooking("PNR1", "a@b.com", BOOKED_AT, "XXX", "YYY");
+        saveBooking("PNR2", "a@b.com", BOOKED_AT);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Booking> bookings = bookingRepository.findWithPassengersByPnrIn(Set.of("PNR1", "PNR2"));
+
+        assertEquals(2, bookings.size());
+        Booking withPassengers = bookings.stream().filter(b -> b.getPnr().equals("PNR1")).findFirst().orElseThrow();
+        assertTrue(Hibernate.isInitialized(withPassengers.getPassengers()));
+        assertEquals(2, withPassengers.getPassengers().size());
+    }
+
+    @Test
+    void bookingsTable_hasHistoryIndexInColumnOrder() {
+        List<String> columns = jdbcTemplate.queryForList(
+                "SELECT ic.COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS ic "
+                + "WHERE ic.TABLE_NAME = 'BOOKINGS' AND ic.INDEX_NAME = 'IDX_BOOKINGS_EMAIL_DATE' "
+                + "ORDER BY ic.ORDINAL_POSITION", String.class);
+
+        assertEquals(List.of("USER_EMAIL", "BOOKING_DATE"), columns);
+    }
+}
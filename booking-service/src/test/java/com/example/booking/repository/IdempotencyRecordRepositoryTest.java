@@ -0,0 +1,69 @@
+package com.example.booking.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.booking.exception.IdempotencyKeyInProgressException;
+import com.example.booking.idempotency.IdempotencyStore;
+
+// two stores on one table stand for two booking-service instances
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyRecordRepositoryTest {
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @AfterEach
+    void cleanUp() {
+        recordRepository.deleteAll();
+    }
+
+    private IdempotencyStore instance() {
+        return new IdempotencyStore(recordRepository, 1000, 3600, 60, true, 10_000);
+    }
+
+    @Test
+    void duplicateOnAnotherInstance_isRefusedWhileTheFirstRunsAndReplayedAfterwards() {
+        IdempotencyStore first = instance();
+        IdempotencyStore second = instance();
+        AtomicInteger bookings = new AtomicInteger();
+
+        first.execute("key", "42", () -> {
+            bookings.incrementAndGet();
+            assertThrows(IdempotencyKeyInProgressException.class, () -> second.execute("key", "42", () -> {
+                bookings.incrementAndGet();
+                return new ResponseEntity<>("PNR2", HttpStatus.CREATED);
+            }));
+            return new ResponseEntity<>("PNR1", HttpStatus.CREATED);
+        });
+        ResponseEntity<String> replayed = instance().execute("key", "42",
+                () -> new ResponseEntity<>("PNR3", HttpStatus.CREATED));
+
+        assertEquals(1, bookings.get());
+        assertEquals("PNR1", replayed.getBody());
+        assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+        assertTrue(replayed.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void failedRequest_leavesNoRowBehind() {
+        instance().execute("key", "42", () -> new ResponseEntity<>("down", HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertEquals(0, recordRepository.count());
+        assertEquals("PNR1", instance().execute("key", "42",
+                () -> new ResponseEntity<>("PNR1", HttpStatus.CREATED)).getBody());
+    }
+}
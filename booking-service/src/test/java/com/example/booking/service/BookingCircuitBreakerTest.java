@@ -0,0 +1,81 @@
+package com.example.booking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+
+import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.PassengerDTO;
+import com.example.booking.exception.FlightServiceOverloadedException;
+import com.example.booking.exception.FlightUnavailableException;
+import com.example.booking.feign.BookingInterface;
+
+import feign.FeignException;
+import feign.Request;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+
+// runs bookTicket through the circuit breaker aspect, as in production
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "booking.pnr.node-id=1")
+class BookingCircuitBreakerTest {
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    @MockBean
+    private BookingInterface bookingInterface;
+
+    private final BookingRequest request = new BookingRequest(1L, "Test User", "test@example.com",
+            LocalDate.now().plusDays(5), "1234567890", "Veg", List.of(new PassengerDTO("XXX", "Male", 30, "1A")));
+
+    @AfterEach
+    void closeCircuit() {
+        circuitBreakerRegistry.circuitBreaker("flightServiceBreaker").reset();
+    }
+
+    @Test
+    void bookTicket_unknownFlight_exceptionIsNotSwallowedByFallback() {
+        Request feignRequest = Request.create(Request.HttpMethod.GET, "/api/v1.0/flight/1",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        when(bookingInterface.getFlightById(1L))
+                .thenThrow(new FeignException.NotFound("Flight not found.", feignRequest, null, Map.of()));
+
+        assertThrows(FlightUnavailableException.class, () -> bookingService.bookTicket(1L, request));
+    }
+
+    @Test
+    void bookTicket_limiterFull_failsFastWithoutOpeningTheCircuit() {
+        // what FlightCallLimiterAspect throws around the real client, a mock bean is not advised
+        when(bookingInterface.getFlightById(1L))
+                .thenThrow(new FlightServiceOverloadedException("Flight Service is overloaded."));
+
+        for (int i = 0; i < 20; i++) {
+            assertThrows(FlightServiceOverloadedException.class, () -> bookingService.bookTicket(1L, request));
+        }
+
+        assertEquals(0, circuitBreakerRegistry.circuitBreaker("flightServiceBreaker").getMetrics()
+                .getNumberOfFailedCalls());
+    }
+
+    @Test
+    void bookTicket_openCircuit_returns503FromFallback() {
+        circuitBreakerRegistry.circuitBreaker("flightServiceBreaker").transitionToOpenState();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, bookingService.bookTicket(1L, request).getStatusCode());
+        verify(bookingInterface, never()).getFlightById(1L);
+    }
+}
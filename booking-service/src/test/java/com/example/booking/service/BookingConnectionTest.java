@@ -0,0 +1,137 @@
+package com.example.booking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.FlightDTO;
+import com.example.booking.dto.PassengerDTO;
+import com.example.booking.dto.SeatDelta;
+import com.example.booking.dto.SeatDeltaResult;
+import com.example.booking.entity.BookingStatus;
+import com.example.booking.entity.OutboxEvent;
+import com.example.booking.feign.BookingInterface;
+import com.example.booking.flight.FlightCallHedger;
+import com.example.booking.flight.FlightLookup;
+import com.example.booking.outbox.BookingOutbox;
+import com.example.booking.outbox.OutboxRelay;
+import com.example.booking.pnr.PnrGenerator;
+import com.example.booking.repository.BookingRepository;
+import com.example.booking.repository.OutboxEventRepository;
+
+// a pool of one connection, a booking waiting on FLIGHT-SERVICE must not hold it
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:connections;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.connection-timeout=1000",
+        "booking.pnr.node-id=1" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookingService.class, BookingOutbox.class, OutboxRelay.class, FlightLookup.class,
+        FlightCallHedger.class, PnrGenerator.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingConnectionTest {
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @MockBean
+    private BookingInterface bookingInterface;
+
+    @AfterEach
+    void cleanUp() {
+        outboxEventRepository.deleteAll();
+        bookingRepository.deleteAll();
+    }
+
+    private BookingRequest request() {
+        return new BookingRequest(1L, "Test User", "test@example.com", LocalDate.now().plusDays(5),
+                "1234567890", "Veg", List.of(new PassengerDTO("XXX", "Male", 30, "1A")));
+    }
+
+    private FlightDTO flight() {
+        return new FlightDTO(1L, "Air India", "AAA", "BBB", LocalDate.now().plusDays(5),
+                LocalTime.of(9, 0), LocalTime.of(11, 0), 5000.0, 100, 50);
+    }
+
+    // flight-service takes every delta it is sent
+    private void flightServiceAppliesDeltas() {
+        when(bookingInterface.applySeatDeltas(any())).thenAnswer(invocation -> {
+            List<SeatDelta> deltas = invocation.getArgument(0);
+            return deltas.stream()
+                    .map(delta -> new SeatDeltaResult(delta.getFlightId(), delta.getDelta(), true, 49, null))
+                    .toList();
+        });
+    }
+
+    // the relay needs the only connection while bookTicket waits for it
+    @Test
+    void bookTicket_doesNotHoldAConnectionDuringTheFlightServiceCall() throws Exception {
+        flightServiceAppliesDeltas();
+        CountDownLatch inFlightCall = new CountDownLatch(1);
+        CountDownLatch flightServiceAnswers = new CountDownLatch(1);
+        when(bookingInterface.getFlightById(1L)).thenAnswer(invocation -> {
+            inFlightCall.countDown();
+            flightServiceAnswers.await();
+            return flight();
+        });
+
+        CompletableFuture<ResponseEntity<String>> booking =
+                CompletableFuture.supplyAsync(() -> bookingService.bookTicket(1L, request()));
+        assertTrue(inFlightCall.await(5, TimeUnit.SECONDS));
+
+        // would time out after a second if the booking held the only connection
+        assertEquals(0, bookingRepository.count());
+
+        flightServiceAnswers.countDown();
+        ResponseEntity<String> response = booking.get(5, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(BookingStatus.CONFIRMED, bookingRepository.findById(response.getBody()).orElseThrow().getStatus());
+        verify(bookingInterface).applySeatDeltas(
+                List.of(new SeatDelta(1L, -1, List.of(response.getBody() + ":RESERVE_SEATS"), List.of("1A"))));
+    }
+
+    @Test
+    void cancelTicket_deletesBookingAndQueuesReleaseInOneTransaction() {
+        flightServiceAppliesDeltas();
+        when(bookingInterface.getFlightById(1L)).thenReturn(flight());
+        String pnr = bookingService.bookTicket(1L, request()).getBody();
+        // the release stays in the outbox for the assertions below
+        doThrow(new IllegalStateException("Flight Service is down")).when(bookingInterface).applySeatDeltas(any());
+
+        bookingService.cancelTicket(pnr);
+
+        assertEquals(0, bookingRepository.count());
+        List<OutboxEvent> events = outboxEventRepository.findAll();
+        assertEquals(1, events.size());
+        assertEquals(OutboxEvent.Type.RELEASE_SEATS, events.get(0).getType());
+        assertEquals(pnr, events.get(0).getPnr());
+        verify(bookingInterface, never()).releaseSeats(any(), any());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.booking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.FlightDTO;
+import com.example.booking.dto.PassengerDTO;
+import com.example.booking.entity.BookingStatus;
+import com.example.booking.feign.BookingInterface;
+import com.example.booking.flight.FlightCallHedger;
+import com.example.booking.flight.FlightLookup;
+import com.example.booking.outbox.BookingOutbox;
+import com.example.booking.outbox.OutboxRelay;
+import com.example.booking.pnr.PnrGenerator;
+
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+        "booking.pnr.node-id=1" })
+@Import({ BookingService.class, BookingOutbox.class, FlightLookup.class, FlightCallHedger.class,
+        PnrGenerator.class })
+class BookingInsertBatchTest {
+
+    private static final int PASSENGERS = 20;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @MockBean
+    private BookingInterface bookingInterface;
+    @MockBean
+    private OutboxRelay outboxRelay;
+
+    @Test
+    void bookTicket_insertsTwentyPassengersInOneBatch() {
+        List<PassengerDTO> passengers = new ArrayList<>();
+        for (int i = 0; i < PASSENGERS; i++) {
+            passengers.add(new PassengerDTO("Passenger " + i, "Male", 30, (i / 6 + 1) + "" + (char) ('A' + i % 6)));
+        }
+        BookingRequest request = new BookingRequest(1L, "Group Lead", "group@example.com",
+                LocalDate.now().plusDays(5), "1234567890", "Veg", passengers);
+        when(outboxRelay.awaitSettlement(any(), any()))
+                .thenReturn(new OutboxRelay.Settlement(BookingStatus.CONFIRMED, null));
+        when(bookingInterface.getFlightById(1L))
+                .thenReturn(new FlightDTO(1L, "Air India", "AAA", "BBB", LocalDate.now().plusDays(5),
+                        LocalTime.of(9, 0), LocalTime.of(11, 0), 5000.0, 100, 80));
+        // the pooled optimizer needs an extra sequence read on first use only
+        bookingService.bookTicket(1L, new BookingRequest(1L, "Warm Up", "warm@example.com",
+                LocalDate.now().plusDays(5), "1234567890", "Veg", List.of(passengers.get(0))));
+        entityManager.flush();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResponseEntity<String> response = bookingService.bookTicket(1L, request);
+        entityManager.flush();
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        // booking, passengers and the outbox event
+        assertEquals(PASSENGERS + 2, statistics.getEntityInsertCount());
+        // one sequence call each for passengers and outbox, one insert into bookings,
+        // one batch into passengers and one outbox insert, with no SELECT before the insert
+        assertEquals(5, statistics.getPrepareStatementCount());
+    }
+}
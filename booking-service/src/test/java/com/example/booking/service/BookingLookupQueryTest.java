@@ -0,0 +1,93 @@
+package com.example.booking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.example.booking.dto.BookingResponse;
+import com.example.booking.entity.Booking;
+import com.example.booking.entity.Passenger;
+import com.example.booking.feign.BookingInterface;
+import com.example.booking.flight.FlightCallHedger;
+import com.example.booking.flight.FlightLookup;
+import com.example.booking.outbox.BookingOutbox;
+import com.example.booking.outbox.OutboxRelay;
+import com.example.booking.pnr.PnrGenerator;
+
+// counts the statements Hibernate actually sends for the read paths
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+        "booking.pnr.node-id=1" })
+@Import({ BookingService.class, BookingOutbox.class, FlightLookup.class, FlightCallHedger.class,
+        PnrGenerator.class })
+class BookingLookupQueryTest {
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @MockBean
+    private BookingInterface bookingInterface;
+    @MockBean
+    private OutboxRelay outboxRelay;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        for (String pnr : List.of("PNR1", "PNR2")) {
+            Booking booking = new Booking();
+            booking.setPnr(pnr);
+            booking.setUserName("Test User");
+            booking.setUserEmail("test@example.com");
+            booking.setMobileNumber("1234567890");
+            booking.setBookingDate(LocalDateTime.now());
+            booking.setNumberOfSeats(3);
+            booking.setMealOpted("Veg");
+            booking.setTotalCost(15000.0);
+            booking.setFlightId(1L);
+            booking.setJourneyDate(LocalDate.now().plusDays(5));
+            booking.setPassengers(List.of(
+                    new Passenger(null, "XXX", "Male", 30, "1A", booking),
+                    new Passenger(null, "YYY", "Female", 28, "1B", booking),
+                    new Passenger(null, "ZZZ", "Male", 5, "1C", booking)));
+            entityManager.persist(booking);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getTicketByPnr_loadsBookingAndPassengersInOneStatement() {
+        BookingResponse response = bookingService.getTicketByPnr("PNR1");
+
+        assertEquals(3, response.getPassengers().size());
+        assertEquals("1C", response.getPassengers().stream()
+                .filter(passenger -> passenger.getName().equals("ZZZ")).findFirst().orElseThrow().getSeatNumber());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    void getBookingHistoryByEmail_loadsPassengersOfAllBookingsInOneStatement() {
+        List<Booking> history = bookingService.getBookingHistoryByEmail("test@example.com");
+
+        assertEquals(2, history.size());
+        history.forEach(booking -> assertEquals(3, booking.getPassengers().size()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
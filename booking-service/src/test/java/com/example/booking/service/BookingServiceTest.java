@@ -2,42 +2,68 @@ package com.example.booking.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import com.example.booking.dto.BookingHistoryPage;
 import com.example.booking.dto.BookingRequest;
+import com.example.booking.dto.BookingSummaryDTO;
 import com.example.booking.dto.FlightDTO;
 import com.example.booking.dto.PassengerDTO;
 import com.example.booking.entity.Booking;
+import com.example.booking.entity.BookingStatus;
+import com.example.booking.entity.Passenger;
 import com.example.booking.exception.BookingNotFoundException;
 import com.example.booking.exception.CancellationNotPossibleException;
 import com.example.booking.exception.FlightUnavailableException;
-import com.example.booking.feign.BookingInterface;
+import com.example.booking.flight.FlightLookup;
+import com.example.booking.outbox.BookingOutbox;
+import com.example.booking.outbox.OutboxRelay;
+import com.example.booking.pnr.PnrGenerator;
 import com.example.booking.repository.BookingRepository;
 
+import feign.FeignException;
+import feign.Request;
+
 @ExtendWith(MockitoExtension.class)
 class BookingServiceTest {
 
     @Mock
     private BookingRepository bookingRepository;
     @Mock
-    private BookingInterface bookingInterface;
+    private FlightLookup flightLookup;
+    @Spy
+    private PnrGenerator pnrGenerator = new PnrGenerator(1);
+    @Mock
+    private BookingOutbox bookingOutbox;
+    @Mock
+    private OutboxRelay outboxRelay;
     @InjectMocks
     private BookingService bookingService;
     private BookingRequest bookingRequest;
@@ -60,32 +86,90 @@ class BookingServiceTest {
     }
 
     @Test
-    void bookTicket_successfulBooking_returnsPNR() {
-        when(bookingInterface.getFlightById(1L)).thenReturn(flightDto);
-        when(bookingRepository.save(any(Booking.class)))
-                .thenAnswer(i -> i.getArgument(0));
+    void bookTicket_successfulBooking_returns201OnceTheRelayConfirmsIt() {
+        when(flightLookup.getFlight(1L)).thenReturn(flightDto);
+        when(outboxRelay.awaitSettlement(any(), any()))
+                .thenReturn(new OutboxRelay.Settlement(BookingStatus.CONFIRMED, null));
         ResponseEntity<String> response =
                 bookingService.bookTicket(1L, bookingRequest);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody()); 
-        verify(bookingInterface).updateFlightInventory(any());
-        verify(bookingRepository).save(any());
+        ArgumentCaptor<Booking> booking = ArgumentCaptor.forClass(Booking.class);
+        verify(bookingOutbox).saveAndReserve(booking.capture());
+        assertEquals(response.getBody(), booking.getValue().getPnr());
+        assertEquals(BookingStatus.PENDING, booking.getValue().getStatus());
+        assertEquals(10000.0, booking.getValue().getTotalCost());
+        verify(outboxRelay).awaitSettlement(eq(response.getBody()), any());
+        verify(bookingRepository, never()).save(any());
+    }
+
+    @Test
+    void bookTicket_rejectedByFlightService_returns409AndLeavesNoBooking() {
+        when(flightLookup.getFlight(1L)).thenReturn(flightDto);
+        when(outboxRelay.awaitSettlement(any(), any())).thenReturn(new OutboxRelay.Settlement(
+                BookingStatus.REJECTED, "Insufficient seats available. Requested: 2"));
+
+        ResponseEntity<String> response = bookingService.bookTicket(1L, bookingRequest);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("Insufficient seats available. Requested: 2", response.getBody());
+        ArgumentCaptor<Booking> booking = ArgumentCaptor.forClass(Booking.class);
+        verify(bookingOutbox).saveAndReserve(booking.capture());
+        verify(bookingOutbox).delete(booking.getValue());
+    }
+
+    @Test
+    void bookTicket_notSettledInTime_returns202WithPnrOfPendingBooking() {
+        when(flightLookup.getFlight(1L)).thenReturn(flightDto);
+        when(outboxRelay.awaitSettlement(any(), any()))
+                .thenReturn(new OutboxRelay.Settlement(BookingStatus.PENDING, null));
+
+        ResponseEntity<String> response = bookingService.bookTicket(1L, bookingRequest);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNotNull(response.getBody());
+        verify(bookingOutbox, never()).delete(any());
+    }
+
+    @Test
+    void currentOutcome_acceptedBooking_followsItsStatus() {
+        ResponseEntity<String> accepted = new ResponseEntity<>("PNR1", HttpStatus.ACCEPTED);
+
+        when(bookingRepository.findStatusByPnr("PNR1")).thenReturn(Optional.of(BookingStatus.PENDING));
+        assertEquals(accepted, bookingService.currentOutcome(accepted));
+        when(bookingRepository.findStatusByPnr("PNR1")).thenReturn(Optional.of(BookingStatus.CONFIRMED));
+        assertEquals(new ResponseEntity<>("PNR1", HttpStatus.CREATED), bookingService.currentOutcome(accepted));
+        when(bookingRepository.findStatusByPnr("PNR1")).thenReturn(Optional.of(BookingStatus.REJECTED));
+        assertEquals(HttpStatus.CONFLICT, bookingService.currentOutcome(accepted).getStatusCode());
     }
 
     @Test
     void bookTicket_insufficientSeats_throwsException() {
-        flightDto.setAvailableSeats(1); // but request needs 2 seats
-        when(bookingInterface.getFlightById(1L)).thenReturn(flightDto);
-        assertThrows(
+        flightDto.setAvailableSeats(1);
+        when(flightLookup.getFlight(1L)).thenReturn(flightDto);
+        FlightUnavailableException ex = assertThrows(
                 FlightUnavailableException.class,
                 () -> bookingService.bookTicket(1L, bookingRequest)
         );
+        assertEquals("Insufficient seats available. Requested: 2, Available: 1", ex.getMessage());
+        verify(bookingOutbox, never()).saveAndReserve(any());
+    }
+
+    @Test
+    void bookTicket_flightServiceError_returns503() {
+        Request request = Request.create(Request.HttpMethod.GET, "/api/v1.0/flight/1",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        when(flightLookup.getFlight(1L))
+                .thenThrow(new FeignException.ServiceUnavailable("Unavailable", request, null, Map.of()));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, bookingService.bookTicket(1L, bookingRequest).getStatusCode());
+        verify(bookingOutbox, never()).saveAndReserve(any());
     }
 
     @Test
     void getTicketByPnr_notFound_throwsException() {
-        when(bookingRepository.findByPnr("ABC123"))
+        when(bookingRepository.findWithPassengersByPnr("ABC123"))
                 .thenReturn(Optional.empty());
         assertThrows(
                 BookingNotFoundException.class,
@@ -111,14 +195,46 @@ class BookingServiceTest {
         booking.setJourneyDate(LocalDate.now().plusDays(3));
         booking.setNumberOfSeats(2);
 
-        when(bookingRepository.findByPnr("PNR123"))
+        when(bookingRepository.findWithPassengersByPnr("PNR123"))
+                .thenReturn(Optional.of(booking));
+        when(flightLookup.getFlightDetails(1L))
+                .thenReturn(flightDto);
+        bookingService.cancelTicket("PNR123");
+
+        verify(bookingOutbox).deleteAndRelease(booking);
+    }
+
+    @Test
+    void cancelTicket_pendingBooking_queuesReleaseLikeAConfirmedOne() {
+        Booking booking = new Booking();
+        booking.setPnr("PNR123");
+        booking.setFlightId(1L);
+        booking.setJourneyDate(LocalDate.now().plusDays(3));
+        booking.setNumberOfSeats(2);
+        booking.setStatus(BookingStatus.PENDING);
+        when(bookingRepository.findWithPassengersByPnr("PNR123"))
                 .thenReturn(Optional.of(booking));
-        when(bookingInterface.getFlightById(1L))
+        when(flightLookup.getFlightDetails(1L))
                 .thenReturn(flightDto);
+
+        bookingService.cancelTicket("PNR123");
+
+        verify(bookingOutbox).deleteAndRelease(booking);
+    }
+
+    @Test
+    void cancelTicket_rejectedBooking_deletesWithoutReleasingSeats() {
+        Booking booking = new Booking();
+        booking.setPnr("PNR123");
+        booking.setStatus(BookingStatus.REJECTED);
+        when(bookingRepository.findWithPassengersByPnr("PNR123"))
+                .thenReturn(Optional.of(booking));
+
         bookingService.cancelTicket("PNR123");
 
-        verify(bookingRepository).delete(booking);
-        verify(bookingInterface).updateFlightInventory(any());
+        verify(bookingOutbox).delete(booking);
+        verify(bookingOutbox, never()).deleteAndRelease(any());
+        verify(flightLookup, never()).getFlightDetails(any());
     }
     
     @Test
@@ -127,17 +243,68 @@ class BookingServiceTest {
         Booking booking = new Booking();
         booking.setPnr("PNR123");
         booking.setFlightId(1L);
-        booking.setJourneyDate(LocalDate.now().plusDays(1)); 
+        LocalDateTime departure = LocalDateTime.now().plusHours(10);
+        booking.setJourneyDate(departure.toLocalDate()); 
         booking.setNumberOfSeats(1);
 
-        when(bookingRepository.findByPnr("PNR123"))
+        when(bookingRepository.findWithPassengersByPnr("PNR123"))
                 .thenReturn(Optional.of(booking));
-        flightDto.setDepartureTime(LocalTime.now().plusHours(10));
-        when(bookingInterface.getFlightById(1L))
+        flightDto.setDepartureTime(departure.toLocalTime());
+        when(flightLookup.getFlightDetails(1L))
                 .thenReturn(flightDto);
         assertThrows(
                 CancellationNotPossibleException.class,
                 () -> bookingService.cancelTicket("PNR123")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void getBookingHistoryPage_moreRows_returnsCursorOfLastRow() {
+        LocalDateTime now = LocalDateTime.now();
+        BookingSummaryDTO first = summary("PNR3", now);
+        BookingSummaryDTO second = summary("PNR2", now.minusDays(1));
+        when(bookingRepository.findHistoryFirstPage("x@y.com", PageRequest.of(0, 3)))
+                .thenReturn(List.of(first, second, summary("PNR1", now.minusDays(2))));
+
+        BookingHistoryPage page = bookingService.getBookingHistoryPage("x@y.com", null, 2, false);
+
+        assertEquals(List.of(first, second), page.getBookings());
+        assertNotNull(page.getNextCursor());
+
+        when(bookingRepository.findHistoryPageAfter("x@y.com", second.getBookingDate(), "PNR2",
+                PageRequest.of(0, 3))).thenReturn(List.of(summary("PNR1", now.minusDays(2))));
+        BookingHistoryPage next = bookingService.getBookingHistoryPage("x@y.com", page.getNextCursor(), 2, false);
+
+        assertEquals(1, next.getBookings().size());
+        assertNull(next.getNextCursor());
+        verify(bookingRepository, never()).findWithPassengersByPnrIn(any());
+    }
+
+    @Test
+    void getBookingHistoryPage_expandPassengers_loadsThemInOneQuery() {
+        BookingSummaryDTO summary = summary("PNR1", LocalDateTime.now());
+        when(bookingRepository.findHistoryFirstPage("x@y.com", PageRequest.of(0, 21)))
+                .thenReturn(List.of(summary));
+        Booking booking = new Booking();
+        booking.setPnr("PNR1");
+        booking.setPassengers(List.of(new Passenger(1L, "XXX", "Male", 30, "1A", booking)));
+        when(bookingRepository.findWithPassengersByPnrIn(Set.of("PNR1"))).thenReturn(List.of(booking));
+
+        BookingHistoryPage page = bookingService.getBookingHistoryPage("x@y.com", null, 20, true);
+
+        assertEquals(List.of(new PassengerDTO("XXX", "Male", 30, "1A")),
+                page.getBookings().get(0).getPassengers());
+    }
+
+    @Test
+    void getBookingHistoryPage_invalidCursorOrSize_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bookingService.getBookingHistoryPage("x@y.com", "not-a-cursor", 20, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> bookingService.getBookingHistoryPage("x@y.com", null, 101, false));
+    }
+
+    private BookingSummaryDTO summary(String pnr, LocalDateTime bookingDate) {
+        return new BookingSummaryDTO(pnr, 1L, LocalDate.now().plusDays(5), bookingDate, 1, "Veg", 5000.0);
+    }
+}
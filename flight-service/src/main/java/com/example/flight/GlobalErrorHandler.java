@@ -11,7 +11,10 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.example.flight.exception.DeadlineExceededException;
 import com.example.flight.exception.FlightNotFoundException;
+import com.example.flight.exception.HoldNotFoundException;
+import com.example.flight.exception.SeatsUnavailableException;
 
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
@@ -55,4 +58,22 @@ public class GlobalErrorHandler {
         
 		return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
-}
+	
+	@ExceptionHandler(SeatsUnavailableException.class)
+    public ResponseEntity<String> handleSeatsUnavailableException(SeatsUnavailableException ex) {
+        // 409 Conflict, the inventory changed under the caller
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+	
+	@ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<String> handleDeadlineExceededException(DeadlineExceededException ex) {
+        // 504 Gateway Timeout, the caller stopped waiting and the work was abandoned
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+    }
+	
+	@ExceptionHandler(HoldNotFoundException.class)
+    public ResponseEntity<String> handleHoldNotFoundException(HoldNotFoundException ex) {
+        // 404 Not Found, the hold was confirmed, released or has expired
+		return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.flight;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// kept off the application class, so test slices that pick up a component with
+// a scheduled job do not run it behind the test's back
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
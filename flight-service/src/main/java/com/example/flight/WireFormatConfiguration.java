@@ -0,0 +1,31 @@
+package com.example.flight;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+// Smile, binary JSON, for internal callers that ask for application/x-jackson-smile
+// in Accept or Content-Type. It goes after the default converters so JSON stays
+// the answer to browsers and curl, which accept anything.
+@Configuration
+public class WireFormatConfiguration implements WebMvcConfigurer {
+
+	private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+	// the builder Spring Boot configures for JSON, dates and spring.jackson.* settings included
+	public WireFormatConfiguration(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		this.objectMapperBuilder = objectMapperBuilder;
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new MappingJackson2SmileHttpMessageConverter(
+				objectMapperBuilder.factory(new SmileFactory()).build()));
+	}
+}
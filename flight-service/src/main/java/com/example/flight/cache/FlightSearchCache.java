@@ -0,0 +1,117 @@
+package com.example.flight.cache;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.flight.dto.FlightDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded, time limited cache of search results keyed by route and date.
+ * Every change to a flight patches the cached result of its route and date,
+ * so a sold-out flight drops out of the results straight away instead of
+ * waiting for the entry to expire.
+ */
+@Component
+public class FlightSearchCache {
+
+	public static final String CACHE_NAME = "flightSearch";
+
+	private final Cache<SearchKey, List<FlightDTO>> cache;
+	private Counter patches;
+
+	public FlightSearchCache(@Value("${flight.search.cache.max-size:10000}") long maxSize,
+			@Value("${flight.search.cache.ttl-seconds:30}") long ttlSeconds) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.recordStats()
+				.build();
+	}
+
+	// hit, miss and eviction counts show up under cache.gets and cache.evictions
+	@Autowired(required = false)
+	public void bindMetrics(MeterRegistry meterRegistry) {
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+		patches = Counter.builder("flight.search.cache.patches")
+				.description("Cached search results patched after an inventory change")
+				.register(meterRegistry);
+	}
+
+	// null on a miss
+	public List<FlightDTO> getIfPresent(String fromPlace, String toPlace, LocalDate scheduleDate) {
+		return cache.getIfPresent(new SearchKey(fromPlace, toPlace, scheduleDate));
+	}
+
+	// concurrent misses of one key run the loader once and all get its result,
+	// or its exception
+	public List<FlightDTO> get(String fromPlace, String toPlace, LocalDate scheduleDate,
+			Supplier<List<FlightDTO>> loader) {
+		return cache.get(new SearchKey(fromPlace, toPlace, scheduleDate),
+				key -> List.copyOf(loader.get()));
+	}
+
+	// replaces the flight in the cached result of its route, or removes it once
+	// it has no seats left, new flights are appended
+	public void flightChanged(FlightDTO flight) {
+		if (flight.getFromPlace() == null || flight.getToPlace() == null || flight.getScheduleDate() == null) {
+			return;
+		}
+		SearchKey key = new SearchKey(flight.getFromPlace(), flight.getToPlace(), flight.getScheduleDate());
+		cache.asMap().computeIfPresent(key, (k, flights) -> {
+			List<FlightDTO> patched = new ArrayList<>(flights.size() + 1);
+			boolean replaced = false;
+			for (FlightDTO cached : flights) {
+				if (!cached.getId().equals(flight.getId())) {
+					patched.add(cached);
+				} else if (flight.getAvailableSeats() > 0) {
+					patched.add(flight);
+					replaced = true;
+				} else {
+					replaced = true;
+				}
+			}
+			if (!replaced && flight.getAvailableSeats() > 0) {
+				patched.add(flight);
+			}
+			if (patches != null) {
+				patches.increment();
+			}
+			return List.copyOf(patched);
+		});
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public long size() {
+		return cache.estimatedSize();
+	}
+
+	// runs pending size and expiry evictions now instead of on the next access
+	public void cleanUp() {
+		cache.cleanUp();
+	}
+
+	// places are matched case-insensitively by the database, so the key is too
+	private record SearchKey(String fromPlace, String toPlace, LocalDate scheduleDate) {
+		private SearchKey {
+			fromPlace = fromPlace.trim().toUpperCase(Locale.ROOT);
+			toPlace = toPlace.trim().toUpperCase(Locale.ROOT);
+		}
+	}
+}
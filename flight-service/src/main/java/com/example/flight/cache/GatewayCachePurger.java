@@ -0,0 +1,122 @@
+package com.example.flight.cache;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.example.flight.dto.FlightDTO;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Tells every api-gateway instance which flights changed, so the gateway drops
+ * its cached flight and search responses for them instead of serving them until
+ * they expire. Changes are coalesced per flight and sent every interval-millis as
+ * one POST /internal/cache/purge per gateway. A purge that does not arrive only
+ * leaves the gateway on its short TTL, so failures are logged and not retried.
+ * The gateway refuses purges without its token, purging does not start without
+ * flight.gateway-cache.purge-token either.
+ */
+@Component
+@ConditionalOnProperty(name = "flight.gateway-cache.purge-enabled", havingValue = "true")
+public class GatewayCachePurger {
+
+	private static final Logger log = LoggerFactory.getLogger(GatewayCachePurger.class);
+
+	static final String PURGE_PATH = "/internal/cache/purge";
+	static final String TOKEN_HEADER = "X-Purge-Token";
+
+	private final DiscoveryClient discoveryClient;
+	private final RestClient restClient;
+	private final String gatewayServiceId;
+	private final String purgeToken;
+	private final Map<Long, Purge> pending = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "gateway-cache-purge");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public GatewayCachePurger(DiscoveryClient discoveryClient, RestClient.Builder restClientBuilder,
+			@Value("${flight.gateway-cache.service-id:API-GATEWAY}") String gatewayServiceId,
+			@Value("${flight.gateway-cache.purge-token:#{null}}") String purgeToken,
+			@Value("${flight.gateway-cache.interval-millis:200}") long intervalMillis) {
+		if (purgeToken == null || purgeToken.isBlank()) {
+			throw new IllegalStateException("flight.gateway-cache.purge-token is not set. Set it to the "
+					+ "gateway.cache.purge-token of api-gateway, or set flight.gateway-cache.purge-enabled=false.");
+		}
+		this.discoveryClient = discoveryClient;
+		this.restClient = restClientBuilder.build();
+		this.gatewayServiceId = gatewayServiceId;
+		this.purgeToken = purgeToken;
+		sender.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public void flightChanged(FlightDTO flight) {
+		// the latest route wins, a flight moved to another date purges the new route only,
+		// the old one is left to the gateway TTL
+		pending.put(flight.getId(),
+				new Purge(flight.getId(), flight.getFromPlace(), flight.getToPlace(), flight.getScheduleDate()));
+	}
+
+	// an exception escaping the task would cancel every later run of it
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			log.warn("Purging the gateway caches failed: {}", e.getMessage());
+		}
+	}
+
+	void flush() {
+		if (pending.isEmpty()) {
+			return;
+		}
+		List<Purge> purges = new ArrayList<>(pending.size());
+		for (Long flightId : pending.keySet()) {
+			Purge purge = pending.remove(flightId);
+			if (purge != null) {
+				purges.add(purge);
+			}
+		}
+		for (ServiceInstance gateway : discoveryClient.getInstances(gatewayServiceId)) {
+			try {
+				restClient.post()
+						.uri(gateway.getUri().resolve(PURGE_PATH))
+						.contentType(MediaType.APPLICATION_JSON)
+						.header(TOKEN_HEADER, purgeToken)
+						.body(purges)
+						.retrieve()
+						.toBodilessEntity();
+			} catch (RestClientException e) {
+				log.warn("Could not purge {} flights from gateway {}: {}", purges.size(), gateway.getUri(),
+						e.getMessage());
+			}
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		sender.shutdownNow();
+	}
+
+	record Purge(Long flightId, String fromPlace, String toPlace, LocalDate scheduleDate) {
+	}
+}
@@ -1,10 +1,15 @@
 package com.example.flight.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -14,12 +19,24 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.flight.dto.BulkFlightResult;
+import com.example.flight.dto.BulkIngestResponse;
 import com.example.flight.dto.FlightDTO;
+import com.example.flight.dto.FlightRangeSearchRequest;
 import com.example.flight.dto.FlightSearchRequest;
-import com.example.flight.entity.Flight;
+import com.example.flight.dto.SeatDelta;
+import com.example.flight.dto.SeatDeltaResult;
+import com.example.flight.dto.SeatReservationRequest;
 import com.example.flight.service.FlightService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @RestController
@@ -28,6 +45,17 @@ public class FlightController {
 	
 	@Autowired
     FlightService flightService;
+	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	private static final int STREAM_FLUSH_INTERVAL = 64;
+	
+	@Value("${flight.ingest.batch-size:500}")
+	int ingestBatchSize;
+	
+	@Value("${flight.inventory.max-seat-deltas:1000}")
+	int maxSeatDeltas;
 
     @PostMapping("/airline/inventory/add")
     public ResponseEntity<Long> addFlightInventory(@Valid @RequestBody FlightDTO flightDto) {
@@ -37,10 +65,53 @@ public class FlightController {
         return new ResponseEntity<>(savedFlight, HttpStatus.CREATED);
     }
     
+    // accepts a JSON array or newline delimited JSON, the body is read one flight
+    // at a time and inserted in batches, so its size does not matter
+    @PostMapping(value = "/airline/inventory/bulk", 
+    		consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<BulkIngestResponse> addFlightInventoryBulk(HttpServletRequest request) throws IOException {
+        
+        List<BulkFlightResult> results = new ArrayList<>();
+        List<FlightDTO> batch = new ArrayList<>(ingestBatchSize);
+        int row = 0;
+        
+        try(MappingIterator<FlightDTO> flights = objectMapper.readerFor(FlightDTO.class)
+        		.readValues(request.getInputStream())) {
+            while(true) {
+                try {
+                    if(!flights.hasNextValue()) {
+                        break;
+                    }
+                    batch.add(flights.nextValue());
+                } catch(JsonProcessingException e) {
+                    // the parser cannot find the next record after malformed input, stop here
+                    results.addAll(flightService.addFlights(batch, row - batch.size()));
+                    batch = new ArrayList<>();
+                    results.add(new BulkFlightResult(row, false, null, 
+                    		"Malformed record: " + e.getOriginalMessage()));
+                    break;
+                }
+                row++;
+                if(batch.size() == ingestBatchSize) {
+                    results.addAll(flightService.addFlights(batch, row - batch.size()));
+                    batch = new ArrayList<>(ingestBatchSize);
+                }
+            }
+        }
+        if(!batch.isEmpty()) {
+            results.addAll(flightService.addFlights(batch, row - batch.size()));
+        }
+        
+        int accepted = (int) results.stream().filter(BulkFlightResult::isAccepted).count();
+        
+        return new ResponseEntity<>(new BulkIngestResponse(accepted, results.size() - accepted, results), 
+        		HttpStatus.OK);
+    }
+    
     @PostMapping("/search")
     public ResponseEntity<List<FlightDTO>> searchFlights(@Valid @RequestBody FlightSearchRequest request) {
         
-        List<Flight> matchingFlights = flightService.searchFlights(
+        List<FlightDTO> matchingFlights = flightService.searchFlights(
                 request.getFromPlace(),
                 request.getToPlace(),
                 request.getJourneyDate()
@@ -56,28 +127,41 @@ public class FlightController {
                 );
         }
         
-        List<FlightDTO> flightDtos = matchingFlights.stream()
-                .map(this::flightEntityToDto)
-                .collect(Collectors.toList());
-
-        return new ResponseEntity<>(flightDtos, HttpStatus.OK);
+        return new ResponseEntity<>(matchingFlights, HttpStatus.OK);
     }
     
-    private FlightDTO flightEntityToDto(Flight flight) {
-    	FlightDTO flightDto = new FlightDTO();
-    	
-    	flightDto.setId(flight.getId());
-    	flightDto.setAirlineName(flight.getAirlineName());
-    	flightDto.setArrivalTime(flight.getArrivalTime());
-    	flightDto.setDepartureTime(flight.getDepartureTime());
-    	flightDto.setPrice(flight.getPrice());
-    	flightDto.setScheduleDate(flight.getScheduleDate());
-    	flightDto.setFromPlace(flight.getFromPlace());
-    	flightDto.setToPlace(flight.getToPlace());
-    	flightDto.setTotalSeats(flight.getTotalSeats());
-    	flightDto.setAvailableSeats(flight.getAvailableSeats());
-    	
-    	return flightDto;
+    // flexible date search, every match is written as one JSON line as soon as the
+    // database returns it, so memory stays flat however many flights match
+    @PostMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFlights(
+    		@Valid @RequestBody FlightRangeSearchRequest request) {
+        
+        StreamingResponseBody body = outputStream -> {
+            try(SequenceWriter writer = objectMapper.writer()
+            		.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            		.withRootValueSeparator("\n")
+            		.writeValues(outputStream)) {
+                AtomicInteger written = new AtomicInteger();
+                flightService.streamFlights(request, flightDto -> {
+                    try {
+                        writer.write(flightDto);
+                        // first line goes out at once, then in chunks
+                        if(written.getAndIncrement() % STREAM_FLUSH_INTERVAL == 0) {
+                            writer.flush();
+                        }
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                // the separator only goes between values, end the last line too
+                if(written.get() > 0) {
+                    writer.flush();
+                    outputStream.write('\n');
+                }
+            }
+        };
+        
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
     
     @GetMapping("/{flightId}")
@@ -100,4 +184,35 @@ public class FlightController {
         
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
-}
\ No newline at end of file
+    
+    @PutMapping("/{flightId}/reserve")
+    public ResponseEntity<FlightDTO> reserveSeats(
+    		@PathVariable Long flightId, 
+    		@Valid @RequestBody SeatReservationRequest request) {
+        
+        FlightDTO flightDto = flightService.reserveSeats(flightId, request.getNumberOfSeats());
+        
+        return new ResponseEntity<>(flightDto, HttpStatus.OK);
+    }
+    
+    @PutMapping("/{flightId}/release")
+    public ResponseEntity<FlightDTO> releaseSeats(
+    		@PathVariable Long flightId, 
+    		@Valid @RequestBody SeatReservationRequest request) {
+        
+        FlightDTO flightDto = flightService.releaseSeats(flightId, request.getNumberOfSeats());
+        
+        return new ResponseEntity<>(flightDto, HttpStatus.OK);
+    }
+    
+    // seat changes of many bookings and flights in one request, applied in order
+    // in one transaction, every delta gets its own result
+    @PutMapping("/inventory/deltas")
+    public ResponseEntity<List<SeatDeltaResult>> applySeatDeltas(@RequestBody List<SeatDelta> deltas) {
+        if(deltas.size() > maxSeatDeltas) {
+            throw new IllegalArgumentException("At most " + maxSeatDeltas + " seat deltas per request.");
+        }
+        
+        return new ResponseEntity<>(flightService.applySeatDeltas(deltas), HttpStatus.OK);
+    }
+}
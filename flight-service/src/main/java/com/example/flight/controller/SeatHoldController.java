@@ -0,0 +1,51 @@
+package com.example.flight.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.flight.dto.SeatHoldDTO;
+import com.example.flight.dto.SeatReservationRequest;
+import com.example.flight.service.SeatHoldService;
+
+import jakarta.validation.Valid;
+
+@RestController
+@RequestMapping("/api/v1.0/flight")
+public class SeatHoldController {
+
+	@Autowired
+	SeatHoldService seatHoldService;
+	
+	// seats stay held until confirmed or released, or until flight.hold.ttl-seconds pass
+	@PostMapping("/{flightId}/holds")
+	public ResponseEntity<SeatHoldDTO> holdSeats(
+			@PathVariable Long flightId, 
+			@Valid @RequestBody SeatReservationRequest request) {
+		
+		SeatHoldDTO hold = seatHoldService.holdSeats(flightId, request.getNumberOfSeats());
+		
+		return new ResponseEntity<>(hold, HttpStatus.CREATED);
+	}
+	
+	@PutMapping("/holds/{holdId}/confirm")
+	public ResponseEntity<SeatHoldDTO> confirmHold(@PathVariable String holdId) {
+		
+		return new ResponseEntity<>(seatHoldService.confirmHold(holdId), HttpStatus.OK);
+	}
+	
+	@DeleteMapping("/holds/{holdId}")
+	public ResponseEntity<String> releaseHold(@PathVariable String holdId) {
+		
+		seatHoldService.releaseHold(holdId);
+		
+		return new ResponseEntity<>("Seat hold " + holdId + " released.", HttpStatus.OK);
+	}
+}
@@ -0,0 +1,78 @@
+package com.example.flight.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.flight.dto.SeatClaimRequest;
+import com.example.flight.dto.SeatMapDTO;
+import com.example.flight.dto.SeatMapLayoutRequest;
+import com.example.flight.dto.SeatReservationRequest;
+import com.example.flight.service.SeatMapService;
+
+import jakarta.validation.Valid;
+
+@RestController
+@RequestMapping("/api/v1.0/flight/{flightId}/seatmap")
+public class SeatMapController {
+
+	@Autowired
+	SeatMapService seatMapService;
+	
+	@PutMapping
+	public ResponseEntity<SeatMapDTO> createSeatMap(
+			@PathVariable Long flightId, 
+			@Valid @RequestBody SeatMapLayoutRequest request) {
+		
+		SeatMapDTO seatMap = seatMapService.createSeatMap(flightId, request.getRows(), request.getColumns());
+		
+		return new ResponseEntity<>(seatMap, HttpStatus.CREATED);
+	}
+	
+	@GetMapping
+	public ResponseEntity<SeatMapDTO> getSeatMap(@PathVariable Long flightId) {
+		
+		return new ResponseEntity<>(seatMapService.getSeatMap(flightId), HttpStatus.OK);
+	}
+	
+	// all or nothing, 409 names the seats that are already taken
+	@PostMapping("/claim")
+	public ResponseEntity<List<String>> claimSeats(
+			@PathVariable Long flightId, 
+			@Valid @RequestBody SeatClaimRequest request) {
+		
+		List<String> seats = seatMapService.claimSeats(flightId, request.getSeats());
+		
+		return new ResponseEntity<>(seats, HttpStatus.OK);
+	}
+	
+	// claims the best block of adjacent seats for a group and returns them
+	@PostMapping("/auto-assign")
+	public ResponseEntity<List<String>> autoAssignSeats(
+			@PathVariable Long flightId, 
+			@Valid @RequestBody SeatReservationRequest request) {
+		
+		List<String> seats = seatMapService.autoAssignSeats(flightId, request.getNumberOfSeats());
+		
+		return new ResponseEntity<>(seats, HttpStatus.OK);
+	}
+	
+	@PostMapping("/release")
+	public ResponseEntity<List<String>> releaseSeats(
+			@PathVariable Long flightId, 
+			@Valid @RequestBody SeatClaimRequest request) {
+		
+		List<String> seats = seatMapService.releaseSeats(flightId, request.getSeats());
+		
+		return new ResponseEntity<>(seats, HttpStatus.OK);
+	}
+}
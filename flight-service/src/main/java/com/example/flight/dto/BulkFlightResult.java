@@ -0,0 +1,16 @@
+package com.example.flight.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkFlightResult {
+	// position of the record in the uploaded body, starting at 0
+	private int row;
+	private boolean accepted;
+	private Long id;
+	private String error;
+}
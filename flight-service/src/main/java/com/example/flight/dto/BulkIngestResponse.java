@@ -0,0 +1,16 @@
+package com.example.flight.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestResponse {
+	private int accepted;
+	private int rejected;
+	private List<BulkFlightResult> results;
+}
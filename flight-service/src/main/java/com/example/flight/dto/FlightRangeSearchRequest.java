@@ -0,0 +1,54 @@
+package com.example.flight.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightRangeSearchRequest {
+
+    public static final int MAX_RANGE_DAYS = 92;
+
+    @Valid
+    @NotEmpty(message = "At least one route is required.")
+    @Size(max = 20, message = "At most 20 routes can be searched at once.")
+    private List<Route> routes;
+
+    @NotNull
+    private LocalDate fromDate;
+    @NotNull
+    private LocalDate toDate;
+
+    // optional filters, a null value means no limit
+    @Min(value = 0, message = "Price cannot be negative.")
+    private Double minPrice;
+    @Min(value = 0, message = "Price cannot be negative.")
+    private Double maxPrice;
+    private LocalTime departureAfter;
+    private LocalTime departureBefore;
+
+    @JsonIgnore
+    @AssertTrue(message = "toDate must not be before fromDate and the range must not exceed " 
+            + MAX_RANGE_DAYS + " days.")
+    public boolean isDateRangeValid() {
+        if (fromDate == null || toDate == null) {
+            return true;
+        }
+        return !toDate.isBefore(fromDate) && ChronoUnit.DAYS.between(fromDate, toDate) < MAX_RANGE_DAYS;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.flight.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Route {
+    @NotBlank
+    private String fromPlace;
+    @NotBlank
+    private String toPlace;
+}
@@ -0,0 +1,17 @@
+package com.example.flight.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatClaimRequest {
+	@NotEmpty(message = "At least one seat is required.")
+	private List<@NotBlank String> seats;
+}
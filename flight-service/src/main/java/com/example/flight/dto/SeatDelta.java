@@ -0,0 +1,38 @@
+package com.example.flight.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a change to the seats left on a flight, negative takes seats, positive gives them back
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatDelta {
+	private Long flightId;
+	private int delta;
+	// ids of the booking changes summed into the delta, flight-service records
+	// them with the delta and applies a delta whose changes it has seen only once
+	private List<String> changeIds = List.of();
+	// seats of the passengers, claimed with a reservation and freed with a
+	// release on flights that have a seat map
+	private List<String> seats = List.of();
+
+	public SeatDelta(Long flightId, int delta) {
+		this(flightId, delta, List.of(), List.of());
+	}
+
+	public SeatDelta(Long flightId, int delta, List<String> changeIds) {
+		this(flightId, delta, changeIds, List.of());
+	}
+
+	public void setChangeIds(List<String> changeIds) {
+		this.changeIds = changeIds == null ? List.of() : changeIds;
+	}
+
+	public void setSeats(List<String> seats) {
+		this.seats = seats == null ? List.of() : seats;
+	}
+}
@@ -0,0 +1,28 @@
+package com.example.flight.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+// error is left out of applied results
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatDeltaResult {
+	private Long flightId;
+	private int delta;
+	private boolean applied;
+	// seats left once the whole batch was applied, null for an unknown flight
+	private Integer availableSeats;
+	private String error;
+	// nothing was done because the delta is being applied by another request,
+	// it is neither applied nor refused and is to be sent again later
+	private boolean retryable;
+
+	public SeatDeltaResult(Long flightId, int delta, boolean applied, Integer availableSeats, String error) {
+		this(flightId, delta, applied, availableSeats, error, false);
+	}
+}
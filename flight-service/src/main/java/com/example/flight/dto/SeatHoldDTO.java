@@ -0,0 +1,17 @@
+package com.example.flight.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHoldDTO {
+	private String holdId;
+	private Long flightId;
+	private Integer numberOfSeats;
+	private Instant expiresAt;
+}
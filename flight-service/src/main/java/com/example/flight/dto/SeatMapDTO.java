@@ -0,0 +1,19 @@
+package com.example.flight.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapDTO {
+	private Long flightId;
+	private Integer rows;
+	private String columns;
+	private Integer totalSeats;
+	private Integer freeSeats;
+	private List<String> occupiedSeats;
+}
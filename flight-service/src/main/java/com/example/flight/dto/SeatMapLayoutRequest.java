@@ -0,0 +1,21 @@
+package com.example.flight.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapLayoutRequest {
+	@NotNull
+	@Min(value = 1, message = "A seat map needs at least one row.")
+	private Integer rows;
+	
+	@NotNull
+	@Pattern(regexp = "[A-Z]+(-[A-Z]+)*", message = "Seat columns must be letters with '-' for aisles, e.g. ABC-DEF.")
+	private String columns;
+}
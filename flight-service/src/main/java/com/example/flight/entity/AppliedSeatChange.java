@@ -0,0 +1,28 @@
+package com.example.flight.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a booking change that has been applied to a flight's seats, written in the same
+// transaction as the seat update so that a delta sent again is recognised
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "applied_seat_changes", indexes = @Index(name = "idx_applied_seat_changes_applied_at", columnList = "appliedAt"))
+public class AppliedSeatChange {
+
+	@Id
+	private String changeId;
+	
+	private Long flightId;
+	
+	private Instant appliedAt;
+}
@@ -15,11 +15,16 @@ import java.time.LocalTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "flights")
+// serves the search query, equality on route and date then a range on seats
+@Table(name = "flights", indexes = @Index(
+		name = "idx_flights_route_date_seats",
+		columnList = "fromPlace, toPlace, scheduleDate, availableSeats"))
 public class Flight {
 	
+	// pooled sequence instead of IDENTITY so that inserts can be JDBC batched
 	@Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flights_seq")
+	@SequenceGenerator(name = "flights_seq", sequenceName = "flights_seq", allocationSize = 50)
     private Long id;
 	
 	@NotBlank
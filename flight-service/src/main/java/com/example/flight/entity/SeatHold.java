@@ -0,0 +1,29 @@
+package com.example.flight.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// seats taken out of a flight's inventory until the hold is confirmed or expires
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "seat_holds", indexes = @Index(name = "idx_seat_holds_expires_at", columnList = "expiresAt"))
+public class SeatHold {
+
+	@Id
+	private String holdId;
+	
+	private Long flightId;
+	
+	private Integer numberOfSeats;
+	
+	private Instant expiresAt;
+}
@@ -0,0 +1,35 @@
+package com.example.flight.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "seat_maps")
+public class SeatMap {
+
+	// size of the occupancy column, one bit per seat limits a map to 8192 seats
+	public static final int OCCUPANCY_BYTES = 1024;
+	public static final int MAX_SEATS = OCCUPANCY_BYTES * Byte.SIZE;
+
+	@Id
+	private Long flightId;
+	
+	private Integer seatRows;
+	// seat letters of a row, '-' marks an aisle, e.g. ABC-DEF
+	private String seatColumns;
+	
+	// one bit per seat in BitSet byte order, set when the seat is taken
+	@Column(length = OCCUPANCY_BYTES)
+	private byte[] occupancy;
+	
+	// bumped on every change, a stale writer updates no rows
+	private Long version;
+}
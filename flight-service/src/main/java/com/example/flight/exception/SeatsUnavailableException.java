@@ -0,0 +1,7 @@
+package com.example.flight.exception;
+
+public class SeatsUnavailableException extends RuntimeException {
+	public SeatsUnavailableException(String message) {
+	    super(message);
+	}
+}
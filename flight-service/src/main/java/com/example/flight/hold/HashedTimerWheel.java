@@ -0,0 +1,203 @@
+package com.example.flight.hold;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timer wheel in the style of Varghese and Lauck. Time is cut into ticks and a
+ * timeout lands in the bucket of the tick it expires in, so scheduling and cancelling
+ * are O(1) and every tick only looks at one bucket, however many timeouts are pending.
+ * Timeouts further away than one turn of the wheel carry a number of remaining rounds.
+ *
+ * One worker thread owns the buckets. New timeouts are handed over through a queue
+ * and cancelled ones are dropped when their bucket comes round. Everything that
+ * expired in a tick is passed to the callback as one list, which runs on the worker
+ * thread and should hand slow work off.
+ */
+public class HashedTimerWheel<T> implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+	private final long tickNanos;
+	private final int mask;
+	private final Bucket<T>[] wheel;
+	private final Consumer<List<T>> onExpiry;
+	private final Queue<Timeout<T>> scheduled = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final Thread worker;
+	private final long startNanos;
+	private volatile boolean running = true;
+	private long tick;
+
+	@SuppressWarnings("unchecked")
+	public HashedTimerWheel(String name, Duration tickDuration, int wheelSize, Consumer<List<T>> onExpiry) {
+		if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+			throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+		}
+		this.tickNanos = tickDuration.toNanos();
+		if (tickNanos <= 0) {
+			throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+		}
+		this.mask = wheelSize - 1;
+		this.wheel = new Bucket[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			wheel[i] = new Bucket<>();
+		}
+		this.onExpiry = onExpiry;
+		this.startNanos = System.nanoTime();
+		this.worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	public Timeout<T> schedule(T item, Duration delay) {
+		if (!running) {
+			throw new IllegalStateException("Timer wheel is stopped.");
+		}
+		Timeout<T> timeout = new Timeout<>(item, System.nanoTime() + Math.max(0, delay.toNanos()), pending);
+		pending.incrementAndGet();
+		scheduled.add(timeout);
+		return timeout;
+	}
+
+	// scheduled and not yet expired or cancelled
+	public int pending() {
+		return pending.get();
+	}
+
+	@Override
+	public void close() throws InterruptedException {
+		running = false;
+		worker.interrupt();
+		worker.join();
+	}
+
+	private void run() {
+		while (running) {
+			long deadline = startNanos + (tick + 1) * tickNanos;
+			long sleepNanos = deadline - System.nanoTime();
+			if (sleepNanos > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleepNanos);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+			transferScheduled();
+			List<T> expired = wheel[(int) (tick & mask)].expire();
+			tick++;
+			if (!expired.isEmpty()) {
+				try {
+					onExpiry.accept(expired);
+				} catch (RuntimeException e) {
+					log.error("Expiry callback failed for {} timeouts", expired.size(), e);
+				}
+			}
+		}
+	}
+
+	private void transferScheduled() {
+		Timeout<T> timeout;
+		while ((timeout = scheduled.poll()) != null) {
+			if (timeout.isCancelled()) {
+				continue;
+			}
+			// the tick the deadline falls in, never one that has already been processed
+			long expiresAtTick = Math.max((timeout.deadline - startNanos + tickNanos - 1) / tickNanos - 1, tick);
+			timeout.remainingRounds = (expiresAtTick - tick) / wheel.length;
+			wheel[(int) (expiresAtTick & mask)].add(timeout);
+		}
+	}
+
+	public static final class Timeout<T> {
+		private final T item;
+		private final long deadline;
+		private final AtomicInteger pending;
+		private volatile boolean cancelled;
+		private volatile boolean expired;
+		private long remainingRounds;
+		private Timeout<T> next;
+
+		private Timeout(T item, long deadline, AtomicInteger pending) {
+			this.item = item;
+			this.deadline = deadline;
+			this.pending = pending;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		// true when the timeout was cancelled before it expired
+		public synchronized boolean cancel() {
+			if (cancelled || expired) {
+				return false;
+			}
+			cancelled = true;
+			pending.decrementAndGet();
+			return true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		private synchronized boolean expire() {
+			if (cancelled) {
+				return false;
+			}
+			expired = true;
+			pending.decrementAndGet();
+			return true;
+		}
+	}
+
+	// singly linked list, only ever touched by the worker thread
+	private static final class Bucket<T> {
+		private Timeout<T> head;
+
+		private void add(Timeout<T> timeout) {
+			timeout.next = head;
+			head = timeout;
+		}
+
+		private List<T> expire() {
+			List<T> expired = new ArrayList<>();
+			Timeout<T> previous = null;
+			Timeout<T> timeout = head;
+			while (timeout != null) {
+				Timeout<T> next = timeout.next;
+				boolean remove = timeout.isCancelled();
+				if (!remove && timeout.remainingRounds <= 0) {
+					remove = true;
+					if (timeout.expire()) {
+						expired.add(timeout.item);
+					}
+				} else if (!remove) {
+					timeout.remainingRounds--;
+				}
+				if (remove) {
+					if (previous == null) {
+						head = next;
+					} else {
+						previous.next = next;
+					}
+					timeout.next = null;
+				} else {
+					previous = timeout;
+				}
+				timeout = next;
+			}
+			return expired;
+		}
+	}
+}
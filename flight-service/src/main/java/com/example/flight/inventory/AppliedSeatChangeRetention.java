@@ -0,0 +1,37 @@
+package com.example.flight.inventory;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.flight.repository.AppliedSeatChangeRepository;
+
+// the change ids of applied seat deltas are only needed for as long as
+// booking-service may send the same delta again, older ones are dropped
+@Component
+public class AppliedSeatChangeRetention {
+
+	private static final Logger log = LoggerFactory.getLogger(AppliedSeatChangeRetention.class);
+
+	private final AppliedSeatChangeRepository appliedSeatChangeRepository;
+	private final Duration retention;
+
+	public AppliedSeatChangeRetention(AppliedSeatChangeRepository appliedSeatChangeRepository,
+			@Value("${flight.inventory.change-retention-hours:168}") long retentionHours) {
+		this.appliedSeatChangeRepository = appliedSeatChangeRepository;
+		this.retention = Duration.ofHours(retentionHours);
+	}
+
+	@Scheduled(fixedDelayString = "${flight.inventory.change-purge-interval-millis:3600000}")
+	public void purge() {
+		int purged = appliedSeatChangeRepository.deleteAppliedBefore(Instant.now().minus(retention));
+		if (purged > 0) {
+			log.info("Dropped {} applied seat changes older than {}", purged, retention);
+		}
+	}
+}
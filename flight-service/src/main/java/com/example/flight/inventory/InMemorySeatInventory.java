@@ -0,0 +1,269 @@
+package com.example.flight.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.flight.entity.Flight;
+import com.example.flight.exception.FlightNotFoundException;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.repository.FlightInventoryRepository.DeltaOutcome;
+import com.example.flight.repository.FlightRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the seat count of every flight that has been booked since startup in a
+ * {@link SeatCounter} and decides reservations in memory. A single flusher thread
+ * writes the accepted changes behind to the flights table, one UPDATE per flight
+ * per batch, so the row lock is taken once per batch instead of once per booking.
+ *
+ * A caller only gets its answer after the batch holding its change is committed
+ * (group commit). Nothing acknowledged is ever lost on a crash, so on startup the
+ * counters are simply rebuilt from the flights table the first time a flight is used.
+ *
+ * The change ids of a delta are recorded in the flush transaction of its seat
+ * change. Until then they are claimed in memory, so a delta sent again while
+ * the first one is still on its way is answered with a result that asks to send
+ * it again later, instead of being applied twice.
+ */
+@Component
+@ConditionalOnProperty(name = "flight.inventory.mode", havingValue = "in-memory")
+public class InMemorySeatInventory {
+
+	private static final Logger log = LoggerFactory.getLogger(InMemorySeatInventory.class);
+
+	private final FlightRepository flightRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final int flushBatchSize;
+
+	private final Map<Long, SeatCounter> counters = new ConcurrentHashMap<>();
+	private final BlockingQueue<PendingChange> pendingChanges = new LinkedBlockingQueue<>();
+	private final Set<String> changesInFlight = ConcurrentHashMap.newKeySet();
+	private Thread flusher;
+	private volatile boolean running;
+
+	public InMemorySeatInventory(FlightRepository flightRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${flight.inventory.flush-batch-size:512}") int flushBatchSize) {
+		this.flightRepository = flightRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.flushBatchSize = flushBatchSize;
+	}
+
+	@PostConstruct
+	public void start() {
+		// counters are loaded lazily from the database, which always holds every
+		// acknowledged change, so there is nothing to replay here
+		running = true;
+		flusher = new Thread(this::flushLoop, "seat-inventory-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+		log.info("In-memory seat inventory started, flush batch size {}", flushBatchSize);
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		flusher.interrupt();
+		flusher.join();
+		// whatever is still queued is flushed before the datasource goes away
+		List<PendingChange> remaining = new ArrayList<>();
+		pendingChanges.drainTo(remaining);
+		if (!remaining.isEmpty()) {
+			flush(remaining);
+		}
+	}
+
+	public void reserve(Long flightId, int numberOfSeats) {
+		reserve(flightId, numberOfSeats, List.of());
+	}
+
+	// the change ids must have been claimed with claimChanges
+	public void reserve(Long flightId, int numberOfSeats, List<String> changeIds) {
+		SeatCounter counter = counterFor(flightId);
+		if (!counter.tryReserve(numberOfSeats)) {
+			throw new SeatsUnavailableException(
+					"Insufficient seats available. Requested: " + numberOfSeats +
+					", Available: " + counter.getAvailableSeats());
+		}
+		await(enqueue(new PendingChange(counter, -numberOfSeats, changeIds)));
+	}
+
+	public void release(Long flightId, int numberOfSeats) {
+		release(flightId, numberOfSeats, List.of());
+	}
+
+	public void release(Long flightId, int numberOfSeats, List<String> changeIds) {
+		SeatCounter counter = counterFor(flightId);
+		if (!counter.tryRelease(numberOfSeats)) {
+			throw new IllegalArgumentException(
+					"Cannot release " + numberOfSeats + " seats, flight with Id " +
+					flightId + " would exceed its total seats.");
+		}
+		await(enqueue(new PendingChange(counter, numberOfSeats, changeIds)));
+	}
+
+	// claims the change ids of a delta for the caller, which then applies the
+	// delta and hands the claim back with releaseChanges once that returned.
+	// Returns IN_FLIGHT when another request holds one of them, or the outcome
+	// of an earlier request when some of the changes are recorded as applied,
+	// nothing is claimed then, and null otherwise.
+	public DeltaOutcome claimChanges(List<String> changeIds) {
+		List<String> claimed = new ArrayList<>(changeIds.size());
+		for (String changeId : changeIds) {
+			if (!changesInFlight.add(changeId)) {
+				releaseChanges(claimed);
+				return DeltaOutcome.IN_FLIGHT;
+			}
+			claimed.add(changeId);
+		}
+		DeltaOutcome replay = DeltaOutcome.ofReplay(changeIds, flightRepository.findAppliedChanges(changeIds));
+		if (replay != null) {
+			releaseChanges(claimed);
+		}
+		return replay;
+	}
+
+	public void releaseChanges(List<String> changeIds) {
+		changeIds.forEach(changesInFlight::remove);
+	}
+
+	// drops the counter so the next reservation reloads it, used when the
+	// flights row was changed by something other than this class
+	public void evict(Long flightId) {
+		counters.remove(flightId);
+	}
+
+	public Map<Long, SeatCounter> getCounters() {
+		return Map.copyOf(counters);
+	}
+
+	private SeatCounter counterFor(Long flightId) {
+		return counters.computeIfAbsent(flightId, id -> {
+			Flight flight = flightRepository.findById(id)
+					.orElseThrow(() -> new FlightNotFoundException("Flight not found with ID: " + id));
+			return new SeatCounter(id, flight.getTotalSeats(), flight.getAvailableSeats());
+		});
+	}
+
+	private CompletableFuture<Void> enqueue(PendingChange change) {
+		if (!running) {
+			throw new IllegalStateException("Seat inventory is shutting down.");
+		}
+		pendingChanges.add(change);
+		return change.result;
+	}
+
+	private void await(CompletableFuture<Void> result) {
+		try {
+			result.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	private void flushLoop() {
+		List<PendingChange> batch = new ArrayList<>(flushBatchSize);
+		while (running) {
+			try {
+				batch.add(pendingChanges.take());
+				pendingChanges.drainTo(batch, flushBatchSize - 1);
+				flush(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void flush(List<PendingChange> batch) {
+		// one net delta per flight, applied in id order so that two instances
+		// flushing at the same time always lock the rows in the same order
+		Map<Long, Integer> deltas = new TreeMap<>();
+		for (PendingChange change : batch) {
+			deltas.merge(change.counter.getFlightId(), change.delta, Integer::sum);
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				deltas.forEach((flightId, delta) -> {
+					if (delta != 0 && flightRepository.adjustSeats(flightId, delta) == 0) {
+						throw new IllegalStateException("Inventory of flight " + flightId + " changed outside the seat inventory.");
+					}
+				});
+				batch.forEach(this::recordChanges);
+			});
+			batch.forEach(change -> change.result.complete(null));
+		} catch (RuntimeException e) {
+			log.warn("Batched inventory flush failed, applying {} changes one by one: {}", batch.size(), e.getMessage());
+			batch.forEach(this::flushSingle);
+		}
+	}
+
+	private void flushSingle(PendingChange change) {
+		Long flightId = change.counter.getFlightId();
+		try {
+			Integer updatedRows = transactionTemplate.execute(status -> {
+				int updated = change.delta < 0
+						? flightRepository.reserveSeats(flightId, -change.delta)
+						: flightRepository.releaseSeats(flightId, change.delta);
+				if (updated > 0) {
+					recordChanges(change);
+				}
+				return updated;
+			});
+			if (updatedRows != null && updatedRows > 0) {
+				change.result.complete(null);
+				return;
+			}
+			change.result.completeExceptionally(change.delta < 0
+					? new SeatsUnavailableException("Insufficient seats available. Requested: " + -change.delta)
+					: new IllegalArgumentException("Cannot release " + change.delta + " seats, flight with Id " +
+							flightId + " would exceed its total seats."));
+		} catch (RuntimeException e) {
+			change.result.completeExceptionally(e);
+		}
+		// the counter no longer matches the table, reload it on next use
+		counters.remove(flightId, change.counter);
+	}
+
+	private void recordChanges(PendingChange change) {
+		if (!change.changeIds.isEmpty()) {
+			flightRepository.recordAppliedChanges(change.counter.getFlightId(), change.changeIds);
+		}
+	}
+
+	private static final class PendingChange {
+		private final SeatCounter counter;
+		private final int delta;
+		private final List<String> changeIds;
+		private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+		private PendingChange(SeatCounter counter, int delta, List<String> changeIds) {
+			this.counter = counter;
+			this.delta = delta;
+			this.changeIds = changeIds;
+		}
+	}
+}
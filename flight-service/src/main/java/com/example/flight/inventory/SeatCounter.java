@@ -0,0 +1,149 @@
+package com.example.flight.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory seat count of one flight, striped: the free seats are spread over a
+// few slots and a reservation takes its seats from one random slot with a single
+// CAS, so concurrent bookings of a hot flight mostly hit different cache lines.
+// Only when no single slot has enough left does a reservation sweep the slots
+// under the lock, and releases take the lock too, since they have to check the
+// sum against the total. The adders only feed the statistics.
+public class SeatCounter {
+
+	// slots are this many ints apart so that two of them never share a cache line
+	private static final int PADDING = 16;
+	private static final int MAX_STRIPES = 64;
+
+	private final Long flightId;
+	private final int totalSeats;
+	private final int stripes;
+	private final AtomicIntegerArray slots;
+	private final ReentrantLock sweepLock = new ReentrantLock();
+	private final LongAdder reserved = new LongAdder();
+	private final LongAdder released = new LongAdder();
+
+	public SeatCounter(Long flightId, int totalSeats, int availableSeats) {
+		this(flightId, totalSeats, availableSeats, defaultStripes());
+	}
+
+	public SeatCounter(Long flightId, int totalSeats, int availableSeats, int stripes) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("A seat counter needs at least one stripe.");
+		}
+		this.flightId = flightId;
+		this.totalSeats = totalSeats;
+		this.stripes = stripes;
+		this.slots = new AtomicIntegerArray(stripes * PADDING);
+		for (int i = 0; i < stripes; i++) {
+			slots.set(i * PADDING, availableSeats / stripes + (i < availableSeats % stripes ? 1 : 0));
+		}
+	}
+
+	private static int defaultStripes() {
+		return Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2), MAX_STRIPES);
+	}
+
+	public boolean tryReserve(int seats) {
+		int slot = ThreadLocalRandom.current().nextInt(stripes) * PADDING;
+		int current;
+		do {
+			current = slots.get(slot);
+			if (current < seats) {
+				return sweepReserve(seats);
+			}
+		} while (!slots.compareAndSet(slot, current, current - seats));
+		reserved.add(seats);
+		return true;
+	}
+
+	// gathers the seats slot by slot, one sweeper at a time so two large
+	// reservations never each hold half of the last seats, and hands back what
+	// it took when a full pass over the slots finds nothing more
+	private boolean sweepReserve(int seats) {
+		sweepLock.lock();
+		try {
+			int taken = 0;
+			boolean progress = true;
+			while (taken < seats && progress) {
+				progress = false;
+				for (int i = 0; i < stripes && taken < seats; i++) {
+					int took = takeUpTo(i * PADDING, seats - taken);
+					taken += took;
+					progress |= took > 0;
+				}
+			}
+			if (taken < seats) {
+				if (taken > 0) {
+					slots.addAndGet(0, taken);
+				}
+				return false;
+			}
+			reserved.add(seats);
+			return true;
+		} finally {
+			sweepLock.unlock();
+		}
+	}
+
+	private int takeUpTo(int slot, int wanted) {
+		int current;
+		int took;
+		do {
+			current = slots.get(slot);
+			took = Math.min(current, wanted);
+			if (took == 0) {
+				return 0;
+			}
+		} while (!slots.compareAndSet(slot, current, current - took));
+		return took;
+	}
+
+	// the lock keeps releases and sweeps out of each other's way, reservations
+	// running meanwhile only lower the slots, so a sum read slot by slot is never
+	// below the real one and a release that fits it fits the total
+	public boolean tryRelease(int seats) {
+		sweepLock.lock();
+		try {
+			if (getAvailableSeats() + seats > totalSeats) {
+				return false;
+			}
+			slots.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, seats);
+			released.add(seats);
+			return true;
+		} finally {
+			sweepLock.unlock();
+		}
+	}
+
+	public Long getFlightId() {
+		return flightId;
+	}
+
+	public int getTotalSeats() {
+		return totalSeats;
+	}
+
+	public int getStripes() {
+		return stripes;
+	}
+
+	// exact when nothing is running against the counter, a snapshot otherwise
+	public int getAvailableSeats() {
+		int available = 0;
+		for (int i = 0; i < stripes; i++) {
+			available += slots.get(i * PADDING);
+		}
+		return available;
+	}
+
+	public long getReservedSeats() {
+		return reserved.sum();
+	}
+
+	public long getReleasedSeats() {
+		return released.sum();
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.flight.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.entity.AppliedSeatChange;
+
+@Repository
+public interface AppliedSeatChangeRepository extends JpaRepository<AppliedSeatChange, String> {
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM AppliedSeatChange c WHERE c.appliedAt < :before")
+	int deleteAppliedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,56 @@
+package com.example.flight.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.example.flight.dto.SeatDelta;
+
+// custom fragment of FlightRepository for the statements Spring Data cannot batch
+public interface FlightInventoryRepository {
+
+	// what became of one delta of adjustSeatsInBatch
+	enum DeltaOutcome {
+		APPLIED(true),
+		NOT_APPLIED(false),
+		// every change of the delta was applied by an earlier request, nothing was done
+		ALREADY_APPLIED(true),
+		// some of its changes were applied before and some were not, nothing was
+		// done, the changes have to be sent one by one
+		PARTLY_APPLIED(false),
+		// some of its changes are being applied by another request right now,
+		// nothing was done, the delta has to be sent again later
+		IN_FLIGHT(false);
+
+		private final boolean applied;
+
+		DeltaOutcome(boolean applied) {
+			this.applied = applied;
+		}
+
+		public boolean isApplied() {
+			return applied;
+		}
+
+		// the outcome of a delta some of whose changes are known, null when none of them is
+		public static DeltaOutcome ofReplay(List<String> changeIds, Set<String> appliedChangeIds) {
+			long known = changeIds.stream().filter(appliedChangeIds::contains).count();
+			if (known == 0) {
+				return null;
+			}
+			return known == changeIds.size() ? ALREADY_APPLIED : PARTLY_APPLIED;
+		}
+	}
+
+	// runs the conditional update of adjustSeats for every delta whose changes
+	// were not applied before in one JDBC batch, in order, and records the change
+	// ids of the deltas it applied in the same transaction. A request racing with
+	// one for the same changes fails on the change id key and rolls back.
+	List<DeltaOutcome> adjustSeatsInBatch(List<SeatDelta> deltas);
+
+	// the given change ids that are recorded as applied
+	Set<String> findAppliedChanges(Collection<String> changeIds);
+
+	// joins the caller's transaction, fails when one of the ids is already recorded
+	void recordAppliedChanges(Long flightId, Collection<String> changeIds);
+}
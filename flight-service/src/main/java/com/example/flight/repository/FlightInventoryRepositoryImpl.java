@@ -0,0 +1,91 @@
+package com.example.flight.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.dto.SeatDelta;
+
+public class FlightInventoryRepositoryImpl implements FlightInventoryRepository {
+
+	// same condition as FlightRepository.adjustSeats
+	private static final String ADJUST_SEATS = "UPDATE flights SET available_seats = available_seats + ? "
+			+ "WHERE id = ? AND available_seats + ? >= 0 AND available_seats + ? <= total_seats";
+	private static final String RECORD_CHANGE =
+			"INSERT INTO applied_seat_changes (change_id, flight_id, applied_at) VALUES (?, ?, ?)";
+	// keeps the IN list of a lookup well below the bind parameter limits
+	private static final int LOOKUP_CHUNK = 500;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Override
+	@Transactional
+	public List<DeltaOutcome> adjustSeatsInBatch(List<SeatDelta> deltas) {
+		Set<String> applied = findAppliedChanges(deltas.stream()
+				.flatMap(delta -> delta.getChangeIds().stream())
+				.toList());
+		List<DeltaOutcome> outcomes = new ArrayList<>(Collections.nCopies(deltas.size(), DeltaOutcome.NOT_APPLIED));
+		List<Integer> fresh = new ArrayList<>(deltas.size());
+		for (int i = 0; i < deltas.size(); i++) {
+			DeltaOutcome replay = DeltaOutcome.ofReplay(deltas.get(i).getChangeIds(), applied);
+			if (replay == null) {
+				fresh.add(i);
+			} else {
+				outcomes.set(i, replay);
+			}
+		}
+		if (fresh.isEmpty()) {
+			return outcomes;
+		}
+
+		int[] updatedRows = jdbcTemplate.batchUpdate(ADJUST_SEATS, fresh.stream()
+				.map(deltas::get)
+				.map(delta -> new Object[] { delta.getDelta(), delta.getFlightId(), delta.getDelta(), delta.getDelta() })
+				.toList());
+		List<Object[]> changes = new ArrayList<>();
+		Timestamp now = Timestamp.from(Instant.now());
+		for (int i = 0; i < fresh.size(); i++) {
+			if (updatedRows[i] > 0) {
+				SeatDelta delta = deltas.get(fresh.get(i));
+				outcomes.set(fresh.get(i), DeltaOutcome.APPLIED);
+				delta.getChangeIds().forEach(changeId -> changes.add(new Object[] { changeId, delta.getFlightId(), now }));
+			}
+		}
+		if (!changes.isEmpty()) {
+			jdbcTemplate.batchUpdate(RECORD_CHANGE, changes);
+		}
+		return outcomes;
+	}
+
+	@Override
+	public Set<String> findAppliedChanges(Collection<String> changeIds) {
+		Set<String> applied = new HashSet<>();
+		List<String> ids = List.copyOf(changeIds);
+		for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK) {
+			List<String> chunk = ids.subList(from, Math.min(from + LOOKUP_CHUNK, ids.size()));
+			String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+			applied.addAll(jdbcTemplate.queryForList(
+					"SELECT change_id FROM applied_seat_changes WHERE change_id IN (" + placeholders + ")",
+					String.class, chunk.toArray()));
+		}
+		return applied;
+	}
+
+	@Override
+	public void recordAppliedChanges(Long flightId, Collection<String> changeIds) {
+		Timestamp now = Timestamp.from(Instant.now());
+		jdbcTemplate.batchUpdate(RECORD_CHANGE, changeIds.stream()
+				.map(changeId -> new Object[] { changeId, flightId, now })
+				.toList());
+	}
+}
@@ -1,21 +1,87 @@
 package com.example.flight.repository;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.flight.dto.FlightDTO;
 import com.example.flight.entity.Flight;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface FlightRepository extends JpaRepository<Flight, Long> {
+public interface FlightRepository extends JpaRepository<Flight, Long>, FlightInventoryRepository {
 	
-	List<Flight> findByFromPlaceAndToPlaceAndScheduleDateAndAvailableSeatsGreaterThan(
-            String fromPlace, 
-            String toPlace, 
-            LocalDate scheduleDate, 
-            int availableSeats
+	// constructor expression, rows go straight into DTOs without becoming managed entities
+	@Query("SELECT new com.example.flight.dto.FlightDTO(f.id, f.airlineName, f.fromPlace, f.toPlace, "
+			+ "f.scheduleDate, f.departureTime, f.arrivalTime, f.price, f.totalSeats, f.availableSeats) "
+			+ "FROM Flight f WHERE f.fromPlace = :fromPlace AND f.toPlace = :toPlace "
+			+ "AND f.scheduleDate = :scheduleDate AND f.availableSeats > :availableSeats")
+	List<FlightDTO> searchFlights(
+            @Param("fromPlace") String fromPlace, 
+            @Param("toPlace") String toPlace, 
+            @Param("scheduleDate") LocalDate scheduleDate, 
+            @Param("availableSeats") int availableSeats
     );
 	
-}
\ No newline at end of file
+	// read row by row for the streaming search, on MySQL the datasource url needs
+	// useCursorFetch=true for the fetch size to be honoured
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("SELECT new com.example.flight.dto.FlightDTO(f.id, f.airlineName, f.fromPlace, f.toPlace, "
+			+ "f.scheduleDate, f.departureTime, f.arrivalTime, f.price, f.totalSeats, f.availableSeats) "
+			+ "FROM Flight f WHERE f.fromPlace = :fromPlace AND f.toPlace = :toPlace "
+			+ "AND f.scheduleDate BETWEEN :fromDate AND :toDate AND f.availableSeats > 0 "
+			+ "AND (:minPrice IS NULL OR f.price >= :minPrice) "
+			+ "AND (:maxPrice IS NULL OR f.price <= :maxPrice) "
+			+ "AND (:departureAfter IS NULL OR f.departureTime >= :departureAfter) "
+			+ "AND (:departureBefore IS NULL OR f.departureTime <= :departureBefore) "
+			+ "ORDER BY f.scheduleDate, f.departureTime")
+	Stream<FlightDTO> streamFlights(
+			@Param("fromPlace") String fromPlace, 
+			@Param("toPlace") String toPlace, 
+			@Param("fromDate") LocalDate fromDate, 
+			@Param("toDate") LocalDate toDate, 
+			@Param("minPrice") Double minPrice, 
+			@Param("maxPrice") Double maxPrice, 
+			@Param("departureAfter") LocalTime departureAfter, 
+			@Param("departureBefore") LocalTime departureBefore
+	);
+	
+	// conditional decrement, the row is only updated when enough seats are left
+	// so concurrent bookings can never take the count below zero
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Flight f SET f.availableSeats = f.availableSeats - :seats "
+			+ "WHERE f.id = :flightId AND f.availableSeats >= :seats")
+	int reserveSeats(@Param("flightId") Long flightId, @Param("seats") int seats);
+	
+	// conditional increment, never goes above the total seats of the flight
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Flight f SET f.availableSeats = f.availableSeats + :seats "
+			+ "WHERE f.id = :flightId AND f.availableSeats + :seats <= f.totalSeats")
+	int releaseSeats(@Param("flightId") Long flightId, @Param("seats") int seats);
+	
+	// applies a net change of seats, used by the write-behind flusher
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Flight f SET f.availableSeats = f.availableSeats + :delta "
+			+ "WHERE f.id = :flightId AND f.availableSeats + :delta >= 0 "
+			+ "AND f.availableSeats + :delta <= f.totalSeats")
+	int adjustSeats(@Param("flightId") Long flightId, @Param("delta") int delta);
+	
+}
@@ -0,0 +1,62 @@
+package com.example.flight.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Flight ids used to come from an IDENTITY column and now come from the pooled
+ * flights_seq sequence. On MySQL, which has no sequences, Hibernate keeps it as
+ * a one-row flights_seq table and creates it starting at 1 next to a flights
+ * table that may already hold thousands of rows. Before any flight is inserted
+ * the sequence is moved past MAX(id), with room for one allocation block, so the
+ * first pooled block never hands out an id that is already taken. The update
+ * only ever raises the value, running it on every start and on several
+ * instances at once is harmless.
+ *
+ * Databases with real sequences, H2 in the tests, have never used IDENTITY ids
+ * with this table and are left alone.
+ */
+@Component
+public class FlightSequenceMigration implements InitializingBean {
+
+	private static final Logger log = LoggerFactory.getLogger(FlightSequenceMigration.class);
+
+	// allocationSize of the flights_seq generator on Flight.id
+	static final int ALLOCATION_SIZE = 50;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	// the entity manager factory is only here so that the schema exists first
+	public FlightSequenceMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (!hasSequenceTable()) {
+			return;
+		}
+		Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM flights", Long.class);
+		long nextValue = maxId + ALLOCATION_SIZE + 1;
+		int updated = jdbcTemplate.update("UPDATE flights_seq SET next_val = ? WHERE next_val < ?",
+				nextValue, nextValue);
+		if (updated > 0) {
+			log.info("Moved flights_seq to {}, past the highest flight id {}", nextValue, maxId);
+		}
+	}
+
+	private boolean hasSequenceTable() {
+		try {
+			jdbcTemplate.queryForList("SELECT next_val FROM flights_seq", Long.class);
+			return true;
+		} catch (DataAccessException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.example.flight.repository;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.entity.SeatHold;
+
+@Repository
+public interface SeatHoldRepository extends JpaRepository<SeatHold, String> {
+
+	// whoever deletes the row owns the outcome of the hold, so a hold is never
+	// both confirmed and released, even across instances
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM SeatHold h WHERE h.holdId = :holdId AND h.expiresAt > :now")
+	int deleteActive(@Param("holdId") String holdId, @Param("now") Instant now);
+	
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM SeatHold h WHERE h.holdId = :holdId")
+	int deleteHold(@Param("holdId") String holdId);
+	
+	// every outstanding hold, used to put them back on the timer wheel at startup
+	@Query("SELECT h FROM SeatHold h")
+	Stream<SeatHold> streamAll();
+}
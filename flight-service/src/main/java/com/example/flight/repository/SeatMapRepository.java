@@ -0,0 +1,36 @@
+package com.example.flight.repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.entity.SeatMap;
+
+@Repository
+public interface SeatMapRepository extends JpaRepository<SeatMap, Long> {
+
+	// a plain insert, save would merge over a map another instance has just created
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO seat_maps (flight_id, seat_rows, seat_columns, occupancy, version) "
+			+ "VALUES (:flightId, :seatRows, :seatColumns, :occupancy, 0)", nativeQuery = true)
+	int insert(@Param("flightId") Long flightId, @Param("seatRows") int seatRows,
+			@Param("seatColumns") String seatColumns, @Param("occupancy") byte[] occupancy);
+	
+	@Query("SELECT s.flightId FROM SeatMap s WHERE s.flightId IN :flightIds")
+	Set<Long> findFlightIdsIn(@Param("flightIds") Collection<Long> flightIds);
+	
+	// compare-and-set on the version, returns 0 when another instance changed the map first
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE SeatMap s SET s.occupancy = :occupancy, s.version = s.version + 1 "
+			+ "WHERE s.flightId = :flightId AND s.version = :version")
+	int updateOccupancy(@Param("flightId") Long flightId, @Param("occupancy") byte[] occupancy,
+			@Param("version") Long version);
+}
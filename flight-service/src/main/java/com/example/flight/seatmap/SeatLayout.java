@@ -0,0 +1,137 @@
+package com.example.flight.seatmap;
+
+import java.util.BitSet;
+
+/**
+ * Cabin layout of a flight, a number of rows with the same seat letters in every
+ * row, aisles written as '-' (for example "ABC-DEF"). Seats are numbered row by
+ * row from the front, seat 12A is index (12 - 1) * seatsPerRow + 0, which is the
+ * bit used for it in the occupancy bitmap.
+ */
+public final class SeatLayout {
+
+	private final int rows;
+	private final String columns;
+	private final char[] letters;
+	// index of the first seat of every section of a row, plus the row width at the end
+	private final int[] sectionStarts;
+
+	private SeatLayout(int rows, String columns) {
+		this.rows = rows;
+		this.columns = columns;
+		this.letters = columns.replace("-", "").toCharArray();
+		String[] sections = columns.split("-");
+		this.sectionStarts = new int[sections.length + 1];
+		for (int i = 0; i < sections.length; i++) {
+			sectionStarts[i + 1] = sectionStarts[i] + sections[i].length();
+		}
+	}
+
+	public static SeatLayout of(int rows, String columns) {
+		if (rows < 1) {
+			throw new IllegalArgumentException("A seat map needs at least one row.");
+		}
+		if (columns == null || !columns.matches("[A-Z]+(-[A-Z]+)*")) {
+			throw new IllegalArgumentException("Seat columns must be letters with '-' for aisles, e.g. ABC-DEF.");
+		}
+		if (columns.chars().filter(Character::isLetter).distinct().count() != columns.replace("-", "").length()) {
+			throw new IllegalArgumentException("Seat letters must not repeat: " + columns);
+		}
+		return new SeatLayout(rows, columns);
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public String getColumns() {
+		return columns;
+	}
+
+	public int getSeatsPerRow() {
+		return letters.length;
+	}
+
+	public int getSeatCount() {
+		return rows * letters.length;
+	}
+
+	public int indexOf(String seat) {
+		String label = seat == null ? "" : seat.trim().toUpperCase();
+		int letterAt = label.length() - 1;
+		if (letterAt < 1) {
+			throw new IllegalArgumentException("Unknown seat: " + seat);
+		}
+		int column = new String(letters).indexOf(label.charAt(letterAt));
+		int row;
+		try {
+			row = Integer.parseInt(label.substring(0, letterAt));
+		} catch (NumberFormatException e) {
+			row = -1;
+		}
+		if (column < 0 || row < 1 || row > rows) {
+			throw new IllegalArgumentException("Unknown seat: " + seat);
+		}
+		return (row - 1) * letters.length + column;
+	}
+
+	public String labelOf(int index) {
+		return (index / letters.length + 1) + String.valueOf(letters[index % letters.length]);
+	}
+
+	/**
+	 * Picks {@code count} free seats, nearest the front, preferring in this order a
+	 * block between two aisles, a block across an aisle within one row, and finally
+	 * the first free seats front to back. Returns null when fewer seats are free.
+	 */
+	public int[] findAdjacentFree(BitSet occupied, int count) {
+		if (count < 1 || getSeatCount() - occupied.cardinality() < count) {
+			return null;
+		}
+		for (int row = 0; row < rows; row++) {
+			int rowStart = row * letters.length;
+			for (int section = 0; section < sectionStarts.length - 1; section++) {
+				int start = freeRun(occupied, rowStart + sectionStarts[section],
+						rowStart + sectionStarts[section + 1], count);
+				if (start >= 0) {
+					return range(start, count);
+				}
+			}
+		}
+		for (int row = 0; row < rows; row++) {
+			int rowStart = row * letters.length;
+			int start = freeRun(occupied, rowStart, rowStart + letters.length, count);
+			if (start >= 0) {
+				return range(start, count);
+			}
+		}
+		int[] seats = new int[count];
+		int seat = -1;
+		for (int i = 0; i < count; i++) {
+			seat = occupied.nextClearBit(seat + 1);
+			seats[i] = seat;
+		}
+		return seats;
+	}
+
+	// first index of count free seats in a row within [from, to), or -1
+	private static int freeRun(BitSet occupied, int from, int to, int count) {
+		int start = occupied.nextClearBit(from);
+		while (start + count <= to) {
+			int taken = occupied.nextSetBit(start);
+			if (taken < 0 || taken >= start + count) {
+				return start;
+			}
+			start = occupied.nextClearBit(taken);
+		}
+		return -1;
+	}
+
+	private static int[] range(int start, int count) {
+		int[] seats = new int[count];
+		for (int i = 0; i < count; i++) {
+			seats[i] = start + i;
+		}
+		return seats;
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.flight.seatmap;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the occupancy of one flight, one bit per seat. Changes build
+ * a new snapshot, so readers never lock and never see a half applied claim.
+ */
+public final class SeatMapState {
+
+	private final SeatLayout layout;
+	private final BitSet occupied;
+	private final long version;
+
+	public SeatMapState(SeatLayout layout, BitSet occupied, long version) {
+		this.layout = layout;
+		this.occupied = occupied;
+		this.version = version;
+	}
+
+	public static SeatMapState fromBytes(SeatLayout layout, byte[] occupancy, long version) {
+		return new SeatMapState(layout, BitSet.valueOf(occupancy == null ? new byte[0] : occupancy), version);
+	}
+
+	public SeatLayout getLayout() {
+		return layout;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public boolean isOccupied(int seat) {
+		return occupied.get(seat);
+	}
+
+	public int getFreeSeats() {
+		return layout.getSeatCount() - occupied.cardinality();
+	}
+
+	public List<String> getOccupiedSeats() {
+		List<String> seats = new ArrayList<>(occupied.cardinality());
+		for (int seat = occupied.nextSetBit(0); seat >= 0; seat = occupied.nextSetBit(seat + 1)) {
+			seats.add(layout.labelOf(seat));
+		}
+		return seats;
+	}
+
+	// a copy of the bitmap, callers must not be able to change a published snapshot
+	public BitSet getOccupied() {
+		return (BitSet) occupied.clone();
+	}
+
+	public byte[] toBytes() {
+		return occupied.toByteArray();
+	}
+
+	public SeatMapState with(int[] seats, boolean occupy, long newVersion) {
+		BitSet changed = (BitSet) occupied.clone();
+		for (int seat : seats) {
+			changed.set(seat, occupy);
+		}
+		return new SeatMapState(layout, changed, newVersion);
+	}
+}
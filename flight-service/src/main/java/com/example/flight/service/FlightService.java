@@ -3,17 +3,29 @@ package com.example.flight.service;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.example.flight.dto.BulkFlightResult;
 import com.example.flight.dto.FlightDTO;
-import com.example.flight.entity.Flight;
+import com.example.flight.dto.FlightRangeSearchRequest;
+import com.example.flight.dto.SeatDelta;
+import com.example.flight.dto.SeatDeltaResult;
 
 public interface FlightService {
 
     // used for adding flight
     Long addFlight(FlightDTO flight);
     
+    // validates every flight and inserts the valid ones in one batch,
+    // firstRow is the position of the first flight in the uploaded body
+    List<BulkFlightResult> addFlights(List<FlightDTO> flights, int firstRow);
+    
     // for searching flights
-    List<Flight> searchFlights(String fromPlace, String toPlace, LocalDate scheduleDate);
+    List<FlightDTO> searchFlights(String fromPlace, String toPlace, LocalDate scheduleDate);
+
+    // streams every matching flight of every route to the consumer, ordered by
+    // date and departure within a route, without holding the results in memory
+    void streamFlights(FlightRangeSearchRequest request, Consumer<FlightDTO> consumer);
 
     // get flight by its ID
     Optional<FlightDTO> getFlightById(Long flightId);
@@ -21,4 +33,14 @@ public interface FlightService {
     // to update flight seats after booking tickets
     String updateFlightInventory(FlightDTO flightDto);
     
+    // atomically takes seats out of the inventory, returns the updated flight
+    FlightDTO reserveSeats(Long flightId, int numberOfSeats);
+    
+    // atomically puts seats back into the inventory, returns the updated flight
+    FlightDTO releaseSeats(Long flightId, int numberOfSeats);
+    
+    // applies the deltas in order in one transaction, a delta that does not fit
+    // is skipped and reported in its own result while the others still apply
+    List<SeatDeltaResult> applySeatDeltas(List<SeatDelta> deltas);
+    
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.flight.service;
+
+import com.example.flight.dto.SeatHoldDTO;
+
+public interface SeatHoldService {
+
+    // takes the seats out of the inventory until the hold is confirmed, released or expires
+    SeatHoldDTO holdSeats(Long flightId, int numberOfSeats);
+    
+    // makes the held seats permanent, fails once the hold has expired
+    SeatHoldDTO confirmHold(String holdId);
+    
+    // puts the held seats back into the inventory straight away
+    void releaseHold(String holdId);
+}
@@ -0,0 +1,37 @@
+package com.example.flight.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.example.flight.dto.SeatMapDTO;
+
+public interface SeatMapService {
+
+    // creates the empty seat map of a flight, rows times seat letters must match its total seats
+    SeatMapDTO createSeatMap(Long flightId, int rows, String columns);
+    
+    // current occupancy, served from memory
+    SeatMapDTO getSeatMap(Long flightId);
+    
+    // takes all of the given seats or none of them
+    List<String> claimSeats(Long flightId, List<String> seats);
+    
+    // takes the best block of adjacent free seats, returns their labels
+    List<String> autoAssignSeats(Long flightId, int numberOfSeats);
+    
+    // frees seats taken earlier
+    List<String> releaseSeats(Long flightId, List<String> seats);
+    
+    // the seats named by booking-service's seat deltas are checked with these before
+    // the deltas are applied, and claimed or released in the same transaction
+    
+    // the flights among the given ones that have a seat map
+    Set<Long> withSeatMap(Collection<Long> flightIds);
+    
+    // labels of the given seats, fails like claimSeats when one is unknown, listed twice or taken
+    List<String> checkClaim(Long flightId, List<String> seats);
+    
+    // the given seats that are taken right now, unknown ones are left out
+    List<String> takenSeats(Long flightId, List<String> seats);
+}
@@ -2,54 +2,176 @@ package com.example.flight.service.impl;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.flight.cache.FlightSearchCache;
+import com.example.flight.cache.GatewayCachePurger;
+import com.example.flight.deadline.Deadline;
+import com.example.flight.dto.BulkFlightResult;
 import com.example.flight.dto.FlightDTO;
+import com.example.flight.dto.FlightRangeSearchRequest;
+import com.example.flight.dto.Route;
+import com.example.flight.dto.SeatDelta;
+import com.example.flight.dto.SeatDeltaResult;
 import com.example.flight.entity.Flight;
 import com.example.flight.exception.FlightNotFoundException;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.inventory.InMemorySeatInventory;
+import com.example.flight.repository.FlightInventoryRepository.DeltaOutcome;
 import com.example.flight.repository.FlightRepository;
 import com.example.flight.service.FlightService;
+import com.example.flight.service.SeatMapService;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 
 @Service
 public class FlightServiceImpl implements FlightService {
 	
+	private static final Logger log = LoggerFactory.getLogger(FlightServiceImpl.class);
+	
+	private static final String PARTLY_APPLIED_ERROR =
+			"Some of the changes of this delta were applied before, send them one by one.";
+	private static final String IN_FLIGHT_ERROR =
+			"The changes of this delta are being applied by another request, send it again later.";
+	
 	@Autowired
     FlightRepository flightRepository;
+	
+	@Autowired
+	FlightSearchCache flightSearchCache;
+	
+	@Autowired
+	Validator validator;
+	
+	@Autowired
+	SeatMapService seatMapService;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	// only present when flight.inventory.mode=in-memory
+	@Autowired(required = false)
+	InMemorySeatInventory inMemorySeatInventory;
+	
+	// only present when flight.gateway-cache.purge-enabled=true
+	@Autowired(required = false)
+	GatewayCachePurger gatewayCachePurger;
 
     @Override
     public Long addFlight(FlightDTO flightDto) {
-    	if(flightDto.getFromPlace().equalsIgnoreCase(flightDto.getToPlace())) {
-    		throw new IllegalArgumentException("Departure and arrival places cannot be the same.");
-        }
-
-        // Arrival time must be after Departure time
-        LocalTime departure = flightDto.getDepartureTime();
-        LocalTime arrival = flightDto.getArrivalTime();
-
-        if(!arrival.isAfter(departure)) {
-        	throw new IllegalArgumentException("Arrival time must be after the departure time.");
-        }
+    	validateSchedule(flightDto);
         
     	Flight flight = flightDtoToEntity(flightDto);
     	
         flightRepository.save(flight);
+        inventoryChanged(flight);
         
         return flight.getId();
     }
     
     @Override
-    public List<Flight> searchFlights(String fromPlace, String toPlace, LocalDate scheduleDate) {
-        return flightRepository.findByFromPlaceAndToPlaceAndScheduleDateAndAvailableSeatsGreaterThan(
+    public List<BulkFlightResult> addFlights(List<FlightDTO> flightDtos, int firstRow) {
+        List<BulkFlightResult> results = new ArrayList<>(flightDtos.size());
+        List<Flight> flights = new ArrayList<>(flightDtos.size());
+        List<BulkFlightResult> acceptedResults = new ArrayList<>(flightDtos.size());
+        
+        for(int i = 0; i < flightDtos.size(); i++) {
+            FlightDTO flightDto = flightDtos.get(i);
+            BulkFlightResult result = new BulkFlightResult(firstRow + i, false, null, null);
+            results.add(result);
+            
+            Set<ConstraintViolation<FlightDTO>> violations = validator.validate(flightDto);
+            if(!violations.isEmpty()) {
+                result.setError(violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                continue;
+            }
+            try {
+                validateSchedule(flightDto);
+            } catch(IllegalArgumentException e) {
+                result.setError(e.getMessage());
+                continue;
+            }
+            flightDto.setId(null);
+            flights.add(flightDtoToEntity(flightDto));
+            acceptedResults.add(result);
+        }
+        
+        // saveAll runs in one transaction, the inserts go out in JDBC batches on commit,
+        // when it fails none of the chunk is stored and every valid row says so
+        try {
+            flightRepository.saveAll(flights);
+        } catch(RuntimeException e) {
+            log.warn("Inserting a chunk of {} flights from row {} failed: {}", flights.size(), firstRow, e.getMessage());
+            acceptedResults.forEach(result -> result.setError("Not saved, the chunk failed: " + e.getMessage()));
+            return results;
+        }
+        for(int i = 0; i < flights.size(); i++) {
+            BulkFlightResult result = acceptedResults.get(i);
+            result.setAccepted(true);
+            result.setId(inventoryChanged(flights.get(i)).getId());
+        }
+        
+        return results;
+    }
+    
+    @Override
+    public List<FlightDTO> searchFlights(String fromPlace, String toPlace, LocalDate scheduleDate) {
+        List<FlightDTO> cached = flightSearchCache.getIfPresent(fromPlace, toPlace, scheduleDate);
+        if(cached != null) {
+            return cached;
+        }
+        // a cached result is cheap enough to hand out late, a query is not. Checked
+        // before joining the load, concurrent misses share it and a late caller
+        // must not fail the others waiting on the same result
+        Deadline.check("searching flights");
+        return flightSearchCache.get(fromPlace, toPlace, scheduleDate, () -> flightRepository.searchFlights(
                 fromPlace, 
                 toPlace, 
                 scheduleDate, 
                 0 // show flights with 1 or more available seats
-        );
+        ));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void streamFlights(FlightRangeSearchRequest request, Consumer<FlightDTO> consumer) {
+        for(Route route : request.getRoutes()) {
+            try(Stream<FlightDTO> flights = flightRepository.streamFlights(
+                    route.getFromPlace(), 
+                    route.getToPlace(), 
+                    request.getFromDate(), 
+                    request.getToDate(), 
+                    request.getMinPrice(), 
+                    request.getMaxPrice(), 
+                    request.getDepartureAfter(), 
+                    request.getDepartureBefore())) {
+                flights.forEach(consumer);
+            }
+        }
     }
     
     @Override
@@ -68,10 +190,276 @@ public class FlightServiceImpl implements FlightService {
             		"Flight not found with ID: " + flightDto.getId()));
         existingFlight.setAvailableSeats(flightDto.getAvailableSeats());
         flightRepository.save(existingFlight);
+        inventoryChanged(existingFlight);
+        if(inMemorySeatInventory != null) {
+            inMemorySeatInventory.evict(existingFlight.getId());
+        }
         
         return "Inventory of Flight with Id " + existingFlight.getId() + " has been updated.";
     }
     
+    @Override
+    public FlightDTO reserveSeats(Long flightId, int numberOfSeats) {
+        if(numberOfSeats <= 0) {
+            throw new IllegalArgumentException("Number of seats must be at least one.");
+        }
+        // a reservation its caller stopped waiting for would hold seats nobody books
+        Deadline.check("reserving seats");
+        if(inMemorySeatInventory != null) {
+            inMemorySeatInventory.reserve(flightId, numberOfSeats);
+            return inventoryChanged(findFlight(flightId));
+        }
+        int updatedRows = flightRepository.reserveSeats(flightId, numberOfSeats);
+        Flight flight = findFlight(flightId);
+        if(updatedRows == 0) {
+            throw new SeatsUnavailableException(
+            		"Insufficient seats available. Requested: " + numberOfSeats + 
+            		", Available: " + flight.getAvailableSeats());
+        }
+        
+        return inventoryChanged(flight);
+    }
+    
+    @Override
+    public FlightDTO releaseSeats(Long flightId, int numberOfSeats) {
+        if(numberOfSeats <= 0) {
+            throw new IllegalArgumentException("Number of seats must be at least one.");
+        }
+        Deadline.check("releasing seats");
+        if(inMemorySeatInventory != null) {
+            inMemorySeatInventory.release(flightId, numberOfSeats);
+            return inventoryChanged(findFlight(flightId));
+        }
+        int updatedRows = flightRepository.releaseSeats(flightId, numberOfSeats);
+        Flight flight = findFlight(flightId);
+        if(updatedRows == 0) {
+            throw new IllegalArgumentException(
+            		"Cannot release " + numberOfSeats + " seats, flight with Id " + 
+            		flightId + " would exceed its total seats.");
+        }
+        
+        return inventoryChanged(flight);
+    }
+    
+    @Override
+    public List<SeatDeltaResult> applySeatDeltas(List<SeatDelta> deltas) {
+        for(SeatDelta delta : deltas) {
+            if(delta.getFlightId() == null || delta.getDelta() == 0) {
+                throw new IllegalArgumentException("Every seat delta needs a flight ID and a non-zero delta.");
+            }
+            if(delta.getSeats().size() > Math.abs(delta.getDelta())) {
+                throw new IllegalArgumentException("A seat delta cannot name more seats than it changes.");
+            }
+        }
+        Set<Long> seatMapped = seatMapService.withSeatMap(deltas.stream()
+                .filter(delta -> !delta.getSeats().isEmpty())
+                .map(SeatDelta::getFlightId)
+                .collect(Collectors.toSet()));
+        if(inMemorySeatInventory != null) {
+            return applySeatDeltasInMemory(deltas, seatMapped);
+        }
+        
+        List<String> seatErrors = seatErrors(deltas, seatMapped);
+        List<SeatDelta> batch = new ArrayList<>(deltas.size());
+        for(int i = 0; i < deltas.size(); i++) {
+            if(seatErrors.get(i) == null) {
+                batch.add(deltas.get(i));
+            }
+        }
+        // one JDBC batch for the updates and one SELECT for the flights they touched,
+        // deltas sent again after a lost answer are recognised by their change ids.
+        // The seats of the applied deltas are written in the same transaction, a seat
+        // taken since it was checked rolls the lot back and the caller tries again
+        List<DeltaOutcome> batchOutcomes = new TransactionTemplate(transactionManager).execute(status -> {
+            List<DeltaOutcome> applied = flightRepository.adjustSeatsInBatch(batch);
+            for(int i = 0; i < batch.size(); i++) {
+                if(applied.get(i) == DeltaOutcome.APPLIED && seatMapped.contains(batch.get(i).getFlightId())) {
+                    changeSeatMap(batch.get(i));
+                }
+            }
+            return applied;
+        });
+        Map<Long, Flight> flights = flightsChangedBy(deltas);
+        
+        List<SeatDeltaResult> results = new ArrayList<>(deltas.size());
+        for(int i = 0, inBatch = 0; i < deltas.size(); i++) {
+            SeatDelta delta = deltas.get(i);
+            Flight flight = flights.get(delta.getFlightId());
+            DeltaOutcome outcome = seatErrors.get(i) == null ? batchOutcomes.get(inBatch++) : DeltaOutcome.NOT_APPLIED;
+            SeatDeltaResult result = new SeatDeltaResult(delta.getFlightId(), delta.getDelta(), 
+                    outcome.isApplied(), flight == null ? null : flight.getAvailableSeats(), null);
+            if(seatErrors.get(i) != null) {
+                result.setError(seatErrors.get(i));
+            } else if(outcome == DeltaOutcome.PARTLY_APPLIED) {
+                result.setError(PARTLY_APPLIED_ERROR);
+            } else if(flight == null && !result.isApplied()) {
+                result.setError("Flight not found with ID: " + delta.getFlightId());
+            } else if(!result.isApplied()) {
+                result.setError(seatDeltaError(delta));
+            }
+            results.add(result);
+        }
+        
+        return results;
+    }
+    
+    // checks the seats named by reservations against the seat maps before anything
+    // is written, a delta whose seats cannot be had is left out of the batch. Seats
+    // picked by an earlier delta of the request count as taken, and a delta sent
+    // again is left to adjustSeatsInBatch, its seats are its own already
+    private List<String> seatErrors(List<SeatDelta> deltas, Set<Long> seatMapped) {
+        List<String> errors = new ArrayList<>(Collections.nCopies(deltas.size(), null));
+        if(seatMapped.isEmpty()) {
+            return errors;
+        }
+        Set<String> known = flightRepository.findAppliedChanges(deltas.stream()
+                .filter(delta -> seatMapped.contains(delta.getFlightId()))
+                .flatMap(delta -> delta.getChangeIds().stream())
+                .toList());
+        Map<Long, Set<String>> picked = new HashMap<>();
+        for(int i = 0; i < deltas.size(); i++) {
+            SeatDelta delta = deltas.get(i);
+            if(delta.getDelta() > 0 || !seatMapped.contains(delta.getFlightId()) 
+                    || DeltaOutcome.ofReplay(delta.getChangeIds(), known) != null) {
+                continue;
+            }
+            try {
+                List<String> seats = seatMapService.checkClaim(delta.getFlightId(), delta.getSeats());
+                Set<String> pickedOnFlight = picked.computeIfAbsent(delta.getFlightId(), id -> new HashSet<>());
+                String taken = seats.stream().filter(pickedOnFlight::contains).collect(Collectors.joining(", "));
+                if(!taken.isEmpty()) {
+                    throw new SeatsUnavailableException("Seats already taken: " + taken);
+                }
+                pickedOnFlight.addAll(seats);
+            } catch(SeatsUnavailableException | IllegalArgumentException | FlightNotFoundException e) {
+                errors.set(i, e.getMessage());
+            }
+        }
+        return errors;
+    }
+    
+    // a reservation takes its seats, a release frees those that are still taken
+    private void changeSeatMap(SeatDelta delta) {
+        if(delta.getDelta() < 0) {
+            seatMapService.claimSeats(delta.getFlightId(), delta.getSeats());
+            return;
+        }
+        List<String> taken = seatMapService.takenSeats(delta.getFlightId(), delta.getSeats());
+        if(!taken.isEmpty()) {
+            seatMapService.releaseSeats(delta.getFlightId(), taken);
+        }
+    }
+    
+    // the in-memory inventory already groups the writes, each delta is simply
+    // decided against the counters in order. The seat map is written on its own
+    // here, seats claimed for a reservation that then does not fit are freed again
+    private List<SeatDeltaResult> applySeatDeltasInMemory(List<SeatDelta> deltas, Set<Long> seatMapped) {
+        List<SeatDeltaResult> results = new ArrayList<>(deltas.size());
+        for(SeatDelta delta : deltas) {
+            SeatDeltaResult result = new SeatDeltaResult(delta.getFlightId(), delta.getDelta(), false, null, null);
+            results.add(result);
+            DeltaOutcome replay = inMemorySeatInventory.claimChanges(delta.getChangeIds());
+            if(replay == DeltaOutcome.IN_FLIGHT) {
+                result.setRetryable(true);
+                result.setError(IN_FLIGHT_ERROR);
+                continue;
+            }
+            if(replay != null) {
+                result.setApplied(replay.isApplied());
+                result.setError(replay.isApplied() ? null : PARTLY_APPLIED_ERROR);
+                continue;
+            }
+            boolean claimsSeats = delta.getDelta() < 0 && seatMapped.contains(delta.getFlightId());
+            try {
+                if(claimsSeats) {
+                    seatMapService.claimSeats(delta.getFlightId(), delta.getSeats());
+                }
+            } catch(SeatsUnavailableException | IllegalArgumentException | FlightNotFoundException e) {
+                result.setError(e.getMessage());
+                inMemorySeatInventory.releaseChanges(delta.getChangeIds());
+                continue;
+            }
+            try {
+                if(delta.getDelta() < 0) {
+                    inMemorySeatInventory.reserve(delta.getFlightId(), -delta.getDelta(), delta.getChangeIds());
+                } else {
+                    inMemorySeatInventory.release(delta.getFlightId(), delta.getDelta(), delta.getChangeIds());
+                    if(seatMapped.contains(delta.getFlightId())) {
+                        changeSeatMap(delta);
+                    }
+                }
+                result.setApplied(true);
+            } catch(SeatsUnavailableException | IllegalArgumentException e) {
+                if(claimsSeats) {
+                    seatMapService.releaseSeats(delta.getFlightId(), delta.getSeats());
+                }
+                result.setError(seatDeltaError(delta));
+            } catch(FlightNotFoundException e) {
+                if(claimsSeats) {
+                    seatMapService.releaseSeats(delta.getFlightId(), delta.getSeats());
+                }
+                result.setError(e.getMessage());
+            } finally {
+                inMemorySeatInventory.releaseChanges(delta.getChangeIds());
+            }
+        }
+        Map<Long, Flight> flights = flightsChangedBy(deltas);
+        for(SeatDeltaResult result : results) {
+            Flight flight = flights.get(result.getFlightId());
+            result.setAvailableSeats(flight == null ? null : flight.getAvailableSeats());
+        }
+        
+        return results;
+    }
+    
+    private Map<Long, Flight> flightsChangedBy(List<SeatDelta> deltas) {
+        Map<Long, Flight> flights = flightRepository.findAllById(deltas.stream()
+                .map(SeatDelta::getFlightId)
+                .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Flight::getId, Function.identity()));
+        flights.values().forEach(this::inventoryChanged);
+        return flights;
+    }
+    
+    private static String seatDeltaError(SeatDelta delta) {
+        if(delta.getDelta() < 0) {
+            return "Insufficient seats available. Requested: " + -delta.getDelta();
+        }
+        return "Cannot release " + delta.getDelta() + " seats, flight with Id " + 
+                delta.getFlightId() + " would exceed its total seats.";
+    }
+    
+    private void validateSchedule(FlightDTO flightDto) {
+    	if(flightDto.getFromPlace().equalsIgnoreCase(flightDto.getToPlace())) {
+    		throw new IllegalArgumentException("Departure and arrival places cannot be the same.");
+        }
+
+        // Arrival time must be after Departure time
+        LocalTime departure = flightDto.getDepartureTime();
+        LocalTime arrival = flightDto.getArrivalTime();
+
+        if(!arrival.isAfter(departure)) {
+        	throw new IllegalArgumentException("Arrival time must be after the departure time.");
+        }
+    }
+    
+    private Flight findFlight(Long flightId) {
+        return flightRepository.findById(flightId)
+            .orElseThrow(() -> new FlightNotFoundException(
+            		"Flight not found with ID: " + flightId));
+    }
+    
+    // keeps the cached search results of the flight's route in line with the table
+    // and tells the gateway caches
+    private FlightDTO inventoryChanged(Flight flight) {
+        FlightDTO flightDto = flightEntityToDto(flight);
+        flightSearchCache.flightChanged(flightDto);
+        if(gatewayCachePurger != null) {
+            gatewayCachePurger.flightChanged(flightDto);
+        }
+        return flightDto;
+    }
+    
     private Flight flightDtoToEntity(FlightDTO flightDto) {
     	Flight flight = new Flight();
     	
@@ -0,0 +1,216 @@
+package com.example.flight.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.flight.dto.SeatHoldDTO;
+import com.example.flight.entity.SeatHold;
+import com.example.flight.exception.HoldNotFoundException;
+import com.example.flight.hold.HashedTimerWheel;
+import com.example.flight.repository.SeatHoldRepository;
+import com.example.flight.service.FlightService;
+import com.example.flight.service.SeatHoldService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds take their seats out of availableSeats straight away and are stored in
+ * seat_holds. Their expiry is tracked on a {@link HashedTimerWheel} of the instance
+ * that made them, expired holds are deleted and their seats released on a separate
+ * thread, grouped per flight. Nothing polls the table: every instance puts all
+ * outstanding holds on its wheel when it starts, so the holds of an instance that
+ * went away are expired by the next one to start, its replacement at the latest.
+ *
+ * Deleting the row decides the outcome, so a hold that is confirmed at the moment it
+ * expires is either confirmed or released, never both. The row is deleted in its own
+ * transaction and the seats are released after it committed, never while a
+ * transaction waits on the inventory. A hold whose seats could not be released is
+ * written back, already expired so it can no longer be confirmed, and tried again
+ * on the wheel after release-retry-seconds.
+ */
+@Service
+public class SeatHoldServiceImpl implements SeatHoldService {
+
+	private static final Logger log = LoggerFactory.getLogger(SeatHoldServiceImpl.class);
+
+	@Autowired
+	FlightService flightService;
+	
+	@Autowired
+	SeatHoldRepository seatHoldRepository;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	private final Duration ttl;
+	private final Duration tick;
+	private final int wheelSize;
+	private final Duration releaseRetry;
+	private final Map<String, HashedTimerWheel.Timeout<SeatHold>> timeouts = new ConcurrentHashMap<>();
+	private HashedTimerWheel<SeatHold> wheel;
+	private ExecutorService expiryExecutor;
+
+	public SeatHoldServiceImpl(@Value("${flight.hold.ttl-seconds:600}") long ttlSeconds,
+			@Value("${flight.hold.tick-millis:1000}") long tickMillis,
+			@Value("${flight.hold.wheel-size:1024}") int wheelSize,
+			@Value("${flight.hold.release-retry-seconds:60}") long releaseRetrySeconds) {
+		this.ttl = Duration.ofSeconds(ttlSeconds);
+		this.tick = Duration.ofMillis(tickMillis);
+		this.wheelSize = wheelSize;
+		this.releaseRetry = Duration.ofSeconds(releaseRetrySeconds);
+	}
+
+	@PostConstruct
+	public void start() {
+		expiryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "seat-hold-expiry");
+			thread.setDaemon(true);
+			return thread;
+		});
+		wheel = new HashedTimerWheel<>("seat-hold-timer", tick, wheelSize,
+				expired -> expiryExecutor.execute(() -> releaseExpired(expired)));
+		
+		// holds outlive a restart in the table, put them back on the wheel,
+		// the ones that expired while the service was down go at the next tick
+		Instant now = Instant.now();
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			try (Stream<SeatHold> holds = seatHoldRepository.streamAll()) {
+				holds.forEach(hold -> schedule(hold, now));
+			}
+		});
+		log.info("Seat holds started, ttl {}, {} holds outstanding", ttl, wheel.pending());
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		wheel.close();
+		expiryExecutor.shutdown();
+		expiryExecutor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public SeatHoldDTO holdSeats(Long flightId, int numberOfSeats) {
+		flightService.reserveSeats(flightId, numberOfSeats);
+		Instant now = Instant.now();
+		SeatHold hold = new SeatHold(UUID.randomUUID().toString(), flightId, numberOfSeats, now.plus(ttl));
+		try {
+			seatHoldRepository.save(hold);
+		} catch (RuntimeException e) {
+			flightService.releaseSeats(flightId, numberOfSeats);
+			throw e;
+		}
+		schedule(hold, now);
+		
+		return holdEntityToDto(hold);
+	}
+
+	@Override
+	public SeatHoldDTO confirmHold(String holdId) {
+		SeatHold hold = findHold(holdId);
+		if (seatHoldRepository.deleteActive(holdId, Instant.now()) == 0) {
+			throw new HoldNotFoundException("Seat hold " + holdId + " not found or expired.");
+		}
+		cancel(holdId);
+		
+		return holdEntityToDto(hold);
+	}
+
+	@Override
+	public void releaseHold(String holdId) {
+		SeatHold hold = findHold(holdId);
+		if (seatHoldRepository.deleteHold(holdId) == 0) {
+			throw new HoldNotFoundException("Seat hold " + holdId + " not found or expired.");
+		}
+		cancel(holdId);
+		try {
+			flightService.releaseSeats(hold.getFlightId(), hold.getNumberOfSeats());
+		} catch (RuntimeException e) {
+			// the hold stands as it was, until it expires or is released again
+			restore(List.of(hold), Duration.between(Instant.now(), hold.getExpiresAt()));
+			throw e;
+		}
+	}
+
+	// outstanding holds on this instance's wheel
+	public int pendingHolds() {
+		return wheel.pending();
+	}
+
+	private void schedule(SeatHold hold, Instant now) {
+		timeouts.put(hold.getHoldId(), wheel.schedule(hold, Duration.between(now, hold.getExpiresAt())));
+	}
+
+	private void cancel(String holdId) {
+		HashedTimerWheel.Timeout<SeatHold> timeout = timeouts.remove(holdId);
+		if (timeout != null) {
+			timeout.cancel();
+		}
+	}
+
+	private void releaseExpired(List<SeatHold> expired) {
+		// one release per flight for everything that expired together, of the holds
+		// whose rows were deleted here, a hold another instance deleted is its to release
+		Map<Long, List<SeatHold>> holdsByFlight = new TreeMap<>();
+		for (SeatHold hold : expired) {
+			cancel(hold.getHoldId());
+			try {
+				if (seatHoldRepository.deleteHold(hold.getHoldId()) == 1) {
+					holdsByFlight.computeIfAbsent(hold.getFlightId(), flightId -> new ArrayList<>()).add(hold);
+				}
+			} catch (RuntimeException e) {
+				log.error("Could not expire seat hold {}, trying again in {}", hold.getHoldId(), releaseRetry, e);
+				timeouts.put(hold.getHoldId(), wheel.schedule(hold, releaseRetry));
+			}
+		}
+		holdsByFlight.forEach((flightId, holds) -> {
+			try {
+				flightService.releaseSeats(flightId, holds.stream().mapToInt(SeatHold::getNumberOfSeats).sum());
+			} catch (RuntimeException e) {
+				log.error("Could not release the seats of {} expired holds of flight {}, trying again in {}",
+						holds.size(), flightId, releaseRetry, e);
+				restore(holds, releaseRetry);
+			}
+		});
+	}
+
+	// writes back holds whose seats are still taken and puts them on the wheel again
+	private void restore(List<SeatHold> holds, Duration delay) {
+		try {
+			seatHoldRepository.saveAll(holds);
+		} catch (RuntimeException e) {
+			log.error("Could not write back {} seat holds, their seats stay taken", holds.size(), e);
+			return;
+		}
+		for (SeatHold hold : holds) {
+			timeouts.put(hold.getHoldId(), wheel.schedule(hold, delay));
+		}
+	}
+
+	private SeatHold findHold(String holdId) {
+		return seatHoldRepository.findById(holdId)
+				.orElseThrow(() -> new HoldNotFoundException("Seat hold " + holdId + " not found or expired."));
+	}
+
+	private SeatHoldDTO holdEntityToDto(SeatHold hold) {
+		return new SeatHoldDTO(hold.getHoldId(), hold.getFlightId(), hold.getNumberOfSeats(), hold.getExpiresAt());
+	}
+}
@@ -0,0 +1,229 @@
+package com.example.flight.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.flight.dto.SeatMapDTO;
+import com.example.flight.entity.Flight;
+import com.example.flight.entity.SeatMap;
+import com.example.flight.exception.FlightNotFoundException;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.repository.SeatMapRepository;
+import com.example.flight.seatmap.SeatLayout;
+import com.example.flight.seatmap.SeatMapState;
+import com.example.flight.service.SeatMapService;
+
+/**
+ * Seat maps are kept in memory as immutable {@link SeatMapState} snapshots, reads just
+ * return the current one. Changes to a flight are serialized on that flight only and
+ * written through with a version check, so an instance holding a stale map reloads it
+ * and re-checks the seats instead of overwriting someone else's claim.
+ */
+@Service
+public class SeatMapServiceImpl implements SeatMapService {
+
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Autowired
+	SeatMapRepository seatMapRepository;
+	
+	@Autowired
+	FlightRepository flightRepository;
+	
+	private final Map<Long, FlightSeats> seatMaps = new ConcurrentHashMap<>();
+
+	@Override
+	public SeatMapDTO createSeatMap(Long flightId, int rows, String columns) {
+		Flight flight = flightRepository.findById(flightId)
+				.orElseThrow(() -> new FlightNotFoundException("Flight not found with ID: " + flightId));
+		SeatLayout layout = SeatLayout.of(rows, columns);
+		if (layout.getSeatCount() != flight.getTotalSeats()) {
+			throw new IllegalArgumentException("Seat map has " + layout.getSeatCount() + 
+					" seats but flight with Id " + flightId + " has " + flight.getTotalSeats() + ".");
+		}
+		if (layout.getSeatCount() > SeatMap.MAX_SEATS) {
+			throw new IllegalArgumentException("A seat map holds at most " + SeatMap.MAX_SEATS + " seats.");
+		}
+		try {
+			seatMapRepository.insert(flightId, rows, columns, new byte[0]);
+		} catch (DataIntegrityViolationException e) {
+			throw new IllegalArgumentException("Flight with Id " + flightId + " already has a seat map.");
+		}
+		
+		SeatMapState state = new SeatMapState(layout, new BitSet(), 0L);
+		seatMaps.put(flightId, new FlightSeats(state));
+		return toDto(flightId, state);
+	}
+
+	@Override
+	public SeatMapDTO getSeatMap(Long flightId) {
+		return toDto(flightId, seatsOf(flightId).state);
+	}
+
+	@Override
+	public List<String> claimSeats(Long flightId, List<String> seats) {
+		return labels(flightId, change(flightId, state -> freeSeats(state, seats), true));
+	}
+
+	@Override
+	public List<String> autoAssignSeats(Long flightId, int numberOfSeats) {
+		if (numberOfSeats <= 0) {
+			throw new IllegalArgumentException("Number of seats must be at least one.");
+		}
+		return labels(flightId, change(flightId, state -> {
+			int[] indexes = state.getLayout().findAdjacentFree(state.getOccupied(), numberOfSeats);
+			if (indexes == null) {
+				throw new SeatsUnavailableException("Insufficient seats available. Requested: " + 
+						numberOfSeats + ", Available: " + state.getFreeSeats());
+			}
+			return indexes;
+		}, true));
+	}
+
+	@Override
+	public List<String> releaseSeats(Long flightId, List<String> seats) {
+		return labels(flightId, change(flightId, state -> {
+			int[] indexes = indexesOf(state.getLayout(), seats);
+			String free = Arrays.stream(indexes)
+					.filter(seat -> !state.isOccupied(seat))
+					.mapToObj(state.getLayout()::labelOf)
+					.collect(Collectors.joining(", "));
+			if (!free.isEmpty()) {
+				throw new IllegalArgumentException("Seats are not taken: " + free);
+			}
+			return indexes;
+		}, false));
+	}
+
+	@Override
+	public Set<Long> withSeatMap(Collection<Long> flightIds) {
+		return flightIds.isEmpty() ? Set.of() : seatMapRepository.findFlightIdsIn(flightIds);
+	}
+
+	@Override
+	public List<String> checkClaim(Long flightId, List<String> seats) {
+		SeatMapState state = seatsOf(flightId).state;
+		return Arrays.stream(freeSeats(state, seats))
+				.mapToObj(state.getLayout()::labelOf)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<String> takenSeats(Long flightId, List<String> seats) {
+		SeatMapState state = seatsOf(flightId).state;
+		List<String> taken = new ArrayList<>();
+		for (String seat : seats) {
+			try {
+				int index = state.getLayout().indexOf(seat);
+				if (state.isOccupied(index) && !taken.contains(state.getLayout().labelOf(index))) {
+					taken.add(state.getLayout().labelOf(index));
+				}
+			} catch (IllegalArgumentException e) {
+				// an unknown seat was never claimed
+			}
+		}
+		return taken;
+	}
+
+	// picks the seats on the current snapshot and writes the new one through,
+	// reloading and picking again when another instance got there first
+	private int[] change(Long flightId, Function<SeatMapState, int[]> pick, boolean occupy) {
+		FlightSeats flightSeats = seatsOf(flightId);
+		synchronized (flightSeats) {
+			for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+				SeatMapState current = flightSeats.state;
+				int[] seats = pick.apply(current);
+				SeatMapState changed = current.with(seats, occupy, current.getVersion() + 1);
+				if (seatMapRepository.updateOccupancy(flightId, changed.toBytes(), current.getVersion()) == 1) {
+					flightSeats.state = changed;
+					forgetOnRollback(flightId);
+					return seats;
+				}
+				flightSeats.state = load(flightId);
+			}
+		}
+		throw new SeatsUnavailableException("Seat map of flight with Id " + flightId + 
+				" is changing too fast, please try again.");
+	}
+
+	// a change made inside a caller's transaction is undone with it, the snapshot
+	// is dropped then and reloaded on next use
+	private void forgetOnRollback(Long flightId) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					if (status != STATUS_COMMITTED) {
+						seatMaps.remove(flightId);
+					}
+				}
+			});
+		}
+	}
+
+	private FlightSeats seatsOf(Long flightId) {
+		return seatMaps.computeIfAbsent(flightId, id -> new FlightSeats(load(id)));
+	}
+
+	private SeatMapState load(Long flightId) {
+		SeatMap seatMap = seatMapRepository.findById(flightId)
+				.orElseThrow(() -> new FlightNotFoundException("Seat map not found for flight with ID: " + flightId));
+		return SeatMapState.fromBytes(SeatLayout.of(seatMap.getSeatRows(), seatMap.getSeatColumns()), 
+				seatMap.getOccupancy(), seatMap.getVersion());
+	}
+
+	private static int[] freeSeats(SeatMapState state, List<String> seats) {
+		int[] indexes = indexesOf(state.getLayout(), seats);
+		String taken = Arrays.stream(indexes)
+				.filter(state::isOccupied)
+				.mapToObj(state.getLayout()::labelOf)
+				.collect(Collectors.joining(", "));
+		if (!taken.isEmpty()) {
+			throw new SeatsUnavailableException("Seats already taken: " + taken);
+		}
+		return indexes;
+	}
+
+	private static int[] indexesOf(SeatLayout layout, List<String> seats) {
+		int[] indexes = seats.stream().mapToInt(layout::indexOf).distinct().toArray();
+		if (indexes.length != seats.size()) {
+			throw new IllegalArgumentException("The same seat is listed more than once.");
+		}
+		return indexes;
+	}
+
+	private List<String> labels(Long flightId, int[] seats) {
+		SeatLayout layout = seatMaps.get(flightId).state.getLayout();
+		return Arrays.stream(seats).mapToObj(layout::labelOf).collect(Collectors.toList());
+	}
+
+	private static SeatMapDTO toDto(Long flightId, SeatMapState state) {
+		SeatLayout layout = state.getLayout();
+		return new SeatMapDTO(flightId, layout.getRows(), layout.getColumns(), layout.getSeatCount(),
+				state.getFreeSeats(), state.getOccupiedSeats());
+	}
+
+	// holder of the current snapshot, also the lock for changes to the flight
+	private static final class FlightSeats {
+		private volatile SeatMapState state;
+
+		private FlightSeats(SeatMapState state) {
+			this.state = state;
+		}
+	}
+}
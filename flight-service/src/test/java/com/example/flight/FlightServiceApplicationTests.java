@@ -1,13 +1,28 @@
 package com.example.flight;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+import com.example.flight.cache.GatewayCachePurger;
 
+// boots with the shipped application.properties and nothing else
 @SpringBootTest
 class FlightServiceApplicationTests {
 
+	@Autowired
+	private ApplicationContext context;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void gatewayPurging_isOffUntilEnabled() {
+		assertTrue(context.getBeansOfType(GatewayCachePurger.class).isEmpty());
+	}
+
 }
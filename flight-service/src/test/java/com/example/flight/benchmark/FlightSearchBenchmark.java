@@ -0,0 +1,145 @@
+package com.example.flight.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.flight.FlightServiceApplication;
+import com.example.flight.dto.FlightDTO;
+import com.example.flight.entity.Flight;
+import com.example.flight.repository.FlightRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Search latency over 1M seeded flights, with and without the composite
+ * route/date index, loading managed entities and copying them into DTOs
+ * against the constructor-expression projection. The search cache is bypassed.
+ *
+ * Run from the flight-service directory with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.example.flight.benchmark.FlightSearchBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlightSearchBenchmark {
+
+	private static final int FLIGHTS = 1_000_000;
+	private static final String[] CITIES = { "BLR", "BOM", "DEL", "MAA", "HYD", "CCU", "GOI", "PNQ", "AMD", "COK",
+			"JAI", "LKO", "IXC", "GAU", "PAT", "BBI", "IXB", "SXR", "TRV", "VNS" };
+	private static final int DAYS = 180;
+	private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+	@Param({ "true", "false" })
+	public boolean indexed;
+
+	private ConfigurableApplicationContext context;
+	private FlightRepository flightRepository;
+	private EntityManager entityManager;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = SpringApplication.run(FlightServiceApplication.class,
+				"--spring.main.web-application-type=none",
+				"--spring.cloud.config.enabled=false",
+				"--eureka.client.enabled=false",
+				"--spring.devtools.restart.enabled=false",
+				"--spring.datasource.url=jdbc:h2:mem:search;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.jpa.hibernate.ddl-auto=create-drop",
+				"--logging.level.root=WARN");
+		flightRepository = context.getBean(FlightRepository.class);
+		entityManager = context.getBean(EntityManager.class);
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		List<Object[]> batch = new ArrayList<>(10_000);
+		for (int i = 0; i < FLIGHTS; i++) {
+			int from = random.nextInt(CITIES.length);
+			int to = (from + 1 + random.nextInt(CITIES.length - 1)) % CITIES.length;
+			int departure = random.nextInt(6, 20);
+			batch.add(new Object[] { "Air" + random.nextInt(10), CITIES[from], CITIES[to],
+					FIRST_DAY.plusDays(random.nextInt(DAYS)), LocalTime.of(departure, 0),
+					LocalTime.of(departure + 2, 30), 2000.0 + random.nextInt(8000), 180, random.nextInt(0, 181) });
+			if (batch.size() == 10_000) {
+				insert(jdbcTemplate, batch);
+			}
+		}
+		if (!indexed) {
+			jdbcTemplate.execute("DROP INDEX idx_flights_route_date_seats");
+		}
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	private static void insert(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+		jdbcTemplate.batchUpdate("INSERT INTO flights (airline_name, from_place, to_place, schedule_date, "
+				+ "departure_time, arrival_time, price, total_seats, available_seats) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+		batch.clear();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<FlightDTO> entitiesCopiedToDtos() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(CITIES.length);
+		List<Flight> flights = entityManager.createQuery("SELECT f FROM Flight f WHERE f.fromPlace = :fromPlace "
+				+ "AND f.toPlace = :toPlace AND f.scheduleDate = :scheduleDate AND f.availableSeats > 0", Flight.class)
+				.setParameter("fromPlace", CITIES[from])
+				.setParameter("toPlace", CITIES[(from + 1) % CITIES.length])
+				.setParameter("scheduleDate", FIRST_DAY.plusDays(random.nextInt(DAYS)))
+				.getResultList();
+		List<FlightDTO> flightDtos = new ArrayList<>(flights.size());
+		for (Flight flight : flights) {
+			flightDtos.add(new FlightDTO(flight.getId(), flight.getAirlineName(), flight.getFromPlace(),
+					flight.getToPlace(), flight.getScheduleDate(), flight.getDepartureTime(), flight.getArrivalTime(),
+					flight.getPrice(), flight.getTotalSeats(), flight.getAvailableSeats()));
+		}
+		return flightDtos;
+	}
+
+	@Benchmark
+	public List<FlightDTO> projection() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(CITIES.length);
+		return flightRepository.searchFlights(CITIES[from], CITIES[(from + 1) % CITIES.length],
+				FIRST_DAY.plusDays(random.nextInt(DAYS)), 0);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(FlightSearchBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
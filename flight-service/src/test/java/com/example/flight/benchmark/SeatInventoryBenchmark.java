@@ -0,0 +1,103 @@
+package com.example.flight.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.flight.FlightServiceApplication;
+import com.example.flight.entity.Flight;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.service.FlightService;
+
+/**
+ * Reserve-then-release throughput on a single hot flight, JPA conditional update
+ * against the in-memory counters with write-behind, at 1, 8 and 64 threads.
+ *
+ * Runs against H2 so the absolute numbers are lower than on MySQL, the gap between
+ * the two modes is what matters. Run from the flight-service directory with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.flight.benchmark.SeatInventoryBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatInventoryBenchmark {
+
+	@Param({ "jpa", "in-memory" })
+	public String mode;
+
+	private ConfigurableApplicationContext context;
+	private FlightService flightService;
+	private Long flightId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = SpringApplication.run(FlightServiceApplication.class,
+				"--spring.main.web-application-type=none",
+				"--spring.cloud.config.enabled=false",
+				"--eureka.client.enabled=false",
+				"--spring.devtools.restart.enabled=false",
+				"--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.datasource.hikari.maximum-pool-size=16",
+				"--spring.jpa.hibernate.ddl-auto=create-drop",
+				"--logging.level.root=WARN",
+				"--flight.inventory.mode=" + mode);
+		flightService = context.getBean(FlightService.class);
+
+		Flight flight = new Flight();
+		flight.setAirlineName("BenchAir");
+		flight.setFromPlace("AAA");
+		flight.setToPlace("BBB");
+		flight.setScheduleDate(LocalDate.now().plusDays(30));
+		flight.setDepartureTime(LocalTime.of(10, 0));
+		flight.setArrivalTime(LocalTime.of(12, 0));
+		flight.setPrice(100.0);
+		flight.setTotalSeats(1_000_000);
+		flight.setAvailableSeats(500_000);
+		flightId = context.getBean(FlightRepository.class).save(flight).getId();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Object reserveAndRelease() {
+		flightService.reserveSeats(flightId, 1);
+		return flightService.releaseSeats(flightId, 1);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int threads : new int[] { 1, 8, 64 }) {
+			Options options = new OptionsBuilder()
+					.include(SeatInventoryBenchmark.class.getSimpleName())
+					.threads(threads)
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.flight.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.flight.FlightServiceApplication;
+import com.example.flight.dto.SeatMapDTO;
+import com.example.flight.entity.Flight;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.service.SeatMapService;
+
+/**
+ * Seat map reads of a 400 seat aircraft while other threads keep claiming and
+ * releasing seat pairs on the same flight, three readers per writer.
+ *
+ * Run from the flight-service directory with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.example.flight.benchmark.SeatMapBenchmark}
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatMapBenchmark {
+
+	private static final String COLUMNS = "ABCD-EFGH";
+	private static final int ROWS = 50;
+
+	private ConfigurableApplicationContext context;
+	private SeatMapService seatMapService;
+	private Long flightId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = SpringApplication.run(FlightServiceApplication.class,
+				"--spring.main.web-application-type=none",
+				"--spring.cloud.config.enabled=false",
+				"--eureka.client.enabled=false",
+				"--spring.devtools.restart.enabled=false",
+				"--spring.datasource.url=jdbc:h2:mem:seatmap;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.jpa.hibernate.ddl-auto=create-drop",
+				"--logging.level.root=WARN");
+		seatMapService = context.getBean(SeatMapService.class);
+
+		Flight flight = new Flight();
+		flight.setAirlineName("BenchAir");
+		flight.setFromPlace("AAA");
+		flight.setToPlace("BBB");
+		flight.setScheduleDate(LocalDate.now().plusDays(30));
+		flight.setDepartureTime(LocalTime.of(10, 0));
+		flight.setArrivalTime(LocalTime.of(12, 0));
+		flight.setPrice(100.0);
+		flight.setTotalSeats(ROWS * 8);
+		flight.setAvailableSeats(ROWS * 8);
+		flightId = context.getBean(FlightRepository.class).save(flight).getId();
+		seatMapService.createSeatMap(flightId, ROWS, COLUMNS);
+		// a half full cabin
+		for (int row = 1; row <= ROWS; row += 2) {
+			seatMapService.claimSeats(flightId, List.of(row + "A", row + "B", row + "C", row + "D",
+					row + "E", row + "F", row + "G", row + "H"));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	@Group("readsUnderHolds")
+	@GroupThreads(3)
+	public SeatMapDTO read() {
+		return seatMapService.getSeatMap(flightId);
+	}
+
+	@Benchmark
+	@Group("readsUnderHolds")
+	@GroupThreads(1)
+	public Object claimAndRelease() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int row = 2 * random.nextInt(1, ROWS / 2 + 1);
+		List<String> seats = List.of(row + "B", row + "C");
+		try {
+			seatMapService.claimSeats(flightId, seats);
+		} catch (SeatsUnavailableException e) {
+			return e;
+		}
+		return seatMapService.releaseSeats(flightId, seats);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(SeatMapBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.flight.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.flight.dto.FlightDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FlightSearchCacheTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 25);
+
+    private FlightSearchCache cache;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FlightSearchCache(2, 30);
+        meterRegistry = new SimpleMeterRegistry();
+        cache.bindMetrics(meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    private FlightDTO flight(Long id, String from, String to, int availableSeats) {
+        FlightDTO flight = new FlightDTO();
+        flight.setId(id);
+        flight.setFromPlace(from);
+        flight.setToPlace(to);
+        flight.setScheduleDate(DATE);
+        flight.setAvailableSeats(availableSeats);
+        return flight;
+    }
+
+    private List<FlightDTO> search(String from, String to, List<FlightDTO> fromDatabase) {
+        return cache.get(from, to, DATE, () -> {
+            loads.incrementAndGet();
+            return fromDatabase;
+        });
+    }
+
+    @Test
+    void get_sameRouteDifferentCase_loadsOnce() {
+        search("AAA", "BBB", List.of(flight(1L, "AAA", "BBB", 5)));
+        List<FlightDTO> results = search(" aaa", "bbb", List.of());
+
+        assertEquals(1, results.size());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", FlightSearchCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", FlightSearchCache.CACHE_NAME)
+                .tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void getIfPresent_onlyAnswersWhatWasLoaded() {
+        assertNull(cache.getIfPresent("AAA", "BBB", DATE));
+        search("AAA", "BBB", List.of(flight(1L, "AAA", "BBB", 5)));
+
+        assertEquals(1, cache.getIfPresent("aaa", "BBB ", DATE).size());
+        assertNull(cache.getIfPresent("AAA", "BBB", DATE.plusDays(1)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void flightChanged_soldOut_removedFromCachedResult() {
+        search("AAA", "BBB", List.of(flight(1L, "AAA", "BBB", 5), flight(2L, "AAA", "BBB", 3)));
+
+        cache.flightChanged(flight(1L, "AAA", "BBB", 0));
+
+        List<FlightDTO> results = search("AAA", "BBB", List.of());
+        assertEquals(1, results.size());
+        assertEquals(2L, results.get(0).getId());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("flight.search.cache.patches").counter().count());
+    }
+
+    @Test
+    void flightChanged_seatsReleased_patchedOrAppended() {
+        search("AAA", "BBB", List.of(flight(1L, "AAA", "BBB", 5)));
+
+        cache.flightChanged(flight(1L, "AAA", "BBB", 7));
+        cache.flightChanged(flight(3L, "AAA", "BBB", 10));
+
+        List<FlightDTO> results = search("AAA", "BBB", List.of());
+        assertEquals(2, results.size());
+        assertEquals(7, results.get(0).getAvailableSeats());
+        assertEquals(3L, results.get(1).getId());
+    }
+
+    @Test
+    void flightChanged_otherRoute_leavesEntryAlone() {
+        search("AAA", "BBB", List.of(flight(1L, "AAA", "BBB", 5)));
+
+        cache.flightChanged(flight(9L, "CCC", "DDD", 5));
+
+        assertEquals(1, search("AAA", "BBB", List.of()).size());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void get_beyondMaximumSize_evictsAndCountsEvictions() {
+        search("AAA", "BBB", List.of());
+        search("AAA", "CCC", List.of());
+        search("AAA", "DDD", List.of());
+        cache.cleanUp();
+
+        assertTrue(cache.size() <= 2);
+        assertTrue(meterRegistry.get("cache.evictions").tag("cache", FlightSearchCache.CACHE_NAME)
+                .functionCounter().count() >= 1.0);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.flight.cache;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import com.example.flight.dto.FlightDTO;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+class GatewayCachePurgerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 25);
+
+    private DiscoveryClient discoveryClient;
+    private MockRestServiceServer gateways;
+    private RestClient.Builder builder;
+    private GatewayCachePurger purger;
+
+    @BeforeEach
+    void setUp() {
+        discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances("API-GATEWAY")).thenReturn(List.of(
+                new DefaultServiceInstance("gw-1", "API-GATEWAY", "gw1", 8080, false),
+                new DefaultServiceInstance("gw-2", "API-GATEWAY", "gw2", 8080, false)));
+        // dates as ISO strings, like the builder Spring Boot hands out
+        builder = RestClient.builder().messageConverters(converters -> {
+            converters.removeIf(MappingJackson2HttpMessageConverter.class::isInstance);
+            converters.add(new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build()));
+        });
+        gateways = MockRestServiceServer.bindTo(builder).build();
+        // a long interval, the test flushes by hand
+        purger = new GatewayCachePurger(discoveryClient, builder, "API-GATEWAY", "secret", 600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        purger.stop();
+    }
+
+    private static FlightDTO flight(long id, int availableSeats) {
+        return new FlightDTO(id, "TestAir", "BLR", "DEL", DATE, LocalTime.of(10, 0), LocalTime.of(12, 0),
+                150.0, 100, availableSeats);
+    }
+
+    @Test
+    void flush_sendsEachChangedFlightOnceToEveryGateway() {
+        String purges = "[{\"flightId\":1,\"fromPlace\":\"BLR\",\"toPlace\":\"DEL\",\"scheduleDate\":\"2025-12-25\"}]";
+        for (String gateway : List.of("http://gw1:8080", "http://gw2:8080")) {
+            gateways.expect(requestTo(gateway + GatewayCachePurger.PURGE_PATH))
+                    .andExpect(method(HttpMethod.POST))
+                    .andExpect(header(GatewayCachePurger.TOKEN_HEADER, "secret"))
+                    .andExpect(content().json(purges, true))
+                    .andRespond(withNoContent());
+        }
+
+        purger.flightChanged(flight(1, 9));
+        purger.flightChanged(flight(1, 8));
+        purger.flush();
+        // nothing changed since, nothing is sent
+        purger.flush();
+
+        gateways.verify();
+    }
+
+    @Test
+    void flush_aGatewayThatFailsDoesNotKeepTheOthersStale() {
+        gateways.expect(ExpectedCount.once(), requestTo("http://gw1:8080" + GatewayCachePurger.PURGE_PATH))
+                .andRespond(withServerError());
+        gateways.expect(ExpectedCount.once(), requestTo("http://gw2:8080" + GatewayCachePurger.PURGE_PATH))
+                .andRespond(withNoContent());
+
+        purger.flightChanged(flight(2, 5));
+        purger.flush();
+
+        gateways.verify();
+    }
+
+    @Test
+    void scheduledFlush_keepsRunningAfterTheDiscoveryClientFailed() {
+        when(discoveryClient.getInstances("API-GATEWAY"))
+                .thenThrow(new IllegalStateException("registry unreachable"))
+                .thenReturn(List.of());
+        GatewayCachePurger scheduled = new GatewayCachePurger(discoveryClient, builder, "API-GATEWAY", "secret", 10);
+        try {
+            scheduled.flightChanged(flight(3, 5));
+            verify(discoveryClient, timeout(2000)).getInstances("API-GATEWAY");
+            scheduled.flightChanged(flight(3, 4));
+
+            verify(discoveryClient, timeout(2000).times(2)).getInstances("API-GATEWAY");
+        } finally {
+            scheduled.stop();
+        }
+    }
+
+    @Test
+    void constructor_withoutToken_refusesToPurge() {
+        assertThrows(IllegalStateException.class,
+                () -> new GatewayCachePurger(discoveryClient, builder, "API-GATEWAY", null, 600_000));
+        assertThrows(IllegalStateException.class,
+                () -> new GatewayCachePurger(discoveryClient, builder, "API-GATEWAY", " ", 600_000));
+    }
+}
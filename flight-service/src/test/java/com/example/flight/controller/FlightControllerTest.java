@@ -1,34 +1,52 @@
 package com.example.flight.controller;
 
+import com.example.flight.deadline.Deadline;
+import com.example.flight.dto.BulkFlightResult;
 import com.example.flight.dto.FlightDTO;
+import com.example.flight.dto.FlightRangeSearchRequest;
+import com.example.flight.dto.Route;
 import com.example.flight.dto.FlightSearchRequest;
-import com.example.flight.entity.Flight;
+import com.example.flight.dto.SeatDelta;
+import com.example.flight.dto.SeatDeltaResult;
+import com.example.flight.dto.SeatReservationRequest;
+import com.example.flight.exception.DeadlineExceededException;
+import com.example.flight.exception.SeatsUnavailableException;
 import com.example.flight.service.FlightService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-@WebMvcTest(FlightController.class)
+@WebMvcTest(controllers = FlightController.class, 
+        properties = { "flight.ingest.batch-size=2", "flight.inventory.max-seat-deltas=2" })
 class FlightControllerTest {
 
     @Autowired
@@ -67,17 +85,8 @@ class FlightControllerTest {
 
     @Test
     void searchFlights_success_returnsList() throws Exception {
-        Flight flight = new Flight();
-        flight.setId(1L);
-        flight.setAirlineName("Indigo");
-        flight.setFromPlace("AAA");
-        flight.setToPlace("BBB");
-        flight.setScheduleDate(LocalDate.of(2025, 12, 25));
-        flight.setDepartureTime(LocalTime.of(10, 0));
-        flight.setArrivalTime(LocalTime.of(12, 0));
-        flight.setTotalSeats(100);
+        FlightDTO flight = sampleFlight();
         flight.setAvailableSeats(60);
-        flight.setPrice(100.0);
 
         when(flightService.searchFlights("AAA", "BBB", LocalDate.of(2025, 12, 25)))
                 .thenReturn(List.of(flight));
@@ -127,4 +136,240 @@ class FlightControllerTest {
         )
         .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    void reserveSeats_success_returnsUpdatedFlight() throws Exception {
+        FlightDTO dto = sampleFlight();
+        dto.setAvailableSeats(48);
+        when(flightService.reserveSeats(1L, 2)).thenReturn(dto);
+        mockMvc.perform(
+                put("/api/v1.0/flight/1/reserve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new SeatReservationRequest(2)))
+        )
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.availableSeats").value(48));
+    }
+
+    @Test
+    void reserveSeats_insufficientSeats_returnsConflict() throws Exception {
+        when(flightService.reserveSeats(1L, 2))
+                .thenThrow(new SeatsUnavailableException("Insufficient seats available."));
+        mockMvc.perform(
+                put("/api/v1.0/flight/1/reserve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new SeatReservationRequest(2)))
+        )
+        .andExpect(status().isConflict())
+        .andExpect(content().string("Insufficient seats available."));
+    }
+
+    @Test
+    void reserveSeats_deadlineAlreadyPassed_returnsGatewayTimeoutWithoutReserving() throws Exception {
+        mockMvc.perform(
+                put("/api/v1.0/flight/1/reserve")
+                        .header(Deadline.HEADER, "0")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new SeatReservationRequest(2)))
+        )
+        .andExpect(status().isGatewayTimeout());
+
+        verify(flightService, never()).reserveSeats(anyLong(), anyInt());
+    }
+
+    @Test
+    void reserveSeats_deadlinePassesWhileReserving_returnsGatewayTimeout() throws Exception {
+        when(flightService.reserveSeats(1L, 2))
+                .thenThrow(new DeadlineExceededException("Deadline exceeded before reserving seats."));
+        mockMvc.perform(
+                put("/api/v1.0/flight/1/reserve")
+                        .header(Deadline.HEADER, "1000")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new SeatReservationRequest(2)))
+        )
+        .andExpect(status().isGatewayTimeout())
+        .andExpect(content().string("Deadline exceeded before reserving seats."));
+    }
+
+    @Test
+    void reserveSeats_zeroSeats_returnsBadRequest() throws Exception {
+        mockMvc.perform(
+                put("/api/v1.0/flight/1/reserve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new SeatReservationRequest(0)))
+        )
+        .andExpect(status().isBadRequest());
+    }
+
+    private void acceptEveryFlight() {
+        when(flightService.addFlights(anyList(), anyInt())).thenAnswer(invocation -> {
+            List<FlightDTO> flights = invocation.getArgument(0);
+            int firstRow = invocation.getArgument(1);
+            List<BulkFlightResult> results = new ArrayList<>();
+            for (int i = 0; i < flights.size(); i++) {
+                results.add(new BulkFlightResult(firstRow + i, true, 100L + firstRow + i, null));
+            }
+            return results;
+        });
+    }
+
+    @Test
+    void addFlightInventoryBulk_jsonArray_insertsInBatches() throws Exception {
+        acceptEveryFlight();
+        List<FlightDTO> flights = List.of(sampleFlight(), sampleFlight(), sampleFlight());
+        mockMvc.perform(
+                post("/api/v1.0/flight/airline/inventory/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(flights))
+        )
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.accepted").value(3))
+        .andExpect(jsonPath("$.rejected").value(0))
+        .andExpect(jsonPath("$.results[2].row").value(2))
+        .andExpect(jsonPath("$.results[2].id").value(102));
+
+        verify(flightService).addFlights(argThat(batch -> batch.size() == 2), eq(0));
+        verify(flightService).addFlights(argThat(batch -> batch.size() == 1), eq(2));
+    }
+
+    @Test
+    void addFlightInventoryBulk_ndjsonWithMalformedLine_stopsAtThatRow() throws Exception {
+        acceptEveryFlight();
+        String body = objectMapper.writeValueAsString(sampleFlight()) + "\n"
+                + "{\"airlineName\": \n"
+                + objectMapper.writeValueAsString(sampleFlight()) + "\n";
+        mockMvc.perform(
+                post("/api/v1.0/flight/airline/inventory/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body)
+        )
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.accepted").value(1))
+        .andExpect(jsonPath("$.rejected").value(1))
+        .andExpect(jsonPath("$.results[1].row").value(1))
+        .andExpect(jsonPath("$.results[1].accepted").value(false));
+    }
+
+    private FlightRangeSearchRequest rangeRequest(LocalDate fromDate, LocalDate toDate) {
+        FlightRangeSearchRequest request = new FlightRangeSearchRequest();
+        request.setRoutes(List.of(new Route("AAA", "BBB"), new Route("AAA", "CCC")));
+        request.setFromDate(fromDate);
+        request.setToDate(toDate);
+        return request;
+    }
+
+    @Test
+    void streamFlights_success_writesOneJsonLinePerFlight() throws Exception {
+        FlightDTO second = sampleFlight();
+        second.setId(2L);
+        doAnswer(invocation -> {
+            Consumer<FlightDTO> consumer = invocation.getArgument(1);
+            consumer.accept(sampleFlight());
+            consumer.accept(second);
+            return null;
+        }).when(flightService).streamFlights(any(FlightRangeSearchRequest.class), any());
+
+        MvcResult result = mockMvc.perform(
+                post("/api/v1.0/flight/search/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                rangeRequest(LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 31))))
+        )
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1L, objectMapper.readValue(lines[0], FlightDTO.class).getId());
+        assertEquals(2L, objectMapper.readValue(lines[1], FlightDTO.class).getId());
+        assertTrue(body.endsWith("\n"));
+    }
+
+    @Test
+    void streamFlights_rangeTooWide_returnsBadRequest() throws Exception {
+        mockMvc.perform(
+                post("/api/v1.0/flight/search/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                rangeRequest(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31))))
+        )
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.dateRangeValid").exists());
+        verify(flightService, never()).streamFlights(any(), any());
+    }
+
+    @Test
+    void applySeatDeltas_success_returnsResultPerDelta() throws Exception {
+        List<SeatDelta> deltas = List.of(new SeatDelta(1L, -2), new SeatDelta(2L, -5));
+        when(flightService.applySeatDeltas(deltas)).thenReturn(List.of(
+                new SeatDeltaResult(1L, -2, true, 48, null),
+                new SeatDeltaResult(2L, -5, false, 1, "Insufficient seats available. Requested: 5")));
+
+        mockMvc.perform(
+                put("/api/v1.0/flight/inventory/deltas")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deltas))
+        )
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].applied").value(true))
+        .andExpect(jsonPath("$[0].availableSeats").value(48))
+        .andExpect(jsonPath("$[1].applied").value(false))
+        .andExpect(jsonPath("$[1].error").value("Insufficient seats available. Requested: 5"));
+    }
+
+    @Test
+    void applySeatDeltas_tooManyDeltas_returnsBadRequest() throws Exception {
+        List<SeatDelta> deltas = List.of(new SeatDelta(1L, -1), new SeatDelta(2L, -1), new SeatDelta(3L, -1));
+
+        mockMvc.perform(
+                put("/api/v1.0/flight/inventory/deltas")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deltas))
+        )
+        .andExpect(status().isBadRequest());
+        verify(flightService, never()).applySeatDeltas(any());
+    }
+
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Test
+    void getFlightById_acceptSmile_returnsSmileAndJsonStaysTheDefault() throws Exception {
+        when(flightService.getFlightById(1L)).thenReturn(Optional.of(sampleFlight()));
+
+        MvcResult result = mockMvc.perform(get("/api/v1.0/flight/1").accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+        FlightDTO flight = new SmileMapper().findAndRegisterModules()
+                .readValue(result.getResponse().getContentAsByteArray(), FlightDTO.class);
+        assertEquals(sampleFlight(), flight);
+
+        mockMvc.perform(get("/api/v1.0/flight/1").accept(MediaType.ALL))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void applySeatDeltas_smileBody_answersInSmile() throws Exception {
+        SmileMapper smileMapper = new SmileMapper();
+        List<SeatDelta> deltas = List.of(new SeatDelta(1L, -2));
+        when(flightService.applySeatDeltas(deltas)).thenReturn(List.of(new SeatDeltaResult(1L, -2, true, 48, null)));
+
+        MvcResult result = mockMvc.perform(
+                put("/api/v1.0/flight/inventory/deltas")
+                        .contentType(SMILE)
+                        .accept(SMILE)
+                        .content(smileMapper.writeValueAsBytes(deltas))
+        )
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(SMILE))
+        .andReturn();
+
+        SeatDeltaResult[] results = smileMapper.readValue(result.getResponse().getContentAsByteArray(),
+                SeatDeltaResult[].class);
+        assertEquals(List.of(new SeatDeltaResult(1L, -2, true, 48, null)), List.of(results));
+    }
+}
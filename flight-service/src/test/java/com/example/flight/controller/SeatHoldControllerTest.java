@@ -0,0 +1,65 @@
+package com.example.flight.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.flight.dto.SeatHoldDTO;
+import com.example.flight.dto.SeatReservationRequest;
+import com.example.flight.exception.HoldNotFoundException;
+import com.example.flight.service.SeatHoldService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@WebMvcTest(controllers = SeatHoldController.class)
+class SeatHoldControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private SeatHoldService seatHoldService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void holdSeats_returnsCreatedHold() throws Exception {
+        when(seatHoldService.holdSeats(1L, 2))
+                .thenReturn(new SeatHoldDTO("hold-1", 1L, 2, Instant.parse("2025-12-25T10:00:00Z")));
+
+        mockMvc.perform(post("/api/v1.0/flight/{flightId}/holds", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new SeatReservationRequest(2))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.holdId").value("hold-1"))
+                .andExpect(jsonPath("$.numberOfSeats").value(2));
+    }
+
+    @Test
+    void confirmHold_expired_returns404() throws Exception {
+        when(seatHoldService.confirmHold("hold-1"))
+                .thenThrow(new HoldNotFoundException("Seat hold hold-1 not found or expired."));
+
+        mockMvc.perform(put("/api/v1.0/flight/holds/{holdId}/confirm", "hold-1"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Seat hold hold-1 not found or expired."));
+    }
+
+    @Test
+    void releaseHold_returnsOk() throws Exception {
+        mockMvc.perform(delete("/api/v1.0/flight/holds/{holdId}", "hold-1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Seat hold hold-1 released."));
+    }
+}
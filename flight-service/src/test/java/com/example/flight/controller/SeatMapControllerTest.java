@@ -0,0 +1,90 @@
+package com.example.flight.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.flight.dto.SeatClaimRequest;
+import com.example.flight.dto.SeatMapDTO;
+import com.example.flight.dto.SeatMapLayoutRequest;
+import com.example.flight.dto.SeatReservationRequest;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.service.SeatMapService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@WebMvcTest(controllers = SeatMapController.class)
+class SeatMapControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private SeatMapService seatMapService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void createSeatMap_returnsCreated() throws Exception {
+        when(seatMapService.createSeatMap(1L, 30, "ABC-DEF"))
+                .thenReturn(new SeatMapDTO(1L, 30, "ABC-DEF", 180, 180, List.of()));
+
+        mockMvc.perform(put("/api/v1.0/flight/{flightId}/seatmap", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new SeatMapLayoutRequest(30, "ABC-DEF"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.freeSeats").value(180));
+    }
+
+    @Test
+    void createSeatMap_invalidColumns_returns400() throws Exception {
+        mockMvc.perform(put("/api/v1.0/flight/{flightId}/seatmap", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new SeatMapLayoutRequest(30, "abc"))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getSeatMap_returnsOccupiedSeats() throws Exception {
+        when(seatMapService.getSeatMap(1L))
+                .thenReturn(new SeatMapDTO(1L, 30, "ABC-DEF", 180, 178, List.of("1A", "1B")));
+
+        mockMvc.perform(get("/api/v1.0/flight/{flightId}/seatmap", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.occupiedSeats[1]").value("1B"));
+    }
+
+    @Test
+    void claimSeats_taken_returns409() throws Exception {
+        when(seatMapService.claimSeats(1L, List.of("12A")))
+                .thenThrow(new SeatsUnavailableException("Seats already taken: 12A"));
+
+        mockMvc.perform(post("/api/v1.0/flight/{flightId}/seatmap/claim", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new SeatClaimRequest(List.of("12A")))))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Seats already taken: 12A"));
+    }
+
+    @Test
+    void autoAssignSeats_returnsAssignedSeats() throws Exception {
+        when(seatMapService.autoAssignSeats(1L, 2)).thenReturn(List.of("3D", "3E"));
+
+        mockMvc.perform(post("/api/v1.0/flight/{flightId}/seatmap/auto-assign", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new SeatReservationRequest(2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("3D"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.flight.hold;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class HashedTimerWheelTest {
+
+    @Test
+    void schedule_expiresNotBeforeDeadlineEvenAfterSeveralRounds() throws Exception {
+        Map<Integer, Long> expiredAt = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(2);
+        // 8 buckets of 10ms, 250ms needs three turns of the wheel
+        try (HashedTimerWheel<Integer> wheel = new HashedTimerWheel<>("test-wheel", Duration.ofMillis(10), 8,
+                expired -> expired.forEach(item -> {
+                    expiredAt.put(item, System.nanoTime());
+                    done.countDown();
+                }))) {
+            long start = System.nanoTime();
+            wheel.schedule(1, Duration.ofMillis(30));
+            wheel.schedule(2, Duration.ofMillis(250));
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(expiredAt.get(1) - start >= TimeUnit.MILLISECONDS.toNanos(30));
+            assertTrue(expiredAt.get(2) - start >= TimeUnit.MILLISECONDS.toNanos(250));
+            assertTrue(expiredAt.get(2) > expiredAt.get(1));
+            assertEquals(0, wheel.pending());
+        }
+    }
+
+    @Test
+    void cancel_beforeExpiry_neverExpires() throws Exception {
+        ConcurrentLinkedQueue<String> expired = new ConcurrentLinkedQueue<>();
+        try (HashedTimerWheel<String> wheel = new HashedTimerWheel<>("test-wheel", Duration.ofMillis(10), 16,
+                expired::addAll)) {
+            HashedTimerWheel.Timeout<String> cancelled = wheel.schedule("cancelled", Duration.ofMillis(50));
+            HashedTimerWheel.Timeout<String> kept = wheel.schedule("kept", Duration.ofMillis(50));
+
+            assertTrue(cancelled.cancel());
+            assertFalse(cancelled.cancel());
+            Thread.sleep(300);
+
+            assertEquals(List.of("kept"), List.copyOf(expired));
+            assertFalse(kept.cancel());
+            assertEquals(0, wheel.pending());
+        }
+    }
+
+    @Test
+    void schedule_manyTimeouts_expireInBatchesPerTick() throws Exception {
+        int timeouts = 200_000;
+        CountDownLatch done = new CountDownLatch(timeouts);
+        ConcurrentLinkedQueue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+        try (HashedTimerWheel<Integer> wheel = new HashedTimerWheel<>("test-wheel", Duration.ofMillis(5), 64,
+                expired -> {
+                    batchSizes.add(expired.size());
+                    expired.forEach(item -> done.countDown());
+                })) {
+            for (int i = 0; i < timeouts; i++) {
+                wheel.schedule(i, Duration.ofMillis(i % 100));
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(timeouts, batchSizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(batchSizes.size() < timeouts / 100);
+        }
+    }
+
+    @Test
+    void constructor_wheelSizeNotPowerOfTwo_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashedTimerWheel<String>("test-wheel", Duration.ofMillis(10), 12, expired -> { }));
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.flight.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.cache.FlightSearchCache;
+import com.example.flight.dto.SeatDelta;
+import com.example.flight.dto.SeatDeltaResult;
+import com.example.flight.entity.Flight;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.repository.AppliedSeatChangeRepository;
+import com.example.flight.repository.FlightInventoryRepository.DeltaOutcome;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.service.FlightService;
+import com.example.flight.service.impl.FlightServiceImpl;
+import com.example.flight.service.impl.SeatMapServiceImpl;
+
+@DataJpaTest(properties = "flight.inventory.mode=in-memory")
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({ FlightServiceImpl.class, FlightSearchCache.class, SeatMapServiceImpl.class, InMemorySeatInventory.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InMemorySeatInventoryTest {
+
+    private static final int TOTAL_SEATS = 500;
+    private static final int RESERVATIONS = 5000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private FlightService flightService;
+    @Autowired
+    private InMemorySeatInventory seatInventory;
+    @Autowired
+    private FlightRepository flightRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AppliedSeatChangeRepository appliedSeatChangeRepository;
+
+    @AfterEach
+    void cleanUp() {
+        appliedSeatChangeRepository.deleteAll();
+        flightRepository.deleteAll();
+    }
+
+    private Flight saveFlight(int totalSeats, int availableSeats) {
+        Flight flight = new Flight();
+        flight.setAirlineName("TestAir");
+        flight.setFromPlace("AAA");
+        flight.setToPlace("BBB");
+        flight.setScheduleDate(LocalDate.of(2025, 12, 25));
+        flight.setDepartureTime(LocalTime.of(10, 0));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(150.0);
+        flight.setTotalSeats(totalSeats);
+        flight.setAvailableSeats(availableSeats);
+        return flightRepository.save(flight);
+    }
+
+    @Test
+    void reserveSeats_parallelReservations_decidedInMemoryAndWrittenBehind() throws InterruptedException {
+        Long flightId = saveFlight(TOTAL_SEATS, TOTAL_SEATS).getId();
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int i = 0; i < RESERVATIONS; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    flightService.reserveSeats(flightId, 1);
+                    reserved.incrementAndGet();
+                } catch (SeatsUnavailableException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(2, TimeUnit.MINUTES);
+
+        assertEquals(TOTAL_SEATS, reserved.get());
+        assertEquals(RESERVATIONS - TOTAL_SEATS, rejected.get());
+        assertEquals(0, seatInventory.getCounters().get(flightId).getAvailableSeats());
+        // every acknowledged reservation is already in the table
+        assertEquals(0, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void releaseSeats_beyondTotalSeats_throwsIllegalArgumentException() {
+        Long flightId = saveFlight(10, 10).getId();
+
+        assertThrows(IllegalArgumentException.class, () -> flightService.releaseSeats(flightId, 1));
+        assertEquals(10, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void restart_rebuildsCountersFromTable() throws InterruptedException {
+        Long flightId = saveFlight(10, 10).getId();
+        flightService.reserveSeats(flightId, 4);
+        flightService.releaseSeats(flightId, 1);
+
+        // a fresh instance stands in for the service coming back after a crash
+        InMemorySeatInventory restarted = new InMemorySeatInventory(flightRepository, transactionManager, 16);
+        restarted.start();
+        try {
+            restarted.reserve(flightId, 7);
+            assertThrows(SeatsUnavailableException.class, () -> restarted.reserve(flightId, 1));
+        } finally {
+            restarted.stop();
+        }
+        assertEquals(0, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void changeOutsideInventory_isDetectedAndCounterReloaded() {
+        Long flightId = saveFlight(10, 10).getId();
+        flightService.reserveSeats(flightId, 2);
+
+        // someone else takes the remaining seats straight in the table
+        flightRepository.reserveSeats(flightId, 8);
+
+        assertThrows(SeatsUnavailableException.class, () -> flightService.reserveSeats(flightId, 1));
+        assertEquals(0, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+        assertThrows(SeatsUnavailableException.class, () -> flightService.reserveSeats(flightId, 1));
+    }
+
+    @Test
+    void applySeatDeltas_sentAgain_isAppliedOnlyOnceEvenAfterARestart() throws InterruptedException {
+        Long flightId = saveFlight(10, 10).getId();
+        List<SeatDelta> deltas = List.of(new SeatDelta(flightId, -3, List.of("PNR1:RESERVE_SEATS")));
+
+        flightService.applySeatDeltas(deltas);
+        assertTrue(flightService.applySeatDeltas(deltas).get(0).isApplied());
+
+        // the change id was written with the seats, a fresh instance knows it as well
+        InMemorySeatInventory restarted = new InMemorySeatInventory(flightRepository, transactionManager, 16);
+        restarted.start();
+        try {
+            assertEquals(DeltaOutcome.ALREADY_APPLIED, restarted.claimChanges(List.of("PNR1:RESERVE_SEATS")));
+        } finally {
+            restarted.stop();
+        }
+        assertEquals(7, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void claimChanges_alreadyClaimed_answersInFlightToTheSecondRequest() {
+        seatInventory.claimChanges(List.of("PNR1:RESERVE_SEATS"));
+        try {
+            assertEquals(DeltaOutcome.IN_FLIGHT,
+                    seatInventory.claimChanges(List.of("PNR2:RESERVE_SEATS", "PNR1:RESERVE_SEATS")));
+            // the refused request let go of what it had claimed
+            assertNull(seatInventory.claimChanges(List.of("PNR2:RESERVE_SEATS")));
+        } finally {
+            seatInventory.releaseChanges(List.of("PNR1:RESERVE_SEATS", "PNR2:RESERVE_SEATS"));
+        }
+    }
+
+    @Test
+    void applySeatDeltas_deltaBeingAppliedElsewhere_getsARetryableResultWhileTheOthersApply() {
+        Long flightId = saveFlight(10, 10).getId();
+        seatInventory.claimChanges(List.of("PNR1:RESERVE_SEATS"));
+        try {
+            List<SeatDeltaResult> results = flightService.applySeatDeltas(List.of(
+                    new SeatDelta(flightId, -2, List.of("PNR1:RESERVE_SEATS")),
+                    new SeatDelta(flightId, -3, List.of("PNR2:RESERVE_SEATS"))));
+
+            assertFalse(results.get(0).isApplied());
+            assertTrue(results.get(0).isRetryable());
+            assertTrue(results.get(1).isApplied());
+            assertFalse(results.get(1).isRetryable());
+            assertEquals(7, results.get(1).getAvailableSeats());
+        } finally {
+            seatInventory.releaseChanges(List.of("PNR1:RESERVE_SEATS"));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.flight.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class SeatCounterTest {
+
+    @Test
+    void tryReserve_largerThanOneStripe_gathersSeatsFromAllStripes() {
+        // 10 seats over 4 stripes, no stripe holds more than 3
+        SeatCounter counter = new SeatCounter(1L, 10, 10, 4);
+
+        assertTrue(counter.tryReserve(9));
+        assertEquals(1, counter.getAvailableSeats());
+        assertFalse(counter.tryReserve(2));
+        // a failed sweep hands back what it took
+        assertEquals(1, counter.getAvailableSeats());
+        assertTrue(counter.tryReserve(1));
+        assertEquals(0, counter.getAvailableSeats());
+    }
+
+    @Test
+    void tryRelease_neverGoesAboveTotalSeats() {
+        SeatCounter counter = new SeatCounter(1L, 10, 8, 4);
+
+        assertFalse(counter.tryRelease(3));
+        assertTrue(counter.tryRelease(2));
+        assertFalse(counter.tryRelease(1));
+        assertEquals(10, counter.getAvailableSeats());
+    }
+
+    @Test
+    void tryReserve_parallelMixedSizes_neverOversells() throws InterruptedException {
+        SeatCounter counter = new SeatCounter(1L, 1000, 1000, 8);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        for (int i = 0; i < 4000; i++) {
+            int seats = 1 + i % 4;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    if (counter.tryReserve(seats)) {
+                        reserved.addAndGet(seats);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(1000, reserved.get() + counter.getAvailableSeats());
+        assertEquals(reserved.get(), counter.getReservedSeats());
+        // 4000 requests for 10000 seats, the stripes never hide seats from the last ones
+        assertTrue(counter.getAvailableSeats() < 4);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.flight.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.flight.dto.FlightDTO;
+import com.example.flight.entity.Flight;
+
+@DataJpaTest
+class FlightRepositoryTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 25);
+
+    @Autowired
+    private FlightRepository flightRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Flight saveFlight(String from, String to, LocalDate date, int availableSeats) {
+        Flight flight = new Flight();
+        flight.setAirlineName("TestAir");
+        flight.setFromPlace(from);
+        flight.setToPlace(to);
+        flight.setScheduleDate(date);
+        flight.setDepartureTime(LocalTime.of(10, 0));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(150.0);
+        flight.setTotalSeats(100);
+        flight.setAvailableSeats(availableSeats);
+        return entityManager.persist(flight);
+    }
+
+    @Test
+    void searchFlights_returnsDtosOfMatchingFlightsWithSeats() {
+        Flight match = saveFlight("AAA", "BBB", DATE, 5);
+        saveFlight("AAA", "BBB", DATE, 0);
+        saveFlight("AAA", "CCC", DATE, 5);
+        saveFlight("AAA", "BBB", DATE.plusDays(1), 5);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<FlightDTO> results = flightRepository.searchFlights("AAA", "BBB", DATE, 0);
+
+        assertEquals(1, results.size());
+        FlightDTO dto = results.get(0);
+        assertEquals(match.getId(), dto.getId());
+        assertEquals("TestAir", dto.getAirlineName());
+        assertEquals(LocalTime.of(10, 0), dto.getDepartureTime());
+        assertEquals(100, dto.getTotalSeats());
+        assertEquals(5, dto.getAvailableSeats());
+        // a projection never enters the persistence context
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void flightsTable_hasCompositeSearchIndexInColumnOrder() {
+        List<String> columns = jdbcTemplate.queryForList(
+                "SELECT ic.COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS ic "
+                + "WHERE ic.TABLE_NAME = 'FLIGHTS' AND ic.INDEX_NAME = 'IDX_FLIGHTS_ROUTE_DATE_SEATS' "
+                + "ORDER BY ic.ORDINAL_POSITION", String.class);
+
+        assertEquals(List.of("FROM_PLACE", "TO_PLACE", "SCHEDULE_DATE", "AVAILABLE_SEATS"), columns);
+    }
+
+    @Test
+    void streamFlights_appliesRangeAndFiltersInDateOrder() {
+        Flight late = saveFlight("AAA", "BBB", DATE.plusDays(3), 5);
+        Flight early = saveFlight("AAA", "BBB", DATE, 5);
+        saveFlight("AAA", "BBB", DATE.plusDays(1), 0);
+        saveFlight("AAA", "BBB", DATE.plusDays(10), 5);
+        Flight expensive = saveFlight("AAA", "BBB", DATE.plusDays(2), 5);
+        expensive.setPrice(900.0);
+        entityManager.flush();
+        entityManager.clear();
+
+        try (Stream<FlightDTO> flights = flightRepository.streamFlights("AAA", "BBB", DATE, DATE.plusDays(5),
+                null, 500.0, LocalTime.of(9, 0), null)) {
+            assertEquals(List.of(early.getId(), late.getId()), flights.map(FlightDTO::getId).toList());
+        }
+        try (Stream<FlightDTO> flights = flightRepository.streamFlights("AAA", "BBB", DATE, DATE.plusDays(5),
+                null, null, LocalTime.of(11, 0), null)) {
+            assertEquals(0, flights.count());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.example.flight.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+// the tables as Hibernate leaves them on MySQL, flights filled while ids were IDENTITY
+class FlightSequenceMigrationTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE flights (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE flights_seq (next_val BIGINT)");
+        jdbcTemplate.update("INSERT INTO flights_seq VALUES (1)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private long nextValue() {
+        return jdbcTemplate.queryForObject("SELECT next_val FROM flights_seq", Long.class);
+    }
+
+    @Test
+    void afterPropertiesSet_existingFlights_movesSequencePastHighestId() {
+        jdbcTemplate.update("INSERT INTO flights VALUES (1), (2), (1234)");
+
+        new FlightSequenceMigration(jdbcTemplate, null).afterPropertiesSet();
+
+        assertEquals(1234 + FlightSequenceMigration.ALLOCATION_SIZE + 1, nextValue());
+    }
+
+    @Test
+    void afterPropertiesSet_sequenceAlreadyAhead_leavesItAlone() {
+        jdbcTemplate.update("INSERT INTO flights VALUES (10)");
+        jdbcTemplate.update("UPDATE flights_seq SET next_val = 5000");
+
+        new FlightSequenceMigration(jdbcTemplate, null).afterPropertiesSet();
+
+        assertEquals(5000, nextValue());
+    }
+
+    @Test
+    void afterPropertiesSet_noSequenceTable_doesNothing() {
+        jdbcTemplate.execute("DROP TABLE flights_seq");
+        jdbcTemplate.update("INSERT INTO flights VALUES (10)");
+
+        new FlightSequenceMigration(jdbcTemplate, null).afterPropertiesSet();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flights", Integer.class));
+    }
+}
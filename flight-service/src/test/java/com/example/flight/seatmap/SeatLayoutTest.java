@@ -0,0 +1,80 @@
+package com.example.flight.seatmap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+
+class SeatLayoutTest {
+
+    private final SeatLayout layout = SeatLayout.of(3, "ABC-DEF");
+
+    private BitSet occupied(String... seats) {
+        BitSet occupied = new BitSet();
+        for (String seat : seats) {
+            occupied.set(layout.indexOf(seat));
+        }
+        return occupied;
+    }
+
+    @Test
+    void indexOf_andLabelOf_roundTrip() {
+        assertEquals(18, layout.getSeatCount());
+        assertEquals(0, layout.indexOf("1A"));
+        assertEquals(11, layout.indexOf("2f"));
+        for (int seat = 0; seat < layout.getSeatCount(); seat++) {
+            assertEquals(seat, layout.indexOf(layout.labelOf(seat)));
+        }
+    }
+
+    @Test
+    void indexOf_unknownSeat_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> layout.indexOf("4A"));
+        assertThrows(IllegalArgumentException.class, () -> layout.indexOf("1G"));
+        assertThrows(IllegalArgumentException.class, () -> layout.indexOf("A"));
+        assertThrows(IllegalArgumentException.class, () -> layout.indexOf("XA"));
+    }
+
+    @Test
+    void of_invalidLayout_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> SeatLayout.of(0, "ABC"));
+        assertThrows(IllegalArgumentException.class, () -> SeatLayout.of(10, "AB--C"));
+        assertThrows(IllegalArgumentException.class, () -> SeatLayout.of(10, "ABA"));
+    }
+
+    @Test
+    void findAdjacentFree_prefersBlockBetweenAisles() {
+        // row 1 has A-B free and E-F free, but no three in one section
+        int[] seats = layout.findAdjacentFree(occupied("1C", "1D"), 3);
+
+        assertArrayEquals(new int[] { layout.indexOf("2A"), layout.indexOf("2B"), layout.indexOf("2C") }, seats);
+    }
+
+    @Test
+    void findAdjacentFree_crossesAisleWhenNoSectionFits() {
+        int[] seats = layout.findAdjacentFree(occupied("1A", "2A", "3A", "1F", "2F", "3F"), 4);
+
+        assertArrayEquals(new int[] { layout.indexOf("1B"), layout.indexOf("1C"),
+                layout.indexOf("1D"), layout.indexOf("1E") }, seats);
+    }
+
+    @Test
+    void findAdjacentFree_fallsBackToFirstFreeSeats() {
+        int[] seats = layout.findAdjacentFree(occupied("1B", "1E", "2B", "2E", "3B", "3E"), 3);
+
+        assertArrayEquals(new int[] { layout.indexOf("1A"), layout.indexOf("1C"), layout.indexOf("1D") }, seats);
+    }
+
+    @Test
+    void findAdjacentFree_notEnoughSeats_returnsNull() {
+        BitSet full = new BitSet();
+        full.set(0, 17);
+
+        assertNull(layout.findAdjacentFree(full, 2));
+        assertArrayEquals(new int[] { 17 }, layout.findAdjacentFree(full, 1));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.flight.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.cache.FlightSearchCache;
+import com.example.flight.entity.Flight;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.service.impl.FlightServiceImpl;
+import com.example.flight.service.impl.SeatMapServiceImpl;
+
+// every reservation has to commit on its own, so the test itself runs without a transaction
+@DataJpaTest
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({ FlightServiceImpl.class, FlightSearchCache.class, SeatMapServiceImpl.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FlightServiceConcurrencyTest {
+
+    private static final int TOTAL_SEATS = 500;
+    private static final int RESERVATIONS = 5000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private FlightService flightService;
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @AfterEach
+    void cleanUp() {
+        flightRepository.deleteAll();
+    }
+
+    private Flight saveFlight(int totalSeats, int availableSeats) {
+        Flight flight = new Flight();
+        flight.setAirlineName("TestAir");
+        flight.setFromPlace("AAA");
+        flight.setToPlace("BBB");
+        flight.setScheduleDate(LocalDate.of(2025, 12, 25));
+        flight.setDepartureTime(LocalTime.of(10, 0));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(150.0);
+        flight.setTotalSeats(totalSeats);
+        flight.setAvailableSeats(availableSeats);
+        return flightRepository.save(flight);
+    }
+
+    @Test
+    void reserveSeats_parallelReservations_neverOversell() throws InterruptedException {
+        Long flightId = saveFlight(TOTAL_SEATS, TOTAL_SEATS).getId();
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int i = 0; i < RESERVATIONS; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    flightService.reserveSeats(flightId, 1);
+                    reserved.incrementAndGet();
+                } catch (SeatsUnavailableException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(2, TimeUnit.MINUTES);
+
+        assertEquals(TOTAL_SEATS, reserved.get());
+        assertEquals(RESERVATIONS - TOTAL_SEATS, rejected.get());
+        assertEquals(0, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void reserveAndReleaseSeats_parallelMix_keepsInventoryConsistent() throws InterruptedException {
+        Long flightId = saveFlight(TOTAL_SEATS, TOTAL_SEATS / 2).getId();
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int i = 0; i < RESERVATIONS; i++) {
+            boolean reserve = i % 2 == 0;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    if (reserve) {
+                        flightService.reserveSeats(flightId, 2);
+                        reserved.addAndGet(2);
+                    } else {
+                        flightService.releaseSeats(flightId, 1);
+                        released.incrementAndGet();
+                    }
+                } catch (SeatsUnavailableException | IllegalArgumentException e) {
+                    // rejected by the conditional update, inventory untouched
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(2, TimeUnit.MINUTES);
+
+        int expected = TOTAL_SEATS / 2 - reserved.get() + released.get();
+        assertEquals(expected, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+}
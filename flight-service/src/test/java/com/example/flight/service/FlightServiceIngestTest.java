@@ -0,0 +1,83 @@
+package com.example.flight.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.cache.FlightSearchCache;
+import com.example.flight.dto.BulkFlightResult;
+import com.example.flight.dto.FlightDTO;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.service.impl.FlightServiceImpl;
+import com.example.flight.service.impl.SeatMapServiceImpl;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({ FlightServiceImpl.class, FlightSearchCache.class, SeatMapServiceImpl.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FlightServiceIngestTest {
+
+    private static final int FLIGHTS = 20_000;
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private FlightService flightService;
+    @Autowired
+    private FlightRepository flightRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        flightRepository.deleteAllInBatch();
+    }
+
+    private FlightDTO flight(int i) {
+        return new FlightDTO(null, "Air" + i % 7, "AAA", i % 100 == 0 ? "AAA" : "BBB",
+                LocalDate.of(2025, 1, 1).plusDays(i % 180), LocalTime.of(10, 0), LocalTime.of(12, 0),
+                100.0, 180, null);
+    }
+
+    @Test
+    void addFlights_manyBatches_insertedWithJdbcBatching() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BulkFlightResult> results = new ArrayList<>(FLIGHTS);
+        List<FlightDTO> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < FLIGHTS; i++) {
+            batch.add(flight(i));
+            if (batch.size() == BATCH_SIZE) {
+                results.addAll(flightService.addFlights(batch, i + 1 - BATCH_SIZE));
+                batch.clear();
+            }
+        }
+
+        long accepted = results.stream().filter(BulkFlightResult::isAccepted).count();
+        assertEquals(FLIGHTS - FLIGHTS / 100, accepted);
+        assertEquals(accepted, flightRepository.count());
+        assertEquals(FLIGHTS - 1, results.get(FLIGHTS - 1).getRow());
+        // without batching every insert would prepare its own statement
+        assertEquals(accepted, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < accepted / 10,
+                "prepared " + statistics.getPrepareStatementCount() + " statements");
+    }
+}
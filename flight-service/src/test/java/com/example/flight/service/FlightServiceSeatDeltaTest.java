@@ -0,0 +1,226 @@
+package com.example.flight.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.cache.FlightSearchCache;
+import com.example.flight.dto.FlightDTO;
+import com.example.flight.dto.SeatDelta;
+import com.example.flight.dto.SeatDeltaResult;
+import com.example.flight.entity.Flight;
+import com.example.flight.repository.AppliedSeatChangeRepository;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.repository.SeatMapRepository;
+import com.example.flight.service.impl.FlightServiceImpl;
+import com.example.flight.service.impl.SeatMapServiceImpl;
+
+// the batch commits on its own, so the test itself runs without a transaction
+@DataJpaTest
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({ FlightServiceImpl.class, FlightSearchCache.class, SeatMapServiceImpl.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FlightServiceSeatDeltaTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 25);
+
+    @Autowired
+    private FlightService flightService;
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private AppliedSeatChangeRepository appliedSeatChangeRepository;
+    @Autowired
+    private SeatMapService seatMapService;
+    @Autowired
+    private SeatMapRepository seatMapRepository;
+
+    @AfterEach
+    void cleanUp() {
+        appliedSeatChangeRepository.deleteAll();
+        seatMapRepository.deleteAll();
+        flightRepository.deleteAll();
+    }
+
+    private Long saveFlight(String toPlace, int totalSeats, int availableSeats) {
+        Flight flight = new Flight();
+        flight.setAirlineName("TestAir");
+        flight.setFromPlace("AAA");
+        flight.setToPlace(toPlace);
+        flight.setScheduleDate(DATE);
+        flight.setDepartureTime(LocalTime.of(10, 0));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(150.0);
+        flight.setTotalSeats(totalSeats);
+        flight.setAvailableSeats(availableSeats);
+        return flightRepository.save(flight).getId();
+    }
+
+    @Test
+    void applySeatDeltas_appliesWhatFitsInOrderAndReportsEachDelta() {
+        Long open = saveFlight("BBB", 100, 10);
+        Long full = saveFlight("CCC", 100, 100);
+
+        List<SeatDeltaResult> results = flightService.applySeatDeltas(List.of(
+                new SeatDelta(open, -4),
+                new SeatDelta(open, -8),
+                new SeatDelta(full, 2),
+                new SeatDelta(-1L, -1),
+                new SeatDelta(open, -3)));
+
+        assertEquals(List.of(true, false, false, false, true),
+                results.stream().map(SeatDeltaResult::isApplied).toList());
+        assertEquals(3, results.get(0).getAvailableSeats());
+        assertEquals("Insufficient seats available. Requested: 8", results.get(1).getError());
+        assertEquals(100, results.get(2).getAvailableSeats());
+        assertNull(results.get(3).getAvailableSeats());
+        assertEquals("Flight not found with ID: -1", results.get(3).getError());
+        assertEquals(3, flightRepository.findById(open).orElseThrow().getAvailableSeats());
+        assertEquals(100, flightRepository.findById(full).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void applySeatDeltas_patchesCachedSearchResults() {
+        Long flightId = saveFlight("BBB", 100, 2);
+        List<FlightDTO> before = flightService.searchFlights("AAA", "BBB", DATE);
+        assertEquals(1, before.size());
+
+        flightService.applySeatDeltas(List.of(new SeatDelta(flightId, -2)));
+
+        assertTrue(flightService.searchFlights("AAA", "BBB", DATE).isEmpty());
+    }
+
+    @Test
+    void applySeatDeltas_zeroDelta_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> flightService.applySeatDeltas(List.of(new SeatDelta(1L, 0))));
+        assertFalse(flightRepository.findAll().iterator().hasNext());
+    }
+
+    @Test
+    void applySeatDeltas_sentAgain_isAppliedOnlyOnce() {
+        Long flightId = saveFlight("BBB", 100, 10);
+        List<SeatDelta> deltas = List.of(new SeatDelta(flightId, -4, List.of("PNR1:RESERVE_SEATS", "PNR2:RESERVE_SEATS")));
+
+        flightService.applySeatDeltas(deltas);
+        List<SeatDeltaResult> replayed = flightService.applySeatDeltas(deltas);
+
+        assertTrue(replayed.get(0).isApplied());
+        assertEquals(6, replayed.get(0).getAvailableSeats());
+        assertEquals(6, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+        assertEquals(2, appliedSeatChangeRepository.count());
+    }
+
+    @Test
+    void applySeatDeltas_someChangesSeenBefore_appliesNothingAndAsksForThemOneByOne() {
+        Long flightId = saveFlight("BBB", 100, 10);
+        flightService.applySeatDeltas(List.of(new SeatDelta(flightId, -4, List.of("PNR1:RESERVE_SEATS"))));
+
+        List<SeatDeltaResult> results = flightService.applySeatDeltas(List.of(
+                new SeatDelta(flightId, -6, List.of("PNR1:RESERVE_SEATS", "PNR2:RESERVE_SEATS"))));
+
+        assertFalse(results.get(0).isApplied());
+        assertEquals("Some of the changes of this delta were applied before, send them one by one.",
+                results.get(0).getError());
+        assertEquals(6, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void applySeatDeltas_notApplied_doesNotRecordItsChanges() {
+        Long flightId = saveFlight("BBB", 100, 1);
+
+        flightService.applySeatDeltas(List.of(new SeatDelta(flightId, -2, List.of("PNR1:RESERVE_SEATS"))));
+
+        assertEquals(0, appliedSeatChangeRepository.count());
+    }
+
+    // 2 rows of ABCD
+    private Long saveFlightWithSeatMap() {
+        Long flightId = saveFlight("BBB", 8, 8);
+        seatMapService.createSeatMap(flightId, 2, "ABCD");
+        return flightId;
+    }
+
+    @Test
+    void applySeatDeltas_reservationWithSeats_claimsThemWithTheSeatCount() {
+        Long flightId = saveFlightWithSeatMap();
+
+        List<SeatDeltaResult> results = flightService.applySeatDeltas(List.of(
+                new SeatDelta(flightId, -2, List.of("PNR1:RESERVE_SEATS"), List.of("1a", "1B"))));
+
+        assertTrue(results.get(0).isApplied());
+        assertEquals(List.of("1A", "1B"), seatMapService.getSeatMap(flightId).getOccupiedSeats());
+        assertEquals(6, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void applySeatDeltas_takenOrUnknownSeats_areRejectedWithoutTouchingTheSeatCount() {
+        Long flightId = saveFlightWithSeatMap();
+        seatMapService.claimSeats(flightId, List.of("2C"));
+
+        List<SeatDeltaResult> results = flightService.applySeatDeltas(List.of(
+                new SeatDelta(flightId, -1, List.of("PNR1:RESERVE_SEATS"), List.of("2C")),
+                new SeatDelta(flightId, -1, List.of("PNR2:RESERVE_SEATS"), List.of("9Z")),
+                new SeatDelta(flightId, -1, List.of("PNR3:RESERVE_SEATS"), List.of("1A")),
+                new SeatDelta(flightId, -1, List.of("PNR4:RESERVE_SEATS"), List.of("1A"))));
+
+        assertEquals(List.of(false, false, true, false), results.stream().map(SeatDeltaResult::isApplied).toList());
+        assertEquals("Seats already taken: 2C", results.get(0).getError());
+        assertEquals("Unknown seat: 9Z", results.get(1).getError());
+        assertEquals("Seats already taken: 1A", results.get(3).getError());
+        assertEquals(7, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+        assertEquals(1, appliedSeatChangeRepository.count());
+    }
+
+    @Test
+    void applySeatDeltas_reservationSentAgain_isNotTurnedDownForItsOwnSeats() {
+        Long flightId = saveFlightWithSeatMap();
+        List<SeatDelta> deltas = List.of(new SeatDelta(flightId, -1, List.of("PNR1:RESERVE_SEATS"), List.of("1A")));
+
+        flightService.applySeatDeltas(deltas);
+
+        assertTrue(flightService.applySeatDeltas(deltas).get(0).isApplied());
+        assertEquals(7, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void applySeatDeltas_releaseWithSeats_freesThem() {
+        Long flightId = saveFlightWithSeatMap();
+        flightService.applySeatDeltas(List.of(
+                new SeatDelta(flightId, -2, List.of("PNR1:RESERVE_SEATS"), List.of("1A", "1B"))));
+
+        List<SeatDeltaResult> results = flightService.applySeatDeltas(List.of(
+                new SeatDelta(flightId, 2, List.of("PNR1:RELEASE_SEATS"), List.of("1A", "1B"))));
+
+        assertTrue(results.get(0).isApplied());
+        assertTrue(seatMapService.getSeatMap(flightId).getOccupiedSeats().isEmpty());
+        assertEquals(8, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void applySeatDeltas_flightWithoutSeatMap_keepsSeatsAsTheyAre() {
+        Long flightId = saveFlight("BBB", 100, 10);
+
+        List<SeatDeltaResult> results = flightService.applySeatDeltas(List.of(
+                new SeatDelta(flightId, -1, List.of("PNR1:RESERVE_SEATS"), List.of("window please"))));
+
+        assertTrue(results.get(0).isApplied());
+    }
+}
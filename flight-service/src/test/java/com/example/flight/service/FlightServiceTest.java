@@ -2,6 +2,7 @@ package com.example.flight.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 import java.time.LocalDate;
@@ -16,19 +17,31 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import com.example.flight.cache.FlightSearchCache;
+import com.example.flight.dto.BulkFlightResult;
 import com.example.flight.dto.FlightDTO;
 import com.example.flight.entity.Flight;
 import com.example.flight.exception.FlightNotFoundException;
+import com.example.flight.exception.SeatsUnavailableException;
 import com.example.flight.repository.FlightRepository;
 import com.example.flight.service.impl.FlightServiceImpl;
 
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
 @ExtendWith(MockitoExtension.class)
 class FlightServiceTest {
 
     @Mock
     private FlightRepository flightRepository;
+    @Spy
+    private FlightSearchCache flightSearchCache = new FlightSearchCache(100, 30);
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
     @InjectMocks
     private FlightServiceImpl flightService;
     private FlightDTO flightDto;
@@ -103,7 +116,7 @@ class FlightServiceTest {
 
     @Test
     void searchFlights_returnsMatchingFlights() {
-        Flight flight1 = new Flight();
+        FlightDTO flight1 = new FlightDTO();
         flight1.setId(1L);
         flight1.setAirlineName("A1");
         flight1.setFromPlace("AAA");
@@ -111,17 +124,17 @@ class FlightServiceTest {
         flight1.setScheduleDate(flightDto.getScheduleDate());
         flight1.setAvailableSeats(5);
 
-        when(flightRepository.findByFromPlaceAndToPlaceAndScheduleDateAndAvailableSeatsGreaterThan(
+        when(flightRepository.searchFlights(
                 "AAA", "BBB", flightDto.getScheduleDate(), 0))
             .thenReturn(Arrays.asList(flight1));
 
-        List<Flight> results = flightService.searchFlights("AAA", "BBB", flightDto.getScheduleDate());
+        List<FlightDTO> results = flightService.searchFlights("AAA", "BBB", flightDto.getScheduleDate());
 
         assertNotNull(results);
         assertEquals(1, results.size());
         assertEquals(flight1.getId(), results.get(0).getId());
         verify(flightRepository, times(1))
-            .findByFromPlaceAndToPlaceAndScheduleDateAndAvailableSeatsGreaterThan("AAA", "BBB", flightDto.getScheduleDate(), 0);
+            .searchFlights("AAA", "BBB", flightDto.getScheduleDate(), 0);
     }
 
     @Test
@@ -194,4 +207,157 @@ class FlightServiceTest {
         verify(flightRepository, times(1)).findById(777L);
         verify(flightRepository, never()).save(any(Flight.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void reserveSeats_enoughSeats_returnsUpdatedFlight() {
+        Flight flight = new Flight();
+        flight.setId(5L);
+        flight.setTotalSeats(10);
+        flight.setAvailableSeats(7);
+
+        when(flightRepository.reserveSeats(5L, 3)).thenReturn(1);
+        when(flightRepository.findById(5L)).thenReturn(Optional.of(flight));
+
+        FlightDTO result = flightService.reserveSeats(5L, 3);
+
+        assertEquals(5L, result.getId());
+        assertEquals(7, result.getAvailableSeats());
+        verify(flightRepository, times(1)).reserveSeats(5L, 3);
+        verify(flightRepository, never()).save(any(Flight.class));
+    }
+
+    @Test
+    void reserveSeats_notEnoughSeats_throwsSeatsUnavailableException() {
+        Flight flight = new Flight();
+        flight.setId(5L);
+        flight.setTotalSeats(10);
+        flight.setAvailableSeats(2);
+
+        when(flightRepository.reserveSeats(5L, 3)).thenReturn(0);
+        when(flightRepository.findById(5L)).thenReturn(Optional.of(flight));
+
+        SeatsUnavailableException ex = assertThrows(SeatsUnavailableException.class,
+                () -> flightService.reserveSeats(5L, 3));
+        assertEquals("Insufficient seats available. Requested: 3, Available: 2", ex.getMessage());
+    }
+
+    @Test
+    void reserveSeats_nonExistent_throwsFlightNotFoundException() {
+        when(flightRepository.reserveSeats(777L, 1)).thenReturn(0);
+        when(flightRepository.findById(777L)).thenReturn(Optional.empty());
+
+        assertThrows(FlightNotFoundException.class, () -> flightService.reserveSeats(777L, 1));
+    }
+
+    @Test
+    void releaseSeats_beyondTotalSeats_throwsIllegalArgumentException() {
+        Flight flight = new Flight();
+        flight.setId(5L);
+        flight.setTotalSeats(10);
+        flight.setAvailableSeats(10);
+
+        when(flightRepository.releaseSeats(5L, 1)).thenReturn(0);
+        when(flightRepository.findById(5L)).thenReturn(Optional.of(flight));
+
+        assertThrows(IllegalArgumentException.class, () -> flightService.releaseSeats(5L, 1));
+    }
+
+    @Test
+    void searchFlights_repeatedSearch_servedFromCache() {
+        FlightDTO flight1 = new FlightDTO();
+        flight1.setId(1L);
+        flight1.setFromPlace("AAA");
+        flight1.setToPlace("BBB");
+        flight1.setScheduleDate(flightDto.getScheduleDate());
+        flight1.setAvailableSeats(5);
+
+        when(flightRepository.searchFlights(
+                "AAA", "BBB", flightDto.getScheduleDate(), 0))
+            .thenReturn(Arrays.asList(flight1));
+
+        flightService.searchFlights("AAA", "BBB", flightDto.getScheduleDate());
+        List<FlightDTO> results = flightService.searchFlights("aaa", "bbb", flightDto.getScheduleDate());
+
+        assertEquals(1, results.size());
+        verify(flightRepository, times(1))
+            .searchFlights("AAA", "BBB", flightDto.getScheduleDate(), 0);
+    }
+
+    @Test
+    void reserveSeats_lastSeats_flightDisappearsFromCachedSearch() {
+        FlightDTO cached = new FlightDTO();
+        cached.setId(5L);
+        cached.setFromPlace("AAA");
+        cached.setToPlace("BBB");
+        cached.setScheduleDate(flightDto.getScheduleDate());
+        cached.setTotalSeats(10);
+        cached.setAvailableSeats(2);
+        when(flightRepository.searchFlights(
+                "AAA", "BBB", flightDto.getScheduleDate(), 0))
+            .thenReturn(Arrays.asList(cached));
+        assertEquals(1, flightService.searchFlights("AAA", "BBB", flightDto.getScheduleDate()).size());
+
+        Flight soldOut = new Flight();
+        soldOut.setId(5L);
+        soldOut.setFromPlace("AAA");
+        soldOut.setToPlace("BBB");
+        soldOut.setScheduleDate(flightDto.getScheduleDate());
+        soldOut.setTotalSeats(10);
+        soldOut.setAvailableSeats(0);
+        when(flightRepository.reserveSeats(5L, 2)).thenReturn(1);
+        when(flightRepository.findById(5L)).thenReturn(Optional.of(soldOut));
+        flightService.reserveSeats(5L, 2);
+
+        assertTrue(flightService.searchFlights("AAA", "BBB", flightDto.getScheduleDate()).isEmpty());
+        verify(flightRepository, times(1))
+            .searchFlights("AAA", "BBB", flightDto.getScheduleDate(), 0);
+    }
+
+    @Test
+    void addFlights_mixedRecords_insertsValidOnesAndReportsEachRow() {
+        FlightDTO samePlaces = new FlightDTO(null, "TestAir", "AAA", "aaa", flightDto.getScheduleDate(),
+                LocalTime.of(10, 0), LocalTime.of(12, 0), 100.0, 10, null);
+        FlightDTO missingAirline = new FlightDTO(null, "", "AAA", "BBB", flightDto.getScheduleDate(),
+                LocalTime.of(10, 0), LocalTime.of(12, 0), 100.0, 10, null);
+        when(flightRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Flight> flights = invocation.getArgument(0);
+            long id = 100L;
+            for (Flight flight : flights) {
+                flight.setId(id++);
+            }
+            return flights;
+        });
+
+        List<BulkFlightResult> results = flightService.addFlights(
+                List.of(flightDto, samePlaces, missingAirline, flightDto), 10);
+
+        assertEquals(4, results.size());
+        assertEquals(new BulkFlightResult(10, true, 100L, null), results.get(0));
+        assertEquals(new BulkFlightResult(11, false, null, "Departure and arrival places cannot be the same."),
+                results.get(1));
+        assertEquals(12, results.get(2).getRow());
+        assertFalse(results.get(2).isAccepted());
+        assertTrue(results.get(2).getError().startsWith("airlineName: "));
+        assertEquals(new BulkFlightResult(13, true, 101L, null), results.get(3));
+
+        ArgumentCaptor<List<Flight>> captor = ArgumentCaptor.forClass(List.class);
+        verify(flightRepository, times(1)).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+    }
+
+    @Test
+    void addFlights_chunkFailsToInsert_reportsEveryValidRowAsFailed() {
+        FlightDTO samePlaces = new FlightDTO(null, "TestAir", "AAA", "aaa", flightDto.getScheduleDate(),
+                LocalTime.of(10, 0), LocalTime.of(12, 0), 100.0, 10, null);
+        when(flightRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        List<BulkFlightResult> results = flightService.addFlights(List.of(flightDto, samePlaces, flightDto), 0);
+
+        assertEquals(3, results.size());
+        assertFalse(results.get(0).isAccepted());
+        assertNull(results.get(0).getId());
+        assertEquals("Not saved, the chunk failed: duplicate key", results.get(0).getError());
+        assertEquals("Departure and arrival places cannot be the same.", results.get(1).getError());
+        assertEquals("Not saved, the chunk failed: duplicate key", results.get(2).getError());
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.flight.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.cache.FlightSearchCache;
+import com.example.flight.dto.SeatHoldDTO;
+import com.example.flight.entity.Flight;
+import com.example.flight.entity.SeatHold;
+import com.example.flight.exception.HoldNotFoundException;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.repository.SeatHoldRepository;
+import com.example.flight.service.impl.FlightServiceImpl;
+import com.example.flight.service.impl.SeatMapServiceImpl;
+import com.example.flight.service.impl.SeatHoldServiceImpl;
+
+// holds expire on their own threads, so the test itself runs without a transaction
+@DataJpaTest(properties = { "flight.hold.ttl-seconds=1", "flight.hold.tick-millis=50", "flight.hold.wheel-size=16" })
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({ FlightServiceImpl.class, FlightSearchCache.class, SeatMapServiceImpl.class, SeatHoldServiceImpl.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SeatHoldServiceTest {
+
+    @Autowired
+    private SeatHoldServiceImpl seatHoldService;
+    @Autowired
+    private FlightRepository flightRepository;
+    @Autowired
+    private SeatHoldRepository seatHoldRepository;
+
+    @AfterEach
+    void cleanUp() {
+        seatHoldRepository.deleteAll();
+        flightRepository.deleteAll();
+    }
+
+    private Long saveFlight(int availableSeats) {
+        Flight flight = new Flight();
+        flight.setAirlineName("TestAir");
+        flight.setFromPlace("AAA");
+        flight.setToPlace("BBB");
+        flight.setScheduleDate(LocalDate.of(2025, 12, 25));
+        flight.setDepartureTime(LocalTime.of(10, 0));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(150.0);
+        flight.setTotalSeats(100);
+        flight.setAvailableSeats(availableSeats);
+        return flightRepository.save(flight).getId();
+    }
+
+    private int availableSeats(Long flightId) {
+        return flightRepository.findById(flightId).orElseThrow().getAvailableSeats();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void holdSeats_expiresAndGivesSeatsBack() throws InterruptedException {
+        Long flightId = saveFlight(10);
+
+        seatHoldService.holdSeats(flightId, 3);
+        seatHoldService.holdSeats(flightId, 2);
+        assertEquals(5, availableSeats(flightId));
+
+        await(() -> availableSeats(flightId) == 10);
+        assertEquals(0, seatHoldRepository.count());
+        assertEquals(0, seatHoldService.pendingHolds());
+    }
+
+    @Test
+    void confirmHold_keepsSeatsAfterTtl() throws InterruptedException {
+        Long flightId = saveFlight(10);
+        SeatHoldDTO hold = seatHoldService.holdSeats(flightId, 4);
+
+        assertEquals(hold.getHoldId(), seatHoldService.confirmHold(hold.getHoldId()).getHoldId());
+        Thread.sleep(1500);
+
+        assertEquals(6, availableSeats(flightId));
+        assertThrows(HoldNotFoundException.class, () -> seatHoldService.confirmHold(hold.getHoldId()));
+    }
+
+    @Test
+    void confirmHold_afterExpiry_throwsException() throws InterruptedException {
+        Long flightId = saveFlight(10);
+        SeatHoldDTO hold = seatHoldService.holdSeats(flightId, 4);
+
+        await(() -> availableSeats(flightId) == 10);
+
+        assertThrows(HoldNotFoundException.class, () -> seatHoldService.confirmHold(hold.getHoldId()));
+    }
+
+    @Test
+    void releaseHold_givesSeatsBackAtOnce() {
+        Long flightId = saveFlight(10);
+        SeatHoldDTO hold = seatHoldService.holdSeats(flightId, 4);
+
+        seatHoldService.releaseHold(hold.getHoldId());
+
+        assertEquals(10, availableSeats(flightId));
+        assertFalse(seatHoldRepository.existsById(hold.getHoldId()));
+    }
+
+    @Test
+    void holdSeats_notEnoughSeats_holdsNothing() {
+        Long flightId = saveFlight(2);
+
+        assertThrows(SeatsUnavailableException.class, () -> seatHoldService.holdSeats(flightId, 3));
+        assertEquals(0, seatHoldRepository.count());
+    }
+
+    @Test
+    void start_expiresHoldsLeftBehindByAPreviousRun() throws InterruptedException {
+        Long flightId = saveFlight(7);
+        seatHoldRepository.save(new SeatHold("left-behind", flightId, 3, Instant.now().minusSeconds(60)));
+
+        seatHoldService.stop();
+        seatHoldService.start();
+
+        await(() -> availableSeats(flightId) == 10);
+    }
+
+    @Test
+    void start_expiresOnlyTheHoldsThatRanOut() throws InterruptedException {
+        Long flightId = saveFlight(4);
+        // made by an instance that is gone
+        seatHoldRepository.save(new SeatHold("elsewhere-1", flightId, 3, Instant.now().minusSeconds(1)));
+        seatHoldRepository.save(new SeatHold("elsewhere-2", flightId, 2, Instant.now().minusSeconds(1)));
+        seatHoldRepository.save(new SeatHold("still-held", flightId, 1, Instant.now().plusSeconds(60)));
+
+        seatHoldService.stop();
+        seatHoldService.start();
+
+        await(() -> availableSeats(flightId) == 9);
+        assertEquals(1, seatHoldRepository.count());
+        assertTrue(seatHoldRepository.existsById("still-held"));
+        assertEquals(1, seatHoldService.pendingHolds());
+    }
+
+    @Test
+    void expiredHold_releaseFails_isWrittenBackAndTriedAgainLater() throws InterruptedException {
+        // all seats free already, giving back three more fails
+        Long flightId = saveFlight(100);
+        seatHoldRepository.save(new SeatHold("broken", flightId, 3, Instant.now().minusSeconds(1)));
+
+        seatHoldService.stop();
+        seatHoldService.start();
+        // a few ticks, the hold is tried at the first one
+        Thread.sleep(500);
+
+        assertEquals(100, availableSeats(flightId));
+        assertTrue(seatHoldRepository.existsById("broken"));
+        assertEquals(1, seatHoldService.pendingHolds());
+    }
+
+    @Test
+    void releaseHold_releaseFails_keepsTheHold() {
+        Long flightId = saveFlight(10);
+        SeatHoldDTO hold = seatHoldService.holdSeats(flightId, 4);
+        // the seats went back some other way, giving them back again fails
+        Flight flight = flightRepository.findById(flightId).orElseThrow();
+        flight.setAvailableSeats(100);
+        flightRepository.save(flight);
+
+        assertThrows(IllegalArgumentException.class, () -> seatHoldService.releaseHold(hold.getHoldId()));
+
+        assertTrue(seatHoldRepository.existsById(hold.getHoldId()));
+        assertEquals(1, seatHoldService.pendingHolds());
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.flight.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.flight.dto.SeatMapDTO;
+import com.example.flight.entity.Flight;
+import com.example.flight.exception.SeatsUnavailableException;
+import com.example.flight.repository.FlightRepository;
+import com.example.flight.repository.SeatMapRepository;
+import com.example.flight.service.impl.SeatMapServiceImpl;
+
+// every claim commits on its own, so the test itself runs without a transaction
+@DataJpaTest
+@Import(SeatMapServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SeatMapServiceTest {
+
+    private static final int ROWS = 50;
+    private static final String COLUMNS = "ABCD-EFGH";
+
+    @Autowired
+    private SeatMapService seatMapService;
+    @Autowired
+    private FlightRepository flightRepository;
+    @Autowired
+    private SeatMapRepository seatMapRepository;
+
+    @AfterEach
+    void cleanUp() {
+        seatMapRepository.deleteAll();
+        flightRepository.deleteAll();
+    }
+
+    private Long saveFlightWithSeatMap() {
+        Flight flight = new Flight();
+        flight.setAirlineName("TestAir");
+        flight.setFromPlace("AAA");
+        flight.setToPlace("BBB");
+        flight.setScheduleDate(LocalDate.of(2025, 12, 25));
+        flight.setDepartureTime(LocalTime.of(10, 0));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(150.0);
+        flight.setTotalSeats(ROWS * 8);
+        flight.setAvailableSeats(ROWS * 8);
+        Long flightId = flightRepository.save(flight).getId();
+        seatMapService.createSeatMap(flightId, ROWS, COLUMNS);
+        return flightId;
+    }
+
+    @Test
+    void claimSeats_allOrNothing() {
+        Long flightId = saveFlightWithSeatMap();
+        seatMapService.claimSeats(flightId, List.of("12A", "12B"));
+
+        SeatsUnavailableException e = assertThrows(SeatsUnavailableException.class,
+                () -> seatMapService.claimSeats(flightId, List.of("12C", "12B")));
+
+        assertEquals("Seats already taken: 12B", e.getMessage());
+        SeatMapDTO seatMap = seatMapService.getSeatMap(flightId);
+        assertEquals(List.of("12A", "12B"), seatMap.getOccupiedSeats());
+        assertEquals(398, seatMap.getFreeSeats());
+    }
+
+    @Test
+    void autoAssignAndRelease_persistTheBitmap() {
+        Long flightId = saveFlightWithSeatMap();
+
+        assertEquals(List.of("1A", "1B", "1C"), seatMapService.autoAssignSeats(flightId, 3));
+        assertEquals(List.of("1E", "1F", "1G", "1H"), seatMapService.autoAssignSeats(flightId, 4));
+        seatMapService.releaseSeats(flightId, List.of("1B"));
+        assertThrows(IllegalArgumentException.class, () -> seatMapService.releaseSeats(flightId, List.of("1B")));
+
+        byte[] stored = seatMapRepository.findById(flightId).orElseThrow().getOccupancy();
+        BitSet occupied = BitSet.valueOf(stored);
+        assertEquals(6, occupied.cardinality());
+        assertTrue(occupied.get(0) && !occupied.get(1) && occupied.get(2));
+    }
+
+    @Test
+    void claimSeats_staleMapOfAnotherInstance_reloadsAndRechecks() {
+        Long flightId = saveFlightWithSeatMap();
+        seatMapService.getSeatMap(flightId);
+        // another instance takes 5A behind this one's back
+        seatMapRepository.updateOccupancy(flightId, new byte[] { 0, 0, 0, 0, 1 }, 0L);
+
+        assertThrows(SeatsUnavailableException.class, () -> seatMapService.claimSeats(flightId, List.of("5A")));
+        assertEquals(List.of("5B"), seatMapService.claimSeats(flightId, List.of("5B")));
+        assertEquals(List.of("5A", "5B"), seatMapService.getSeatMap(flightId).getOccupiedSeats());
+    }
+
+    @Test
+    void claimSeats_parallelGroups_neverShareASeat() throws InterruptedException {
+        Long flightId = saveFlightWithSeatMap();
+        ConcurrentLinkedQueue<String> claimed = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        for (int i = 0; i < 400; i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int row = random.nextInt(1, ROWS + 1);
+                char letter = COLUMNS.replace("-", "").charAt(random.nextInt(7));
+                List<String> seats = List.of(row + "" + letter, row + "" + (char) (letter + 1));
+                try {
+                    start.await();
+                    claimed.addAll(random.nextBoolean()
+                            ? seatMapService.claimSeats(flightId, seats)
+                            : seatMapService.autoAssignSeats(flightId, 2));
+                } catch (SeatsUnavailableException e) {
+                    // somebody else was faster
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        List<String> sorted = new ArrayList<>(claimed);
+        Collections.sort(sorted);
+        List<String> occupied = new ArrayList<>(seatMapService.getSeatMap(flightId).getOccupiedSeats());
+        Collections.sort(occupied);
+        assertEquals(sorted, occupied);
+        assertEquals(sorted.size(), BitSet.valueOf(
+                seatMapRepository.findById(flightId).orElseThrow().getOccupancy()).cardinality());
+    }
+
+    @Test
+    void createSeatMap_layoutMustMatchTotalSeats() {
+        Long flightId = saveFlightWithSeatMap();
+
+        assertThrows(IllegalArgumentException.class, () -> seatMapService.createSeatMap(flightId, ROWS, COLUMNS));
+        assertThrows(IllegalArgumentException.class, () -> seatMapService.createSeatMap(flightId, 10, COLUMNS));
+    }
+
+    @Test
+    void createSeatMap_again_neverWipesTheSeatsAlreadyTaken() {
+        Long flightId = saveFlightWithSeatMap();
+        seatMapService.claimSeats(flightId, List.of("1A"));
+
+        assertThrows(IllegalArgumentException.class, () -> seatMapService.createSeatMap(flightId, ROWS, COLUMNS));
+
+        assertEquals(1, BitSet.valueOf(seatMapRepository.findById(flightId).orElseThrow().getOccupancy()).cardinality());
+    }
+
+    @Test
+    void createSeatMap_moreSeatsThanTheOccupancyColumnHolds_throwsIllegalArgumentException() {
+        Flight flight = new Flight();
+        flight.setAirlineName("TestAir");
+        flight.setFromPlace("AAA");
+        flight.setToPlace("BBB");
+        flight.setScheduleDate(LocalDate.of(2025, 12, 25));
+        flight.setDepartureTime(LocalTime.of(10, 0));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(150.0);
+        flight.setTotalSeats(1025 * 8);
+        flight.setAvailableSeats(1025 * 8);
+        Long flightId = flightRepository.save(flight).getId();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> seatMapService.createSeatMap(flightId, 1025, COLUMNS));
+        assertEquals("A seat map holds at most 8192 seats.", e.getMessage());
+    }
+}
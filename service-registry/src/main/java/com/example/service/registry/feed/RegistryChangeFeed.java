@@ -0,0 +1,160 @@
+package com.example.service.registry.feed;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * Registrations and cancellations of the Eureka registry as a numbered feed, so
+ * clients learn of a new or departed instance the moment this node does instead
+ * of after the response cache and their own fetch interval. Every change gets
+ * the next version, the last capacity changes are kept, and a client that asks
+ * for the changes after a version it already has waits until there are some.
+ * A client further behind than that is told to start over from the snapshot.
+ *
+ * Versions count from the start of this node, its epoch, so a client that
+ * switches nodes or outlives a restart starts over as well.
+ *
+ * A registration or renewal that repeats what is known gets no version, so the
+ * feed only moves when the set of instances or their status does. Eureka
+ * publishes no event for a status set through its REST API, OUT_OF_SERVICE for
+ * example, so such a change reaches the feed with the instance's next renewal,
+ * which carries the instance as the registry now has it. Replicated changes are
+ * included, any registry node serves the whole feed.
+ */
+@Component
+public class RegistryChangeFeed {
+
+	private final int capacity;
+	private final String epoch = UUID.randomUUID().toString();
+
+	private long version;
+	private final Map<String, Instance> instances = new LinkedHashMap<>();
+	private final Deque<Change> changes = new ArrayDeque<>();
+	// the version each waiting client has, DeferredResult compares by identity
+	private final Map<DeferredResult<Changes>, Long> waiters = new HashMap<>();
+	private Snapshot snapshot = new Snapshot(epoch, 0, List.of());
+
+	public RegistryChangeFeed(@Value("${registry.feed.capacity:4096}") int capacity) {
+		this.capacity = capacity;
+	}
+
+	@EventListener
+	public void registered(EurekaInstanceRegisteredEvent event) {
+		publish(Type.REGISTERED, instance(event.getInstanceInfo()));
+	}
+
+	// a status changed without a new registration shows up here
+	@EventListener
+	public void renewed(EurekaInstanceRenewedEvent event) {
+		if (event.getInstanceInfo() != null) {
+			publish(Type.REGISTERED, instance(event.getInstanceInfo()));
+		}
+	}
+
+	@EventListener
+	public void cancelled(EurekaInstanceCanceledEvent event) {
+		publish(Type.CANCELLED, new Instance(event.getAppName(), event.getServerId(), null, 0, false, null, Map.of()));
+	}
+
+	private static Instance instance(InstanceInfo info) {
+		boolean secure = info.isPortEnabled(InstanceInfo.PortType.SECURE);
+		return new Instance(info.getAppName(), info.getInstanceId(), info.getHostName(),
+				secure ? info.getSecurePort() : info.getPort(), secure, info.getStatus().name(), info.getMetadata());
+	}
+
+	synchronized void publish(Type type, Instance instance) {
+		String key = instance.serviceId() + "/" + instance.instanceId();
+		if (type == Type.REGISTERED ? instance.equals(instances.put(key, instance)) : instances.remove(key) == null) {
+			return;
+		}
+		changes.addLast(new Change(++version, type, instance));
+		if (changes.size() > capacity) {
+			changes.removeFirst();
+		}
+		List<Map.Entry<DeferredResult<Changes>, Long>> woken = new ArrayList<>(waiters.entrySet());
+		waiters.clear();
+		for (Map.Entry<DeferredResult<Changes>, Long> waiter : woken) {
+			waiter.getKey().setResult(changesSince(epoch, waiter.getValue()));
+		}
+	}
+
+	public synchronized Changes changesSince(String clientEpoch, long since) {
+		long oldest = changes.isEmpty() ? version : changes.getFirst().version() - 1;
+		if (!epoch.equals(clientEpoch) || since < oldest || since > version) {
+			// from another registry node, before a restart or too far behind
+			return new Changes(epoch, version, true, List.of());
+		}
+		return new Changes(epoch, version, false,
+				changes.stream().filter(change -> change.version() > since).toList());
+	}
+
+	// answered at once when there are changes after since, else on the next one
+	public synchronized void awaitChanges(String clientEpoch, long since, DeferredResult<Changes> result) {
+		Changes available = changesSince(clientEpoch, since);
+		if (available.resync() || !available.changes().isEmpty()) {
+			result.setResult(available);
+			return;
+		}
+		waiters.put(result, since);
+		result.onCompletion(() -> removeWaiter(result));
+	}
+
+	private synchronized void removeWaiter(DeferredResult<Changes> result) {
+		waiters.remove(result);
+	}
+
+	// built once per version, however many clients start over at the same time
+	public synchronized Snapshot snapshot() {
+		if (snapshot.version() != version) {
+			snapshot = new Snapshot(epoch, version, List.copyOf(instances.values()));
+		}
+		return snapshot;
+	}
+
+	public synchronized long version() {
+		return version;
+	}
+
+	synchronized int waiting() {
+		return waiters.size();
+	}
+
+	public enum Type {
+		REGISTERED, CANCELLED
+	}
+
+	// only what a client needs to call the instance, a cancellation carries the ids
+	public record Instance(String serviceId, String instanceId, String host, int port, boolean secure, String status,
+			Map<String, String> metadata) {
+
+		public Instance {
+			metadata = metadata == null ? Map.of() : Collections.unmodifiableMap(new HashMap<>(metadata));
+		}
+	}
+
+	public record Change(long version, Type type, Instance instance) {
+	}
+
+	public record Changes(String epoch, long version, boolean resync, List<Change> changes) {
+	}
+
+	public record Snapshot(String epoch, long version, List<Instance> instances) {
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.service.registry.feed;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * The {@link RegistryChangeFeed} over HTTP. Clients read the snapshot once, then
+ * keep asking for the changes after the version they have, each request held
+ * open for up to wait-millis until something changes.
+ */
+@RestController
+@RequestMapping("/registry")
+public class RegistryFeedController {
+
+	private final RegistryChangeFeed feed;
+	private final long maxWaitMillis;
+
+	public RegistryFeedController(RegistryChangeFeed feed,
+			@Value("${registry.feed.max-wait-millis:60000}") long maxWaitMillis) {
+		this.feed = feed;
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	// 304 when the client already has this version
+	@GetMapping("/snapshot")
+	public ResponseEntity<RegistryChangeFeed.Snapshot> snapshot(WebRequest request) {
+		RegistryChangeFeed.Snapshot snapshot = feed.snapshot();
+		String etag = "\"" + snapshot.epoch() + "-" + snapshot.version() + "\"";
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
+		return ResponseEntity.ok().eTag(etag).body(snapshot);
+	}
+
+	@GetMapping("/changes")
+	public DeferredResult<RegistryChangeFeed.Changes> changes(@RequestParam String epoch, @RequestParam long since,
+			@RequestParam(defaultValue = "30000") long waitMillis) {
+		// nothing new before the wait is over, the client asks again from the same version
+		DeferredResult<RegistryChangeFeed.Changes> result = new DeferredResult<>(
+				Math.max(1, Math.min(waitMillis, maxWaitMillis)), () -> feed.changesSince(epoch, since));
+		feed.awaitChanges(epoch, since, result);
+		return result;
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.service.registry.feed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.example.service.registry.feed.RegistryChangeFeed.Changes;
+import com.netflix.appinfo.InstanceInfo;
+
+class RegistryChangeFeedTest {
+
+	private final RegistryChangeFeed feed = new RegistryChangeFeed(3);
+
+	private static InstanceInfo instance(String id, int port, InstanceInfo.InstanceStatus status) {
+		return InstanceInfo.Builder.newBuilder()
+				.setAppName("FLIGHT-SERVICE")
+				.setInstanceId(id)
+				.setHostName("localhost")
+				.setPort(port)
+				.setStatus(status)
+				.setMetadata(Map.of("zone", "zone-b"))
+				.build();
+	}
+
+	private void register(String id, int port, InstanceInfo.InstanceStatus status) {
+		feed.registered(new EurekaInstanceRegisteredEvent(this, instance(id, port, status), 90, false));
+	}
+
+	private String epoch() {
+		return feed.snapshot().epoch();
+	}
+
+	@Test
+	void changes_areNumbered_andRepeatedRegistrationsAreNoChange() {
+		register("flight-1", 8081, InstanceInfo.InstanceStatus.UP);
+		register("flight-1", 8081, InstanceInfo.InstanceStatus.UP);
+		register("flight-1", 8081, InstanceInfo.InstanceStatus.DOWN);
+		feed.cancelled(new EurekaInstanceCanceledEvent(this, "FLIGHT-SERVICE", "flight-1", false));
+		feed.cancelled(new EurekaInstanceCanceledEvent(this, "FLIGHT-SERVICE", "flight-1", false));
+
+		Changes changes = feed.changesSince(epoch(), 1);
+
+		assertEquals(3, changes.version());
+		assertFalse(changes.resync());
+		assertEquals(List.of(2L, 3L), changes.changes().stream().map(RegistryChangeFeed.Change::version).toList());
+		assertEquals("DOWN", changes.changes().get(0).instance().status());
+		assertEquals(RegistryChangeFeed.Type.CANCELLED, changes.changes().get(1).type());
+	}
+
+	@Test
+	void renewal_publishesAStatusSetThroughTheRegistry_andNothingElse() {
+		register("flight-1", 8081, InstanceInfo.InstanceStatus.UP);
+		feed.renewed(new EurekaInstanceRenewedEvent(this, "FLIGHT-SERVICE", "flight-1",
+				instance("flight-1", 8081, InstanceInfo.InstanceStatus.UP), false));
+		assertEquals(1, feed.version());
+
+		// PUT /eureka/apps/FLIGHT-SERVICE/flight-1/status?value=OUT_OF_SERVICE, then a heartbeat
+		feed.renewed(new EurekaInstanceRenewedEvent(this, "FLIGHT-SERVICE", "flight-1",
+				instance("flight-1", 8081, InstanceInfo.InstanceStatus.OUT_OF_SERVICE), false));
+		feed.renewed(new EurekaInstanceRenewedEvent(this, "FLIGHT-SERVICE", "gone", null, false));
+
+		Changes changes = feed.changesSince(epoch(), 1);
+		assertEquals(2, changes.version());
+		assertEquals("OUT_OF_SERVICE", changes.changes().get(0).instance().status());
+	}
+
+	@Test
+	void clientsTooFarBehind_orFromAnotherEpoch_startOver() {
+		for (int port = 8081; port <= 8085; port++) {
+			register("flight-" + port, port, InstanceInfo.InstanceStatus.UP);
+		}
+
+		assertTrue(feed.changesSince(epoch(), 1).resync());
+		assertEquals(3, feed.changesSince(epoch(), 2).changes().size());
+		assertTrue(feed.changesSince("another-node", 5).resync());
+		assertTrue(feed.changesSince(epoch(), 6).resync());
+	}
+
+	@Test
+	void waitingClient_isAnsweredByTheNextChange() {
+		register("flight-1", 8081, InstanceInfo.InstanceStatus.UP);
+		DeferredResult<Changes> result = new DeferredResult<>();
+
+		feed.awaitChanges(epoch(), 1, result);
+		assertFalse(result.hasResult());
+		assertEquals(1, feed.waiting());
+
+		register("flight-2", 8082, InstanceInfo.InstanceStatus.UP);
+		Changes changes = (Changes) result.getResult();
+		assertEquals(2, changes.version());
+		assertEquals("flight-2", changes.changes().get(0).instance().instanceId());
+		assertEquals(8082, changes.changes().get(0).instance().port());
+		assertEquals(0, feed.waiting());
+	}
+
+	@Test
+	void snapshot_holdsTheCurrentInstances_andIsBuiltOncePerVersion() {
+		register("flight-1", 8081, InstanceInfo.InstanceStatus.UP);
+		register("flight-2", 8082, InstanceInfo.InstanceStatus.UP);
+		feed.cancelled(new EurekaInstanceCanceledEvent(this, "FLIGHT-SERVICE", "flight-1", false));
+
+		RegistryChangeFeed.Snapshot snapshot = feed.snapshot();
+
+		assertEquals(3, snapshot.version());
+		assertEquals(List.of("flight-2"), snapshot.instances().stream()
+				.map(RegistryChangeFeed.Instance::instanceId).toList());
+		assertEquals("zone-b", snapshot.instances().get(0).metadata().get("zone"));
+		assertSame(snapshot, feed.snapshot());
+	}
+}